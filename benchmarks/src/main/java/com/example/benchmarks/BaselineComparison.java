@@ -0,0 +1,90 @@
+package com.example.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compares two JMH JSON result files (baseline, then current) benchmark by benchmark and parameter set. A throughput
+// drop or an allocation (gc.alloc.rate.norm) increase beyond the threshold, and beyond the baseline's error margin,
+// is a regression; the exit status is 1 if there is any.
+// Usage: java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.BaselineComparison baseline.json current.json [thresholdPercent]
+public class BaselineComparison {
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparison <baseline.json> <current.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = (args.length > 2 ? Double.parseDouble(args[2]) : 10.0) / 100.0;
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> current = read(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW         %s%n", entry.getKey());
+                continue;
+            }
+            JsonNode after = entry.getValue();
+            // higher is better for the primary (ops/s) metric, lower is better for bytes allocated per op
+            regressions += compare(entry.getKey(), before.path("primaryMetric"), after.path("primaryMetric"), threshold, true);
+            JsonNode allocationBefore = secondary(before, ALLOCATION);
+            JsonNode allocationAfter = secondary(after, ALLOCATION);
+            if (allocationBefore != null && allocationAfter != null) {
+                regressions += compare(entry.getKey() + " [" + ALLOCATION + "]", allocationBefore, allocationAfter, threshold, false);
+            }
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("MISSING     %s%n", key);
+            }
+        }
+        System.out.printf("%d regression(s) beyond %.0f%%%n", regressions, threshold * 100);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    private static int compare(String name, JsonNode before, JsonNode after, double threshold, boolean higherIsBetter) {
+        double baselineScore = before.path("score").asDouble();
+        double baselineError = finite(before.path("scoreError").asDouble());
+        double currentScore = after.path("score").asDouble();
+        double change = baselineScore == 0 ? 0 : (currentScore - baselineScore) / baselineScore;
+        double worse = higherIsBetter ? baselineScore - currentScore : currentScore - baselineScore;
+        boolean regression = worse > baselineScore * threshold && worse > baselineError;
+        System.out.printf("%-11s %s: %.3f -> %.3f %s (%+.1f%%)%n", regression ? "REGRESSION" : "ok", name,
+                baselineScore, currentScore, after.path("scoreUnit").asText(), change * 100);
+        return regression ? 1 : 0;
+    }
+
+    // benchmark name + sorted parameters -> result
+    private static Map<String, JsonNode> read(File file) throws Exception {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                params.put(field.getKey(), field.getValue().asText());
+            }
+            results.put(result.path("benchmark").asText() + (params.isEmpty() ? "" : " " + params), result);
+        }
+        return results;
+    }
+
+    // Older JMH versions prefix profiler metrics with a middle dot
+    private static JsonNode secondary(JsonNode result, String metric) {
+        JsonNode secondaryMetrics = result.path("secondaryMetrics");
+        JsonNode value = secondaryMetrics.get(metric);
+        return value != null ? value : secondaryMetrics.get("·" + metric);
+    }
+
+    private static double finite(double value) {
+        return Double.isFinite(value) ? value : 0;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.benchmarks;
+
+import com.example.config.TransferConfiguration;
+import com.example.resources.CrossRegionCopyResult;
+import com.example.utils.CrossRegionCopier;
+import com.example.utils.MultipartJournalStore;
+import com.example.utils.ObjectStorageUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// CrossRegionCopier.copy between two fake regions (the /oc1/copyBucketFileToOc10 path): objects up to partSize are
+// streamed GET -> PUT, larger ones copied as concurrent ranged GETs feeding uploadPart.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g", "-XX:MaxDirectMemorySize=2g"})
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class CopyBenchmark {
+
+    @Param({"16777216", "268435456"})
+    public long objectSize;
+
+    @Param({"33554432", "67108864"})
+    public long partSize;
+
+    @Param({"4", "8"})
+    public int concurrency;
+
+    @Param({"20"})
+    public long latencyMillis;
+
+    // Per request in each region, like one connection; 0 = unlimited
+    @Param({"104857600"})
+    public long bytesPerSecond;
+
+    private TransferFixture fixture;
+    private CrossRegionCopier copier;
+    private Path journalDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        TransferConfiguration configuration = new TransferConfiguration();
+        configuration.setCrossRegionPartSize(partSize);
+        configuration.setCrossRegionConcurrency(concurrency);
+        configuration.setCrossRegionCopyThreads(concurrency * 2);
+        fixture = new TransferFixture(configuration);
+        InMemoryObjectStorage sourceStorage = new InMemoryObjectStorage(TransferFixture.NAMESPACE, latencyMillis, bytesPerSecond, false);
+        sourceStorage.seed("bench-source", "copy.bin", TransferFixture.payload(objectSize));
+        ObjectStorageUtils source = fixture.region("bench-source-region", sourceStorage);
+        ObjectStorageUtils destination = fixture.region("bench-destination-region",
+                new InMemoryObjectStorage(TransferFixture.NAMESPACE, latencyMillis, bytesPerSecond, false));
+        journalDirectory = Files.createTempDirectory("copy-benchmark-journal");
+        copier = new CrossRegionCopier(source, destination, configuration, fixture.getPartBufferPool(),
+                new MultipartJournalStore(journalDirectory.toString()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        copier.shutdown();
+        fixture.shutdown();
+        Files.deleteIfExists(journalDirectory);
+    }
+
+    @Benchmark
+    public boolean copy(TransferCounters counters) throws Exception {
+        CrossRegionCopyResult result = copier.copy("bench-source", "copy.bin", "bench-destination", "copy.bin", false, false);
+        if (result == null || !result.isSuccess()) {
+            throw new IllegalStateException("Cross-region copy failed");
+        }
+        counters.bytes += result.getBytes();
+        return result.isSuccess();
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Bytes the benchmark process wrote and read through the kernel (wchar / rchar of /proc/self/io) during the measured
+// calls, reported as bytes/s rates next to TransferCounters. Against the in-memory fake that is file I/O only. Both stay 0
+// where /proc/self/io does not exist.
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class DiskCounters {
+    private static final Path PROC_IO = Paths.get("/proc/self/io");
+
+    public long diskWrittenBytes;
+    public long diskReadBytes;
+
+    private long[] start;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        diskWrittenBytes = 0;
+        diskReadBytes = 0;
+    }
+
+    public void begin() {
+        start = sample();
+    }
+
+    public void end() {
+        long[] now = sample();
+        if (start != null && now != null) {
+            diskWrittenBytes += now[0] - start[0];
+            diskReadBytes += now[1] - start[1];
+        }
+    }
+
+    // {wchar, rchar}, or null without /proc
+    private static long[] sample() {
+        if (!Files.isReadable(PROC_IO)) {
+            return null;
+        }
+        try {
+            long[] counters = new long[2];
+            for (String line : Files.readAllLines(PROC_IO)) {
+                if (line.startsWith("wchar:")) {
+                    counters[0] = Long.parseLong(line.substring(6).trim());
+                } else if (line.startsWith("rchar:")) {
+                    counters[1] = Long.parseLong(line.substring(6).trim());
+                }
+            }
+            return counters;
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.benchmarks;
+
+import com.example.config.ExecutionMode;
+import com.example.config.TransferConfiguration;
+import com.example.utils.TransferExecutors;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Runs the same simulated load (N slow cross-region transfers of M parts each) through the executors of
+// both execution modes and prints wall time and peak platform threads. Both modes get the same part concurrency
+// (partUploadThreads platform threads vs virtualMaxConcurrentTransfers permits) and unbounded request concurrency,
+// so the difference is the cost of the threads, not of the limits.
+// Usage: java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.ExecutionModeComparison [transfers] [partsPerTransfer] [partLatencyMillis] [partConcurrency]
+public class ExecutionModeComparison {
+
+    public static void main(String[] args) throws Exception {
+        int transfers = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int partsPerTransfer = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        long partLatencyMillis = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        int partConcurrency = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+
+        System.out.printf("%d transfers x %d parts, %d ms per part, %d parts at once%n", transfers, partsPerTransfer, partLatencyMillis, partConcurrency);
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            run(mode, transfers, partsPerTransfer, partLatencyMillis, partConcurrency);
+        }
+    }
+
+    private static void run(ExecutionMode mode, int transfers, int partsPerTransfer, long partLatencyMillis, int partConcurrency) throws Exception {
+        TransferConfiguration transferConfiguration = new TransferConfiguration();
+        transferConfiguration.setExecutionMode(mode);
+        transferConfiguration.setPartUploadThreads(partConcurrency);
+        transferConfiguration.setVirtualMaxConcurrentTransfers(partConcurrency);
+        // the PLATFORM request executor is an unbounded cached pool
+        transferConfiguration.setVirtualMaxConcurrentRequests(transfers);
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        threadMXBean.resetPeakThreadCount();
+
+        // Same shape as the service: one request task per transfer, which fans its parts out to a part executor
+        ExecutorService requestExecutor = TransferExecutors.newRequestExecutor("compare-request", transferConfiguration);
+        ExecutorService partExecutor = TransferExecutors.newTransferExecutor("compare-part",
+                transferConfiguration.getPartUploadThreads(), transferConfiguration);
+
+        long start = System.nanoTime();
+        List<Future<?>> requests = new ArrayList<>(transfers);
+        for (int t = 0; t < transfers; t++) {
+            requests.add(requestExecutor.submit(() -> {
+                List<Future<?>> parts = new ArrayList<>(partsPerTransfer);
+                for (int p = 0; p < partsPerTransfer; p++) {
+                    // Blocking sleep stands in for a slow ranged GET / uploadPart round trip
+                    parts.add(partExecutor.submit(() -> {
+                        Thread.sleep(partLatencyMillis);
+                        return null;
+                    }));
+                }
+                for (Future<?> part : parts) {
+                    part.get();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> request : requests) {
+            request.get();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        requestExecutor.shutdown();
+        partExecutor.shutdown();
+        requestExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        partExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        System.out.printf("%-8s wall=%d ms, peak platform threads=%d%n", mode, elapsedMillis, threadMXBean.getPeakThreadCount());
+    }
+}
@@ -0,0 +1,505 @@
+package com.example.benchmarks;
+
+import com.example.utils.ObjectStorageUtils;
+import com.oracle.bmc.model.BmcException;
+import com.oracle.bmc.model.Range;
+import com.oracle.bmc.objectstorage.ObjectStorage;
+import com.oracle.bmc.objectstorage.model.CommitMultipartUploadPartDetails;
+import com.oracle.bmc.objectstorage.model.CopyObjectDetails;
+import com.oracle.bmc.objectstorage.model.ListObjects;
+import com.oracle.bmc.objectstorage.model.MultipartUpload;
+import com.oracle.bmc.objectstorage.model.MultipartUploadPartSummary;
+import com.oracle.bmc.objectstorage.model.ObjectSummary;
+import com.oracle.bmc.objectstorage.model.WorkRequest;
+import com.oracle.bmc.objectstorage.requests.AbortMultipartUploadRequest;
+import com.oracle.bmc.objectstorage.requests.CommitMultipartUploadRequest;
+import com.oracle.bmc.objectstorage.requests.CopyObjectRequest;
+import com.oracle.bmc.objectstorage.requests.CreateMultipartUploadRequest;
+import com.oracle.bmc.objectstorage.requests.DeleteObjectRequest;
+import com.oracle.bmc.objectstorage.requests.GetObjectRequest;
+import com.oracle.bmc.objectstorage.requests.GetWorkRequestRequest;
+import com.oracle.bmc.objectstorage.requests.HeadObjectRequest;
+import com.oracle.bmc.objectstorage.requests.ListMultipartUploadPartsRequest;
+import com.oracle.bmc.objectstorage.requests.ListObjectsRequest;
+import com.oracle.bmc.objectstorage.requests.PutObjectRequest;
+import com.oracle.bmc.objectstorage.requests.UploadPartRequest;
+import com.oracle.bmc.objectstorage.responses.AbortMultipartUploadResponse;
+import com.oracle.bmc.objectstorage.responses.CommitMultipartUploadResponse;
+import com.oracle.bmc.objectstorage.responses.CopyObjectResponse;
+import com.oracle.bmc.objectstorage.responses.CreateMultipartUploadResponse;
+import com.oracle.bmc.objectstorage.responses.DeleteObjectResponse;
+import com.oracle.bmc.objectstorage.responses.GetNamespaceResponse;
+import com.oracle.bmc.objectstorage.responses.GetObjectResponse;
+import com.oracle.bmc.objectstorage.responses.GetWorkRequestResponse;
+import com.oracle.bmc.objectstorage.responses.HeadObjectResponse;
+import com.oracle.bmc.objectstorage.responses.ListMultipartUploadPartsResponse;
+import com.oracle.bmc.objectstorage.responses.ListObjectsResponse;
+import com.oracle.bmc.objectstorage.responses.PutObjectResponse;
+import com.oracle.bmc.objectstorage.responses.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// In-memory stand-in for one region's Object Storage, exposed through the SDK's ObjectStorage interface as a dynamic
+// proxy so it keeps compiling as the SDK adds operations. It implements the calls the transfer code makes (objects,
+// multipart uploads, listing, server-side copy, work requests, GetNamespace) with the service's conditional-request
+// and checksum semantics; every other operation throws UnsupportedOperationException.
+// With retainWrites=false uploaded bodies are read and dropped, so destination-side memory and allocation
+// do not show up in the benchmark's numbers; objects written that way can be HEADed but not read back.
+public class InMemoryObjectStorage implements InvocationHandler {
+    private static final int SCRATCH_BYTES = 64 * 1024;
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_BYTES]);
+
+    private final String namespaceName;
+    private final SimulatedLink link;
+    private final boolean retainWrites;
+    private final ObjectStorage client;
+    // keyed by bucket + "/" + object name, so a bucket's objects are contiguous and in listing order
+    private final ConcurrentSkipListMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+    private final Map<String, ConcurrentSkipListMap<Integer, StoredPart>> uploads = new ConcurrentHashMap<>();
+    private final Map<String, WorkRequest> workRequests = new ConcurrentHashMap<>();
+
+    public InMemoryObjectStorage(String namespaceName, long latencyMillis, long bytesPerSecond, boolean retainWrites) {
+        this.namespaceName = namespaceName;
+        this.link = new SimulatedLink(latencyMillis, bytesPerSecond);
+        this.retainWrites = retainWrites;
+        this.client = (ObjectStorage) Proxy.newProxyInstance(ObjectStorage.class.getClassLoader(), new Class<?>[]{ObjectStorage.class}, this);
+    }
+
+    public ObjectStorage client() {
+        return client;
+    }
+
+    // Stores an object directly, without simulated network cost; used to set up download and copy sources
+    public void seed(String bucketName, String objectName, byte[] data) {
+        objects.put(key(bucketName, objectName), new StoredObject(data, data.length, md5(data, 0, data.length), null));
+    }
+
+    public int objectCount() {
+        return objects.size();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "InMemoryObjectStorage[" + namespaceName + "]";
+            }
+        }
+        switch (method.getName()) {
+            case "getObject":
+                return getObject((GetObjectRequest) args[0]);
+            case "headObject":
+                return headObject((HeadObjectRequest) args[0]);
+            case "putObject":
+                return putObject((PutObjectRequest) args[0]);
+            case "createMultipartUpload":
+                return createMultipartUpload((CreateMultipartUploadRequest) args[0]);
+            case "uploadPart":
+                return uploadPart((UploadPartRequest) args[0]);
+            case "commitMultipartUpload":
+                return commitMultipartUpload((CommitMultipartUploadRequest) args[0]);
+            case "abortMultipartUpload":
+                return abortMultipartUpload((AbortMultipartUploadRequest) args[0]);
+            case "listMultipartUploadParts":
+                return listMultipartUploadParts((ListMultipartUploadPartsRequest) args[0]);
+            case "listObjects":
+                return listObjects((ListObjectsRequest) args[0]);
+            case "copyObject":
+                return copyObject((CopyObjectRequest) args[0]);
+            case "getWorkRequest":
+                return getWorkRequest((GetWorkRequestRequest) args[0]);
+            case "deleteObject":
+                return deleteObject((DeleteObjectRequest) args[0]);
+            case "getNamespace":
+                link.roundTrip();
+                return GetNamespaceResponse.builder().__httpStatusCode__(200).value(namespaceName).build();
+            case "close":
+            case "refreshClient":
+            case "setRegion":
+            case "setEndpoint":
+                return null;
+            case "getEndpoint":
+                return "https://objectstorage.in-memory";
+            default:
+                throw new UnsupportedOperationException(method.getName() + " is not implemented by InMemoryObjectStorage");
+        }
+    }
+
+    private GetObjectResponse getObject(GetObjectRequest request) {
+        link.roundTrip();
+        StoredObject object = find(request.getBucketName(), request.getObjectName());
+        if (request.getIfMatch() != null && !request.getIfMatch().equals(object.eTag)) {
+            throw error(412, "IfMatchFailed", "ETag does not match");
+        }
+        if (request.getIfNoneMatch() != null && request.getIfNoneMatch().equals(object.eTag)) {
+            return GetObjectResponse.builder().__httpStatusCode__(304).isNotModified(true).eTag(object.eTag).build();
+        }
+        if (object.data == null) {
+            throw new IllegalStateException(request.getObjectName() + " was written with retainWrites=false and has no body");
+        }
+        Range range = request.getRange();
+        long start = 0;
+        long end = object.size - 1;
+        if (range != null) {
+            if (range.getStartByte() != null) {
+                start = range.getStartByte();
+                if (range.getEndByte() != null) {
+                    end = Math.min(range.getEndByte(), object.size - 1);
+                }
+            } else if (range.getEndByte() != null) {
+                // suffix range: the last endByte bytes
+                start = Math.max(0, object.size - range.getEndByte());
+            }
+            if (start >= object.size) {
+                throw error(416, "InvalidRange", "Range not satisfiable");
+            }
+        }
+        int length = (int) (end - start + 1);
+        GetObjectResponse.Builder builder = GetObjectResponse.builder()
+                .__httpStatusCode__(range != null ? 206 : 200)
+                .inputStream(new PacedInputStream(new ByteArrayInputStream(object.data, (int) start, length), link.open()))
+                .contentLength((long) length)
+                .eTag(object.eTag)
+                .opcMultipartMd5(object.multipartMd5)
+                .lastModified(object.lastModified);
+        if (range != null) {
+            builder.contentRange(new Range(start, end));
+        } else {
+            builder.contentMd5(object.contentMd5);
+        }
+        return builder.build();
+    }
+
+    private HeadObjectResponse headObject(HeadObjectRequest request) {
+        link.roundTrip();
+        StoredObject object = find(request.getBucketName(), request.getObjectName());
+        if (request.getIfMatch() != null && !request.getIfMatch().equals(object.eTag)) {
+            throw error(412, "IfMatchFailed", "ETag does not match");
+        }
+        if (request.getIfNoneMatch() != null && request.getIfNoneMatch().equals(object.eTag)) {
+            return HeadObjectResponse.builder().__httpStatusCode__(304).isNotModified(true).eTag(object.eTag).build();
+        }
+        return HeadObjectResponse.builder()
+                .__httpStatusCode__(200)
+                .contentLength(object.size)
+                .contentMd5(object.contentMd5)
+                .opcMultipartMd5(object.multipartMd5)
+                .eTag(object.eTag)
+                .lastModified(object.lastModified)
+                .build();
+    }
+
+    private PutObjectResponse putObject(PutObjectRequest request) {
+        link.roundTrip();
+        MessageDigest md = newMd5();
+        Body body = readBody(request.getPutObjectBody(), request.getContentLength(), md);
+        String contentMd5 = Base64.getEncoder().encodeToString(md.digest());
+        if (request.getContentMD5() != null && !request.getContentMD5().equals(contentMd5)) {
+            throw error(400, "InvalidContentMD5", "Content-MD5 does not match the body");
+        }
+        StoredObject object = new StoredObject(body.data, body.length, contentMd5, null);
+        objects.put(key(request.getBucketName(), request.getObjectName()), object);
+        return PutObjectResponse.builder().__httpStatusCode__(200).opcContentMd5(contentMd5).eTag(object.eTag).lastModified(object.lastModified).build();
+    }
+
+    private CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+        link.roundTrip();
+        String uploadId = UUID.randomUUID().toString();
+        String objectName = request.getCreateMultipartUploadDetails().getObject();
+        uploads.put(uploadKey(request.getBucketName(), objectName, uploadId), new ConcurrentSkipListMap<>());
+        return CreateMultipartUploadResponse.builder()
+                .__httpStatusCode__(200)
+                .multipartUpload(MultipartUpload.builder()
+                        .namespace(namespaceName)
+                        .bucket(request.getBucketName())
+                        .object(objectName)
+                        .uploadId(uploadId)
+                        .timeCreated(new Date())
+                        .build())
+                .build();
+    }
+
+    private UploadPartResponse uploadPart(UploadPartRequest request) {
+        link.roundTrip();
+        ConcurrentSkipListMap<Integer, StoredPart> parts = findUpload(request.getBucketName(), request.getObjectName(), request.getUploadId());
+        // the client sends Content-MD5 with every part; trusting it keeps the fake's hashing out of the measurement
+        MessageDigest md = request.getContentMD5() == null ? newMd5() : null;
+        Body body = readBody(request.getUploadPartBody(), request.getContentLength(), md);
+        String partMd5 = md != null ? Base64.getEncoder().encodeToString(md.digest()) : request.getContentMD5();
+        StoredPart part = new StoredPart(body.data, body.length, partMd5);
+        parts.put(request.getUploadPartNum(), part);
+        return UploadPartResponse.builder().__httpStatusCode__(200).eTag(part.eTag).opcContentMd5(partMd5).build();
+    }
+
+    private CommitMultipartUploadResponse commitMultipartUpload(CommitMultipartUploadRequest request) {
+        link.roundTrip();
+        String uploadKey = uploadKey(request.getBucketName(), request.getObjectName(), request.getUploadId());
+        ConcurrentSkipListMap<Integer, StoredPart> parts = findUpload(request.getBucketName(), request.getObjectName(), request.getUploadId());
+        List<StoredPart> committed = new ArrayList<>();
+        Map<Integer, String> partMd5s = new ConcurrentSkipListMap<>();
+        long size = 0;
+        for (CommitMultipartUploadPartDetails details : request.getCommitMultipartUploadDetails().getPartsToCommit()) {
+            StoredPart part = parts.get(details.getPartNum());
+            if (part == null || !part.eTag.equals(details.getEtag())) {
+                throw error(400, "InvalidPart", "Part " + details.getPartNum() + " is missing or has a different ETag");
+            }
+            committed.add(part);
+            partMd5s.put(details.getPartNum(), part.md5);
+            size += part.size;
+        }
+        byte[] data = null;
+        if (retainWrites) {
+            data = new byte[(int) size];
+            int offset = 0;
+            for (StoredPart part : committed) {
+                System.arraycopy(part.data, 0, data, offset, part.data.length);
+                offset += part.data.length;
+            }
+        }
+        String multipartMd5 = ObjectStorageUtils.multipartMd5(partMd5s.keySet(), partMd5s);
+        StoredObject object = new StoredObject(data, size, null, multipartMd5);
+        objects.put(key(request.getBucketName(), request.getObjectName()), object);
+        uploads.remove(uploadKey);
+        return CommitMultipartUploadResponse.builder().__httpStatusCode__(200).eTag(object.eTag).opcMultipartMd5(multipartMd5)
+                .lastModified(object.lastModified).build();
+    }
+
+    private AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+        link.roundTrip();
+        if (uploads.remove(uploadKey(request.getBucketName(), request.getObjectName(), request.getUploadId())) == null) {
+            throw error(404, "NoSuchUpload", "Upload " + request.getUploadId() + " does not exist");
+        }
+        return AbortMultipartUploadResponse.builder().__httpStatusCode__(204).build();
+    }
+
+    private ListMultipartUploadPartsResponse listMultipartUploadParts(ListMultipartUploadPartsRequest request) {
+        link.roundTrip();
+        List<MultipartUploadPartSummary> items = new ArrayList<>();
+        findUpload(request.getBucketName(), request.getObjectName(), request.getUploadId()).forEach((partNumber, part) ->
+                items.add(MultipartUploadPartSummary.builder().partNumber(partNumber).etag(part.eTag).md5(part.md5).size(part.size).build()));
+        return ListMultipartUploadPartsResponse.builder().__httpStatusCode__(200).items(items).build();
+    }
+
+    private ListObjectsResponse listObjects(ListObjectsRequest request) {
+        link.roundTrip();
+        String bucketPrefix = request.getBucketName() + "/";
+        String prefix = bucketPrefix + (request.getPrefix() != null ? request.getPrefix() : "");
+        String from = request.getStart() != null && (bucketPrefix + request.getStart()).compareTo(prefix) > 0 ? bucketPrefix + request.getStart() : prefix;
+        int limit = request.getLimit() != null ? request.getLimit() : 1000;
+        List<ObjectSummary> summaries = new ArrayList<>();
+        String nextStartWith = null;
+        for (Map.Entry<String, StoredObject> entry : objects.tailMap(from, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            String name = entry.getKey().substring(bucketPrefix.length());
+            if (summaries.size() == limit) {
+                nextStartWith = name;
+                break;
+            }
+            StoredObject object = entry.getValue();
+            summaries.add(ObjectSummary.builder().name(name).size(object.size).etag(object.eTag).md5(object.contentMd5)
+                    .timeModified(object.lastModified).build());
+        }
+        return ListObjectsResponse.builder()
+                .__httpStatusCode__(200)
+                .listObjects(ListObjects.builder().objects(summaries).nextStartWith(nextStartWith).build())
+                .build();
+    }
+
+    // Completes immediately: the copy happens inside this fake (same region and namespace only)
+    private CopyObjectResponse copyObject(CopyObjectRequest request) {
+        link.roundTrip();
+        CopyObjectDetails details = request.getCopyObjectDetails();
+        StoredObject source = find(request.getBucketName(), details.getSourceObjectName());
+        StoredObject copy = new StoredObject(source.data, source.size, source.contentMd5, source.multipartMd5);
+        objects.put(key(details.getDestinationBucket(), details.getDestinationObjectName()), copy);
+        String workRequestId = UUID.randomUUID().toString();
+        workRequests.put(workRequestId, WorkRequest.builder()
+                .id(workRequestId)
+                .status(WorkRequest.Status.Completed)
+                .operationType("COPY_OBJECT")
+                .percentComplete(100f)
+                .timeAccepted(new Date())
+                .timeFinished(new Date())
+                .build());
+        return CopyObjectResponse.builder().__httpStatusCode__(202).opcWorkRequestId(workRequestId).build();
+    }
+
+    private GetWorkRequestResponse getWorkRequest(GetWorkRequestRequest request) {
+        link.roundTrip();
+        WorkRequest workRequest = workRequests.get(request.getWorkRequestId());
+        if (workRequest == null) {
+            throw error(404, "NotFound", "Work request " + request.getWorkRequestId() + " does not exist");
+        }
+        return GetWorkRequestResponse.builder().__httpStatusCode__(200).workRequest(workRequest).build();
+    }
+
+    private DeleteObjectResponse deleteObject(DeleteObjectRequest request) {
+        link.roundTrip();
+        StoredObject object = find(request.getBucketName(), request.getObjectName());
+        if (request.getIfMatch() != null && !request.getIfMatch().equals(object.eTag)) {
+            throw error(412, "IfMatchFailed", "ETag does not match");
+        }
+        objects.remove(key(request.getBucketName(), request.getObjectName()));
+        return DeleteObjectResponse.builder().__httpStatusCode__(204).lastModified(new Date()).build();
+    }
+
+    // Reads the whole body at the link's pace, updating md when one is given; the bytes are kept only with retainWrites
+    private Body readBody(InputStream in, Long contentLength, MessageDigest md) {
+        SimulatedLink.Transfer transfer = link.open();
+        byte[] scratch = SCRATCH.get();
+        ByteArrayOutputStream retained = retainWrites
+                ? new ByteArrayOutputStream(contentLength != null ? contentLength.intValue() : SCRATCH_BYTES) : null;
+        long total = 0;
+        try (InputStream body = in) {
+            int read;
+            while ((read = body.read(scratch)) != -1) {
+                transfer.charge(read);
+                if (md != null) {
+                    md.update(scratch, 0, read);
+                }
+                if (retained != null) {
+                    retained.write(scratch, 0, read);
+                }
+                total += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (contentLength != null && contentLength != total) {
+            throw error(400, "IncompleteBody", "Expected " + contentLength + " bytes, received " + total);
+        }
+        return new Body(retained != null ? retained.toByteArray() : null, total);
+    }
+
+    private StoredObject find(String bucketName, String objectName) {
+        StoredObject object = objects.get(key(bucketName, objectName));
+        if (object == null) {
+            throw error(404, "ObjectNotFound", "Object " + objectName + " does not exist in bucket " + bucketName);
+        }
+        return object;
+    }
+
+    private ConcurrentSkipListMap<Integer, StoredPart> findUpload(String bucketName, String objectName, String uploadId) {
+        ConcurrentSkipListMap<Integer, StoredPart> parts = uploads.get(uploadKey(bucketName, objectName, uploadId));
+        if (parts == null) {
+            throw error(404, "NoSuchUpload", "Upload " + uploadId + " does not exist");
+        }
+        return parts;
+    }
+
+    private BmcException error(int status, String serviceCode, String message) {
+        return new BmcException(status, serviceCode, message, UUID.randomUUID().toString());
+    }
+
+    private static String key(String bucketName, String objectName) {
+        return bucketName + "/" + objectName;
+    }
+
+    private static String uploadKey(String bucketName, String objectName, String uploadId) {
+        return bucketName + "/" + objectName + "#" + uploadId;
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String md5(byte[] data, int offset, int length) {
+        MessageDigest md = newMd5();
+        md.update(data, offset, length);
+        return Base64.getEncoder().encodeToString(md.digest());
+    }
+
+    private static final class StoredObject {
+        private final byte[] data;
+        private final long size;
+        private final String contentMd5;
+        private final String multipartMd5;
+        private final String eTag = UUID.randomUUID().toString();
+        private final Date lastModified = new Date();
+
+        private StoredObject(byte[] data, long size, String contentMd5, String multipartMd5) {
+            this.data = data;
+            this.size = size;
+            this.contentMd5 = contentMd5;
+            this.multipartMd5 = multipartMd5;
+        }
+    }
+
+    private static final class Body {
+        private final byte[] data;
+        private final long length;
+
+        private Body(byte[] data, long length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    private static final class StoredPart {
+        private final byte[] data;
+        private final long size;
+        private final String md5;
+        private final String eTag = UUID.randomUUID().toString();
+
+        private StoredPart(byte[] data, long size, String md5) {
+            this.data = data;
+            this.size = size;
+            this.md5 = md5;
+        }
+    }
+
+    // Response body that arrives at the link's pace
+    private static final class PacedInputStream extends FilterInputStream {
+        private final SimulatedLink.Transfer transfer;
+
+        private PacedInputStream(InputStream in, SimulatedLink.Transfer transfer) {
+            super(in);
+            this.transfer = transfer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                transfer.charge(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            transfer.charge(read);
+            return read;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.benchmarks;
+
+import com.example.config.TransferConfiguration;
+import com.example.utils.ObjectStorageUtils;
+import com.oracle.bmc.objectstorage.responses.HeadObjectResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Writing objects to local disk: saveToLocalDisk on its own (stream -> file), and downloadToLocalDisk end to end, which
+// takes a single GET below transfer.parallelDownloadThreshold (64 MiB) and concurrent ranged GETs above it.
+// The link is unlimited by default so the numbers show the client and disk side.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-XX:MaxDirectMemorySize=2g"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class LocalDiskBenchmark {
+
+    @Param({"16777216", "134217728"})
+    public long objectSize;
+
+    @Param({"0"})
+    public long latencyMillis;
+
+    @Param({"0"})
+    public long bytesPerSecond;
+
+    private TransferFixture fixture;
+    private ObjectStorageUtils utils;
+    private byte[] payload;
+    private Path target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = new TransferFixture(new TransferConfiguration());
+        InMemoryObjectStorage storage = new InMemoryObjectStorage(TransferFixture.NAMESPACE, latencyMillis, bytesPerSecond, false);
+        payload = TransferFixture.payload(objectSize);
+        storage.seed("bench-bucket", "download.bin", payload);
+        utils = fixture.region("bench-region", storage);
+        target = Files.createTempFile("local-disk-benchmark", ".bin");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.shutdown();
+        Files.deleteIfExists(target);
+    }
+
+    @Benchmark
+    public boolean saveToLocalDisk(TransferCounters counters) throws Exception {
+        boolean saved = utils.saveToLocalDisk(new ByteArrayInputStream(payload), target.toString());
+        if (!saved) {
+            throw new IllegalStateException("saveToLocalDisk failed");
+        }
+        counters.bytes += objectSize;
+        return saved;
+    }
+
+    @Benchmark
+    public boolean downloadToLocalDisk(TransferCounters counters) throws Exception {
+        HeadObjectResponse head = utils.headObject("bench-bucket", "download.bin");
+        boolean downloaded = utils.downloadToLocalDisk("bench-bucket", "download.bin", head, target.toString());
+        if (!downloaded) {
+            throw new IllegalStateException("downloadToLocalDisk failed");
+        }
+        counters.bytes += objectSize;
+        return downloaded;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.benchmarks;
+
+import com.example.config.TransferConfiguration;
+import com.example.resources.MultipartUploadResult;
+import com.example.utils.ObjectStorageUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+// initiate + ObjectStorageUtils.uploadParts + commit (with its verifying HEAD), the path behind /oc10/uploadFileMultipart.
+// concurrency sets both maxInFlightParts and partUploadThreads, so peak part memory is about concurrency x partSize.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-XX:MaxDirectMemorySize=2g"})
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class MultipartUploadBenchmark {
+
+    @Param({"134217728"})
+    public long objectSize;
+
+    @Param({"8388608", "33554432"})
+    public long partSize;
+
+    @Param({"1", "4", "16"})
+    public int concurrency;
+
+    @Param({"20"})
+    public long latencyMillis;
+
+    // Per part request, like one connection; 0 = unlimited
+    @Param({"104857600"})
+    public long bytesPerSecond;
+
+    private TransferFixture fixture;
+    private ObjectStorageUtils utils;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TransferConfiguration configuration = new TransferConfiguration();
+        configuration.setMaxInFlightParts(concurrency);
+        configuration.setPartUploadThreads(concurrency);
+        configuration.setMaxInFlightBytes(Math.max(configuration.getMaxInFlightBytes(), concurrency * partSize));
+        fixture = new TransferFixture(configuration);
+        utils = fixture.region("bench-region", new InMemoryObjectStorage(TransferFixture.NAMESPACE, latencyMillis, bytesPerSecond, false));
+        payload = TransferFixture.payload(objectSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.shutdown();
+    }
+
+    @Benchmark
+    public boolean upload(TransferCounters counters) {
+        String uploadId = utils.initiateMultipartUpload("bench-bucket", "multipart.bin");
+        MultipartUploadResult result = utils.uploadParts(new ByteArrayInputStream(payload), "bench-bucket", "multipart.bin", uploadId, objectSize, partSize);
+        boolean committed = result.isSuccess()
+                && utils.completeMultipartUpload("bench-bucket", "multipart.bin", uploadId, result.getParts(), objectSize, result.getMultipartMd5());
+        if (!committed) {
+            throw new IllegalStateException("Multipart upload failed");
+        }
+        counters.bytes += objectSize;
+        return committed;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Network between the service and the in-memory fake: every request waits latencyMillis before its first byte,
+// then each request body or response body moves at no more than bytesPerSecond (0 = unlimited). The limit is per
+// request, like a single TCP connection, so parallel parts and ranges add up the way they do against the real service.
+final class SimulatedLink {
+    private final long latencyNanos;
+    private final long bytesPerSecond;
+
+    SimulatedLink(long latencyMillis, long bytesPerSecond) {
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    void roundTrip() {
+        sleepUntil(System.nanoTime() + latencyNanos);
+    }
+
+    // Paces one request's body
+    Transfer open() {
+        return new Transfer();
+    }
+
+    final class Transfer {
+        private final long startNanos = System.nanoTime();
+        private long bytes;
+
+        void charge(long count) {
+            if (bytesPerSecond <= 0 || count <= 0) {
+                return;
+            }
+            bytes += count;
+            sleepUntil(startNanos + (long) (bytes * 1_000_000_000.0 / bytesPerSecond));
+        }
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        long remaining;
+        // an interrupted caller (e.g. a cancelled hedge) stops waiting instead of spinning
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.benchmarks;
+
+import com.example.config.TransferConfiguration;
+import com.example.utils.ObjectStorageUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+// ObjectStorageUtils.uploadToObjectStorage: one PutObject with the body streamed from the caller
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class SinglePutBenchmark {
+
+    @Param({"1048576", "16777216"})
+    public long objectSize;
+
+    @Param({"0", "20"})
+    public long latencyMillis;
+
+    // Per request, like one connection; 0 = unlimited
+    @Param({"104857600"})
+    public long bytesPerSecond;
+
+    private TransferFixture fixture;
+    private ObjectStorageUtils utils;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new TransferFixture(new TransferConfiguration());
+        utils = fixture.region("bench-region", new InMemoryObjectStorage(TransferFixture.NAMESPACE, latencyMillis, bytesPerSecond, false));
+        payload = TransferFixture.payload(objectSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.shutdown();
+    }
+
+    @Benchmark
+    public boolean put(TransferCounters counters) throws Exception {
+        boolean uploaded = utils.uploadToObjectStorage(new ByteArrayInputStream(payload), "bench-bucket", "single-put.bin", null);
+        if (!uploaded) {
+            throw new IllegalStateException("Single put failed");
+        }
+        counters.bytes += objectSize;
+        return uploaded;
+    }
+}
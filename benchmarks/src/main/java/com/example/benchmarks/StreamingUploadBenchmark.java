@@ -0,0 +1,142 @@
+package com.example.benchmarks;
+
+import com.example.config.TransferConfiguration;
+import com.example.resources.MultipartUploadResult;
+import com.example.utils.ObjectStorageUtils;
+import org.glassfish.jersey.media.multipart.MultiPartProperties;
+import org.jvnet.mimepull.MIMEConfig;
+import org.jvnet.mimepull.MIMEMessage;
+import org.jvnet.mimepull.MIMEPart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// The request body of /oc10/uploadFileMultipart against that of /oc10/uploadStream, each through uploadParts + commit.
+// form-data parses the body with MIMEPull set up as Jersey's multipart reader does it (a part over the 4 KiB buffer
+// threshold is written to a temp file, and every part is read before the resource method runs); octet-stream reads the
+// raw body with its Content-Length, chunked without one. DiskCounters shows the temp file traffic.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-XX:MaxDirectMemorySize=2g"})
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class StreamingUploadBenchmark {
+    private static final String BOUNDARY = "Boundary_1_1234567890_1700000000000";
+
+    @Param({"form-data", "octet-stream", "chunked"})
+    public String body;
+
+    @Param({"134217728"})
+    public long objectSize;
+
+    @Param({"33554432"})
+    public long partSize;
+
+    @Param({"4"})
+    public int concurrency;
+
+    @Param({"20"})
+    public long latencyMillis;
+
+    // Per part request, like one connection; 0 = unlimited
+    @Param({"0"})
+    public long bytesPerSecond;
+
+    private TransferFixture fixture;
+    private ObjectStorageUtils utils;
+    private byte[] request;
+    private Path spoolDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        TransferConfiguration configuration = new TransferConfiguration();
+        configuration.setMaxInFlightParts(concurrency);
+        configuration.setPartUploadThreads(concurrency);
+        configuration.setMaxInFlightBytes(Math.max(configuration.getMaxInFlightBytes(), concurrency * partSize));
+        fixture = new TransferFixture(configuration);
+        utils = fixture.region("bench-region", new InMemoryObjectStorage(TransferFixture.NAMESPACE, latencyMillis, bytesPerSecond, false));
+        byte[] payload = TransferFixture.payload(objectSize);
+        request = "form-data".equals(body) ? formData(payload) : payload;
+        spoolDirectory = Files.createTempDirectory("mime-spool");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.shutdown();
+        try (Stream<Path> files = Files.walk(spoolDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public boolean upload(TransferCounters counters, DiskCounters disk) throws IOException {
+        disk.begin();
+        boolean committed;
+        if ("form-data".equals(body)) {
+            try (MIMEMessage message = new MIMEMessage(new ByteArrayInputStream(request), BOUNDARY, mimeConfig())) {
+                List<MIMEPart> parts = message.getAttachments();
+                try (InputStream file = parts.get(0).read()) {
+                    committed = upload(file, objectSize);
+                }
+            }
+        } else {
+            committed = upload(new ByteArrayInputStream(request), "chunked".equals(body) ? -1L : objectSize);
+        }
+        disk.end();
+        if (!committed) {
+            throw new IllegalStateException("Upload failed");
+        }
+        counters.bytes += objectSize;
+        return committed;
+    }
+
+    private boolean upload(InputStream in, long size) {
+        String uploadId = utils.initiateMultipartUpload("bench-bucket", "stream.bin");
+        MultipartUploadResult result = utils.uploadParts(in, "bench-bucket", "stream.bin", uploadId, size, partSize);
+        return result.isSuccess()
+                && utils.completeMultipartUpload("bench-bucket", "stream.bin", uploadId, result.getParts(), size, result.getMultipartMd5());
+    }
+
+    // MultiPartReaderClientSide's settings with the default MultiPartProperties
+    private MIMEConfig mimeConfig() {
+        MIMEConfig config = new MIMEConfig();
+        config.setMemoryThreshold(MultiPartProperties.DEFAULT_BUFFER_THRESHOLD);
+        config.setDir(spoolDirectory.toString());
+        return config;
+    }
+
+    // A curl -F "file=@..." body
+    private static byte[] formData(byte[] payload) {
+        byte[] head = ("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"stream.bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] tail = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] form = new byte[head.length + payload.length + tail.length];
+        System.arraycopy(head, 0, form, 0, head.length);
+        System.arraycopy(payload, 0, form, head.length, payload.length);
+        System.arraycopy(tail, 0, form, head.length + payload.length, tail.length);
+        return form;
+    }
+}
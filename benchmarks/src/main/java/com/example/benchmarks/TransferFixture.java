@@ -0,0 +1,70 @@
+package com.example.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.config.TransferConfiguration;
+import com.example.utils.AdaptiveTransferController;
+import com.example.utils.BandwidthThrottle;
+import com.example.utils.Deduplication;
+import com.example.utils.ObjectContentCache;
+import com.example.utils.ObjectMetadataCache;
+import com.example.utils.ObjectStorageUtils;
+import com.example.utils.PartBufferPool;
+import com.example.utils.StreamCompression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// The process-wide pieces FileOperationApplication shares between regions (part buffers, adaptive tuning, bandwidth
+// limits, caches), wired the same way, plus one ObjectStorageUtils per fake region. Shut it down in @TearDown.
+final class TransferFixture {
+    static final String NAMESPACE = "benchmark";
+
+    private final TransferConfiguration configuration;
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final PartBufferPool partBufferPool;
+    private final AdaptiveTransferController adaptiveTransferController;
+    private final BandwidthThrottle bandwidthThrottle;
+    private final ObjectMetadataCache metadataCache;
+    private final ObjectContentCache contentCache;
+    private final StreamCompression streamCompression;
+    private final Deduplication deduplication;
+    private final List<ObjectStorageUtils> regions = new ArrayList<>();
+
+    TransferFixture(TransferConfiguration configuration) {
+        this.configuration = configuration;
+        this.partBufferPool = new PartBufferPool(configuration.getBufferPoolMaxBytes(), metricRegistry);
+        this.adaptiveTransferController = new AdaptiveTransferController(configuration.getAdaptive(), metricRegistry);
+        this.bandwidthThrottle = new BandwidthThrottle(configuration.getBandwidth(), metricRegistry);
+        this.metadataCache = new ObjectMetadataCache(configuration.getMetadataCacheMaxEntries(), configuration.getMetadataCacheTtlSeconds(), metricRegistry);
+        this.contentCache = new ObjectContentCache(configuration.getContentCache(), metricRegistry);
+        this.streamCompression = new StreamCompression(configuration.getCompression(), metricRegistry);
+        this.deduplication = new Deduplication(configuration.getDedup(), metricRegistry);
+    }
+
+    ObjectStorageUtils region(String regionId, InMemoryObjectStorage storage) {
+        ObjectStorageUtils utils = new ObjectStorageUtils(regionId, NAMESPACE, storage.client(), configuration, partBufferPool, metricRegistry,
+                adaptiveTransferController, bandwidthThrottle, metadataCache, contentCache, streamCompression, deduplication);
+        regions.add(utils);
+        return utils;
+    }
+
+    TransferConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    PartBufferPool getPartBufferPool() {
+        return partBufferPool;
+    }
+
+    void shutdown() {
+        regions.forEach(ObjectStorageUtils::shutdown);
+    }
+
+    // Incompressible, but the same bytes on every run
+    static byte[] payload(long size) {
+        byte[] data = new byte[Math.toIntExact(size)];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,581 @@
+package com.example.loadtest;
+
+import com.example.FileOperationApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Replays a mixed upload/copy/download workload against FileOperationApplication and reports p50/p95/p99 latency,
+// throughput and heap use per operation.
+//
+// Embedded mode (default) starts two ObjectStorageStandIn servers for oc1 and oc10, writes a config pointing the regions
+// at them and runs the application in this JVM. With --target=http://host:8080 an already running service is driven
+// instead; its regions must point at the stand-ins given by --oc1Endpoint/--oc10Endpoint, which are seeded over HTTP.
+//
+// Options (--name=value): mix=upload=40,copy=20,download=40 objectSizes=1MiB,16MiB partSize=8MiB concurrency=16
+// durationSeconds=60 warmupSeconds=10 seedObjects=4 report=<file.json>; embedded only: port=18080 adminPort=18081
+// latencyMillis=0 bytesPerSecond=0 errorRate=0 throttleRate=0 (applied to both stand-ins); external only: target,
+// adminTarget, oc1Endpoint, oc1Namespace, oc10Endpoint, oc10Namespace
+public class LoadTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String SOURCE_BUCKET = "loadtest-source";
+    private static final String BUCKET = "loadtest";
+    private static final String BOUNDARY = "loadtest-boundary-7d1f0c";
+    private static final double MIB = 1024.0 * 1024.0;
+
+    private enum Operation { UPLOAD, COPY, DOWNLOAD }
+
+    private final Map<String, String> options;
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final Map<Long, byte[]> payloads = new LinkedHashMap<>();
+    private String target;
+    private String adminTarget;
+    private String oc1Endpoint;
+    private String oc1Namespace;
+    private String oc10Endpoint;
+    private String oc10Namespace;
+    private final List<ObjectStorageStandIn> standIns = new ArrayList<>();
+
+    public LoadTest(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTest loadTest = new LoadTest(parseOptions(args));
+        int exitCode;
+        try {
+            exitCode = loadTest.run();
+        } finally {
+            loadTest.standIns.forEach(ObjectStorageStandIn::stop);
+        }
+        // The embedded application has no stop hook; exiting the JVM shuts it down
+        System.exit(exitCode);
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private int run() throws Exception {
+        if (options.containsKey("target")) {
+            connectExternal();
+        } else {
+            startEmbedded();
+        }
+
+        Map<Operation, Integer> mix = parseMix(option("mix", "upload=40,copy=20,download=40"));
+        long[] objectSizes = Arrays.stream(option("objectSizes", "1MiB,16MiB").split(",")).mapToLong(LoadTest::parseBytes).toArray();
+        long partSize = parseBytes(option("partSize", "8MiB"));
+        int concurrency = Integer.parseInt(option("concurrency", "16"));
+        int durationSeconds = Integer.parseInt(option("durationSeconds", "60"));
+        int warmupSeconds = Integer.parseInt(option("warmupSeconds", "10"));
+        int seedObjects = Integer.parseInt(option("seedObjects", "4"));
+
+        Random random = new Random(42);
+        for (long size : objectSizes) {
+            byte[] payload = new byte[Math.toIntExact(size)];
+            random.nextBytes(payload);
+            payloads.put(size, payload);
+        }
+        seed(objectSizes, seedObjects);
+
+        System.out.printf("Running %s with object sizes %s, part size %s, %d workers for %ds after %ds warm-up against %s%n",
+                mix, option("objectSizes", "1MiB,16MiB"), option("partSize", "8MiB"), concurrency, durationSeconds, warmupSeconds, target);
+        HeapSampler heapSampler = new HeapSampler();
+        long startNanos = System.nanoTime();
+        long measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long endNanos = measureFromNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        List<Worker> workers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            sampler.schedule(heapSampler::begin, warmupSeconds, TimeUnit.SECONDS);
+            sampler.scheduleAtFixedRate(() -> {
+                if (System.nanoTime() - measureFromNanos >= 0) {
+                    heapSampler.sample();
+                }
+            }, warmupSeconds * 1000L + 500, 1000, TimeUnit.MILLISECONDS);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                Worker worker = new Worker(i, mix, objectSizes, partSize, seedObjects, measureFromNanos, endNanos);
+                workers.add(worker);
+                futures.add(executor.submit(worker));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            sampler.shutdownNow();
+        }
+        heapSampler.end();
+
+        ObjectNode report = report(workers, heapSampler, durationSeconds);
+        if (options.containsKey("report")) {
+            Files.write(Paths.get(options.get("report")), MAPPER.writerWithDefaultPrettyPrinter().writeValueAsBytes(report));
+            System.out.println("Report written to " + options.get("report"));
+        }
+        return 0;
+    }
+
+    private void startEmbedded() throws Exception {
+        ObjectStorageStandIn oc1 = new ObjectStorageStandIn("loadtestoc1", 0);
+        ObjectStorageStandIn oc10 = new ObjectStorageStandIn("loadtestoc10", 0);
+        for (ObjectStorageStandIn standIn : Arrays.asList(oc1, oc10)) {
+            standIn.setLatencyMillis(Long.parseLong(option("latencyMillis", "0")));
+            standIn.setBytesPerSecond(parseBytes(option("bytesPerSecond", "0")));
+            standIn.setErrorRate(Double.parseDouble(option("errorRate", "0")));
+            standIn.setThrottleRate(Double.parseDouble(option("throttleRate", "0")));
+            standIn.start();
+            standIns.add(standIn);
+        }
+        oc1Endpoint = oc1.getEndpoint();
+        oc1Namespace = oc1.getNamespace();
+        oc10Endpoint = oc10.getEndpoint();
+        oc10Namespace = oc10.getNamespace();
+
+        int port = Integer.parseInt(option("port", "18080"));
+        int adminPort = Integer.parseInt(option("adminPort", "18081"));
+        target = "http://127.0.0.1:" + port;
+        adminTarget = "http://127.0.0.1:" + adminPort;
+
+        Path workDirectory = Files.createTempDirectory("loadtest");
+        Path configFile = workDirectory.resolve("config.yml");
+        Files.writeString(configFile, String.join("\n",
+                "server:",
+                "  applicationConnectors:",
+                "    - type: http",
+                "      port: " + port,
+                "      outputBufferSize: 256KiB",
+                "  adminConnectors:",
+                "    - type: http",
+                "      port: " + adminPort,
+                "  requestLog:",
+                "    appenders: []",
+                "logging:",
+                "  level: WARN",
+                "transfer:",
+                "  journalDirectory: " + workDirectory.resolve("journal"),
+                "  contentCache:",
+                "    diskDirectory: " + workDirectory.resolve("cache"),
+                "  jobs:",
+                "    spoolDirectory: " + workDirectory.resolve("spool"),
+                "objectStorage:",
+                "  connectionPool:",
+                "    warmupConnections: 2",
+                "  regions:",
+                "    oc1:",
+                "      endpoint: " + oc1Endpoint,
+                "      namespace: " + oc1Namespace,
+                "      regionId: standin-oc1",
+                "    oc10:",
+                "      endpoint: " + oc10Endpoint,
+                "      namespace: " + oc10Namespace,
+                "      regionId: standin-oc10",
+                ""));
+        new FileOperationApplication().run("server", configFile.toString());
+        awaitHealthy();
+    }
+
+    private void connectExternal() throws Exception {
+        target = stripSlash(options.get("target"));
+        adminTarget = stripSlash(option("adminTarget", target.replaceFirst(":(\\d+)$", ":8081")));
+        oc1Endpoint = stripSlash(required("oc1Endpoint"));
+        oc1Namespace = required("oc1Namespace");
+        oc10Endpoint = stripSlash(required("oc10Endpoint"));
+        oc10Namespace = required("oc10Namespace");
+        awaitHealthy();
+    }
+
+    private void awaitHealthy() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (true) {
+            try {
+                HttpResponse<Void> response = http.send(HttpRequest.newBuilder(URI.create(adminTarget + "/healthcheck")).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("Service at " + adminTarget + " did not become healthy within 60s");
+            }
+            Thread.sleep(250);
+        }
+    }
+
+    // Copy sources go to oc1 and download sources to oc10, seedObjects of each size
+    private void seed(long[] objectSizes, int seedObjects) throws Exception {
+        for (long size : objectSizes) {
+            for (int i = 0; i < seedObjects; i++) {
+                putObject(oc1Endpoint, oc1Namespace, SOURCE_BUCKET, seedName(size, i), payloads.get(size));
+                putObject(oc10Endpoint, oc10Namespace, BUCKET, seedName(size, i), payloads.get(size));
+            }
+        }
+    }
+
+    private void putObject(String endpoint, String namespace, String bucketName, String objectName, byte[] data) throws Exception {
+        URI uri = URI.create(endpoint + "/n/" + encode(namespace) + "/b/" + encode(bucketName) + "/o/" + encode(objectName));
+        // The stand-in may be injecting failures; seeding retries through them
+        for (int attempt = 1; ; attempt++) {
+            HttpResponse<Void> response = http.send(HttpRequest.newBuilder(uri).PUT(HttpRequest.BodyPublishers.ofByteArray(data)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() == 200) {
+                return;
+            }
+            if (attempt == 10) {
+                throw new IllegalStateException("Seeding " + uri + " failed with " + response.statusCode());
+            }
+            Thread.sleep(100L * attempt);
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final int id;
+        private final Map<Operation, Integer> mix;
+        private final long[] objectSizes;
+        private final long partSize;
+        private final int seedObjects;
+        private final long measureFromNanos;
+        private final long endNanos;
+        private final Map<Operation, Stats> stats = new LinkedHashMap<>();
+        private long sequence;
+
+        Worker(int id, Map<Operation, Integer> mix, long[] objectSizes, long partSize, int seedObjects, long measureFromNanos, long endNanos) {
+            this.id = id;
+            this.mix = mix;
+            this.objectSizes = objectSizes;
+            this.partSize = partSize;
+            this.seedObjects = seedObjects;
+            this.measureFromNanos = measureFromNanos;
+            this.endNanos = endNanos;
+            for (Operation operation : Operation.values()) {
+                stats.put(operation, new Stats());
+            }
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() - endNanos < 0) {
+                Operation operation = pick(random.nextInt(100));
+                long size = objectSizes[random.nextInt(objectSizes.length)];
+                long startNanos = System.nanoTime();
+                long bytes;
+                try {
+                    bytes = execute(operation, size, random.nextInt(seedObjects));
+                } catch (Exception e) {
+                    bytes = -1;
+                }
+                long finishNanos = System.nanoTime();
+                if (startNanos - measureFromNanos >= 0 && finishNanos - endNanos <= 0) {
+                    stats.get(operation).record(finishNanos - startNanos, bytes);
+                }
+            }
+        }
+
+        private Operation pick(int draw) {
+            int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+            int scaled = draw * total / 100;
+            for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+                scaled -= entry.getValue();
+                if (scaled < 0) {
+                    return entry.getKey();
+                }
+            }
+            return mix.keySet().iterator().next();
+        }
+
+        // Bytes transferred, or -1 when the service answered with an error. Written objects are overwritten in
+        // rotation so the stand-ins hold a bounded amount of data
+        private long execute(Operation operation, long size, int seed) throws Exception {
+            String outputName = "worker-" + id + "/" + (sequence++ % 4) + ".bin";
+            switch (operation) {
+                case UPLOAD: {
+                    byte[] payload = payloads.get(size);
+                    String query = "bucketName=" + encode(BUCKET) + "&objectName=" + encode("upload/" + outputName)
+                            + "&size=" + size + "&partSize=" + partSize;
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/oc10/uploadFileMultipart?" + query))
+                            .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                            .header("X-Caller-Id", "loadtest-" + id)
+                            .POST(HttpRequest.BodyPublishers.ofByteArrays(Arrays.asList(
+                                    ("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"" + outputName
+                                            + "\"\r\nContent-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8),
+                                    payload,
+                                    ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8))))
+                            .build();
+                    return succeeded(http.send(request, HttpResponse.BodyHandlers.discarding())) ? size : -1;
+                }
+                case COPY: {
+                    String query = "sourceBucket=" + encode(SOURCE_BUCKET) + "&sourceFile=" + encode(seedName(size, seed))
+                            + "&destBucket=" + encode(BUCKET) + "&destFile=" + encode("copy/" + outputName);
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/oc1/copyBucketFileToOc10?" + query))
+                            .header("Content-Type", "application/json")
+                            .header("X-Caller-Id", "loadtest-" + id)
+                            .POST(HttpRequest.BodyPublishers.noBody())
+                            .build();
+                    return succeeded(http.send(request, HttpResponse.BodyHandlers.discarding())) ? size : -1;
+                }
+                default: {
+                    String query = "bucketName=" + encode(BUCKET) + "&fileName=" + encode(seedName(size, seed));
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/oc10/download/stream?" + query)).GET().build();
+                    HttpResponse<InputStream> response = http.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                    long received;
+                    try (InputStream body = response.body()) {
+                        received = body.transferTo(OutputStream.nullOutputStream());
+                    }
+                    return succeeded(response) && received == size ? received : -1;
+                }
+            }
+        }
+    }
+
+    private static boolean succeeded(HttpResponse<?> response) {
+        return response.statusCode() >= 200 && response.statusCode() < 300;
+    }
+
+    // Latencies of one operation on one worker; merged per operation for the report
+    private static final class Stats {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+        private long bytes;
+
+        void record(long latencyNanos, long transferred) {
+            if (transferred < 0) {
+                errors++;
+            } else {
+                bytes += transferred;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+        }
+    }
+
+    // Polls the admin /metrics endpoint: heap used is sampled every second, GC counts and times are diffed over the run
+    private final class HeapSampler {
+        private long samples;
+        private double heapUsedSum;
+        private double heapUsedMax;
+        private double heapCommittedMax;
+        private double gcCountStart;
+        private double gcTimeStart;
+        private double gcCount;
+        private double gcTimeMillis;
+
+        synchronized void begin() {
+            JsonNode gauges = gauges();
+            if (gauges != null) {
+                gcCountStart = sumGc(gauges, ".count");
+                gcTimeStart = sumGc(gauges, ".time");
+            }
+        }
+
+        synchronized void sample() {
+            JsonNode gauges = gauges();
+            if (gauges == null) {
+                return;
+            }
+            double used = gauges.path("jvm.memory.heap.used").path("value").asDouble();
+            samples++;
+            heapUsedSum += used;
+            heapUsedMax = Math.max(heapUsedMax, used);
+            heapCommittedMax = Math.max(heapCommittedMax, gauges.path("jvm.memory.heap.committed").path("value").asDouble());
+        }
+
+        synchronized void end() {
+            JsonNode gauges = gauges();
+            if (gauges != null) {
+                gcCount = sumGc(gauges, ".count") - gcCountStart;
+                gcTimeMillis = sumGc(gauges, ".time") - gcTimeStart;
+            }
+        }
+
+        private JsonNode gauges() {
+            try {
+                HttpResponse<byte[]> response = http.send(HttpRequest.newBuilder(URI.create(adminTarget + "/metrics")).build(),
+                        HttpResponse.BodyHandlers.ofByteArray());
+                return response.statusCode() == 200 ? MAPPER.readTree(response.body()).path("gauges") : null;
+            } catch (IOException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        private double sumGc(JsonNode gauges, String suffix) {
+            double sum = 0;
+            for (Map.Entry<String, JsonNode> entry : (Iterable<Map.Entry<String, JsonNode>>) gauges::fields) {
+                if (entry.getKey().startsWith("jvm.gc.") && entry.getKey().endsWith(suffix)) {
+                    sum += entry.getValue().path("value").asDouble();
+                }
+            }
+            return sum;
+        }
+    }
+
+    private ObjectNode report(List<Worker> workers, HeapSampler heap, int durationSeconds) {
+        ObjectNode report = MAPPER.createObjectNode();
+        report.put("target", target);
+        report.put("durationSeconds", durationSeconds);
+        ArrayNode operations = report.putArray("operations");
+
+        System.out.printf("%n%-9s %8s %7s %9s %9s %9s %9s %9s %9s%n", "operation", "count", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms", "req/s", "MiB/s");
+        for (Operation operation : Operation.values()) {
+            long[] latencies = new long[0];
+            int errors = 0;
+            long bytes = 0;
+            for (Worker worker : workers) {
+                Stats stats = worker.stats.get(operation);
+                int offset = latencies.length;
+                latencies = Arrays.copyOf(latencies, offset + stats.count);
+                System.arraycopy(stats.latencies, 0, latencies, offset, stats.count);
+                errors += stats.errors;
+                bytes += stats.bytes;
+            }
+            if (latencies.length == 0) {
+                continue;
+            }
+            Arrays.sort(latencies);
+            double requestsPerSecond = (double) latencies.length / durationSeconds;
+            double mibPerSecond = bytes / MIB / durationSeconds;
+            System.out.printf("%-9s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n", operation.name().toLowerCase(), latencies.length, errors,
+                    millis(percentile(latencies, 0.50)), millis(percentile(latencies, 0.95)), millis(percentile(latencies, 0.99)),
+                    millis(latencies[latencies.length - 1]), requestsPerSecond, mibPerSecond);
+
+            ObjectNode entry = operations.addObject();
+            entry.put("operation", operation.name().toLowerCase());
+            entry.put("count", latencies.length);
+            entry.put("errors", errors);
+            entry.put("p50Millis", millis(percentile(latencies, 0.50)));
+            entry.put("p95Millis", millis(percentile(latencies, 0.95)));
+            entry.put("p99Millis", millis(percentile(latencies, 0.99)));
+            entry.put("maxMillis", millis(latencies[latencies.length - 1]));
+            entry.put("requestsPerSecond", requestsPerSecond);
+            entry.put("mibPerSecond", mibPerSecond);
+        }
+
+        double heapUsedAvg = heap.samples > 0 ? heap.heapUsedSum / heap.samples : 0;
+        System.out.printf("%nheap used avg %.1f MiB, max %.1f MiB, committed max %.1f MiB; %d GCs taking %.0f ms%n",
+                heapUsedAvg / MIB, heap.heapUsedMax / MIB, heap.heapCommittedMax / MIB, (long) heap.gcCount, heap.gcTimeMillis);
+        ObjectNode heapReport = report.putObject("heap");
+        heapReport.put("usedAvgMiB", heapUsedAvg / MIB);
+        heapReport.put("usedMaxMiB", heap.heapUsedMax / MIB);
+        heapReport.put("committedMaxMiB", heap.heapCommittedMax / MIB);
+        heapReport.put("gcCount", (long) heap.gcCount);
+        heapReport.put("gcTimeMillis", heap.gcTimeMillis);
+
+        for (ObjectStorageStandIn standIn : standIns) {
+            System.out.printf("stand-in %s: %d requests, %d injected failures, %d objects%n", standIn.getNamespace(),
+                    standIn.getRequestCount(), standIn.getInjectedFailureCount(), standIn.getObjectCount());
+        }
+        return report;
+    }
+
+    // Nearest-rank percentile of sorted values
+    private static long percentile(long[] sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("mix has no operation with a positive weight: " + mix);
+        }
+        return weights;
+    }
+
+    // Plain bytes or a KiB/MiB/GiB suffix
+    static long parseBytes(String value) {
+        String trimmed = value.trim();
+        long multiplier = 1;
+        if (trimmed.endsWith("KiB")) {
+            multiplier = 1024L;
+        } else if (trimmed.endsWith("MiB")) {
+            multiplier = 1024L * 1024;
+        } else if (trimmed.endsWith("GiB")) {
+            multiplier = 1024L * 1024 * 1024;
+        }
+        if (multiplier > 1) {
+            trimmed = trimmed.substring(0, trimmed.length() - 3).trim();
+        }
+        return Long.parseLong(trimmed) * multiplier;
+    }
+
+    private static String seedName(long size, int index) {
+        return "seed/" + size + "/" + index + ".bin";
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static String stripSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private String required(String name) {
+        String value = options.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("--" + name + " is required with --target");
+        }
+        return value;
+    }
+}
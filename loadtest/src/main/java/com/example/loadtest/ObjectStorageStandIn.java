@@ -0,0 +1,689 @@
+package com.example.loadtest;
+
+import com.example.utils.ObjectStorageUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// In-memory stand-in for the Object Storage REST subset the service uses: namespace, Put/Get/Head/Delete object (with
+// Range, If-Match and If-None-Match), List, and multipart create/upload/commit/abort/list parts. Requests are not
+// authenticated. Latency, per-request bandwidth and injected 503/429 rates can be changed while it runs.
+public class ObjectStorageStandIn {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ObjectStorageStandIn.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final String namespace;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // keyed by namespace/bucket, then object name in list order
+    private final ConcurrentMap<String, ConcurrentSkipListMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedFailures = new AtomicLong();
+
+    private volatile long latencyMillis;
+    // 0 = unlimited; applied to each request body and each response body separately
+    private volatile long bytesPerSecond;
+    private volatile double errorRate;
+    private volatile double throttleRate;
+
+    // port 0 picks a free port, see getPort()
+    public ObjectStorageStandIn(String namespace, int port) throws IOException {
+        this.namespace = namespace;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        LOGGER.info("Object Storage stand-in for namespace {} listening on {}", namespace, getEndpoint());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + getPort();
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    // Fraction of requests answered 503 ServiceUnavailable before they are processed
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    // Fraction of requests answered 429 TooManyRequests before they are processed
+    public void setThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getInjectedFailureCount() {
+        return injectedFailures.get();
+    }
+
+    public int getObjectCount() {
+        return buckets.values().stream().mapToInt(Map::size).sum();
+    }
+
+    // Stores an object directly, bypassing the HTTP API, latency and injected failures
+    public void seed(String bucketName, String objectName, byte[] data) {
+        bucket(namespace, bucketName).put(objectName, StoredObject.single(data, "application/octet-stream"));
+    }
+
+    // Usage: ObjectStorageStandIn [--port=9000] [--namespace=standin] [--latencyMillis=0] [--bytesPerSecond=0]
+    //        [--errorRate=0] [--throttleRate=0]
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = LoadTest.parseOptions(args);
+        ObjectStorageStandIn standIn = new ObjectStorageStandIn(options.getOrDefault("namespace", "standin"),
+                Integer.parseInt(options.getOrDefault("port", "9000")));
+        standIn.setLatencyMillis(Long.parseLong(options.getOrDefault("latencyMillis", "0")));
+        standIn.setBytesPerSecond(Long.parseLong(options.getOrDefault("bytesPerSecond", "0")));
+        standIn.setErrorRate(Double.parseDouble(options.getOrDefault("errorRate", "0")));
+        standIn.setThrottleRate(Double.parseDouble(options.getOrDefault("throttleRate", "0")));
+        Runtime.getRuntime().addShutdownHook(new Thread(standIn::stop));
+        standIn.start();
+        System.out.println("Object Storage stand-in for namespace " + standIn.getNamespace() + " at " + standIn.getEndpoint());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            double draw = ThreadLocalRandom.current().nextDouble();
+            if (draw < errorRate) {
+                injectedFailures.incrementAndGet();
+                drain(exchange);
+                sendError(exchange, 503, "ServiceUnavailable", "Injected failure");
+                return;
+            }
+            if (draw < errorRate + throttleRate) {
+                injectedFailures.incrementAndGet();
+                drain(exchange);
+                sendError(exchange, 429, "TooManyRequests", "Injected throttling");
+                return;
+            }
+            route(exchange);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.warn("Stand-in failed {} {}: {}", exchange.getRequestMethod(), exchange.getRequestURI(), e.getMessage());
+            try {
+                sendError(exchange, 500, "InternalServerError", String.valueOf(e.getMessage()));
+            } catch (IOException ignored) {
+                // response already started
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws Exception {
+        String method = exchange.getRequestMethod();
+        String[] segments = exchange.getRequestURI().getRawPath().split("/");
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        // segments[0] is the empty string before the leading slash
+        if (segments.length == 2 && "n".equals(segments[1]) && "GET".equals(method)) {
+            sendJson(exchange, 200, MAPPER.valueToTree(namespace));
+            return;
+        }
+        if (segments.length >= 5 && "n".equals(segments[1]) && "b".equals(segments[3])) {
+            String ns = decode(segments[2]);
+            String bucketName = decode(segments[4]);
+            if (segments.length == 6 && "o".equals(segments[5]) && "GET".equals(method)) {
+                listObjects(exchange, ns, bucketName, query);
+                return;
+            }
+            if (segments.length == 6 && "u".equals(segments[5]) && "POST".equals(method)) {
+                createMultipartUpload(exchange, ns, bucketName);
+                return;
+            }
+            if (segments.length >= 7 && "o".equals(segments[5])) {
+                String objectName = joinDecoded(segments, 6);
+                switch (method) {
+                    case "PUT":
+                        putObject(exchange, ns, bucketName, objectName);
+                        return;
+                    case "GET":
+                        getObject(exchange, ns, bucketName, objectName, true);
+                        return;
+                    case "HEAD":
+                        getObject(exchange, ns, bucketName, objectName, false);
+                        return;
+                    case "DELETE":
+                        deleteObject(exchange, ns, bucketName, objectName);
+                        return;
+                    default:
+                        break;
+                }
+            }
+            if (segments.length >= 7 && "u".equals(segments[5]) && query.containsKey("uploadId")) {
+                String objectName = joinDecoded(segments, 6);
+                Upload upload = uploads.get(query.get("uploadId"));
+                if (upload == null || !upload.matches(ns, bucketName, objectName)) {
+                    drain(exchange);
+                    sendError(exchange, 404, "NoSuchUpload", "No multipart upload " + query.get("uploadId"));
+                    return;
+                }
+                switch (method) {
+                    case "PUT":
+                        uploadPart(exchange, upload, query.get("uploadPartNum"));
+                        return;
+                    case "POST":
+                        commitMultipartUpload(exchange, upload);
+                        return;
+                    case "DELETE":
+                        uploads.remove(upload.uploadId);
+                        send(exchange, 204, -1);
+                        return;
+                    case "GET":
+                        listParts(exchange, upload);
+                        return;
+                    default:
+                        break;
+                }
+            }
+        }
+        drain(exchange);
+        sendError(exchange, 501, "NotImplemented", method + " " + exchange.getRequestURI().getPath() + " is not supported by the stand-in");
+    }
+
+    private void putObject(HttpExchange exchange, String ns, String bucketName, String objectName) throws Exception {
+        byte[] data = readBody(exchange);
+        String md5 = md5Of(data);
+        String expectedMd5 = exchange.getRequestHeaders().getFirst("Content-MD5");
+        if (expectedMd5 != null && !expectedMd5.equals(md5)) {
+            sendError(exchange, 400, "InvalidContentMD5", "Content-MD5 does not match the body");
+            return;
+        }
+        ConcurrentSkipListMap<String, StoredObject> bucket = bucket(ns, bucketName);
+        StoredObject existing = bucket.get(objectName);
+        if (!preconditionsHold(exchange, existing)) {
+            sendError(exchange, 412, "IfMatchFailed", "The If-Match/If-None-Match precondition failed");
+            return;
+        }
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        StoredObject stored = StoredObject.single(data, contentType != null ? contentType : "application/octet-stream");
+        bucket.put(objectName, stored);
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", stored.etag);
+        headers.set("opc-content-md5", md5);
+        headers.set("last-modified", httpDate(stored.lastModified));
+        send(exchange, 200, -1);
+    }
+
+    private void getObject(HttpExchange exchange, String ns, String bucketName, String objectName, boolean withBody) throws Exception {
+        StoredObject stored = bucket(ns, bucketName).get(objectName);
+        if (stored == null) {
+            sendError(exchange, 404, "ObjectNotFound", "The object '" + objectName + "' does not exist in bucket '" + bucketName + "'");
+            return;
+        }
+        Headers requestHeaders = exchange.getRequestHeaders();
+        String ifMatch = requestHeaders.getFirst("If-Match");
+        if (ifMatch != null && !ifMatch.equals(stored.etag)) {
+            sendError(exchange, 412, "IfMatchFailed", "The object's ETag does not match If-Match");
+            return;
+        }
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", stored.etag);
+        headers.set("last-modified", httpDate(stored.lastModified));
+        headers.set("Accept-Ranges", "bytes");
+        if (stored.md5 != null) {
+            headers.set("Content-MD5", stored.md5);
+        } else {
+            headers.set("opc-multipart-md5", stored.multipartMd5);
+        }
+        String ifNoneMatch = requestHeaders.getFirst("If-None-Match");
+        if (ifNoneMatch != null && (ifNoneMatch.equals(stored.etag) || "*".equals(ifNoneMatch))) {
+            send(exchange, 304, -1);
+            return;
+        }
+        headers.set("Content-Type", stored.contentType);
+
+        long total = stored.data.length;
+        long start = 0;
+        long end = total - 1;
+        int status = 200;
+        String rangeHeader = requestHeaders.getFirst("Range");
+        if (rangeHeader != null) {
+            long[] range = parseRange(rangeHeader, total);
+            if (range == null) {
+                headers.set("Content-Range", "bytes */" + total);
+                sendError(exchange, 416, "InvalidRange", "Range " + rangeHeader + " is not satisfiable");
+                return;
+            }
+            start = range[0];
+            end = range[1];
+            status = 206;
+            headers.set("Content-Range", "bytes " + start + "-" + end + "/" + total);
+        }
+        long length = end - start + 1;
+        if (!withBody) {
+            headers.set("Content-Length", Long.toString(length));
+            send(exchange, status, -1);
+            return;
+        }
+        // a zero-length body needs -1 here, otherwise chunked encoding is used
+        send(exchange, status, length == 0 ? -1 : length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            writePaced(out, stored.data, (int) start, (int) length);
+        }
+    }
+
+    private void deleteObject(HttpExchange exchange, String ns, String bucketName, String objectName) throws IOException {
+        ConcurrentSkipListMap<String, StoredObject> bucket = bucket(ns, bucketName);
+        StoredObject existing = bucket.get(objectName);
+        if (existing == null) {
+            sendError(exchange, 404, "ObjectNotFound", "The object '" + objectName + "' does not exist in bucket '" + bucketName + "'");
+            return;
+        }
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch != null && !ifMatch.equals(existing.etag)) {
+            sendError(exchange, 412, "IfMatchFailed", "The object's ETag does not match If-Match");
+            return;
+        }
+        bucket.remove(objectName);
+        send(exchange, 204, -1);
+    }
+
+    private void listObjects(HttpExchange exchange, String ns, String bucketName, Map<String, String> query) throws IOException {
+        String prefix = query.getOrDefault("prefix", "");
+        String start = query.get("start");
+        int limit = Math.min(1000, Integer.parseInt(query.getOrDefault("limit", "1000")));
+        NavigableMap<String, StoredObject> candidates = bucket(ns, bucketName);
+        String from = start != null && start.compareTo(prefix) > 0 ? start : prefix;
+        candidates = candidates.tailMap(from, true);
+
+        ObjectNode page = MAPPER.createObjectNode();
+        ArrayNode objects = page.putArray("objects");
+        String nextStartWith = null;
+        for (Map.Entry<String, StoredObject> entry : candidates.entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            if (objects.size() == limit) {
+                nextStartWith = entry.getKey();
+                break;
+            }
+            StoredObject stored = entry.getValue();
+            ObjectNode summary = objects.addObject();
+            summary.put("name", entry.getKey());
+            summary.put("size", stored.data.length);
+            summary.put("etag", stored.etag);
+            summary.put("md5", stored.md5 != null ? stored.md5 : stored.multipartMd5);
+            summary.put("timeCreated", isoTime(stored.lastModified));
+            summary.put("timeModified", isoTime(stored.lastModified));
+        }
+        page.putArray("prefixes");
+        page.put("nextStartWith", nextStartWith);
+        sendJson(exchange, 200, page);
+    }
+
+    private void createMultipartUpload(HttpExchange exchange, String ns, String bucketName) throws Exception {
+        JsonNode details = MAPPER.readTree(readBody(exchange));
+        String objectName = details.path("object").asText(null);
+        if (objectName == null || objectName.isEmpty()) {
+            sendError(exchange, 400, "InvalidParameter", "object is required");
+            return;
+        }
+        Upload upload = new Upload(UUID.randomUUID().toString(), ns, bucketName, objectName,
+                details.path("contentType").asText("application/octet-stream"));
+        uploads.put(upload.uploadId, upload);
+
+        ObjectNode body = MAPPER.createObjectNode();
+        body.put("namespace", ns);
+        body.put("bucket", bucketName);
+        body.put("object", objectName);
+        body.put("uploadId", upload.uploadId);
+        body.put("timeCreated", isoTime(upload.created));
+        body.put("storageTier", "Standard");
+        exchange.getResponseHeaders().set("Location", "/n/" + ns + "/b/" + bucketName + "/u/" + upload.uploadId);
+        sendJson(exchange, 200, body);
+    }
+
+    private void uploadPart(HttpExchange exchange, Upload upload, String partNumParam) throws Exception {
+        int partNum = partNumParam != null ? Integer.parseInt(partNumParam) : 0;
+        if (partNum < 1 || partNum > 10000) {
+            drain(exchange);
+            sendError(exchange, 400, "InvalidParameter", "uploadPartNum must be between 1 and 10000");
+            return;
+        }
+        byte[] data = readBody(exchange);
+        String md5 = md5Of(data);
+        String expectedMd5 = exchange.getRequestHeaders().getFirst("Content-MD5");
+        if (expectedMd5 != null && !expectedMd5.equals(md5)) {
+            sendError(exchange, 400, "InvalidContentMD5", "Content-MD5 does not match the part body");
+            return;
+        }
+        StoredPart part = new StoredPart(data, md5, UUID.randomUUID().toString());
+        upload.parts.put(partNum, part);
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", part.etag);
+        headers.set("opc-content-md5", md5);
+        send(exchange, 200, -1);
+    }
+
+    private void commitMultipartUpload(HttpExchange exchange, Upload upload) throws Exception {
+        JsonNode details = MAPPER.readTree(readBody(exchange));
+        List<Integer> partNumbers = new ArrayList<>();
+        for (JsonNode entry : details.path("partsToCommit")) {
+            int partNum = entry.path("partNum").asInt();
+            StoredPart part = upload.parts.get(partNum);
+            if (part == null || !part.etag.equals(entry.path("etag").asText())) {
+                sendError(exchange, 400, "InvalidUploadPart", "Part " + partNum + " was not uploaded with that ETag");
+                return;
+            }
+            partNumbers.add(partNum);
+        }
+        if (partNumbers.isEmpty()) {
+            sendError(exchange, 400, "InvalidParameter", "partsToCommit is empty");
+            return;
+        }
+        partNumbers.sort(null);
+        ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+        Map<Integer, String> partMd5s = new HashMap<>();
+        for (Integer partNum : partNumbers) {
+            StoredPart part = upload.parts.get(partNum);
+            assembled.write(part.data);
+            partMd5s.put(partNum, part.md5);
+        }
+        String multipartMd5 = ObjectStorageUtils.multipartMd5(partNumbers, partMd5s);
+        StoredObject stored = StoredObject.multipart(assembled.toByteArray(), upload.contentType, multipartMd5);
+        bucket(upload.namespace, upload.bucketName).put(upload.objectName, stored);
+        uploads.remove(upload.uploadId);
+
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", stored.etag);
+        headers.set("opc-multipart-md5", multipartMd5);
+        headers.set("last-modified", httpDate(stored.lastModified));
+        send(exchange, 200, -1);
+    }
+
+    private void listParts(HttpExchange exchange, Upload upload) throws IOException {
+        ArrayNode parts = MAPPER.createArrayNode();
+        for (Map.Entry<Integer, StoredPart> entry : upload.parts.entrySet()) {
+            ObjectNode summary = parts.addObject();
+            summary.put("partNumber", entry.getKey());
+            summary.put("etag", entry.getValue().etag);
+            summary.put("md5", entry.getValue().md5);
+            summary.put("size", entry.getValue().data.length);
+        }
+        sendJson(exchange, 200, parts);
+    }
+
+    private ConcurrentSkipListMap<String, StoredObject> bucket(String ns, String bucketName) {
+        return buckets.computeIfAbsent(ns + "/" + bucketName, key -> new ConcurrentSkipListMap<>());
+    }
+
+    private static boolean preconditionsHold(HttpExchange exchange, StoredObject existing) {
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch != null && (existing == null || !ifMatch.equals(existing.etag))) {
+            return false;
+        }
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        return !("*".equals(ifNoneMatch) && existing != null);
+    }
+
+    // "bytes=a-b", "bytes=a-" or "bytes=-n"; null when malformed or unsatisfiable
+    private static long[] parseRange(String header, long total) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                start = Math.max(0, total - suffix);
+                end = total - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? total - 1 : Math.min(total - 1, Long.parseLong(spec.substring(dash + 1)));
+            }
+            return start <= end && start < total ? new long[]{start, end} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] chunk = new byte[CHUNK_SIZE];
+        long startNanos = System.nanoTime();
+        long read = 0;
+        try (InputStream in = exchange.getRequestBody()) {
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                body.write(chunk, 0, n);
+                read += n;
+                pace(startNanos, read);
+            }
+        }
+        return body.toByteArray();
+    }
+
+    private void writePaced(OutputStream out, byte[] data, int offset, int length) throws IOException {
+        long startNanos = System.nanoTime();
+        int written = 0;
+        while (written < length) {
+            int n = Math.min(CHUNK_SIZE, length - written);
+            out.write(data, offset + written, n);
+            written += n;
+            pace(startNanos, written);
+        }
+    }
+
+    // Holds the caller back until bytes have taken at least bytes / bytesPerSecond since startNanos
+    private void pace(long startNanos, long bytes) {
+        long limit = bytesPerSecond;
+        if (limit <= 0) {
+            return;
+        }
+        long dueNanos = startNanos + (long) (bytes * (double) TimeUnit.SECONDS.toNanos(1) / limit);
+        long waitNanos;
+        while ((waitNanos = dueNanos - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(waitNanos);
+        }
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, long length) throws IOException {
+        exchange.getResponseHeaders().set("opc-request-id", UUID.randomUUID().toString());
+        exchange.sendResponseHeaders(status, length);
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        send(exchange, status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        ObjectNode body = MAPPER.createObjectNode();
+        body.put("code", code);
+        body.put("message", message);
+        sendJson(exchange, status, body);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals < 0) {
+                query.put(URLDecoder.decode(pair, StandardCharsets.UTF_8), "");
+            } else {
+                query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    // Object names may arrive with '/' unescaped, i.e. spread over several path segments
+    private static String joinDecoded(String[] segments, int from) {
+        StringBuilder name = new StringBuilder();
+        for (int i = from; i < segments.length; i++) {
+            if (i > from) {
+                name.append('/');
+            }
+            name.append(decode(segments[i]));
+        }
+        return name.toString();
+    }
+
+    // Path segments are percent-encoded; unlike a query string, '+' is a literal plus
+    private static String decode(String segment) {
+        return URLDecoder.decode(segment.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    private static String md5Of(byte[] data) throws NoSuchAlgorithmException {
+        return Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(data));
+    }
+
+    private static String httpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atOffset(ZoneOffset.UTC));
+    }
+
+    private static String isoTime(Instant instant) {
+        return DateTimeFormatter.ISO_INSTANT.format(instant.truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    private static final class StoredObject {
+        final byte[] data;
+        final String contentType;
+        final String etag = UUID.randomUUID().toString();
+        final Instant lastModified = Instant.now();
+        // Content-MD5 of single-part objects; multipart objects only have the multipart MD5
+        final String md5;
+        final String multipartMd5;
+
+        private StoredObject(byte[] data, String contentType, String md5, String multipartMd5) {
+            this.data = data;
+            this.contentType = contentType;
+            this.md5 = md5;
+            this.multipartMd5 = multipartMd5;
+        }
+
+        static StoredObject single(byte[] data, String contentType) {
+            try {
+                return new StoredObject(data, contentType, md5Of(data), null);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        static StoredObject multipart(byte[] data, String contentType, String multipartMd5) {
+            return new StoredObject(data, contentType, null, multipartMd5);
+        }
+    }
+
+    private static final class StoredPart {
+        final byte[] data;
+        final String md5;
+        final String etag;
+
+        StoredPart(byte[] data, String md5, String etag) {
+            this.data = data;
+            this.md5 = md5;
+            this.etag = etag;
+        }
+    }
+
+    private static final class Upload {
+        final String uploadId;
+        final String namespace;
+        final String bucketName;
+        final String objectName;
+        final String contentType;
+        final Instant created = Instant.now();
+        final ConcurrentSkipListMap<Integer, StoredPart> parts = new ConcurrentSkipListMap<>();
+
+        Upload(String uploadId, String namespace, String bucketName, String objectName, String contentType) {
+            this.uploadId = uploadId;
+            this.namespace = namespace;
+            this.bucketName = bucketName;
+            this.objectName = objectName;
+            this.contentType = contentType;
+        }
+
+        boolean matches(String ns, String bucket, String object) {
+            return namespace.equals(ns) && bucketName.equals(bucket) && objectName.equals(object);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example;
+
+import com.example.utils.BandwidthThrottle;
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+// Admin task to change bandwidth limits without a restart, e.g.
+//   POST /tasks/bandwidth?scope=global&bytesPerSecond=104857600
+//   POST /tasks/bandwidth?scope=region&region=us-ashburn-1&bytesPerSecond=52428800
+//   POST /tasks/bandwidth?scope=transfer&bytesPerSecond=0
+// Without parameters it prints the current limits (0 = unlimited).
+public class BandwidthLimitTask extends Task {
+    private final BandwidthThrottle bandwidthThrottle;
+
+    public BandwidthLimitTask(BandwidthThrottle bandwidthThrottle) {
+        super("bandwidth");
+        this.bandwidthThrottle = bandwidthThrottle;
+    }
+
+    @Override
+    public void execute(Map<String, List<String>> parameters, PrintWriter output) {
+        String scope = first(parameters, "scope");
+        String bytesPerSecond = first(parameters, "bytesPerSecond");
+        if (scope != null && bytesPerSecond != null) {
+            long limit;
+            try {
+                limit = Math.max(0L, Long.parseLong(bytesPerSecond.trim()));
+            } catch (NumberFormatException e) {
+                output.println("bytesPerSecond must be a whole number of bytes (0 = unlimited), got " + bytesPerSecond);
+                output.println("Usage: POST /tasks/bandwidth?scope=global|region|transfer[&region=<region>]&bytesPerSecond=<n>");
+                return;
+            }
+            switch (scope) {
+                case "global":
+                    bandwidthThrottle.setGlobalBytesPerSecond(limit);
+                    break;
+                case "transfer":
+                    bandwidthThrottle.setPerTransferBytesPerSecond(limit);
+                    break;
+                case "region":
+                    String region = first(parameters, "region");
+                    if (region == null || region.isEmpty()) {
+                        output.println("region is required for scope=region");
+                        return;
+                    }
+                    bandwidthThrottle.setRegionBytesPerSecond(region, limit);
+                    break;
+                default:
+                    output.println("Unknown scope " + scope + ", expected global, region or transfer");
+                    return;
+            }
+        }
+        bandwidthThrottle.describe().forEach((name, limit) -> output.println(name + ": " + limit));
+    }
+
+    private static String first(Map<String, List<String>> parameters, String name) {
+        List<String> values = parameters.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+}
@@ -1,9 +1,27 @@
 package com.example;
 
+import com.example.config.FileOperationConfiguration;
+import com.example.resources.EndpointMetrics;
 import com.example.resources.FileOperationResourceOc1;
 import com.example.resources.FileOperationResourceOc10;
+import com.example.resources.TransferJobResource;
+import com.example.utils.AdaptiveTransferController;
+import com.example.utils.BandwidthThrottle;
+import com.example.utils.BulkCopier;
+import com.example.utils.CrossRegionCopier;
+import com.example.utils.Deduplication;
+import com.example.utils.MultipartJournalStore;
+import com.example.utils.ObjectContentCache;
+import com.example.utils.ObjectMetadataCache;
+import com.example.utils.ObjectStorageMetrics;
+import com.example.utils.ObjectStorageUtils;
+import com.example.utils.PartBufferPool;
+import com.example.utils.RegionClientRegistry;
+import com.example.utils.StreamCompression;
+import com.example.utils.TransferJobRegistry;
+import com.example.utils.TransferScheduler;
+import com.example.utils.TransferTimelines;
 import io.dropwizard.Application;
-import io.dropwizard.Configuration;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import org.glassfish.jersey.media.multipart.MultiPartFeature;
@@ -12,10 +30,17 @@ import org.slf4j.LoggerFactory;
 import com.codahale.metrics.MetricRegistry;
 import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.dropwizard.DropwizardExports;
+import io.prometheus.client.dropwizard.samplebuilder.CustomMappingSampleBuilder;
+import io.prometheus.client.dropwizard.samplebuilder.MapperConfig;
 import io.prometheus.client.exporter.MetricsServlet;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 // Main Dropwizard Application class
-public class FileOperationApplication extends Application<Configuration> {
+public class FileOperationApplication extends Application<FileOperationConfiguration> {
     private static final Logger LOGGER = LoggerFactory.getLogger(FileOperationApplication.class);
 
     public static void main(String[] args) throws Exception {
@@ -23,22 +48,26 @@ public class FileOperationApplication extends Application<Configuration> {
     }
 
     @Override
-    public void initialize(Bootstrap<Configuration> bootstrap) {
+    public void initialize(Bootstrap<FileOperationConfiguration> bootstrap) {
         // Add any initialization logic if needed
         LOGGER.info("Initializing FileUploadApplication");
 
     }
 
     @Override
-    public void run(Configuration configuration, Environment environment) {
+    public void run(FileOperationConfiguration configuration, Environment environment) {
         // Register the MultiPartFeature to enable multipart form data support
         environment.jersey().register(MultiPartFeature.class);
 
         // Get the MetricRegistry from Dropwizard environment
         MetricRegistry metricRegistry = environment.metrics();
 
-        // Register Dropwizard metrics with Prometheus
-        CollectorRegistry.defaultRegistry.register(new DropwizardExports(metricRegistry));
+        // Register Dropwizard metrics with Prometheus; per-region/operation/size metric names become labelled families
+        List<MapperConfig> prometheusMappings = new ArrayList<>(ObjectStorageMetrics.prometheusMappings());
+        prometheusMappings.addAll(EndpointMetrics.prometheusMappings());
+        prometheusMappings.addAll(StreamCompression.prometheusMappings());
+        prometheusMappings.addAll(Deduplication.prometheusMappings());
+        CollectorRegistry.defaultRegistry.register(new DropwizardExports(metricRegistry, new CustomMappingSampleBuilder(prometheusMappings)));
 
         // Expose Prometheus metrics endpoint
         environment.getAdminContext().getServletContext()
@@ -48,16 +77,90 @@ public class FileOperationApplication extends Application<Configuration> {
         // Example: Register a simple counter metric
         metricRegistry.counter("FileOperationApplication_start_counter").inc();
 
-        // Register the resource class with Jersey
-        environment.jersey().register(new FileOperationResourceOc1());
-        environment.jersey().register(new FileOperationResourceOc10());
+        // One pool of direct part buffers shared by every transfer in the process
+        PartBufferPool partBufferPool = new PartBufferPool(configuration.getTransfer().getBufferPoolMaxBytes(), metricRegistry);
+
+        // Part size / concurrency tuning learned per region, shared by all transfers
+        AdaptiveTransferController adaptiveTransferController = new AdaptiveTransferController(configuration.getTransfer().getAdaptive(), metricRegistry);
+
+        // Part journals of resumable multipart uploads
+        MultipartJournalStore journalStore = new MultipartJournalStore(configuration.getTransfer().getJournalDirectory());
+
+        // Lanes, fair queuing and memory-aware admission for the async transfer endpoints of both resources
+        TransferScheduler transferScheduler = new TransferScheduler(configuration.getTransfer(), partBufferPool, metricRegistry);
+
+        // Global / per-region / per-transfer bandwidth limits, adjustable at runtime via POST /tasks/bandwidth
+        BandwidthThrottle bandwidthThrottle = new BandwidthThrottle(configuration.getTransfer().getBandwidth(), metricRegistry);
+        environment.admin().addTask(new BandwidthLimitTask(bandwidthThrottle));
 
+        // Object metadata shared by both regions' clients, revalidated with conditional HEADs once older than the TTL
+        ObjectMetadataCache metadataCache = new ObjectMetadataCache(configuration.getTransfer().getMetadataCacheMaxEntries(),
+                configuration.getTransfer().getMetadataCacheTtlSeconds(), metricRegistry);
 
-        environment.lifecycle().manage(new FileOperationManager());
+        // Hot object bodies (memory, then local disk) for repeated downloads; disabled unless transfer.contentCache.enabled
+        ObjectContentCache contentCache = new ObjectContentCache(configuration.getTransfer().getContentCache(), metricRegistry);
+
+        // Phase and part timelines of running and recent transfers, on the admin port next to /prometheus
+        TransferTimelines transferTimelines = new TransferTimelines(configuration.getTransfer().getTimelines());
+        environment.getAdminContext().getServletContext()
+                .addServlet("transferTimelines", new TransferTimelineServlet(transferTimelines, environment.getObjectMapper()))
+                .addMapping("/transfers");
+
+        // gzip / zstd codecs of compressed uploads and copies (per request or transfer.compression.buckets), with ratio and CPU metrics
+        StreamCompression streamCompression = new StreamCompression(configuration.getTransfer().getCompression(), metricRegistry);
+
+        // Off-heap index of stored chunks for deduplicated uploads (dedup=true or transfer.dedup.buckets), shared by both regions
+        Deduplication deduplication = new Deduplication(configuration.getTransfer().getDedup(), metricRegistry);
+
+        // Transfer jobs behind /jobs; async=true transfers return their job right away
+        TransferJobRegistry transferJobs = new TransferJobRegistry(configuration.getTransfer().getJobs(), transferTimelines, metricRegistry);
+
+        // One shared, pooled Object Storage client per configured region; warmed up by FileOperationManager.start()
+        RegionClientRegistry regionClients = new RegionClientRegistry(configuration.getObjectStorage(), metricRegistry);
+        Map<String, ObjectStorageUtils> utilsByName = new HashMap<>();
+        Map<String, ObjectStorageUtils> utilsByRegion = new HashMap<>();
+        for (RegionClientRegistry.RegionClient regionClient : regionClients.getAll()) {
+            ObjectStorageUtils utils = new ObjectStorageUtils(regionClient.getRegionId(), regionClient.getNamespaceName(), regionClient.getClient(),
+                    configuration.getTransfer(), partBufferPool, metricRegistry, adaptiveTransferController, bandwidthThrottle, metadataCache, contentCache,
+                    streamCompression, deduplication);
+            utilsByName.put(regionClient.getName(), utils);
+            utilsByRegion.put(utils.getRegionId(), utils);
+        }
+        ObjectStorageUtils oc1Utils = regionUtils(utilsByName, "oc1");
+        ObjectStorageUtils oc10Utils = regionUtils(utilsByName, "oc10");
+
+        // OC1 -> OC10 copies run in process against the OC10 client; OC10 bulk copies go through the service when
+        // CopyObject does not apply. Stopped by FileOperationManager before the region clients are closed
+        CrossRegionCopier oc1ToOc10Copier = new CrossRegionCopier(oc1Utils, oc10Utils, configuration.getTransfer(), partBufferPool, journalStore);
+        CrossRegionCopier oc10Copier = new CrossRegionCopier(oc10Utils, oc10Utils, configuration.getTransfer(), partBufferPool, journalStore);
+        BulkCopier oc1ToOc10BulkCopier = new BulkCopier(oc1Utils, oc10Utils, oc1ToOc10Copier, configuration.getTransfer(), transferJobs, transferScheduler);
+        BulkCopier oc10BulkCopier = new BulkCopier(oc10Utils, oc10Utils, oc10Copier, configuration.getTransfer(), transferJobs, transferScheduler);
+
+        // Register the resource class with Jersey
+        FileOperationResourceOc10 oc10Resource = new FileOperationResourceOc10(configuration.getTransfer(), journalStore, oc10Utils, oc10BulkCopier,
+                transferScheduler, transferJobs);
+        FileOperationResourceOc1 oc1Resource = new FileOperationResourceOc1(configuration.getTransfer(), oc1Utils, oc1ToOc10Copier, oc1ToOc10BulkCopier,
+                transferScheduler, transferJobs);
+        environment.jersey().register(oc1Resource);
+        environment.jersey().register(oc10Resource);
+        environment.jersey().register(new TransferJobResource(transferJobs));
+        // Latency, in-flight and bytes of every endpoint, until the (possibly async) response has been written
+        environment.jersey().register(new EndpointMetrics(metricRegistry, utilsByName.keySet()));
+
+        environment.lifecycle().manage(new FileOperationManager(journalStore, utilsByRegion, configuration.getTransfer(), transferScheduler, transferJobs,
+                List.of(oc1ToOc10BulkCopier, oc10BulkCopier), List.of(oc1ToOc10Copier, oc10Copier), regionClients));
 
         // Add a simple health check (optional)
         environment.healthChecks().register("simple", new SimpleHealthCheck());
     }
+
+    private static ObjectStorageUtils regionUtils(Map<String, ObjectStorageUtils> utilsByName, String name) {
+        ObjectStorageUtils utils = utilsByName.get(name);
+        if (utils == null) {
+            throw new IllegalStateException("Region " + name + " is not configured under objectStorage.regions");
+        }
+        return utils;
+    }
 }
 
 // Simple health check class (optional)
@@ -1,18 +1,126 @@
 package com.example;
 
+import com.example.config.TransferConfiguration;
+import com.example.utils.BulkCopier;
+import com.example.utils.CrossRegionCopier;
+import com.example.utils.MultipartJournalStore;
+import com.example.utils.ObjectStorageUtils;
+import com.example.utils.RegionClientRegistry;
+import com.example.utils.TransferJobRegistry;
+import com.example.utils.TransferScheduler;
 import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-// dummy as of now.. no usage
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Background housekeeping for transfers: aborts multipart uploads whose resumable journal went stale,
+// owns the transfer job registry (drained, then cancelled, on shutdown), stops the bulk and in-process copiers and the
+// transfer scheduler and warms up / closes the region clients
 public class FileOperationManager implements Managed {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileOperationManager.class);
+    // Parts still running once the jobs were drained or cancelled only have to reach their next boundary
+    private static final long EXECUTOR_DRAIN_SECONDS = 10;
+
+    private final MultipartJournalStore journalStore;
+    private final Map<String, ObjectStorageUtils> utilsByRegion;
+    private final TransferConfiguration transferConfiguration;
+    private final TransferScheduler transferScheduler;
+    private final TransferJobRegistry transferJobs;
+    private final List<BulkCopier> bulkCopiers;
+    private final List<CrossRegionCopier> copiers;
+    private final RegionClientRegistry regionClients;
+    private ScheduledExecutorService scheduler;
+
+    public FileOperationManager(MultipartJournalStore journalStore, Map<String, ObjectStorageUtils> utilsByRegion, TransferConfiguration transferConfiguration,
+                                TransferScheduler transferScheduler, TransferJobRegistry transferJobs, List<BulkCopier> bulkCopiers,
+                                List<CrossRegionCopier> copiers, RegionClientRegistry regionClients) {
+        this.journalStore = journalStore;
+        this.utilsByRegion = utilsByRegion;
+        this.transferConfiguration = transferConfiguration;
+        this.transferScheduler = transferScheduler;
+        this.transferJobs = transferJobs;
+        this.bulkCopiers = bulkCopiers;
+        this.copiers = copiers;
+        this.regionClients = regionClients;
+    }
+
     @Override
     public void start() throws Exception {
         System.out.println("Starting FileOperationManager");
         Managed.super.start();
+        removeSpoolFiles();
+        // Open pooled connections to every region before the first request needs them
+        regionClients.start();
+        transferJobs.start();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = transferConfiguration.getJournalCleanupIntervalMinutes();
+        scheduler.scheduleWithFixedDelay(this::cleanupStaleJournals, interval, interval, TimeUnit.MINUTES);
     }
 
     @Override
     public void stop() throws Exception {
         System.out.println("Stopping FileOperationManager");
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        transferJobs.shutdown();
+        // bulk copies queue work on the copiers and the transfer scheduler, so they stop first
+        bulkCopiers.forEach(BulkCopier::shutdown);
+        for (BulkCopier bulkCopier : bulkCopiers) {
+            if (!bulkCopier.awaitTermination(EXECUTOR_DRAIN_SECONDS)) {
+                LOGGER.warn("Bulk copy requests still running after {} s", EXECUTOR_DRAIN_SECONDS);
+            }
+        }
+        // copy parts run against the region clients, so they have to finish before the clients close
+        copiers.forEach(CrossRegionCopier::shutdown);
+        for (CrossRegionCopier copier : copiers) {
+            if (!copier.awaitTermination(EXECUTOR_DRAIN_SECONDS)) {
+                LOGGER.warn("Cross-region copy parts still running after {} s, closing the region clients anyway", EXECUTOR_DRAIN_SECONDS);
+            }
+        }
+        transferScheduler.shutdown();
+        utilsByRegion.values().forEach(ObjectStorageUtils::shutdown);
+        regionClients.close();
         Managed.super.stop();
     }
+
+    // Bodies spooled for async uploads by a previous process can no longer be uploaded
+    private void removeSpoolFiles() {
+        Path spoolDirectory = Paths.get(transferConfiguration.getJobs().getSpoolDirectory());
+        if (!Files.isDirectory(spoolDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolDirectory, "*.spool")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Cannot clean spool directory {}: {}", spoolDirectory, e.getMessage());
+        }
+    }
+
+    private void cleanupStaleJournals() {
+        try {
+            int removed = journalStore.cleanupStale(TimeUnit.HOURS.toMillis(transferConfiguration.getJournalMaxAgeHours()), utilsByRegion);
+            if (removed > 0) {
+                LOGGER.info("Removed {} stale multipart upload journals", removed);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error cleaning up stale journals: {}", e.getMessage(), e);
+        }
+    }
 }
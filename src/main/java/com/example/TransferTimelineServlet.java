@@ -0,0 +1,29 @@
+package com.example;
+
+import com.example.utils.TransferTimelines;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// Admin endpoint next to /prometheus: GET /transfers returns the phase and part timelines of the running and the most
+// recent transfers plus their slowest parts as JSON, to see where a slow transfer spent its time
+public class TransferTimelineServlet extends HttpServlet {
+    private final TransferTimelines timelines;
+    private final ObjectMapper objectMapper;
+
+    public TransferTimelineServlet(TransferTimelines timelines, ObjectMapper objectMapper) {
+        this.timelines = timelines;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json");
+        response.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(response.getOutputStream(), timelines.report());
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.Min;
+
+// Adaptive part size and AIMD concurrency for multipart transfers (transfer.adaptive)
+@Getter
+@Setter
+public class AdaptiveConfiguration {
+
+    // Concurrency a region starts from before anything has been learned about it
+    @Min(1)
+    @JsonProperty
+    private int initialConcurrency = 4;
+
+    @Min(1)
+    @JsonProperty
+    private int minConcurrency = 1;
+
+    // Also capped by what the executor running the parts can run at once (partUploadThreads or crossRegionCopyThreads in PLATFORM mode)
+    @Min(1)
+    @JsonProperty
+    private int maxConcurrency = 32;
+
+    // Object Storage rejects parts below 10 MiB (except the last one)
+    @Min(10 * 1024 * 1024)
+    @JsonProperty
+    private long minPartSize = 10L * 1024 * 1024;
+
+    // Upper bound while the 10,000-part limit still allows it
+    @Min(10 * 1024 * 1024)
+    @JsonProperty
+    private long maxPartSize = 128L * 1024 * 1024;
+
+    // Aim for this many parts, so even mid-sized objects can use the learned concurrency
+    @Min(1)
+    @JsonProperty
+    private int targetPartCount = 64;
+}
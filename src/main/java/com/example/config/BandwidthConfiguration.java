@@ -0,0 +1,32 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.HashMap;
+import java.util.Map;
+
+// Token-bucket bandwidth limits in bytes per second; 0 means unlimited (transfer.bandwidth).
+// Limits can be changed at runtime with POST /tasks/bandwidth on the admin connector.
+@Getter
+@Setter
+public class BandwidthConfiguration {
+
+    // All part uploads and ranged downloads of the process together
+    @Min(0)
+    @JsonProperty
+    private long globalBytesPerSecond = 0;
+
+    // Per region client, keyed by region id (e.g. us-ashburn-1)
+    @NotNull
+    @JsonProperty
+    private Map<String, Long> regionBytesPerSecond = new HashMap<>();
+
+    // Each individual upload, download or copy
+    @Min(0)
+    @JsonProperty
+    private long perTransferBytesPerSecond = 0;
+}
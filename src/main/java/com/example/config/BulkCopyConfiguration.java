@@ -0,0 +1,51 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+// Prefix / manifest bulk copies (transfer.bulkCopy)
+@Getter
+@Setter
+public class BulkCopyConfiguration {
+
+    // Objects copied at the same time by one bulk copy
+    @Min(1)
+    @JsonProperty
+    private int objectConcurrency = 32;
+
+    // Threads shared by all bulk copies of one region pair for HEADs and starting server-side copies (PLATFORM mode);
+    // copies through the service run on the transfer scheduler
+    @Min(1)
+    @JsonProperty
+    private int copyThreads = 64;
+
+    // Further bulk copies are rejected with 429 while this many are running
+    @Min(1)
+    @JsonProperty
+    private int maxRunningJobs = 4;
+
+    // ListObjects page size; the next page is fetched while the current one is being copied
+    @Min(1)
+    @Max(1000)
+    @JsonProperty
+    private int listPageSize = 1000;
+
+    // Within one region, objects at least this large are copied server-side (CopyObject) instead of through the service
+    @Min(0)
+    @JsonProperty
+    private long serverSideCopyMinBytes = 64L * 1024 * 1024;
+
+    // Per-object failures kept in the report; further failures are only counted
+    @Min(0)
+    @JsonProperty
+    private int maxReportedFailures = 1000;
+
+    // Finished bulk copies whose reports stay available on the status endpoint
+    @Min(1)
+    @JsonProperty
+    private int maxRetainedJobs = 100;
+}
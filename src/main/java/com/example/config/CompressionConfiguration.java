@@ -0,0 +1,32 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.HashMap;
+import java.util.Map;
+
+// Optional streaming compression of uploads and cross-region copies (transfer.compression)
+@Getter
+@Setter
+public class CompressionConfiguration {
+
+    // Bucket name -> codec (gzip, zstd or none) used when a request does not ask for one
+    @NotNull
+    @JsonProperty
+    private Map<String, String> buckets = new HashMap<>();
+
+    @Min(1)
+    @Max(9)
+    @JsonProperty
+    private int gzipLevel = 6;
+
+    @Min(1)
+    @Max(19)
+    @JsonProperty
+    private int zstdLevel = 3;
+}
@@ -0,0 +1,56 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.Min;
+
+// HTTP connection pool and socket settings of each region's Object Storage client (objectStorage.connectionPool)
+@Getter
+@Setter
+public class ConnectionPoolConfiguration {
+
+    // Connections per region; every region talks to a single endpoint, so this is also the per-route limit.
+    // Should cover the part, range and copy threads that can hit one region at once
+    @Min(1)
+    @JsonProperty
+    private int maxConnections = 128;
+
+    @Min(1)
+    @JsonProperty
+    private int connectTimeoutMillis = 10000;
+
+    @Min(1)
+    @JsonProperty
+    private int readTimeoutMillis = 120000;
+
+    // Pooled connections are reused for at most this long, then re-established (and re-resolved)
+    @Min(1)
+    @JsonProperty
+    private int connectionTtlSeconds = 300;
+
+    // Connections idle this long are closed by the eviction task
+    @Min(1)
+    @JsonProperty
+    private int idleTimeoutSeconds = 60;
+
+    // Idle connections are checked before reuse once they have been idle this long
+    @Min(0)
+    @JsonProperty
+    private int validateAfterInactivityMillis = 2000;
+
+    // TCP send/receive buffers; large buffers keep multi-MiB parts flowing on high-latency cross-region links
+    @Min(0)
+    @JsonProperty
+    private int socketSendBufferBytes = 1048576;
+
+    @Min(0)
+    @JsonProperty
+    private int socketReceiveBufferBytes = 1048576;
+
+    // Connections opened per region at startup (TLS handshake included) so the first transfers do not pay for them
+    @Min(0)
+    @JsonProperty
+    private int warmupConnections = 8;
+}
@@ -0,0 +1,39 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+
+// Read-through cache of object bodies for hot downloads (transfer.contentCache)
+@Getter
+@Setter
+public class ContentCacheConfiguration {
+
+    @JsonProperty
+    private boolean enabled = false;
+
+    // Objects up to memoryMaxObjectBytes are kept on heap, within memoryMaxBytes in total
+    @Min(0)
+    @JsonProperty
+    private long memoryMaxBytes = 64L * 1024 * 1024;
+
+    @Min(0)
+    @JsonProperty
+    private long memoryMaxObjectBytes = 1024L * 1024;
+
+    // Larger objects up to diskMaxObjectBytes go to files under diskDirectory, within diskMaxBytes in total
+    @NotEmpty
+    @JsonProperty
+    private String diskDirectory = "./object-cache";
+
+    @Min(0)
+    @JsonProperty
+    private long diskMaxBytes = 10L * 1024 * 1024 * 1024;
+
+    @Min(0)
+    @JsonProperty
+    private long diskMaxObjectBytes = 1024L * 1024 * 1024;
+}
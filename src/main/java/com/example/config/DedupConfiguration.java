@@ -0,0 +1,54 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.HashSet;
+import java.util.Set;
+
+// Content-defined chunking deduplication of uploads (transfer.dedup)
+@Getter
+@Setter
+public class DedupConfiguration {
+
+    // Buckets whose uploads are deduplicated when a request does not pass dedup=
+    @NotNull
+    @JsonProperty
+    private Set<String> buckets = new HashSet<>();
+
+    // Chunks are stored as <chunkPrefix><sha-256 hex> in the bucket of the uploaded object
+    @NotEmpty
+    @JsonProperty
+    private String chunkPrefix = "dedup-chunks/";
+
+    @Min(64 * 1024)
+    @JsonProperty
+    private int minChunkBytes = 1024 * 1024;
+
+    // Rounded down to a power of two
+    @Min(64 * 1024)
+    @JsonProperty
+    private int averageChunkBytes = 4 * 1024 * 1024;
+
+    @Min(64 * 1024)
+    @Max(64 * 1024 * 1024)
+    @JsonProperty
+    private int maxChunkBytes = 16 * 1024 * 1024;
+
+    // Chunk fingerprints kept in the off-heap index, 24 bytes each (rounded up to a power of two)
+    @Min(1024)
+    @Max(64 * 1024 * 1024)
+    @JsonProperty
+    private int indexMaxEntries = 1024 * 1024;
+
+    // An index entry older than this is confirmed with a HEAD before its chunk is skipped again, so a chunk deleted
+    // behind the service's back is uploaded anew
+    @Min(1)
+    @JsonProperty
+    private int indexTtlMinutes = 60;
+}
@@ -0,0 +1,9 @@
+package com.example.config;
+
+// How blocking Object Storage work is scheduled (transfer.executionMode)
+public enum ExecutionMode {
+    // Platform thread pools sized by the *Threads settings
+    PLATFORM,
+    // One virtual thread per request / part / range, bounded by semaphores instead of pool sizes
+    VIRTUAL
+}
@@ -0,0 +1,25 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+// Dropwizard configuration for the file operation service
+@Getter
+@Setter
+public class FileOperationConfiguration extends Configuration {
+
+    @Valid
+    @NotNull
+    @JsonProperty("transfer")
+    private TransferConfiguration transfer = new TransferConfiguration();
+
+    @Valid
+    @NotNull
+    @JsonProperty("objectStorage")
+    private ObjectStorageConfiguration objectStorage = new ObjectStorageConfiguration();
+}
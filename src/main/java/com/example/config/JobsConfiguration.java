@@ -0,0 +1,44 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+
+// Transfer job registry behind /jobs (transfer.jobs)
+@Getter
+@Setter
+public class JobsConfiguration {
+
+    // Jobs tracked at once; when full of unfinished jobs new transfers are rejected with 429
+    @Min(1)
+    @JsonProperty
+    private int maxJobs = 1000;
+
+    // Finished jobs stay visible this long
+    @Min(1)
+    @JsonProperty
+    private int retentionMinutes = 60;
+
+    // How often /jobs/{jobId}/events pushes a progress event
+    @Min(100)
+    @JsonProperty
+    private long progressIntervalMillis = 1000;
+
+    // On shutdown running jobs get this long to finish before they are cancelled
+    @Min(0)
+    @JsonProperty
+    private int shutdownDrainSeconds = 30;
+
+    // Request bodies of async=true uploads are spooled here so the HTTP request can complete right away
+    @NotEmpty
+    @JsonProperty
+    private String spoolDirectory = "./transfer-spool";
+
+    // Bytes of spooled bodies on disk at once; an async upload that would go past it is rejected with 507
+    @Min(1)
+    @JsonProperty
+    private long maxSpoolBytes = 10L * 1024 * 1024 * 1024;
+}
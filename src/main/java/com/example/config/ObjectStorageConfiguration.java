@@ -0,0 +1,39 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Object Storage clients (objectStorage): one shared client per named region, built by RegionClientRegistry.
+// The resources use the regions named oc1 and oc10.
+@Getter
+@Setter
+public class ObjectStorageConfiguration {
+
+    @NotEmpty
+    @JsonProperty
+    private String configFile = "~/.oci/config";
+
+    @Valid
+    @NotNull
+    @JsonProperty
+    private ConnectionPoolConfiguration connectionPool = new ConnectionPoolConfiguration();
+
+    @Valid
+    @NotEmpty
+    @JsonProperty
+    private Map<String, RegionConfiguration> regions = defaultRegions();
+
+    private static Map<String, RegionConfiguration> defaultRegions() {
+        Map<String, RegionConfiguration> regions = new LinkedHashMap<>();
+        regions.put("oc1", new RegionConfiguration("oc1-ashburn-test-user-hpt", "idvwg0eaivf3"));
+        regions.put("oc10", new RegionConfiguration("oc10-ap-dcc-canberra-1-test-user-hpt", "axrkmdznll4i"));
+        return regions;
+    }
+}
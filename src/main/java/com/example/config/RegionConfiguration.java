@@ -0,0 +1,47 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.validation.ValidationMethod;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.NotEmpty;
+
+// One Object Storage region the service talks to (objectStorage.regions.<name>)
+@Getter
+@Setter
+public class RegionConfiguration {
+
+    // Profile in the OCI config file; its region decides the endpoint. May be left out when endpoint is set
+    // (e.g. a local Object Storage stand-in), in which case requests are signed with a throwaway key
+    @JsonProperty
+    private String profile;
+
+    // Object Storage namespace of the tenancy
+    @NotEmpty
+    @JsonProperty
+    private String namespace;
+
+    // Overrides the endpoint derived from the profile's region, e.g. http://localhost:9000 for a stand-in server
+    @JsonProperty
+    private String endpoint;
+
+    // Region id used in metrics, bandwidth limits and adaptive tuning; defaults to the profile's region, else the region name
+    @JsonProperty
+    private String regionId;
+
+    public RegionConfiguration() {
+    }
+
+    public RegionConfiguration(String profile, String namespace) {
+        this.profile = profile;
+        this.namespace = namespace;
+    }
+
+    @JsonIgnore
+    @ValidationMethod(message = "needs a profile or an endpoint")
+    public boolean isProfileOrEndpointSet() {
+        return (profile != null && !profile.isEmpty()) || (endpoint != null && !endpoint.isEmpty());
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.Min;
+
+// Retry, hedging and circuit breaker settings applied to every part and range request (transfer.resilience)
+@Getter
+@Setter
+public class ResilienceConfiguration {
+
+    // Attempts per part/range request, including the first one
+    @Min(1)
+    @JsonProperty
+    private int maxAttempts = 4;
+
+    // Exponential backoff with full jitter: sleep a random time up to min(maxDelay, baseDelay x 2^retry)
+    @Min(1)
+    @JsonProperty
+    private long baseDelayMillis = 200;
+
+    @Min(1)
+    @JsonProperty
+    private long maxDelayMillis = 10_000;
+
+    // Launch a duplicate ranged GET once the first one has waited on the service longer than the observed p95
+    // of requests of the same operation and size class
+    @JsonProperty
+    private boolean hedgingEnabled = true;
+
+    // Floor for the hedge delay, so fast links don't hedge every request
+    @Min(0)
+    @JsonProperty
+    private long hedgeMinDelayMillis = 500;
+
+    // Latency samples needed before the p95 is trusted for hedging
+    @Min(1)
+    @JsonProperty
+    private int hedgeMinSamples = 20;
+
+    // How often the cached hedge delay of an operation and size class is recomputed from its latency histogram
+    @Min(1)
+    @JsonProperty
+    private long hedgeDelayRefreshMillis = 1000;
+
+    // Consecutive failures that open the circuit breaker of a region
+    @Min(1)
+    @JsonProperty
+    private int breakerFailureThreshold = 10;
+
+    // How long an open breaker sheds requests before letting a probe through
+    @Min(1)
+    @JsonProperty
+    private int breakerOpenSeconds = 30;
+}
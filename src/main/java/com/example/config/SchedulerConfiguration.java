@@ -0,0 +1,58 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.HashMap;
+import java.util.Map;
+
+// Lanes, fair queuing and admission control of the transfer scheduler (transfer.scheduler)
+@Getter
+@Setter
+public class SchedulerConfiguration {
+
+    // Transfers of objects below this size (or of unknown size) run in the small lane, the rest in the large lane
+    @Min(1)
+    @JsonProperty
+    private long smallObjectThreshold = 64L * 1024 * 1024;
+
+    @Min(1)
+    @JsonProperty
+    private int smallLaneConcurrency = 32;
+
+    @Min(1)
+    @JsonProperty
+    private int largeLaneConcurrency = 8;
+
+    // Queued transfers per lane before new ones are rejected with 503
+    @Min(0)
+    @JsonProperty
+    private int maxQueueDepthPerLane = 256;
+
+    // Queued transfers per bucket / caller and lane before new ones are rejected with 429
+    @Min(0)
+    @JsonProperty
+    private int maxQueuedPerFlow = 32;
+
+    // Part-buffer bytes admitted transfers may hold at once; queued transfers wait until their estimate fits
+    @Min(1)
+    @JsonProperty
+    private long maxAdmittedBytes = 768L * 1024 * 1024;
+
+    // Bytes of credit a flow of weight 1 earns per deficit round-robin turn
+    @Min(1)
+    @JsonProperty
+    private long quantumBytes = 64L * 1024 * 1024;
+
+    @Min(1)
+    @JsonProperty
+    private int retryAfterSeconds = 5;
+
+    // Weight per bucket or caller id (X-Caller-Id); flows not listed get weight 1
+    @NotNull
+    @JsonProperty
+    private Map<String, Integer> flowWeights = new HashMap<>();
+}
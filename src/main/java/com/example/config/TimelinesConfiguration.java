@@ -0,0 +1,28 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.Min;
+
+// Per-transfer phase and part timelines behind the admin /transfers endpoint (transfer.timelines)
+@Getter
+@Setter
+public class TimelinesConfiguration {
+
+    // Finished transfers kept, newest first; running ones are always shown
+    @Min(0)
+    @JsonProperty
+    private int maxRecent = 50;
+
+    // Parts timed per transfer; later parts only count towards its totals
+    @Min(0)
+    @JsonProperty
+    private int maxPartsPerTransfer = 10000;
+
+    // Slowest parts a finished transfer keeps, and the length of the slowestParts list
+    @Min(1)
+    @JsonProperty
+    private int slowestParts = 20;
+}
@@ -0,0 +1,165 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+// Tuning knobs for multipart transfers (the "transfer" section of config.yml)
+@Getter
+@Setter
+public class TransferConfiguration {
+
+    // PLATFORM keeps the thread pools below; VIRTUAL runs every request and part/range transfer on its own virtual thread
+    @NotNull
+    @JsonProperty
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    // VIRTUAL mode: concurrently running requests per resource (excess requests park on a semaphore)
+    @Min(1)
+    @JsonProperty
+    private int virtualMaxConcurrentRequests = 4096;
+
+    // VIRTUAL mode: concurrently running part/range transfers per executor (replaces the *Threads pool sizes)
+    @Min(1)
+    @JsonProperty
+    private int virtualMaxConcurrentTransfers = 1024;
+
+    // Max number of parts of a single transfer that may be buffered or uploading at once
+    @Min(1)
+    @JsonProperty
+    private int maxInFlightParts = 4;
+
+    // Max bytes of a single transfer that may be buffered or uploading at once
+    @Min(1)
+    @JsonProperty
+    private long maxInFlightBytes = 512L * 1024 * 1024;
+
+    // Size of the worker pool shared by all part uploads of one ObjectStorageUtils
+    @Min(1)
+    @JsonProperty
+    private int partUploadThreads = 10;
+
+    // Upper bound on idle direct part buffers kept by the process-wide PartBufferPool
+    @Min(0)
+    @JsonProperty
+    private long bufferPoolMaxBytes = 1024L * 1024 * 1024;
+
+    // How long /copy?wait=true polls a server-side copy work request before returning the handle
+    @Min(1)
+    @JsonProperty
+    private int copyWaitTimeoutSeconds = 3600;
+
+    // Objects at least this large are downloaded as parallel ranged GETs; smaller ones use a single stream
+    @Min(1)
+    @JsonProperty
+    private long parallelDownloadThreshold = 64L * 1024 * 1024;
+
+    // Byte range fetched by each ranged GET
+    @Min(1)
+    @JsonProperty
+    private long downloadRangeSize = 32L * 1024 * 1024;
+
+    // Max concurrent ranged GETs of a single download
+    @Min(1)
+    @JsonProperty
+    private int downloadConcurrency = 8;
+
+    // Size of the worker pool shared by all ranged downloads of one ObjectStorageUtils
+    @Min(1)
+    @JsonProperty
+    private int downloadThreads = 16;
+
+    // Part size of OC1 -> OC10 copies; each part is one ranged GET on the source and one uploadPart on the destination
+    @Min(10 * 1024 * 1024)
+    @JsonProperty
+    private long crossRegionPartSize = 64L * 1024 * 1024;
+
+    // Max parts of a single cross-region copy in flight (downloading or uploading)
+    @Min(1)
+    @JsonProperty
+    private int crossRegionConcurrency = 8;
+
+    // Size of the worker pool shared by all cross-region copies
+    @Min(1)
+    @JsonProperty
+    private int crossRegionCopyThreads = 16;
+
+    // Where resumable uploads keep their part journals
+    @NotEmpty
+    @JsonProperty
+    private String journalDirectory = "./transfer-journal";
+
+    // Journals untouched for this long are treated as abandoned: the upload is aborted and the journal removed
+    @Min(1)
+    @JsonProperty
+    private int journalMaxAgeHours = 24;
+
+    @Min(1)
+    @JsonProperty
+    private int journalCleanupIntervalMinutes = 30;
+
+    // Object metadata (size, ETag, MD5) cached per region/namespace/bucket/object; 0 entries disables the cache
+    @Min(0)
+    @JsonProperty
+    private int metadataCacheMaxEntries = 10000;
+
+    // Entries older than this are revalidated with a conditional HEAD before use
+    @Min(0)
+    @JsonProperty
+    private int metadataCacheTtlSeconds = 30;
+
+    @Valid
+    @NotNull
+    @JsonProperty
+    private ResilienceConfiguration resilience = new ResilienceConfiguration();
+
+    @Valid
+    @NotNull
+    @JsonProperty
+    private AdaptiveConfiguration adaptive = new AdaptiveConfiguration();
+
+    @Valid
+    @NotNull
+    @JsonProperty
+    private SchedulerConfiguration scheduler = new SchedulerConfiguration();
+
+    @Valid
+    @NotNull
+    @JsonProperty
+    private BandwidthConfiguration bandwidth = new BandwidthConfiguration();
+
+    @Valid
+    @NotNull
+    @JsonProperty
+    private ContentCacheConfiguration contentCache = new ContentCacheConfiguration();
+
+    @Valid
+    @NotNull
+    @JsonProperty
+    private BulkCopyConfiguration bulkCopy = new BulkCopyConfiguration();
+
+    @Valid
+    @NotNull
+    @JsonProperty
+    private JobsConfiguration jobs = new JobsConfiguration();
+
+    @Valid
+    @NotNull
+    @JsonProperty
+    private TimelinesConfiguration timelines = new TimelinesConfiguration();
+
+    @Valid
+    @NotNull
+    @JsonProperty
+    private CompressionConfiguration compression = new CompressionConfiguration();
+
+    @Valid
+    @NotNull
+    @JsonProperty
+    private DedupConfiguration dedup = new DedupConfiguration();
+}
@@ -0,0 +1,36 @@
+package com.example.resources;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Progress report of a bulk copy; poll the status endpoint with bulkCopyId until state is no longer RUNNING
+@Getter
+@AllArgsConstructor
+public class BulkCopyResult {
+    private final String bulkCopyId;
+    private final String state;
+    private final String source;
+    private final String destination;
+    private final long objectsListed;
+    private final long objectsCopied;
+    private final long objectsFailed;
+    private final long bytesCopied;
+    private final long serverSideCopies;
+    private final long singlePutCopies;
+    private final long multipartCopies;
+    private final long timeTakenMillis;
+    private final double throughputMegabytesPerSecond;
+    private final double objectsPerSecond;
+    // First failures only; objectsFailed has the total
+    private final List<Failure> failures;
+    private final String error;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Failure {
+        private final String object;
+        private final String reason;
+    }
+}
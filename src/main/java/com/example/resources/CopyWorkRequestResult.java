@@ -0,0 +1,23 @@
+package com.example.resources;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Handle for a server-side copy; poll the status endpoint with workRequestId until status is terminal
+@Getter
+@AllArgsConstructor
+public class CopyWorkRequestResult {
+    private final String workRequestId;
+    private final String status;
+    private final Float percentComplete;
+    private final String source;
+    private final String destination;
+
+    public boolean isCompleted() {
+        return "Completed".equals(status);
+    }
+
+    public boolean isTerminal() {
+        return "Completed".equals(status) || "Failed".equals(status) || "Canceled".equals(status);
+    }
+}
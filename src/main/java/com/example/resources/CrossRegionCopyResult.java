@@ -0,0 +1,17 @@
+package com.example.resources;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Outcome and throughput of one in-process cross-region copy
+@Getter
+@AllArgsConstructor
+public class CrossRegionCopyResult {
+    private final boolean success;
+    private final String source;
+    private final String destination;
+    private final long bytes;
+    private final int parts;
+    private final long timeTakenMillis;
+    private final double throughputMegabytesPerSecond;
+}
@@ -0,0 +1,18 @@
+package com.example.resources;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Outcome of one deduplicated upload: how much of its content was already stored as chunks
+@Getter
+@AllArgsConstructor
+public class DedupUploadResult {
+    private final boolean success;
+    private final String objectName;
+    private final long bytes;
+    private final int chunks;
+    private final int newChunks;
+    private final long uploadedBytes;
+    private final long savedBytes;
+    private final long timeTakenMillis;
+}
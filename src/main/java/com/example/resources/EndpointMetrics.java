@@ -0,0 +1,137 @@
+package com.example.resources;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.example.utils.ObjectStorageMetrics;
+import io.prometheus.client.dropwizard.samplebuilder.MapperConfig;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import javax.ws.rs.Path;
+import javax.ws.rs.core.HttpHeaders;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Times every resource method from the start of the request until its response has been written, so async transfers
+// (AsyncResponse) are measured to completion. Names are <region>.<endpoint>.<size bucket>.requests|errors,
+// <region>.<endpoint>.in_flight and <region>.upload|download.bytes under this class, where region is the resource's
+// path (oc1, oc10) or "none" and the size is the request body for uploads, else the response body.
+public class EndpointMetrics implements ApplicationEventListener {
+    private static final String NO_REGION = "none";
+
+    private final MetricRegistry metricRegistry;
+    private final Set<String> regions;
+    private final Map<String, Meter> uploadedBytes = new HashMap<>();
+    private final Map<String, Meter> downloadedBytes = new HashMap<>();
+
+    public EndpointMetrics(MetricRegistry metricRegistry, Set<String> regions) {
+        this.metricRegistry = metricRegistry;
+        this.regions = regions;
+        for (String region : regions) {
+            uploadedBytes.put(region, metricRegistry.meter(MetricRegistry.name(EndpointMetrics.class, region, "upload", "bytes")));
+            downloadedBytes.put(region, metricRegistry.meter(MetricRegistry.name(EndpointMetrics.class, region, "download", "bytes")));
+        }
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        return new RequestTimer();
+    }
+
+    // DropwizardExports mappings turning the dotted names into endpoint_* families labelled by region, endpoint and size
+    public static List<MapperConfig> prometheusMappings() {
+        String prefix = EndpointMetrics.class.getName();
+        return Arrays.asList(
+                new MapperConfig(prefix + ".*.*.*.requests", "endpoint_requests", ObjectStorageMetrics.labels("region", "${0}", "endpoint", "${1}", "size", "${2}")),
+                new MapperConfig(prefix + ".*.*.*.errors", "endpoint_errors", ObjectStorageMetrics.labels("region", "${0}", "endpoint", "${1}", "size", "${2}")),
+                new MapperConfig(prefix + ".*.*.in_flight", "endpoint_in_flight", ObjectStorageMetrics.labels("region", "${0}", "endpoint", "${1}")),
+                new MapperConfig(prefix + ".*.*.bytes", "endpoint_bytes", ObjectStorageMetrics.labels("region", "${0}", "direction", "${1}")));
+    }
+
+    private final class RequestTimer implements RequestEventListener {
+        private long startNanos;
+        private String region;
+        private String endpoint;
+        private Counter inFlight;
+
+        @Override
+        public void onEvent(RequestEvent event) {
+            if (event.getType() == RequestEvent.Type.RESOURCE_METHOD_START) {
+                ResourceMethod resourceMethod = event.getUriInfo().getMatchedResourceMethod();
+                if (resourceMethod == null || resourceMethod.getInvocable().getHandlingMethod() == null) {
+                    return;
+                }
+                Method method = resourceMethod.getInvocable().getHandlingMethod();
+                startNanos = System.nanoTime();
+                region = regionOf(method.getDeclaringClass());
+                endpoint = method.getName();
+                inFlight = metricRegistry.counter(MetricRegistry.name(EndpointMetrics.class, region, endpoint, "in_flight"));
+                inFlight.inc();
+            } else if (event.getType() == RequestEvent.Type.FINISHED && inFlight != null) {
+                inFlight.dec();
+                finished(event);
+            }
+        }
+
+        private void finished(RequestEvent event) {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            long requestBytes = contentLength(event.getContainerRequest().getHeaderString(HttpHeaders.CONTENT_LENGTH));
+            ContainerResponse response = event.getContainerResponse();
+            long responseBytes = response != null ? contentLength(response.getHeaderString(HttpHeaders.CONTENT_LENGTH)) : -1L;
+            if (requestBytes <= 0) {
+                // chunked uploads announce their size as a query parameter
+                requestBytes = contentLength(event.getUriInfo().getQueryParameters().getFirst("size"));
+            }
+            long bytes = requestBytes > 0 ? requestBytes : responseBytes;
+            String sizeBucket = ObjectStorageMetrics.sizeBucket(bytes);
+
+            ObjectStorageMetrics.hdrTimer(metricRegistry, MetricRegistry.name(EndpointMetrics.class, region, endpoint, sizeBucket, "requests"))
+                    .update(elapsedNanos, TimeUnit.NANOSECONDS);
+            boolean failed = !event.isSuccess() || response == null || response.getStatus() >= 500;
+            if (failed) {
+                metricRegistry.meter(MetricRegistry.name(EndpointMetrics.class, region, endpoint, sizeBucket, "errors")).mark();
+                return;
+            }
+            if (requestBytes > 0 && uploadedBytes.containsKey(region)) {
+                uploadedBytes.get(region).mark(requestBytes);
+            }
+            if (responseBytes > 0 && downloadedBytes.containsKey(region) && "GET".equals(event.getContainerRequest().getMethod())) {
+                downloadedBytes.get(region).mark(responseBytes);
+            }
+        }
+    }
+
+    private String regionOf(Class<?> resourceClass) {
+        Path path = resourceClass.getAnnotation(Path.class);
+        if (path == null) {
+            return NO_REGION;
+        }
+        String first = path.value().replaceAll("^/+", "").split("/", 2)[0];
+        return regions.contains(first) ? first : NO_REGION;
+    }
+
+    private static long contentLength(String value) {
+        if (value == null || value.isEmpty()) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
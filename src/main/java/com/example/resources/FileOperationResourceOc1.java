@@ -1,51 +1,56 @@
 package com.example.resources;
 
+import com.example.config.TransferConfiguration;
+import com.example.utils.BulkCopier;
+import com.example.utils.CompressionCodec;
+import com.example.utils.CrossRegionCopier;
 import com.example.utils.ObjectStorageUtils;
-import com.oracle.bmc.auth.AuthenticationDetailsProvider;
-import com.oracle.bmc.auth.ConfigFileAuthenticationDetailsProvider;
-import com.oracle.bmc.objectstorage.ObjectStorageClient;
-import org.glassfish.jersey.client.ClientConfig;
-import org.glassfish.jersey.client.JerseyWebTarget;
+import com.example.utils.TransferInProgressException;
+import com.example.utils.TransferJob;
+import com.example.utils.TransferJobRegistry;
+import com.example.utils.TransferRejectedException;
+import com.example.utils.TransferScheduler;
+import com.oracle.bmc.objectstorage.model.WorkRequest;
+import com.oracle.bmc.objectstorage.responses.HeadObjectResponse;
+import lombok.Getter;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
-import org.glassfish.jersey.media.multipart.FormDataMultiPart;
 import org.glassfish.jersey.media.multipart.FormDataParam;
-import org.glassfish.jersey.media.multipart.MultiPartFeature;
-import org.glassfish.jersey.media.multipart.file.StreamDataBodyPart;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.*;
-import javax.ws.rs.client.*;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.*;
 import java.io.InputStream;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 @Path("/oc1")
 @Produces(MediaType.APPLICATION_JSON)
 public class FileOperationResourceOc1 {
     private static final Logger LOGGER = LoggerFactory.getLogger(FileOperationResourceOc1.class);
-    private final ObjectStorageUtils objectStorageUtils;
-
-    // ExecutorService for async processing
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
-
-
-    public FileOperationResourceOc1() {
-        try {
-            AuthenticationDetailsProvider provider =
-                    new ConfigFileAuthenticationDetailsProvider("~/.oci/config", "oc1-ashburn-test-user-hpt");
-            ObjectStorageClient objectStorageClient = new ObjectStorageClient(provider);
-            // Replace with your OCI namespace
-            String namespaceName = "idvwg0eaivf3";
-            this.objectStorageUtils = new ObjectStorageUtils(namespaceName, objectStorageClient);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to initialize OCI Object Storage client: " + e.getMessage(), e);
-        }
+    private @Getter final ObjectStorageUtils objectStorageUtils;
+    private final TransferConfiguration transferConfiguration;
+    private final CrossRegionCopier crossRegionCopier;
+    private final BulkCopier bulkCopier;
+
+    // Runs async transfers in small/large lanes with fair queuing and memory-aware admission
+    private final TransferScheduler transferScheduler;
+
+    // Tracks async transfers for /jobs
+    private final TransferJobRegistry transferJobs;
+
+
+    // crossRegionCopier and bulkCopier copy from objectStorageUtils to OC10; FileOperationManager shuts them down
+    public FileOperationResourceOc1(TransferConfiguration transferConfiguration, ObjectStorageUtils objectStorageUtils, CrossRegionCopier crossRegionCopier,
+                                    BulkCopier bulkCopier, TransferScheduler transferScheduler, TransferJobRegistry transferJobs) {
+        this.transferConfiguration = transferConfiguration;
+        this.transferScheduler = transferScheduler;
+        this.transferJobs = transferJobs;
+        this.objectStorageUtils = objectStorageUtils;
+        this.crossRegionCopier = crossRegionCopier;
+        this.bulkCopier = bulkCopier;
     }
 
     // Existing endpoint for file upload
@@ -54,7 +59,8 @@ public class FileOperationResourceOc1 {
     @Consumes(MediaType.MULTIPART_FORM_DATA)
     public Response uploadFile(
             @FormDataParam("file") InputStream uploadedInputStream,
-            @FormDataParam("file") FormDataContentDisposition fileDetail) {
+            @FormDataParam("file") FormDataContentDisposition fileDetail,
+            @QueryParam("compression") String compression) { // gzip, zstd or none; defaults to transfer.compression.buckets
         try {
             String fileName = fileDetail.getFileName();
             long fileSize = fileDetail.getSize();
@@ -66,7 +72,15 @@ public class FileOperationResourceOc1 {
             }
 
             String bucketName = "test-src-bucket"; // Replace with your default source bucket if needed
-            boolean uploadSuccessful = this.objectStorageUtils.uploadToObjectStorage(uploadedInputStream, bucketName, fileName, null);
+            CompressionCodec codec;
+            try {
+                codec = this.objectStorageUtils.getCompression().codecFor(compression, bucketName);
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .build();
+            }
+            boolean uploadSuccessful = this.objectStorageUtils.uploadToObjectStorage(uploadedInputStream, bucketName, fileName, null, codec, fileSize);
 
             if (uploadSuccessful) {
                 return Response.status(Response.Status.OK)
@@ -84,25 +98,153 @@ public class FileOperationResourceOc1 {
         }
     }
 
-    // Existing endpoint for copying a file between buckets
+    // Existing endpoint for copying a file between buckets. With wait=true the request is suspended while the work
+    // request is polled on the region's poller thread, so no request thread sits out the copy
     @POST
     @Path("/copy")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response copyFile(@QueryParam("sourceBucket") String sourceBucket,
-                             @QueryParam("sourceFile") String sourceFile,
-                             @QueryParam("destBucket") String destBucket,
-                             @QueryParam("destFile") String destFile) {
+    public void copyFile(@QueryParam("sourceBucket") String sourceBucket,
+                         @QueryParam("sourceFile") String sourceFile,
+                         @QueryParam("destBucket") String destBucket,
+                         @QueryParam("destFile") String destFile,
+                         @QueryParam("wait") @DefaultValue("false") boolean wait,
+                         @Suspended final AsyncResponse asyncResponse) {
         try {
             if (sourceBucket == null || sourceBucket.isEmpty() ||
                     sourceFile == null || sourceFile.isEmpty() ||
                     destBucket == null || destBucket.isEmpty()) {
-                return Response.status(Response.Status.BAD_REQUEST)
+                asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
                         .entity("Source bucket, source file, and destination bucket are required.")
-                        .build();
+                        .build());
+                return;
             }
 
             String destinationFileName = (destFile != null && !destFile.isEmpty()) ? destFile : sourceFile;
 
+            // Source and destination share this region and namespace, so let Object Storage copy the bytes itself
+            String workRequestId = this.objectStorageUtils.copyObject(sourceBucket, sourceFile, destBucket, destinationFileName);
+            if (workRequestId == null) {
+                asyncResponse.resume(streamingCopy(sourceBucket, sourceFile, destBucket, destinationFileName));
+                return;
+            }
+            String source = sourceBucket + "/" + sourceFile;
+            String destination = destBucket + "/" + destinationFileName;
+            if (!wait) {
+                CopyWorkRequestResult result = toCopyResult(workRequestId, this.objectStorageUtils.getWorkRequest(workRequestId), source, destination);
+                asyncResponse.resume(Response.status(Response.Status.ACCEPTED).entity(result).build());
+                return;
+            }
+            this.objectStorageUtils.awaitWorkRequestAsync(workRequestId, transferConfiguration.getCopyWaitTimeoutSeconds() * 1000L)
+                    .whenComplete((workRequest, error) -> {
+                        if (error != null) {
+                            LOGGER.error("Error polling work request {}: {}", workRequestId, error.getMessage());
+                        }
+                        CopyWorkRequestResult result = toCopyResult(workRequestId, error == null ? workRequest : null, source, destination);
+                        if (result.isCompleted()) {
+                            asyncResponse.resume(Response.status(Response.Status.OK).entity(result).build());
+                        } else if (!result.isTerminal()) {
+                            asyncResponse.resume(Response.status(Response.Status.ACCEPTED).entity(result).build());
+                        } else {
+                            LOGGER.warn("Server-side copy {} ended with status {}, falling back to streaming copy", workRequestId, result.getStatus());
+                            submitStreamingCopy(asyncResponse, sourceBucket, sourceFile, destBucket, destinationFileName);
+                        }
+                    });
+        } catch (Exception e) {
+            asyncResponse.resume(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("Error copying file: " + e.getMessage())
+                    .build());
+        }
+    }
+
+    // Streams the copy as a scheduled transfer; called from the poller thread, which must not run it itself
+    private void submitStreamingCopy(AsyncResponse asyncResponse, String sourceBucket, String sourceFile, String destBucket, String destinationFileName) {
+        try {
+            transferScheduler.submit(TransferScheduler.Lane.LARGE, TransferScheduler.flowKey(null, destBucket),
+                    transferConfiguration.getScheduler().getSmallObjectThreshold(),
+                    () -> asyncResponse.resume(streamingCopy(sourceBucket, sourceFile, destBucket, destinationFileName)));
+        } catch (TransferRejectedException e) {
+            LOGGER.warn("Streaming copy of {}/{} rejected: {}", sourceBucket, sourceFile, e.getMessage());
+            asyncResponse.resume(rejected(e));
+        }
+    }
+
+    // Poll the state of a server-side copy started by /copy
+    @GET
+    @Path("/copy/status")
+    public Response copyStatus(@QueryParam("workRequestId") String workRequestId) {
+        if (workRequestId == null || workRequestId.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Work request id is required.")
+                    .build();
+        }
+        WorkRequest workRequest = this.objectStorageUtils.getWorkRequest(workRequestId);
+        if (workRequest == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Work request " + workRequestId + " not found.")
+                    .build();
+        }
+        return Response.status(Response.Status.OK)
+                .entity(toCopyResult(workRequestId, workRequest, null, null))
+                .build();
+    }
+
+    // Copies every object under prefix (or named in manifestObject, one per line) to an OC10 bucket
+    // Returns 202 with a bulkCopyId right away; poll /bulkCopy/status for throughput and per-object failures
+    @POST
+    @Path("/bulkCopyToOc10")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response bulkCopy(@QueryParam("sourceBucket") String sourceBucket,
+                             @QueryParam("prefix") String prefix,
+                             @QueryParam("manifestObject") String manifestObject,
+                             @QueryParam("destBucket") String destBucket,
+                             @QueryParam("destPrefix") String destPrefix,
+                             @QueryParam("adaptive") @DefaultValue("false") boolean adaptive) {
+        try {
+            if (sourceBucket == null || sourceBucket.isEmpty() ||
+                    destBucket == null || destBucket.isEmpty()) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Source bucket and destination bucket are required.")
+                        .build();
+            }
+            String manifest = (manifestObject != null && !manifestObject.isEmpty()) ? manifestObject : null;
+            BulkCopyResult result = this.bulkCopier.start(sourceBucket, prefix, manifest, destBucket, destPrefix, adaptive);
+            return Response.status(Response.Status.ACCEPTED).entity(result).build();
+        } catch (TransferRejectedException e) {
+            return rejected(e);
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("Error starting bulk copy: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    // Progress report of a bulk copy
+    @GET
+    @Path("/bulkCopy/status")
+    public Response bulkCopyStatus(@QueryParam("bulkCopyId") String bulkCopyId) {
+        if (bulkCopyId == null || bulkCopyId.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Bulk copy id is required.")
+                    .build();
+        }
+        BulkCopyResult result = this.bulkCopier.get(bulkCopyId);
+        if (result == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Bulk copy " + bulkCopyId + " not found.")
+                    .build();
+        }
+        return Response.status(Response.Status.OK).entity(result).build();
+    }
+
+    private static CopyWorkRequestResult toCopyResult(String workRequestId, WorkRequest workRequest, String source, String destination) {
+        String status = workRequest != null && workRequest.getStatus() != null ? workRequest.getStatus().name() : "Unknown";
+        Float percentComplete = workRequest != null ? workRequest.getPercentComplete() : null;
+        return new CopyWorkRequestResult(workRequestId, status, percentComplete, source, destination);
+    }
+
+    // Download-and-reupload copy, used when a server-side copy is not possible
+    private Response streamingCopy(String sourceBucket, String sourceFile, String destBucket, String destinationFileName) {
+        try {
             FileStreamMetadata metadata = this.objectStorageUtils.downloadFromObjectStorage(sourceBucket, sourceFile);
             if (metadata.getInputStream() == null) {
                 return Response.status(Response.Status.NOT_FOUND)
@@ -111,7 +253,9 @@ public class FileOperationResourceOc1 {
             }
 
 
-            boolean uploadSuccessful = this.objectStorageUtils.uploadToObjectStorage(metadata.getInputStream(), destBucket, destinationFileName, metadata.getMd5Hash());
+            // stored bytes and metadata are copied as they are, so a compressed object stays compressed
+            boolean uploadSuccessful = this.objectStorageUtils.uploadToObjectStorage(metadata.getInputStream(), destBucket, destinationFileName, metadata.getMd5Hash(),
+                    metadata.getMetadata());
 
 
             if (uploadSuccessful) {
@@ -131,6 +275,7 @@ public class FileOperationResourceOc1 {
         }
     }
 
+    // Copies one object to OC10; with async=true it returns 202 with a job handle (see /jobs) instead of waiting for the copy
     @POST
     @Path("/copyBucketFileToOc10")
     @Consumes(MediaType.APPLICATION_JSON)
@@ -138,89 +283,96 @@ public class FileOperationResourceOc1 {
                              @QueryParam("sourceFile") String sourceFile,
                              @QueryParam("destBucket") String destBucket,
                              @QueryParam("destFile") String destFile,
+                             @QueryParam("resumable") @DefaultValue("false") boolean resumable,
+                             @QueryParam("adaptive") @DefaultValue("false") boolean adaptive,
+                             @QueryParam("async") @DefaultValue("false") boolean async,
+                             @QueryParam("compression") String compression, // gzip, zstd or none; defaults to transfer.compression.buckets of destBucket
+                             @HeaderParam("X-Caller-Id") String callerId,
                              @Suspended final AsyncResponse asyncResponse) {
-        int partSize = 104857600; // 100 MB
-        executorService.submit(() -> {
-            try {
-                long startTime = System.currentTimeMillis();
-                if (sourceBucket == null || sourceBucket.isEmpty() ||
-                        sourceFile == null || sourceFile.isEmpty() ||
-                        destBucket == null || destBucket.isEmpty()) {
-
-                    asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
-                            .entity("Source bucket, source file, and destination bucket are required.")
-                            .build());
-                }
-
-                String destinationFileName = (destFile != null && !destFile.isEmpty()) ? destFile : sourceFile;
-
-                FileStreamMetadata metadata = this.objectStorageUtils.downloadFromObjectStorage(sourceBucket, sourceFile);
-                if (metadata.getInputStream() == null) {
-                    asyncResponse.resume(Response.status(Response.Status.NOT_FOUND)
-                            .entity("File " + sourceFile + " not found in source bucket " + sourceBucket)
-                            .build());
-                }
-
-                // Set up Jersey Client with MultiPartFeature
-                ClientConfig config = new ClientConfig();
-                config.register(MultiPartFeature.class);
-                Client client = ClientBuilder.newClient(config);
-
-                // Target the existing upload endpoint
-
-                WebTarget target = null;
-                if (metadata.getSize() <= partSize){
-                    target = client.target("http://localhost:8080/oc10/uploadFile")
-                            .queryParam("bucketName", destBucket)
-                            .queryParam("objectName", destinationFileName)
-                            .queryParam("md5", metadata.getMd5Hash());
-                } else {
-                    target = client.target("http://localhost:8080/oc10/uploadFileMultipart")
-                            .queryParam("bucketName", destBucket)
-                            .queryParam("objectName", destinationFileName)
-                            .queryParam("size", metadata.getSize())
-                            .queryParam("partSize", partSize)
-                            .queryParam("md5", metadata.getMd5Hash());
-                }
+        if (sourceBucket == null || sourceBucket.isEmpty() ||
+                sourceFile == null || sourceFile.isEmpty() ||
+                destBucket == null || destBucket.isEmpty()) {
+
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Source bucket, source file, and destination bucket are required.")
+                    .build());
+            return;
+        }
 
+        String destinationFileName = (destFile != null && !destFile.isEmpty()) ? destFile : sourceFile;
+        CompressionCodec codec;
+        try {
+            codec = this.objectStorageUtils.getCompression().codecFor(compression, destBucket);
+        } catch (IllegalArgumentException e) {
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build());
+            return;
+        }
+        TransferJob job;
+        try {
+            job = transferJobs.create("crossRegionCopy", "oc1:" + sourceBucket + "/" + sourceFile, "oc10:" + destBucket + "/" + destinationFileName);
+        } catch (TransferRejectedException e) {
+            asyncResponse.resume(rejected(e));
+            return;
+        }
 
-                try (InputStream in = metadata.getInputStream()) {
-                    // Create multipart form data
-                    try (FormDataMultiPart formDataMultiPart = new FormDataMultiPart()) {
-                        StreamDataBodyPart filePart = new StreamDataBodyPart("file", in, sourceFile);
-                        formDataMultiPart.bodyPart(filePart);
-
-                        // Send the request to the existing endpoint
-                        LOGGER.info("Calling OC10 Api to upload the file: {}", sourceFile);
-                        try (Response response = target.request(MediaType.APPLICATION_JSON)
-                                .post(Entity.entity(formDataMultiPart, MediaType.MULTIPART_FORM_DATA))) {
-
-                            // Return the response based on the API call result
-                            if (response.getStatus() == 200) {
-                                long timeTaken = System.currentTimeMillis() - startTime;
-                                LOGGER.info("File upload for {} completed . time taken: {} ms", sourceFile, timeTaken);
-                                asyncResponse.resume(Response.status(Response.Status.OK)
-                                        .entity("File " + sourceFile + " uploaded successfully via OC10 API call to bucket " + destBucket + ". time taken :"+timeTaken)
-                                        .build());
-                            } else {
-                                asyncResponse.resume(Response.status(response.getStatus())
-                                        .entity("Failed to upload via OC10 API call: " + response.readEntity(String.class))
-                                        .build());
-                            }
-                        }
-                    } catch (Exception e) {
-                        asyncResponse.resume(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                                .entity("Error uploading file via OC10 API call: " + e.getMessage())
-                                .build());
+        // Cross-region copies are bulk work: large lane, holding as many ranges as the copier can have in flight for an
+        // object of unknown size
+        long estimatedBytes = crossRegionCopier.estimatedBytes(null, adaptive);
+        boolean submitted = submitTransfer(asyncResponse, job, TransferScheduler.Lane.LARGE, TransferScheduler.flowKey(callerId, sourceBucket), estimatedBytes, () -> {
+            Response response = TransferJobResponses.runAsJob(job, () -> {
+                try {
+                    // OC1 ranges are fetched in parallel and written as OC10 parts as they arrive, all in process
+                    LOGGER.info("Copying {} from OC1 bucket {} to OC10 bucket {}", sourceFile, sourceBucket, destBucket);
+                    CrossRegionCopyResult result = this.crossRegionCopier.copy(sourceBucket, sourceFile, destBucket, destinationFileName, resumable, adaptive, codec, job);
+                    if (result == null) {
+                        return Response.status(Response.Status.NOT_FOUND)
+                                .entity("File " + sourceFile + " not found in source bucket " + sourceBucket)
+                                .build();
                     }
+
+                    return Response.status(result.isSuccess() ? Response.Status.OK : Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity(result)
+                            .build();
+                } catch (TransferInProgressException e) {
+                    return Response.status(Response.Status.CONFLICT)
+                            .entity(e.getMessage())
+                            .build();
+                } catch (Exception e) {
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity("Error copying file to OC10: " + e.getMessage())
+                            .build();
                 }
-            } catch (Exception e) {
-                asyncResponse.resume(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                        .entity("Error uploading file via OC10 API call:(external) " + e.getMessage())
-                        .build());
+            });
+            if (!async) {
+                asyncResponse.resume(response);
             }
         });
+        if (submitted && async) {
+            asyncResponse.resume(TransferJobResponses.accepted(job));
+        }
+    }
+
+    // Returns false (and has answered the request) when the scheduler rejected the transfer
+    private boolean submitTransfer(AsyncResponse asyncResponse, TransferJob job, TransferScheduler.Lane lane, String flowKey, long estimatedBytes, Runnable task) {
+        try {
+            transferScheduler.submit(lane, flowKey, estimatedBytes, task);
+            return true;
+        } catch (TransferRejectedException e) {
+            LOGGER.warn("Transfer rejected for {}: {}", flowKey, e.getMessage());
+            job.fail(e.getMessage(), null);
+            asyncResponse.resume(rejected(e));
+            return false;
+        }
+    }
 
+    // 429 / 503 with Retry-After when the transfer scheduler cannot take more work
+    private static Response rejected(TransferRejectedException e) {
+        return Response.status(e.getStatus())
+                .header("Retry-After", e.getRetryAfterSeconds())
+                .entity(e.getMessage())
+                .build();
     }
 
     // New endpoint for downloading a file to local disk
@@ -238,9 +390,9 @@ public class FileOperationResourceOc1 {
                         .build();
             }
 
-            // Download the file from the specified bucket
-            FileStreamMetadata metadata = this.objectStorageUtils.downloadFromObjectStorage(bucketName, fileName);
-            if (metadata.getInputStream() == null) {
+            // Look the object up first; its size decides between a ranged parallel download and a single stream
+            HeadObjectResponse head = this.objectStorageUtils.headObject(bucketName, fileName);
+            if (head == null) {
                 return Response.status(Response.Status.NOT_FOUND)
                         .entity("File " + fileName + " not found in bucket " + bucketName)
                         .build();
@@ -257,7 +409,7 @@ public class FileOperationResourceOc1 {
             }
 
             // Write the file to local disk
-            boolean saveSuccessful = this.objectStorageUtils.saveToLocalDisk(metadata.getInputStream(), fullPath);
+            boolean saveSuccessful = this.objectStorageUtils.downloadToLocalDisk(bucketName, fileName, head, fullPath);
 
             if (saveSuccessful) {
                 return Response.status(Response.Status.OK)
@@ -274,4 +426,17 @@ public class FileOperationResourceOc1 {
                     .build();
         }
     }
+
+    // Streams the object back to the caller instead of saving it on the server; honors Range and If-None-Match, and sends
+    // compressed objects as stored when Accept-Encoding allows their codec
+    @GET
+    @Path("/download/stream")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public Response streamFile(@QueryParam("bucketName") String bucketName,
+                               @QueryParam("fileName") String fileName,
+                               @HeaderParam("Range") String range,
+                               @HeaderParam("If-None-Match") String ifNoneMatch,
+                               @HeaderParam("Accept-Encoding") String acceptEncoding) {
+        return ObjectStreamingDownload.stream(this.objectStorageUtils, bucketName, fileName, range, ifNoneMatch, acceptEncoding);
+    }
 }
\ No newline at end of file
@@ -1,9 +1,22 @@
 package com.example.resources;
 
+import com.example.config.TransferConfiguration;
+import com.example.utils.BulkCopier;
+import com.example.utils.CommittedUploadException;
+import com.example.utils.CompressionCodec;
+import com.example.utils.MultipartJournalStore;
+import com.example.utils.MultipartUploadJournal;
 import com.example.utils.ObjectStorageUtils;
-import com.oracle.bmc.auth.AuthenticationDetailsProvider;
-import com.oracle.bmc.auth.ConfigFileAuthenticationDetailsProvider;
-import com.oracle.bmc.objectstorage.ObjectStorageClient;
+import com.example.utils.StreamCompression;
+import com.example.utils.TransferInProgressException;
+import com.example.utils.TransferJob;
+import com.example.utils.TransferJobRegistry;
+import com.example.utils.TransferProgress;
+import com.example.utils.TransferRejectedException;
+import com.example.utils.TransferScheduler;
+import com.oracle.bmc.objectstorage.model.WorkRequest;
+import com.oracle.bmc.objectstorage.responses.HeadObjectResponse;
+import lombok.Getter;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
 import org.glassfish.jersey.media.multipart.FormDataParam;
 import org.slf4j.Logger;
@@ -12,34 +25,51 @@ import org.slf4j.LoggerFactory;
 import javax.ws.rs.*;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Path("/oc10")
 @Produces(MediaType.APPLICATION_JSON)
 public class FileOperationResourceOc10 {
     private static final Logger LOGGER = LoggerFactory.getLogger(FileOperationResourceOc10.class);
-    private final ObjectStorageUtils objectStorageUtils;
-
-    // ExecutorService for async processing
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
-
-
-    public FileOperationResourceOc10() {
-        try {
-            AuthenticationDetailsProvider provider =
-                    new ConfigFileAuthenticationDetailsProvider("~/.oci/config", "oc10-ap-dcc-canberra-1-test-user-hpt");
-            ObjectStorageClient objectStorageClient = new ObjectStorageClient(provider);
-            // Replace with your OCI namespace
-            String namespaceName = "axrkmdznll4i";
-            this.objectStorageUtils = new ObjectStorageUtils(namespaceName, objectStorageClient);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to initialize OCI Object Storage client: " + e.getMessage(), e);
-        }
+    private static final int SPOOL_BUFFER_BYTES = 64 * 1024;
+    private @Getter final ObjectStorageUtils objectStorageUtils;
+    private final TransferConfiguration transferConfiguration;
+    private final MultipartJournalStore journalStore;
+    private final BulkCopier bulkCopier;
+
+    // Runs async transfers in small/large lanes with fair queuing and memory-aware admission
+    private final TransferScheduler transferScheduler;
+
+    // Tracks multipart uploads and bulk copies for /jobs
+    private final TransferJobRegistry transferJobs;
+
+    // Bytes reserved by spooled async upload bodies, bounded by transfer.jobs.maxSpoolBytes
+    private final AtomicLong spooledBytes = new AtomicLong();
+    private final ConcurrentMap<java.nio.file.Path, Long> spoolReservations = new ConcurrentHashMap<>();
+
+    // bulkCopier copies within objectStorageUtils' region; FileOperationManager shuts it down
+    public FileOperationResourceOc10(TransferConfiguration transferConfiguration, MultipartJournalStore journalStore, ObjectStorageUtils objectStorageUtils,
+                                     BulkCopier bulkCopier, TransferScheduler transferScheduler, TransferJobRegistry transferJobs) {
+        this.transferConfiguration = transferConfiguration;
+        this.transferScheduler = transferScheduler;
+        this.transferJobs = transferJobs;
+        this.journalStore = journalStore;
+        this.objectStorageUtils = objectStorageUtils;
+        // Same-region bulk copies: server-side CopyObject for large objects, ranged copies through the service otherwise
+        this.bulkCopier = bulkCopier;
     }
 
     // Existing endpoint for file upload
@@ -48,7 +78,8 @@ public class FileOperationResourceOc10 {
     @Consumes(MediaType.MULTIPART_FORM_DATA)
     public Response uploadFile(
             @FormDataParam("file") InputStream uploadedInputStream,
-            @FormDataParam("file") FormDataContentDisposition fileDetail) {
+            @FormDataParam("file") FormDataContentDisposition fileDetail,
+            @QueryParam("compression") String compression) { // gzip, zstd or none; defaults to transfer.compression.buckets
         try {
             String fileName = fileDetail.getFileName();
             long fileSize = fileDetail.getSize();
@@ -60,7 +91,15 @@ public class FileOperationResourceOc10 {
             }
 
             String bucketName = "test-src-bucket"; // Replace with your default source bucket if needed
-            boolean uploadSuccessful = this.objectStorageUtils.uploadToObjectStorage(uploadedInputStream, bucketName, fileName, null);
+            CompressionCodec codec;
+            try {
+                codec = this.objectStorageUtils.getCompression().codecFor(compression, bucketName);
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(e.getMessage())
+                        .build();
+            }
+            boolean uploadSuccessful = this.objectStorageUtils.uploadToObjectStorage(uploadedInputStream, bucketName, fileName, null, codec, fileSize);
 
             if (uploadSuccessful) {
                 return Response.status(Response.Status.OK)
@@ -78,25 +117,158 @@ public class FileOperationResourceOc10 {
         }
     }
 
-    // Existing endpoint for copying a file between buckets
+    // Existing endpoint for copying a file between buckets. With wait=true the request is suspended while the work
+    // request is polled on the region's poller thread, so no request thread sits out the copy
     @POST
     @Path("/copy")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response copyFile(@QueryParam("sourceBucket") String sourceBucket,
-                             @QueryParam("sourceFile") String sourceFile,
-                             @QueryParam("destBucket") String destBucket,
-                             @QueryParam("destFile") String destFile) {
+    public void copyFile(@QueryParam("sourceBucket") String sourceBucket,
+                         @QueryParam("sourceFile") String sourceFile,
+                         @QueryParam("destBucket") String destBucket,
+                         @QueryParam("destFile") String destFile,
+                         @QueryParam("wait") @DefaultValue("false") boolean wait,
+                         @Suspended final AsyncResponse asyncResponse) {
         try {
             if (sourceBucket == null || sourceBucket.isEmpty() ||
                     sourceFile == null || sourceFile.isEmpty() ||
                     destBucket == null || destBucket.isEmpty()) {
-                return Response.status(Response.Status.BAD_REQUEST)
+                asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
                         .entity("Source bucket, source file, and destination bucket are required.")
-                        .build();
+                        .build());
+                return;
             }
 
             String destinationFileName = (destFile != null && !destFile.isEmpty()) ? destFile : sourceFile;
 
+            // Source and destination share this region and namespace, so let Object Storage copy the bytes itself
+            String workRequestId = this.objectStorageUtils.copyObject(sourceBucket, sourceFile, destBucket, destinationFileName);
+            if (workRequestId == null) {
+                asyncResponse.resume(streamingCopy(sourceBucket, sourceFile, destBucket, destinationFileName));
+                return;
+            }
+            String source = sourceBucket + "/" + sourceFile;
+            String destination = destBucket + "/" + destinationFileName;
+            if (!wait) {
+                CopyWorkRequestResult result = toCopyResult(workRequestId, this.objectStorageUtils.getWorkRequest(workRequestId), source, destination);
+                asyncResponse.resume(Response.status(Response.Status.ACCEPTED).entity(result).build());
+                return;
+            }
+            this.objectStorageUtils.awaitWorkRequestAsync(workRequestId, transferConfiguration.getCopyWaitTimeoutSeconds() * 1000L)
+                    .whenComplete((workRequest, error) -> {
+                        if (error != null) {
+                            LOGGER.error("Error polling work request {}: {}", workRequestId, error.getMessage());
+                        }
+                        CopyWorkRequestResult result = toCopyResult(workRequestId, error == null ? workRequest : null, source, destination);
+                        if (result.isCompleted()) {
+                            asyncResponse.resume(Response.status(Response.Status.OK).entity(result).build());
+                        } else if (!result.isTerminal()) {
+                            asyncResponse.resume(Response.status(Response.Status.ACCEPTED).entity(result).build());
+                        } else {
+                            LOGGER.warn("Server-side copy {} ended with status {}, falling back to streaming copy", workRequestId, result.getStatus());
+                            submitStreamingCopy(asyncResponse, sourceBucket, sourceFile, destBucket, destinationFileName);
+                        }
+                    });
+        } catch (Exception e) {
+            asyncResponse.resume(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("Error copying file: " + e.getMessage())
+                    .build());
+        }
+    }
+
+    // Streams the copy as a scheduled transfer; called from the poller thread, which must not run it itself
+    private void submitStreamingCopy(AsyncResponse asyncResponse, String sourceBucket, String sourceFile, String destBucket, String destinationFileName) {
+        try {
+            transferScheduler.submit(TransferScheduler.Lane.LARGE, TransferScheduler.flowKey(null, destBucket),
+                    transferConfiguration.getScheduler().getSmallObjectThreshold(),
+                    () -> asyncResponse.resume(streamingCopy(sourceBucket, sourceFile, destBucket, destinationFileName)));
+        } catch (TransferRejectedException e) {
+            LOGGER.warn("Streaming copy of {}/{} rejected: {}", sourceBucket, sourceFile, e.getMessage());
+            asyncResponse.resume(rejected(e));
+        }
+    }
+
+    // Poll the state of a server-side copy started by /copy
+    @GET
+    @Path("/copy/status")
+    public Response copyStatus(@QueryParam("workRequestId") String workRequestId) {
+        if (workRequestId == null || workRequestId.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Work request id is required.")
+                    .build();
+        }
+        WorkRequest workRequest = this.objectStorageUtils.getWorkRequest(workRequestId);
+        if (workRequest == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Work request " + workRequestId + " not found.")
+                    .build();
+        }
+        return Response.status(Response.Status.OK)
+                .entity(toCopyResult(workRequestId, workRequest, null, null))
+                .build();
+    }
+
+    // Copies every object under prefix (or named in manifestObject, one per line) to another bucket in this region
+    // Returns 202 with a bulkCopyId right away; poll /bulkCopy/status for throughput and per-object failures
+    @POST
+    @Path("/bulkCopy")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response bulkCopy(@QueryParam("sourceBucket") String sourceBucket,
+                             @QueryParam("prefix") String prefix,
+                             @QueryParam("manifestObject") String manifestObject,
+                             @QueryParam("destBucket") String destBucket,
+                             @QueryParam("destPrefix") String destPrefix,
+                             @QueryParam("adaptive") @DefaultValue("false") boolean adaptive) {
+        try {
+            if (sourceBucket == null || sourceBucket.isEmpty() ||
+                    destBucket == null || destBucket.isEmpty()) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Source bucket and destination bucket are required.")
+                        .build();
+            }
+            if (sourceBucket.equals(destBucket) && (destPrefix == null || destPrefix.equals(prefix))) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Destination prefix must differ from the source prefix when copying within one bucket.")
+                        .build();
+            }
+            String manifest = (manifestObject != null && !manifestObject.isEmpty()) ? manifestObject : null;
+            BulkCopyResult result = this.bulkCopier.start(sourceBucket, prefix, manifest, destBucket, destPrefix, adaptive);
+            return Response.status(Response.Status.ACCEPTED).entity(result).build();
+        } catch (TransferRejectedException e) {
+            return rejected(e);
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("Error starting bulk copy: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    // Progress report of a bulk copy
+    @GET
+    @Path("/bulkCopy/status")
+    public Response bulkCopyStatus(@QueryParam("bulkCopyId") String bulkCopyId) {
+        if (bulkCopyId == null || bulkCopyId.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Bulk copy id is required.")
+                    .build();
+        }
+        BulkCopyResult result = this.bulkCopier.get(bulkCopyId);
+        if (result == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Bulk copy " + bulkCopyId + " not found.")
+                    .build();
+        }
+        return Response.status(Response.Status.OK).entity(result).build();
+    }
+
+    private static CopyWorkRequestResult toCopyResult(String workRequestId, WorkRequest workRequest, String source, String destination) {
+        String status = workRequest != null && workRequest.getStatus() != null ? workRequest.getStatus().name() : "Unknown";
+        Float percentComplete = workRequest != null ? workRequest.getPercentComplete() : null;
+        return new CopyWorkRequestResult(workRequestId, status, percentComplete, source, destination);
+    }
+
+    // Download-and-reupload copy, used when a server-side copy is not possible
+    private Response streamingCopy(String sourceBucket, String sourceFile, String destBucket, String destinationFileName) {
+        try {
             FileStreamMetadata metadata = this.objectStorageUtils.downloadFromObjectStorage(sourceBucket, sourceFile);
             if (metadata.getInputStream() == null) {
                 return Response.status(Response.Status.NOT_FOUND)
@@ -105,7 +277,9 @@ public class FileOperationResourceOc10 {
             }
 
 
-            boolean uploadSuccessful = this.objectStorageUtils.uploadToObjectStorage(metadata.getInputStream(), destBucket, destinationFileName, metadata.getMd5Hash());
+            // stored bytes and metadata are copied as they are, so a compressed object stays compressed
+            boolean uploadSuccessful = this.objectStorageUtils.uploadToObjectStorage(metadata.getInputStream(), destBucket, destinationFileName, metadata.getMd5Hash(),
+                    metadata.getMetadata());
 
 
             if (uploadSuccessful) {
@@ -134,8 +308,27 @@ public class FileOperationResourceOc10 {
             @QueryParam("bucketName") String bucketName,
             @QueryParam("objectName") String objectName,
             @QueryParam("md5") String srcMd5,
+            @QueryParam("compression") String compression, // gzip, zstd or none; defaults to transfer.compression.buckets
+            @QueryParam("dedup") Boolean dedup, // store as content-defined chunks and a manifest; defaults to transfer.dedup.buckets
+            @HeaderParam("X-Caller-Id") String callerId,
             @Suspended AsyncResponse asyncResponse) {
-        executorService.submit(() -> {
+        CompressionCodec codec;
+        try {
+            codec = this.objectStorageUtils.getCompression().codecFor(compression, bucketName);
+        } catch (IllegalArgumentException e) {
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build());
+            return;
+        }
+        boolean deduplicate = this.objectStorageUtils.getDeduplication().enabledFor(dedup, bucketName);
+        if (deduplicate && codec != CompressionCodec.NONE && compression != null && !compression.isEmpty()) {
+            asyncResponse.resume(dedupWithCompression());
+            return;
+        }
+        // Size is unknown up front and the client buffers unknown-length bodies, so reserve a small-lane object's worth
+        long estimatedBytes = transferConfiguration.getScheduler().getSmallObjectThreshold();
+        submitTransfer(asyncResponse, null, TransferScheduler.Lane.SMALL, TransferScheduler.flowKey(callerId, bucketName), estimatedBytes, () -> {
             try(InputStream fis = fileInputStream) {
                 // Validate input parameters
                 if (fis == null) {
@@ -157,8 +350,14 @@ public class FileOperationResourceOc10 {
 
                 String newObjectName = objectName+"_"+new java.util.Date().getTime();
 
+                if (deduplicate) {
+                    asyncResponse.resume(dedupResponse(this.objectStorageUtils.getDedupTransfer().upload(fis, bucketName, newObjectName, srcMd5, -1L,
+                            TransferProgress.NONE)));
+                    return;
+                }
+
                 // Upload the file to OCI Object Storage
-                boolean uploadSuccessful = this.objectStorageUtils.uploadToObjectStorage(fis, bucketName, newObjectName, srcMd5);
+                boolean uploadSuccessful = this.objectStorageUtils.uploadToObjectStorage(fis, bucketName, newObjectName, srcMd5, codec, -1L);
 
                 if (uploadSuccessful) {
                     asyncResponse.resume(Response.status(Response.Status.OK)
@@ -177,6 +376,8 @@ public class FileOperationResourceOc10 {
         });
     }
 
+    // With async=true the body is spooled to local disk first and the request returns 202 with a job handle (see /jobs)
+    // while the parts are uploaded in the background
     @POST
     @Path("/uploadFileMultipart")
     @Consumes(MediaType.MULTIPART_FORM_DATA)
@@ -188,82 +389,411 @@ public class FileOperationResourceOc10 {
             @QueryParam("md5") String srcMd5,
             @QueryParam("size") @DefaultValue("-1")long size,
             @QueryParam("partSize") @DefaultValue("104857600") long partSize, // Default to 100MB per part
+            @QueryParam("resumable") @DefaultValue("false") boolean resumable,
+            @QueryParam("uploadKey") String uploadKey, // identifies the transfer across retries; defaults to bucket/object/size
+            @QueryParam("adaptive") @DefaultValue("false") boolean adaptive, // pick part size from the file size and tune concurrency
+            @QueryParam("async") @DefaultValue("false") boolean async,
+            @QueryParam("compression") String compression, // gzip, zstd or none; defaults to transfer.compression.buckets
+            @QueryParam("dedup") Boolean dedup, // store as content-defined chunks and a manifest; defaults to transfer.dedup.buckets
+            @HeaderParam("X-Caller-Id") String callerId,
             @Suspended AsyncResponse asyncResponse) {
-        executorService.submit(() -> {
+        String fileName = fileDetail != null ? fileDetail.getFileName() : null;
+        long declaredSize = fileDetail != null && fileDetail.getSize() > 0L ? fileDetail.getSize() : size;
+        if (declaredSize <= 0L && !async) {
+            // bodies of unknown length go to /uploadStream
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Invalid file size.")
+                    .build());
+            return;
+        }
+        CompressionCodec codec;
+        try {
+            codec = this.objectStorageUtils.getCompression().codecFor(compression, bucketName);
+        } catch (IllegalArgumentException e) {
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build());
+            return;
+        }
+        boolean deduplicate = this.objectStorageUtils.getDeduplication().enabledFor(dedup, bucketName);
+        if (deduplicate && codec != CompressionCodec.NONE && compression != null && !compression.isEmpty()) {
+            asyncResponse.resume(dedupWithCompression());
+            return;
+        }
+        TransferJob job;
+        try {
+            job = transferJobs.create("multipartUpload", "request:" + fileName, "oc10:" + bucketName + "/" + (objName != null ? objName : fileName));
+        } catch (TransferRejectedException e) {
+            asyncResponse.resume(rejected(e));
+            return;
+        }
+
+        String flowKey = TransferScheduler.flowKey(callerId, bucketName);
+        java.nio.file.Path spoolFile = null;
+        if (async) {
             try {
-                LOGGER.info("uploadFileMultipart started");
-                String fileName = fileDetail.getFileName();
-                long fileSize = fileDetail.getSize() > 0L ? fileDetail.getSize() : size;
+                // a transfer the scheduler would turn away is refused before its body is read, not after it is spooled
+                transferScheduler.checkCapacity(declaredSize > 0L ? transferScheduler.laneFor(declaredSize) : TransferScheduler.Lane.LARGE, flowKey);
+                job.phase("spool");
+                spoolFile = spool(uploadedInputStream, declaredSize);
+                declaredSize = declaredSize > 0L ? declaredSize : Files.size(spoolFile);
+                job.phase("queued");
+            } catch (TransferRejectedException e) {
+                LOGGER.warn("Async upload of {} rejected: {}", fileName, e.getMessage());
+                job.fail(e.getMessage(), null);
+                asyncResponse.resume(rejected(e));
+                return;
+            } catch (IOException e) {
+                LOGGER.error("Error spooling upload of {}: {}", fileName, e.getMessage(), e);
+                deleteSpoolFile(spoolFile);
+                job.fail("Error spooling upload: " + e.getMessage(), null);
+                asyncResponse.resume(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity("Error spooling upload: " + e.getMessage())
+                        .build());
+                return;
+            }
+        }
+        java.nio.file.Path bodyFile = spoolFile;
+        long fileSize = declaredSize;
+
+        // Part buffers held at once: bounded by maxInFlightParts x partSize, and by maxInFlightBytes when concurrency adapts
+        long estimatedBytes = adaptive
+                ? transferConfiguration.getMaxInFlightBytes()
+                : Math.min(transferConfiguration.getMaxInFlightBytes(), transferConfiguration.getMaxInFlightParts() * partSize);
+        boolean submitted = submitTransfer(asyncResponse, job, transferScheduler.laneFor(fileSize), flowKey, estimatedBytes, () -> {
+            Response response;
+            if (bodyFile == null) {
+                response = TransferJobResponses.runAsJob(job, () -> multipartUpload(uploadedInputStream, fileName, fileSize, bucketName, objName,
+                        partSize, resumable, uploadKey, adaptive, codec, deduplicate, job));
+            } else {
+                try (InputStream in = Files.newInputStream(bodyFile)) {
+                    response = TransferJobResponses.runAsJob(job, () -> multipartUpload(in, fileName, fileSize, bucketName, objName,
+                            partSize, resumable, uploadKey, adaptive, codec, deduplicate, job));
+                } catch (IOException e) {
+                    job.fail("Error reading spooled upload: " + e.getMessage(), null);
+                    response = null;
+                } finally {
+                    deleteSpoolFile(bodyFile);
+                }
+            }
+            if (!async) {
+                asyncResponse.resume(response);
+            }
+        });
+        if (!submitted) {
+            deleteSpoolFile(spoolFile);
+        } else if (async) {
+            asyncResponse.resume(TransferJobResponses.accepted(job));
+        }
+    }
 
-                if (fileSize <= 0L){
-                    asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
-                            .entity("Invalid file size.")
-                            .build());
-                    return;
+    // Raw application/octet-stream body read straight into the part pipeline, without MIME parsing or spooling to disk.
+    // Content-Length sizes the upload; without it (chunked transfer encoding) parts are cut until the body ends.
+    @POST
+    @Path("/uploadStream")
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    public void uploadStream(
+            InputStream body,
+            @HeaderParam(HttpHeaders.CONTENT_LENGTH) @DefaultValue("-1") long contentLength,
+            @HeaderParam(HttpHeaders.CONTENT_ENCODING) String contentEncoding,
+            @QueryParam("bucketName") String bucketName,
+            @QueryParam("objectName") String objName,
+            @QueryParam("partSize") @DefaultValue("104857600") long partSize, // Default to 100MB per part
+            @QueryParam("resumable") @DefaultValue("false") boolean resumable,
+            @QueryParam("uploadKey") String uploadKey, // required with resumable=true when there is no Content-Length
+            @QueryParam("adaptive") @DefaultValue("false") boolean adaptive,
+            @QueryParam("compression") String compression, // gzip, zstd or none; defaults to transfer.compression.buckets
+            @QueryParam("dedup") Boolean dedup, // store as content-defined chunks and a manifest; defaults to transfer.dedup.buckets
+            @HeaderParam("X-Caller-Id") String callerId,
+            @Suspended AsyncResponse asyncResponse) {
+        if (objName == null || objName.isEmpty()) {
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Object name is required.")
+                    .build());
+            return;
+        }
+        CompressionCodec codec;
+        try {
+            codec = this.objectStorageUtils.getCompression().codecFor(compression, bucketName);
+        } catch (IllegalArgumentException e) {
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build());
+            return;
+        }
+        boolean deduplicate = this.objectStorageUtils.getDeduplication().enabledFor(dedup, bucketName);
+        if (deduplicate && codec != CompressionCodec.NONE && compression != null && !compression.isEmpty()) {
+            asyncResponse.resume(dedupWithCompression());
+            return;
+        }
+        // a request body inflated by the server no longer has the length the client sent
+        long fileSize = contentEncoding == null || contentEncoding.isEmpty() || "identity".equalsIgnoreCase(contentEncoding) ? contentLength : -1L;
+        TransferJob job;
+        try {
+            job = transferJobs.create("streamUpload", "request:" + objName, "oc10:" + bucketName + "/" + objName);
+        } catch (TransferRejectedException e) {
+            asyncResponse.resume(rejected(e));
+            return;
+        }
+
+        // Same part buffer bound as /uploadFileMultipart; a body of unknown length is treated as a large object
+        long estimatedBytes = adaptive
+                ? transferConfiguration.getMaxInFlightBytes()
+                : Math.min(transferConfiguration.getMaxInFlightBytes(), transferConfiguration.getMaxInFlightParts() * partSize);
+        TransferScheduler.Lane lane = fileSize >= 0L ? transferScheduler.laneFor(fileSize) : TransferScheduler.Lane.LARGE;
+        submitTransfer(asyncResponse, job, lane, TransferScheduler.flowKey(callerId, bucketName), estimatedBytes, () ->
+                asyncResponse.resume(TransferJobResponses.runAsJob(job, () -> multipartUpload(body, objName, fileSize, bucketName, objName,
+                        partSize, resumable, uploadKey, adaptive, codec, deduplicate, job))));
+    }
+
+    // A negative fileSize is a body of unknown length, read until it ends
+    private Response multipartUpload(InputStream uploadedInputStream, String fileName, long fileSize, String bucketName, String objName,
+                                     long partSize, boolean resumable, String uploadKey, boolean adaptive, CompressionCodec codec,
+                                     boolean deduplicate, TransferProgress progress) {
+        try {
+            LOGGER.info("uploadFileMultipart started");
+
+            if (fileSize == 0L){
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Invalid file size.")
+                        .build();
+            }
+
+            if (fileName == null || fileName.isEmpty()) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("File name is required.")
+                        .build();
+            }
+            if (bucketName == null || bucketName.isEmpty()) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Bucket name is required.")
+                        .build();
+            }
+            String checkedObjName = objName == null? fileName:objName;
+
+            if (deduplicate) {
+                // content-defined chunks instead of parts: partSize, resumable and adaptive do not apply, and a retry
+                // of a failed upload only sends the chunks that did not make it the first time
+                String objectName = checkedObjName + "_" + new java.util.Date().getTime();
+                return dedupResponse(this.objectStorageUtils.getDedupTransfer().upload(uploadedInputStream, bucketName, objectName, null, fileSize, progress));
+            }
+
+            long effectivePartSize = adaptive ? this.objectStorageUtils.getAdaptiveTransferController().choosePartSize(fileSize, partSize) : partSize;
+            if (effectivePartSize < 10 * 1024 * 1024) { // Minimum part size for OCI is typically 10MB
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Part size must be at least 10MB.")
+                        .build();
+            }
+
+            // Add a timestamp to the object name to ensure uniqueness
+            String objectName = checkedObjName + "_" + new java.util.Date().getTime();
+
+            // Initiate multipart upload, or pick up the one a failed attempt of this transfer left behind
+            progress.phase("initiate");
+            Map<String, String> metadata = codec != CompressionCodec.NONE ? StreamCompression.metadata(null, codec, fileSize) : null;
+            MultipartUploadJournal journal = null;
+            String uploadId;
+            if (resumable && fileSize < 0L && (uploadKey == null || uploadKey.isEmpty())) {
+                // the default key includes the size, so bodies of unknown length would share one journal
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("uploadKey is required to resume an upload without a Content-Length.")
+                        .build();
+            }
+            if (resumable) {
+                // compression output is deterministic, so a retry cuts the same compressed parts
+                String transferKey = "upload:" + (uploadKey != null && !uploadKey.isEmpty() ? uploadKey : bucketName + "/" + checkedObjName + "/" + fileSize)
+                        + (codec != CompressionCodec.NONE ? "@" + codec.getLabel() : "");
+                journal = this.objectStorageUtils.resumeOrInitiateMultipartUpload(this.journalStore, transferKey, bucketName, objectName, effectivePartSize, fileSize,
+                        metadata);
+                uploadId = journal != null ? journal.getUploadId() : null;
+                objectName = journal != null ? journal.getObjectName() : objectName;
+            } else {
+                uploadId = this.objectStorageUtils.initiateMultipartUpload(bucketName, objectName, metadata);
+            }
+            if (uploadId == null) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity("Failed to initiate multipart upload.")
+                        .build();
+            }
+
+            // Upload parts; a compressed body is cut into parts as it is compressed, its length is only known at the end
+            StreamCompression.CompressingInputStream compressed;
+            MultipartUploadResult uploadResult;
+            try {
+                compressed = codec != CompressionCodec.NONE
+                        ? this.objectStorageUtils.getCompression().compress(uploadedInputStream, codec) : null;
+                uploadResult = compressed != null
+                        ? this.objectStorageUtils.uploadParts(compressed, bucketName, objectName, uploadId, -1L, effectivePartSize, journal, adaptive, progress)
+                        : this.objectStorageUtils.uploadParts(uploadedInputStream, bucketName, objectName, uploadId, fileSize, effectivePartSize, journal, adaptive, progress);
+            } catch (Exception e) {
+                if (journal != null) {
+                    // keep the upload for a retry, but let the retry take the transfer key
+                    journal.close();
                 }
+                throw e;
+            }
+            long storedSize = compressed != null ? compressed.getCompressedBytes() : fileSize;
+            if (compressed != null && uploadResult.isSuccess() && fileSize >= 0L && compressed.getRawBytes() != fileSize) {
+                LOGGER.error("Compressed upload of {} read {} bytes, expected {}", objectName, compressed.getRawBytes(), fileSize);
+                uploadResult = new MultipartUploadResult(false, new ArrayList<>());
+            }
 
-                if (fileName == null || fileName.isEmpty()) {
-                    asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
-                            .entity("File name is required.")
-                            .build());
-                    return;
+            if (uploadResult.isSuccess() && uploadResult.getParts().isEmpty()) {
+                // only possible for a body of unknown length
+                progress.phase("abort");
+                this.objectStorageUtils.abortMultipartUpload(bucketName, objectName, uploadId);
+                if (journal != null) {
+                    journal.delete();
                 }
-                if (bucketName == null || bucketName.isEmpty()) {
-                    asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
-                            .entity("Bucket name is required.")
-                            .build());
-                    return;
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Invalid file size.")
+                        .build();
+            }
+            if (!uploadResult.isSuccess()) {
+                if (journal != null) {
+                    // keep the upload and its journal so a retry only sends the missing parts
+                    journal.close();
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity("Failed to upload all parts. Retry with resumable=true and the same uploadKey to resume upload " + uploadId + ".")
+                            .build();
                 }
-                String checkedObjName = objName == null? fileName:objName;
+                progress.phase("abort");
+                this.objectStorageUtils.abortMultipartUpload(bucketName, objectName, uploadId);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity("Failed to upload all parts.")
+                        .build();
+            }
 
-                if (partSize < 10 * 1024 * 1024) { // Minimum part size for OCI is typically 10MB
-                    asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
-                            .entity("Part size must be at least 10MB.")
-                            .build());
-                    return;
+            // Complete multipart upload
+            boolean uploadCompleted;
+            try {
+                uploadCompleted = this.objectStorageUtils.completeMultipartUpload(bucketName, objectName, uploadId, uploadResult.getParts(), storedSize,
+                        uploadResult.getMultipartMd5(), progress);
+            } catch (CommittedUploadException e) {
+                // committed, so there is no upload left to abort
+                LOGGER.error("Multipart upload of {} committed but failed verification: {}", objectName, e.getMessage());
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity(e.getMessage())
+                        .build();
+            } finally {
+                if (journal != null) {
+                    journal.delete();
                 }
+            }
+            if (uploadCompleted) {
+                return Response.status(Response.Status.OK)
+                        .entity("File " + objectName + " uploaded successfully to bucket " + bucketName + " using multipart upload.")
+                        .build();
+            } else {
+                progress.phase("abort");
+                this.objectStorageUtils.abortMultipartUpload(bucketName, objectName, uploadId);
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                        .entity("Failed to complete multipart upload.")
+                        .build();
+            }
+        } catch (TransferInProgressException e) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("Error during multipart upload: " + e.getMessage())
+                    .build();
+        }
+    }
 
-                // Add a timestamp to the object name to ensure uniqueness
-                String objectName = checkedObjName + "_" + new java.util.Date().getTime();
+    private static Response dedupResponse(DedupUploadResult result) {
+        return Response.status(result.isSuccess() ? Response.Status.OK : Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(result)
+                .build();
+    }
 
-                // Initiate multipart upload
-                String uploadId = this.objectStorageUtils.initiateMultipartUpload(bucketName, objectName);
-                if (uploadId == null) {
-                    asyncResponse.resume(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                            .entity("Failed to initiate multipart upload.")
-                            .build());
-                    return;
+    // the codec changes every byte after an edit, so compressed streams would not share chunks
+    private static Response dedupWithCompression() {
+        return Response.status(Response.Status.BAD_REQUEST)
+                .entity("compression cannot be combined with dedup.")
+                .build();
+    }
+
+    // Copies an upload body to a file under transfer.jobs.spoolDirectory. Its bytes are charged to the spool budget: a
+    // declared size up front, anything beyond it (or all of a body of unknown size) as it arrives. Throws
+    // TransferRejectedException (507) when the budget is exhausted; the bytes stay reserved until deleteSpoolFile.
+    private java.nio.file.Path spool(InputStream in, long declaredSize) throws IOException {
+        java.nio.file.Path directory = Paths.get(transferConfiguration.getJobs().getSpoolDirectory());
+        Files.createDirectories(directory);
+        long reserved = declaredSize > 0L ? reserveSpool(declaredSize) : 0L;
+        java.nio.file.Path spoolFile;
+        try {
+            spoolFile = Files.createTempFile(directory, "upload-", ".spool");
+        } catch (IOException e) {
+            spooledBytes.addAndGet(-reserved);
+            throw e;
+        }
+        spoolReservations.put(spoolFile, reserved);
+        try (InputStream body = in; OutputStream out = Files.newOutputStream(spoolFile)) {
+            byte[] buffer = new byte[SPOOL_BUFFER_BYTES];
+            long written = 0;
+            int bytesRead;
+            while ((bytesRead = body.read(buffer)) != -1) {
+                written += bytesRead;
+                if (written > reserved) {
+                    reserved += reserveSpool(written - reserved);
+                    spoolReservations.put(spoolFile, reserved);
                 }
+                out.write(buffer, 0, bytesRead);
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteSpoolFile(spoolFile);
+            throw e;
+        }
+        return spoolFile;
+    }
 
-                // Upload parts
-                MultipartUploadResult uploadResult = this.objectStorageUtils.uploadParts(uploadedInputStream, bucketName, objectName, uploadId, fileSize, partSize);
+    private long reserveSpool(long bytes) {
+        if (spooledBytes.addAndGet(bytes) > transferConfiguration.getJobs().getMaxSpoolBytes()) {
+            spooledBytes.addAndGet(-bytes);
+            throw new TransferRejectedException(507, transferConfiguration.getScheduler().getRetryAfterSeconds(),
+                    "Not enough spool space for the upload body, retry later");
+        }
+        return bytes;
+    }
 
-                if (!uploadResult.isSuccess()) {
-                    this.objectStorageUtils.abortMultipartUpload(bucketName, objectName, uploadId);
-                    asyncResponse.resume(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                            .entity("Failed to upload all parts.")
-                            .build());
-                    return;
-                }
+    private void deleteSpoolFile(java.nio.file.Path spoolFile) {
+        if (spoolFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(spoolFile);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot delete spool file {}: {}", spoolFile, e.getMessage());
+        }
+        Long reserved = spoolReservations.remove(spoolFile);
+        if (reserved != null) {
+            spooledBytes.addAndGet(-reserved);
+        }
+    }
 
-                // Complete multipart upload
-                boolean uploadCompleted = this.objectStorageUtils.completeMultipartUpload(bucketName, objectName, uploadId, uploadResult.getParts(), fileSize);
-                if (uploadCompleted) {
-                    asyncResponse.resume(Response.status(Response.Status.OK)
-                            .entity("File " + objectName + " uploaded successfully to bucket " + bucketName + " using multipart upload.")
-                            .build());
-                } else {
-                    this.objectStorageUtils.abortMultipartUpload(bucketName, objectName, uploadId);
-                    asyncResponse.resume(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                            .entity("Failed to complete multipart upload.")
-                            .build());
-                }
-            } catch (Exception e) {
-                asyncResponse.resume(Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                        .entity("Error during multipart upload: " + e.getMessage())
-                        .build());
+    // Returns false (and has answered the request) when the scheduler rejected the transfer
+    private boolean submitTransfer(AsyncResponse asyncResponse, TransferJob job, TransferScheduler.Lane lane, String flowKey, long estimatedBytes, Runnable task) {
+        try {
+            transferScheduler.submit(lane, flowKey, estimatedBytes, task);
+            return true;
+        } catch (TransferRejectedException e) {
+            LOGGER.warn("Transfer rejected for {}: {}", flowKey, e.getMessage());
+            if (job != null) {
+                job.fail(e.getMessage(), null);
             }
-        });
+            asyncResponse.resume(rejected(e));
+            return false;
+        }
+    }
+
+    // 429 / 503 with Retry-After when the transfer scheduler cannot take more work
+    private static Response rejected(TransferRejectedException e) {
+        return Response.status(e.getStatus())
+                .header("Retry-After", e.getRetryAfterSeconds())
+                .entity(e.getMessage())
+                .build();
     }
 
                 // New endpoint for downloading a file to local disk
@@ -281,9 +811,9 @@ public class FileOperationResourceOc10 {
                         .build();
             }
 
-            // Download the file from the specified bucket
-            FileStreamMetadata metadata = this.objectStorageUtils.downloadFromObjectStorage(bucketName, fileName);
-            if (metadata.getInputStream() == null) {
+            // Look the object up first; its size decides between a ranged parallel download and a single stream
+            HeadObjectResponse head = this.objectStorageUtils.headObject(bucketName, fileName);
+            if (head == null) {
                 return Response.status(Response.Status.NOT_FOUND)
                         .entity("File " + fileName + " not found in bucket " + bucketName)
                         .build();
@@ -300,7 +830,7 @@ public class FileOperationResourceOc10 {
             }
 
             // Write the file to local disk
-            boolean saveSuccessful = this.objectStorageUtils.saveToLocalDisk(metadata.getInputStream(), fullPath);
+            boolean saveSuccessful = this.objectStorageUtils.downloadToLocalDisk(bucketName, fileName, head, fullPath);
 
             if (saveSuccessful) {
                 return Response.status(Response.Status.OK)
@@ -317,4 +847,17 @@ public class FileOperationResourceOc10 {
                     .build();
         }
     }
+
+    // Streams the object back to the caller instead of saving it on the server; honors Range and If-None-Match, and sends
+    // compressed objects as stored when Accept-Encoding allows their codec
+    @GET
+    @Path("/download/stream")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public Response streamFile(@QueryParam("bucketName") String bucketName,
+                               @QueryParam("fileName") String fileName,
+                               @HeaderParam("Range") String range,
+                               @HeaderParam("If-None-Match") String ifNoneMatch,
+                               @HeaderParam("Accept-Encoding") String acceptEncoding) {
+        return ObjectStreamingDownload.stream(this.objectStorageUtils, bucketName, fileName, range, ifNoneMatch, acceptEncoding);
+    }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.io.InputStream;
+import java.util.Map;
 
 @Getter
 @Setter
@@ -13,4 +14,6 @@ public class FileStreamMetadata {
     private final InputStream inputStream;
     private final String md5Hash;
     private final long size;
+    // user metadata (opcMeta) of the object, e.g. its compression codec
+    private final Map<String, String> metadata;
 }
@@ -8,11 +8,18 @@ import java.util.List;
 public class MultipartUploadResult {
     private final boolean success;
     private final List<CommitMultipartUploadPartDetails> parts;
+    // Expected opc-multipart-md5 of the committed object, or null if some part MD5 is unknown
+    private final String multipartMd5;
 
 
     public MultipartUploadResult(boolean success, List<CommitMultipartUploadPartDetails> parts) {
+        this(success, parts, null);
+    }
+
+    public MultipartUploadResult(boolean success, List<CommitMultipartUploadPartDetails> parts, String multipartMd5) {
         this.success = success;
         this.parts = parts;
+        this.multipartMd5 = multipartMd5;
     }
 
     public boolean isSuccess() {
@@ -23,4 +30,8 @@ public class MultipartUploadResult {
         return parts;
     }
 
+    public String getMultipartMd5() {
+        return multipartMd5;
+    }
+
 }
\ No newline at end of file
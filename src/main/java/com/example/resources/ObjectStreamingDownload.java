@@ -0,0 +1,373 @@
+package com.example.resources;
+
+import com.example.utils.CompressionCodec;
+import com.example.utils.DedupManifest;
+import com.example.utils.Deduplication;
+import com.example.utils.ObjectContentCache;
+import com.example.utils.ObjectStorageUtils;
+import com.example.utils.ThrottledInputStream;
+import com.oracle.bmc.model.BmcException;
+import com.oracle.bmc.model.Range;
+import com.oracle.bmc.objectstorage.responses.GetObjectResponse;
+import com.oracle.bmc.objectstorage.responses.HeadObjectResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+
+// Streams an object body straight into the HTTP response, mapping Range / If-None-Match
+// onto ranged and conditional GetObject requests so clients can resume or split downloads.
+// With transfer.contentCache enabled, cached bodies are served locally (ranges included) and full misses fill the cache.
+// Compressed objects go out as stored, with Content-Encoding, to clients whose Accept-Encoding lists their codec, and are
+// decompressed on the fly (whole object, no ranges) for everyone else. Deduplicated objects are reassembled from their
+// chunks, also as a whole.
+public class ObjectStreamingDownload {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ObjectStreamingDownload.class);
+
+    // Large sequential writes; matches the outputBufferSize of the application connector
+    static final int RESPONSE_BUFFER_BYTES = 256 * 1024;
+
+    private ObjectStreamingDownload() {
+    }
+
+    public static Response stream(ObjectStorageUtils objectStorageUtils, String bucketName, String fileName, String rangeHeader, String ifNoneMatch,
+                                  String acceptEncoding) {
+        if (bucketName == null || bucketName.isEmpty() ||
+                fileName == null || fileName.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Bucket name and file name are required.")
+                    .build();
+        }
+
+        Range range = parseRange(rangeHeader);
+        if (objectStorageUtils.getContentCache().isEnabled()) {
+            Response cachedResponse = streamThroughCache(objectStorageUtils, bucketName, fileName, range, rangeHeader, unquote(ifNoneMatch), acceptEncoding);
+            if (cachedResponse != null) {
+                return cachedResponse;
+            }
+        }
+
+        GetObjectResponse response;
+        try {
+            response = objectStorageUtils.getObject(bucketName, fileName, range, unquote(ifNoneMatch));
+        } catch (BmcException e) {
+            if (e.getStatusCode() == 404) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity("File " + fileName + " not found in bucket " + bucketName)
+                        .build();
+            }
+            if (e.getStatusCode() == 416) {
+                return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .entity("Requested range not satisfiable: " + rangeHeader)
+                        .build();
+            }
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("Error downloading file: " + e.getMessage())
+                    .build();
+        }
+
+        EntityTag entityTag = response.getETag() != null ? new EntityTag(response.getETag()) : null;
+        if (response.isNotModified()) {
+            return Response.notModified(entityTag).build();
+        }
+
+        if (Deduplication.isManifest(response.getOpcMeta())) {
+            return streamDeduplicated(objectStorageUtils, bucketName, fileName, range, response, entityTag);
+        }
+        CompressionCodec codec = CompressionCodec.of(response.getOpcMeta());
+        if (codec != CompressionCodec.NONE && !accepts(acceptEncoding, codec)) {
+            return streamDecompressed(objectStorageUtils, bucketName, fileName, range, response, codec, entityTag);
+        }
+
+        InputStream body = throttled(objectStorageUtils, response.getInputStream());
+        StreamingOutput output = outputStream -> copy(body, outputStream, null, fileName);
+
+        Response.ResponseBuilder builder = Response.status(range != null && response.getContentRange() != null
+                        ? Response.Status.PARTIAL_CONTENT : Response.Status.OK)
+                .entity(output)
+                .type(response.getContentType() != null ? response.getContentType() : "application/octet-stream")
+                .tag(entityTag)
+                .header("Accept-Ranges", "bytes");
+        if (response.getContentLength() != null) {
+            // A known length lets Jetty send the body unchunked
+            builder.header(HttpHeaders.CONTENT_LENGTH, response.getContentLength());
+        }
+        if (range != null && response.getContentRange() != null) {
+            Range contentRange = response.getContentRange();
+            builder.header("Content-Range", "bytes " + contentRange.getStartByte() + "-" + contentRange.getEndByte()
+                    + "/" + (contentRange.getContentLength() != null ? contentRange.getContentLength() : "*"));
+        }
+        if (response.getContentMd5() != null) {
+            builder.header("Content-MD5", response.getContentMd5());
+        }
+        if (codec != CompressionCodec.NONE) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, codec.getLabel()).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        return builder.build();
+    }
+
+    // The uncompressed object for a client that cannot take codec; a range of the stored bytes means nothing to it, so a
+    // ranged request gets the whole object (200) from a fresh, unranged GET
+    private static Response streamDecompressed(ObjectStorageUtils objectStorageUtils, String bucketName, String fileName, Range range,
+                                                GetObjectResponse response, CompressionCodec codec, EntityTag entityTag) {
+        GetObjectResponse full = response;
+        try {
+            if (range != null) {
+                response.getInputStream().close();
+                full = objectStorageUtils.getObject(bucketName, fileName, null, null, response.getETag());
+            }
+            InputStream body = objectStorageUtils.getCompression().decompress(throttled(objectStorageUtils, full.getInputStream()), codec);
+            StreamingOutput output = outputStream -> copy(body, outputStream, null, fileName);
+            Response.ResponseBuilder builder = Response.ok(output)
+                    .type(full.getContentType() != null ? full.getContentType() : "application/octet-stream")
+                    .tag(entityTag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            long size = CompressionCodec.uncompressedSize(full.getOpcMeta());
+            if (size >= 0) {
+                builder.header(HttpHeaders.CONTENT_LENGTH, size);
+            }
+            return builder.build();
+        } catch (IOException | BmcException e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("Error downloading file: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    // The content a manifest describes, its chunks fetched ahead of the client; a ranged request gets the whole object (200)
+    // after the full manifest is read with If-Match
+    private static Response streamDeduplicated(ObjectStorageUtils objectStorageUtils, String bucketName, String fileName, Range range,
+                                               GetObjectResponse response, EntityTag entityTag) {
+        try {
+            DedupManifest manifest;
+            if (range != null) {
+                response.getInputStream().close();
+                manifest = objectStorageUtils.getDedupTransfer().manifest(bucketName, fileName, response.getETag());
+            } else {
+                manifest = DedupManifest.parse(response.getInputStream());
+            }
+            InputStream body = objectStorageUtils.getDedupTransfer().open(manifest);
+            StreamingOutput output = outputStream -> copy(body, outputStream, null, fileName);
+            Response.ResponseBuilder builder = Response.ok(output)
+                    .type(response.getContentType() != null ? response.getContentType() : "application/octet-stream")
+                    .tag(entityTag)
+                    .header(HttpHeaders.CONTENT_LENGTH, manifest.getSize());
+            if (manifest.getMd5() != null) {
+                builder.header("Content-MD5", manifest.getMd5());
+            }
+            return builder.build();
+        } catch (IOException | BmcException e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("Error downloading file: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    // Bytes read from Object Storage count against the bandwidth limits as one transfer; cache hits are local and free
+    private static InputStream throttled(ObjectStorageUtils objectStorageUtils, InputStream body) {
+        return new ThrottledInputStream(body, objectStorageUtils.getBandwidthThrottle().newTransfer(), objectStorageUtils.regionLabel());
+    }
+
+    // True if the Accept-Encoding header lists the codec (without q=0)
+    static boolean accepts(String acceptEncoding, CompressionCodec codec) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.trim().split(";");
+            String coding = parts[0].trim();
+            if (!coding.equalsIgnoreCase(codec.getLabel())) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.matches("q=0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Serves the object from the content cache, or streams a full-object miss while filling the cache.
+    // Returns null when the regular path should handle the request (object unknown or not cacheable, ranged miss, object changed).
+    private static Response streamThroughCache(ObjectStorageUtils objectStorageUtils, String bucketName, String fileName,
+                                               Range range, String rangeHeader, String ifNoneMatch, String acceptEncoding) {
+        ObjectContentCache contentCache = objectStorageUtils.getContentCache();
+        HeadObjectResponse head = objectStorageUtils.headObject(bucketName, fileName);
+        if (head == null || head.getETag() == null || head.getContentLength() == null) {
+            return null;
+        }
+        EntityTag entityTag = new EntityTag(head.getETag());
+        if (head.getETag().equals(ifNoneMatch)) {
+            return Response.notModified(entityTag).build();
+        }
+        long size = head.getContentLength();
+        // the cache holds stored bytes, so compressed objects are only served from it to clients that take their codec, and
+        // manifests of deduplicated objects never
+        CompressionCodec codec = CompressionCodec.of(head.getOpcMeta());
+        if (!contentCache.accepts(size) || (codec != CompressionCodec.NONE && !accepts(acceptEncoding, codec))
+                || Deduplication.isManifest(head.getOpcMeta())) {
+            return null;
+        }
+        String cacheKey = objectStorageUtils.metadataCacheKey(bucketName, fileName);
+        String contentType = head.getContentType() != null ? head.getContentType() : "application/octet-stream";
+
+        ObjectContentCache.CachedObject cached = contentCache.get(cacheKey, head.getETag());
+        if (cached != null) {
+            long start = 0;
+            long end = size - 1;
+            if (range != null) {
+                if (range.getStartByte() == null) {
+                    start = Math.max(0, size - range.getEndByte());
+                } else {
+                    start = range.getStartByte();
+                    if (range.getEndByte() != null) {
+                        end = Math.min(end, range.getEndByte());
+                    }
+                }
+                if (start >= size || start > end) {
+                    cached.close();
+                    return Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header("Content-Range", "bytes */" + size)
+                            .entity("Requested range not satisfiable: " + rangeHeader)
+                            .build();
+                }
+            }
+            long offset = start;
+            long count = end - start + 1;
+            StreamingOutput output = outputStream -> {
+                try (ObjectContentCache.CachedObject body = cached) {
+                    body.transferTo(offset, count, Channels.newChannel(outputStream));
+                    outputStream.flush();
+                }
+                LOGGER.info("Streamed {} bytes of {} from the content cache", count, fileName);
+            };
+            Response.ResponseBuilder builder = Response.status(range != null ? Response.Status.PARTIAL_CONTENT : Response.Status.OK)
+                    .entity(output)
+                    .type(contentType)
+                    .tag(entityTag)
+                    .header("Accept-Ranges", "bytes")
+                    .header(HttpHeaders.CONTENT_LENGTH, count);
+            if (range != null) {
+                builder.header("Content-Range", "bytes " + start + "-" + end + "/" + size);
+            } else if (head.getContentMd5() != null) {
+                builder.header("Content-MD5", head.getContentMd5());
+            }
+            if (codec != CompressionCodec.NONE) {
+                builder.header(HttpHeaders.CONTENT_ENCODING, codec.getLabel()).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            return builder.build();
+        }
+        if (range != null) {
+            return null;
+        }
+
+        // Full-object miss: pin the GET to the HEAD's ETag so the cache never stores a body under the wrong version
+        GetObjectResponse response;
+        try {
+            response = objectStorageUtils.getObject(bucketName, fileName, null, null, head.getETag());
+        } catch (BmcException e) {
+            LOGGER.info("Cache fill of {} skipped, falling back to a direct stream: {}", fileName, e.getMessage());
+            return null;
+        }
+        ObjectContentCache.Fill fill = contentCache.newFill(cacheKey, head.getETag(), size);
+        InputStream body = throttled(objectStorageUtils, response.getInputStream());
+        StreamingOutput output = outputStream -> copy(body, outputStream, fill, fileName);
+        Response.ResponseBuilder builder = Response.ok(output)
+                .type(contentType)
+                .tag(entityTag)
+                .header("Accept-Ranges", "bytes")
+                .header(HttpHeaders.CONTENT_LENGTH, size);
+        if (response.getContentMd5() != null) {
+            builder.header("Content-MD5", response.getContentMd5());
+        }
+        if (codec != CompressionCodec.NONE) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, codec.getLabel()).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        return builder.build();
+    }
+
+    // Copies the body to the client; with a fill, the same bytes are written into the content cache and committed
+    // only if the whole body was streamed. A cache write failure drops the fill, not the download.
+    private static void copy(InputStream body, OutputStream outputStream, ObjectContentCache.Fill fill, String fileName) throws IOException {
+        long bytes = 0;
+        boolean complete = false;
+        ObjectContentCache.Fill tee = fill;
+        try (InputStream in = body) {
+            byte[] buffer = new byte[RESPONSE_BUFFER_BYTES];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, bytesRead);
+                if (tee != null) {
+                    try {
+                        tee.write(buffer, 0, bytesRead);
+                    } catch (IOException e) {
+                        LOGGER.warn("Cache fill of {} failed after {} bytes, streaming the rest uncached: {}", fileName, bytes, e.getMessage());
+                        tee.abort();
+                        tee = null;
+                    }
+                }
+                bytes += bytesRead;
+            }
+            outputStream.flush();
+            complete = true;
+        } catch (IOException e) {
+            LOGGER.warn("Streaming download of {} aborted after {} bytes: {}", fileName, bytes, e.getMessage());
+            throw e;
+        } finally {
+            if (tee != null) {
+                if (complete) {
+                    tee.commit();
+                } else {
+                    tee.abort();
+                }
+            }
+        }
+        LOGGER.info("Streamed {} bytes of {}", bytes, fileName);
+    }
+
+    // Supports a single "bytes=start-end", "bytes=start-" or "bytes=-suffix" range; anything else gets the full object
+    static Range parseRange(String rangeHeader) {
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=") || rangeHeader.contains(",")) {
+            return null;
+        }
+        String spec = rangeHeader.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String start = spec.substring(0, dash).trim();
+            String end = spec.substring(dash + 1).trim();
+            if (start.isEmpty() && end.isEmpty()) {
+                return null;
+            }
+            return new Range(start.isEmpty() ? null : Long.parseLong(start), end.isEmpty() ? null : Long.parseLong(end));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String unquote(String entityTag) {
+        if (entityTag == null) {
+            return null;
+        }
+        String tag = entityTag.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        return tag;
+    }
+}
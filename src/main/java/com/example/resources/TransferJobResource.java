@@ -0,0 +1,99 @@
+package com.example.resources;
+
+import com.example.utils.TransferJob;
+import com.example.utils.TransferJobRegistry;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+// Status, progress stream and cancellation of transfer jobs started with async=true (and of bulk copies)
+@Path("/jobs")
+@Produces(MediaType.APPLICATION_JSON)
+public class TransferJobResource {
+    private final TransferJobRegistry transferJobs;
+
+    public TransferJobResource(TransferJobRegistry transferJobs) {
+        this.transferJobs = transferJobs;
+    }
+
+    @GET
+    public Response listJobs() {
+        return Response.status(Response.Status.OK)
+                .entity(transferJobs.list())
+                .build();
+    }
+
+    @GET
+    @Path("/{jobId}")
+    public Response getJob(@PathParam("jobId") String jobId) {
+        TransferJob job = transferJobs.get(jobId);
+        if (job == null) {
+            return notFound(jobId);
+        }
+        return Response.status(Response.Status.OK)
+                .entity(job.status())
+                .build();
+    }
+
+    // Server-Sent Events: a "progress" event every progressIntervalMillis, then one "finished" event before the stream closes
+    @GET
+    @Path("/{jobId}/events")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void streamJob(@PathParam("jobId") String jobId, @Context SseEventSink eventSink, @Context Sse sse) {
+        TransferJob job = transferJobs.get(jobId);
+        if (job == null) {
+            throw new NotFoundException("Transfer job " + jobId + " not found.");
+        }
+        transferJobs.watch(job, status -> {
+            if (eventSink.isClosed()) {
+                return false;
+            }
+            OutboundSseEvent event = sse.newEventBuilder()
+                    .name(status.isTerminal() ? "finished" : "progress")
+                    .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                    .data(TransferJobStatus.class, status)
+                    .build();
+            eventSink.send(event);
+            if (status.isTerminal()) {
+                eventSink.close();
+                return false;
+            }
+            return true;
+        });
+    }
+
+    // Cancels a queued job at once; a running one stops at its next part boundary and cleans up its multipart upload
+    @DELETE
+    @Path("/{jobId}")
+    public Response cancelJob(@PathParam("jobId") String jobId) {
+        TransferJob job = transferJobs.get(jobId);
+        if (job == null) {
+            return notFound(jobId);
+        }
+        if (job.isFinished()) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(job.status())
+                    .build();
+        }
+        job.cancel();
+        return Response.status(Response.Status.ACCEPTED)
+                .entity(job.status())
+                .build();
+    }
+
+    private static Response notFound(String jobId) {
+        return Response.status(Response.Status.NOT_FOUND)
+                .entity("Transfer job " + jobId + " not found.")
+                .build();
+    }
+}
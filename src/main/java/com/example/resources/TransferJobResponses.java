@@ -0,0 +1,51 @@
+package com.example.resources;
+
+import com.example.utils.TransferJob;
+
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.function.Supplier;
+
+// Runs endpoint transfers as tracked jobs: the job follows the transfer's outcome and responses carry X-Job-Id
+final class TransferJobResponses {
+
+    static final String JOB_ID_HEADER = "X-Job-Id";
+
+    private TransferJobResponses() {
+    }
+
+    // Runs the transfer under the job and records its outcome; a job cancelled while still queued is not run
+    static Response runAsJob(TransferJob job, Supplier<Response> transfer) {
+        if (!job.start()) {
+            return Response.status(Response.Status.CONFLICT)
+                    .header(JOB_ID_HEADER, job.getId())
+                    .entity("Transfer job " + job.getId() + " was cancelled before it started.")
+                    .build();
+        }
+        Response response;
+        try {
+            response = transfer.get();
+        } catch (RuntimeException e) {
+            job.fail(e.getMessage(), null);
+            throw e;
+        }
+        Object entity = response.getEntity();
+        if (response.getStatus() < 300) {
+            job.succeed(entity);
+        } else if (entity instanceof String) {
+            job.fail((String) entity, null);
+        } else {
+            job.fail("Transfer failed with status " + response.getStatus(), entity);
+        }
+        return Response.fromResponse(response).header(JOB_ID_HEADER, job.getId()).build();
+    }
+
+    // 202 for async=true requests: the job handle, with Location pointing at its status
+    static Response accepted(TransferJob job) {
+        return Response.status(Response.Status.ACCEPTED)
+                .location(URI.create("/jobs/" + job.getId()))
+                .header(JOB_ID_HEADER, job.getId())
+                .entity(job.status())
+                .build();
+    }
+}
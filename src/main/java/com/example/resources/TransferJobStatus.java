@@ -0,0 +1,33 @@
+package com.example.resources;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Snapshot of a transfer job as returned by /jobs and pushed by /jobs/{jobId}/events
+@Getter
+@AllArgsConstructor
+public class TransferJobStatus {
+    private final String jobId;
+    private final String type;
+    private final String state;
+    private final String source;
+    private final String destination;
+    // -1 until the size is known
+    private final long totalBytes;
+    private final long bytesTransferred;
+    private final int totalParts;
+    private final int partsCompleted;
+    private final Double percentComplete;
+    // one-minute moving average while running
+    private final double currentBytesPerSecond;
+    private final double averageBytesPerSecond;
+    private final long createdAtMillis;
+    private final long elapsedMillis;
+    private final String message;
+    // endpoint-specific outcome once the job has finished
+    private final Object result;
+
+    public boolean isTerminal() {
+        return "SUCCEEDED".equals(state) || "FAILED".equals(state) || "CANCELLED".equals(state);
+    }
+}
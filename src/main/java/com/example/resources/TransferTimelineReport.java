@@ -0,0 +1,17 @@
+package com.example.resources;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Body of the admin /transfers endpoint: running and recent transfer timelines and the slowest parts among them
+@Getter
+@AllArgsConstructor
+public class TransferTimelineReport {
+    private final List<TransferTimelineSnapshot> running;
+    // newest first
+    private final List<TransferTimelineSnapshot> recent;
+    // by upload time, slowest first
+    private final List<TransferTimelineSnapshot.Part> slowestParts;
+}
@@ -0,0 +1,55 @@
+package com.example.resources;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Timeline of one transfer as returned by the admin /transfers endpoint. Times are milliseconds since the job was
+// created, so phases and parts of one transfer line up
+@Getter
+@AllArgsConstructor
+public class TransferTimelineSnapshot {
+    private final String jobId;
+    private final String type;
+    private final String state;
+    private final String source;
+    private final String destination;
+    private final long createdAtMillis;
+    private final long elapsedMillis;
+    private final List<Phase> phases;
+    private final int partsTimed;
+    private final int retries;
+    // time the reader spent filling part buffers (the client body, or the source ranges of a copy)
+    private final long readMillis;
+    private final long partUploadP50Millis;
+    private final long partUploadMaxMillis;
+    // from the moment 95% of the timed parts had finished until the last one did
+    private final long stragglerMillis;
+    // every timed part while running; the slowest ones once finished
+    private final List<Part> parts;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Phase {
+        private final String name;
+        private final long startMillis;
+        // null while the phase is still running
+        private final Long endMillis;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Part {
+        private final String jobId;
+        private final int partNumber;
+        private final long bytes;
+        private final long readStartMillis;
+        private final long readEndMillis;
+        private final long uploadStartMillis;
+        private final long uploadEndMillis;
+        private final long uploadMillis;
+        private final int attempts;
+        private final boolean success;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.utils;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.example.config.AdaptiveConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Picks part sizes from the object size and tunes per-region part concurrency at runtime with AIMD:
+// after each window of completed parts, concurrency grows by one while throughput keeps improving and
+// halves when throughput drops, latency spikes or a part fails. What a region converged on is kept
+// and used as the starting point of its next transfer.
+public class AdaptiveTransferController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveTransferController.class);
+
+    static final int MAX_PARTS = 10_000;
+    private static final long MIB = 1024L * 1024;
+
+    private final AdaptiveConfiguration configuration;
+    private final MetricRegistry metricRegistry;
+    private final ConcurrentMap<String, Integer> learnedConcurrency = new ConcurrentHashMap<>();
+
+    public AdaptiveTransferController(AdaptiveConfiguration configuration, MetricRegistry metricRegistry) {
+        this.configuration = configuration;
+        this.metricRegistry = metricRegistry;
+    }
+
+    // Depends on the object size only, so a resumed transfer gets the same part size again
+    public long choosePartSize(long objectSize, long fallbackPartSize) {
+        if (objectSize <= 0) {
+            return fallbackPartSize;
+        }
+        long forTarget = roundUpToMib(objectSize / configuration.getTargetPartCount());
+        long partSize = Math.max(configuration.getMinPartSize(), Math.min(configuration.getMaxPartSize(), forTarget));
+        // the part count limit wins over maxPartSize for very large objects
+        long forPartLimit = roundUpToMib((objectSize + MAX_PARTS - 1) / MAX_PARTS);
+        return Math.max(partSize, forPartLimit);
+    }
+
+    // executorCapacity is how many parts the executor running them can run at once (see TransferExecutors.transferCapacity);
+    // concurrency above it would only queue parts, so the session never goes past it
+    public Session startSession(String region, InFlightLimiter limiter, int executorCapacity) {
+        int learned = learnedConcurrency.computeIfAbsent(region, key -> {
+            metricRegistry.register(MetricRegistry.name(AdaptiveTransferController.class, key, "concurrency"),
+                    (Gauge<Integer>) () -> learnedConcurrency.getOrDefault(key, configuration.getInitialConcurrency()));
+            return configuration.getInitialConcurrency();
+        });
+        int maxConcurrency = maxConcurrency(executorCapacity);
+        int concurrency = Math.min(learned, maxConcurrency);
+        limiter.setMaxParts(concurrency);
+        return new Session(region, limiter, concurrency, maxConcurrency);
+    }
+
+    // Highest concurrency a session on an executor of this capacity can reach
+    public int maxConcurrency(int executorCapacity) {
+        return Math.max(configuration.getMinConcurrency(), Math.min(configuration.getMaxConcurrency(), executorCapacity));
+    }
+
+    // Largest part choosePartSize picks unless the part count limit forces more
+    public long getMaxPartSize() {
+        return configuration.getMaxPartSize();
+    }
+
+    public int getLearnedConcurrency(String region) {
+        return learnedConcurrency.getOrDefault(region, configuration.getInitialConcurrency());
+    }
+
+    private static long roundUpToMib(long bytes) {
+        return (bytes + MIB - 1) / MIB * MIB;
+    }
+
+    // Observes the parts of one transfer and adjusts its limiter
+    public class Session {
+        private final String region;
+        private final InFlightLimiter limiter;
+        private final int maxConcurrency;
+
+        private int concurrency;
+        private long windowStartNanos = System.nanoTime();
+        private long windowBytes;
+        private long windowLatencyNanos;
+        private int windowParts;
+        private double previousThroughput;
+        private long minLatencyNanos = Long.MAX_VALUE;
+
+        private Session(String region, InFlightLimiter limiter, int concurrency, int maxConcurrency) {
+            this.region = region;
+            this.limiter = limiter;
+            this.concurrency = concurrency;
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public synchronized void onPartComplete(long bytes, long latencyNanos, boolean success) {
+            if (!success) {
+                decrease("part failed");
+                resetWindow();
+                return;
+            }
+            windowBytes += bytes;
+            windowLatencyNanos += latencyNanos;
+            windowParts++;
+            if (windowParts < concurrency) {
+                return;
+            }
+
+            long elapsed = Math.max(1, System.nanoTime() - windowStartNanos);
+            double throughput = windowBytes * 1e9 / elapsed;
+            long averageLatency = windowLatencyNanos / windowParts;
+            minLatencyNanos = Math.min(minLatencyNanos, averageLatency);
+
+            if (previousThroughput > 0 && throughput < previousThroughput * 0.9) {
+                decrease("throughput dropped");
+            } else if (averageLatency > 2 * minLatencyNanos && throughput < previousThroughput * 1.05) {
+                decrease("latency doubled");
+            } else if (previousThroughput == 0 || throughput >= previousThroughput * 1.05) {
+                apply(Math.min(maxConcurrency, concurrency + 1), "throughput improved");
+            }
+            previousThroughput = throughput;
+            resetWindow();
+        }
+
+        private void decrease(String reason) {
+            apply(Math.max(configuration.getMinConcurrency(), concurrency / 2), reason);
+        }
+
+        private void apply(int newConcurrency, String reason) {
+            if (newConcurrency != concurrency) {
+                LOGGER.info("Adaptive concurrency for region {}: {} -> {} ({})", region, concurrency, newConcurrency, reason);
+                concurrency = newConcurrency;
+                limiter.setMaxParts(newConcurrency);
+            }
+            learnedConcurrency.put(region, newConcurrency);
+        }
+
+        private void resetWindow() {
+            windowStartNanos = System.nanoTime();
+            windowBytes = 0;
+            windowLatencyNanos = 0;
+            windowParts = 0;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.utils;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.example.config.BandwidthConfiguration;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Process-wide bandwidth limits: one token bucket for everything, one per region client and one per transfer.
+// Bytes are charged at the stream level (part upload bodies and ranged download responses), in both directions,
+// so a cross-region copy is charged once for the GET and once for the uploadPart.
+public class BandwidthThrottle {
+    // Throttle waits of the request attempt running on this thread, so its latency can leave them out
+    private static final ThreadLocal<WaitClock> ATTEMPT_WAITS = new ThreadLocal<>();
+
+    private final MetricRegistry metricRegistry;
+    private final AtomicLong globalBytesPerSecond;
+    private final AtomicLong perTransferBytesPerSecond;
+    private final ConcurrentMap<String, AtomicLong> regionBytesPerSecond = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RegionState> regions = new ConcurrentHashMap<>();
+    private final TokenBucket globalBucket;
+    private final Meter globalBytes;
+    private final Timer globalWait;
+
+    public BandwidthThrottle(BandwidthConfiguration configuration, MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        this.globalBytesPerSecond = new AtomicLong(configuration.getGlobalBytesPerSecond());
+        this.perTransferBytesPerSecond = new AtomicLong(configuration.getPerTransferBytesPerSecond());
+        configuration.getRegionBytesPerSecond().forEach((region, limit) -> regionBytesPerSecond.put(region, new AtomicLong(limit)));
+        this.globalBucket = new TokenBucket(globalBytesPerSecond::get);
+        this.globalBytes = metricRegistry.meter(MetricRegistry.name(BandwidthThrottle.class, "bytes"));
+        this.globalWait = metricRegistry.timer(MetricRegistry.name(BandwidthThrottle.class, "throttle_wait"));
+        metricRegistry.register(MetricRegistry.name(BandwidthThrottle.class, "limit_bytes_per_second"), (Gauge<Long>) globalBytesPerSecond::get);
+        metricRegistry.register(MetricRegistry.name(BandwidthThrottle.class, "per_transfer_limit_bytes_per_second"), (Gauge<Long>) perTransferBytesPerSecond::get);
+    }
+
+    // Limits for one upload, download or copy; the per-transfer limit follows runtime changes
+    public Transfer newTransfer() {
+        return new Transfer();
+    }
+
+    // Charges throttle waits on the current thread to clock until cleared with null
+    public static void accountWaits(WaitClock clock) {
+        if (clock == null) {
+            ATTEMPT_WAITS.remove();
+        } else {
+            ATTEMPT_WAITS.set(clock);
+        }
+    }
+
+    public void setGlobalBytesPerSecond(long bytesPerSecond) {
+        globalBytesPerSecond.set(bytesPerSecond);
+    }
+
+    public void setPerTransferBytesPerSecond(long bytesPerSecond) {
+        perTransferBytesPerSecond.set(bytesPerSecond);
+    }
+
+    public void setRegionBytesPerSecond(String region, long bytesPerSecond) {
+        regionLimit(region).set(bytesPerSecond);
+    }
+
+    // Current limits, 0 = unlimited
+    public Map<String, Long> describe() {
+        Map<String, Long> limits = new TreeMap<>();
+        limits.put("global", globalBytesPerSecond.get());
+        limits.put("perTransfer", perTransferBytesPerSecond.get());
+        regionBytesPerSecond.forEach((region, limit) -> limits.put("region." + region, limit.get()));
+        return limits;
+    }
+
+    private AtomicLong regionLimit(String region) {
+        return regionBytesPerSecond.computeIfAbsent(region, key -> new AtomicLong());
+    }
+
+    private RegionState region(String region) {
+        return regions.computeIfAbsent(region, RegionState::new);
+    }
+
+    private final class RegionState {
+        private final TokenBucket bucket;
+        private final Meter bytes;
+        private final Timer waits;
+
+        private RegionState(String region) {
+            AtomicLong limit = regionLimit(region);
+            this.bucket = new TokenBucket(limit::get);
+            this.bytes = metricRegistry.meter(MetricRegistry.name(BandwidthThrottle.class, region, "bytes"));
+            this.waits = metricRegistry.timer(MetricRegistry.name(BandwidthThrottle.class, region, "throttle_wait"));
+            metricRegistry.register(MetricRegistry.name(BandwidthThrottle.class, region, "limit_bytes_per_second"), (Gauge<Long>) limit::get);
+        }
+    }
+
+    public final class Transfer {
+        private final TokenBucket bucket = new TokenBucket(perTransferBytesPerSecond::get);
+
+        // Blocks until bytes moved to or from the region fit under every limit
+        public void acquire(String region, long bytes) throws InterruptedException {
+            RegionState regionState = region(region);
+            WaitClock clock = ATTEMPT_WAITS.get();
+            long waitNanos;
+            if (clock != null) {
+                clock.waitingSinceNanos = System.nanoTime();
+            }
+            try {
+                waitNanos = globalBucket.acquire(bytes);
+                waitNanos += regionState.bucket.acquire(bytes);
+                waitNanos += bucket.acquire(bytes);
+            } finally {
+                if (clock != null) {
+                    clock.waitedNanos.addAndGet(System.nanoTime() - clock.waitingSinceNanos);
+                    clock.waitingSinceNanos = 0;
+                }
+            }
+            globalBytes.mark(bytes);
+            regionState.bytes.mark(bytes);
+            if (waitNanos > 0) {
+                globalWait.update(waitNanos, TimeUnit.NANOSECONDS);
+                regionState.waits.update(waitNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    // Time one thread spent blocked in the throttle, including a wait still in progress
+    public static final class WaitClock {
+        private final AtomicLong waitedNanos = new AtomicLong();
+        private volatile long waitingSinceNanos;
+
+        public long waitedNanos() {
+            long since = waitingSinceNanos;
+            return waitedNanos.get() + (since == 0 ? 0 : Math.max(0, System.nanoTime() - since));
+        }
+    }
+}
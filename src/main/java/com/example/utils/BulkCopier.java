@@ -0,0 +1,456 @@
+package com.example.utils;
+
+import com.example.config.BulkCopyConfiguration;
+import com.example.config.TransferConfiguration;
+import com.example.resources.BulkCopyResult;
+import com.example.resources.CrossRegionCopyResult;
+import com.oracle.bmc.objectstorage.model.ListObjects;
+import com.oracle.bmc.objectstorage.model.ObjectSummary;
+import com.oracle.bmc.objectstorage.model.WorkRequest;
+import com.oracle.bmc.objectstorage.responses.GetObjectResponse;
+import com.oracle.bmc.objectstorage.responses.HeadObjectResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Copies every object under a prefix, or every object named in a manifest object, from one bucket to another.
+// ListObjects pages (or manifest lines) are consumed as they arrive, with the next page fetched while the current one
+// is copied, and at most objectConcurrency objects are in flight, so memory does not grow with the number of objects.
+// Within one region large objects are copied server-side; everything else goes through the CrossRegionCopier,
+// which uses a single put or a ranged multipart copy depending on the size. Those copies are admitted one object at a
+// time by the TransferScheduler (one flow per bulk copy), so they share its lanes and memory budget with other transfers;
+// server-side copies hold no buffers and are followed by polling their work requests, without holding a thread.
+// Each bulk copy is also a TransferJob (its id is the bulkCopyId), so it can be followed and cancelled through /jobs.
+public class BulkCopier {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkCopier.class);
+
+    private enum Strategy {
+        SERVER_SIDE,
+        SINGLE_PUT,
+        MULTIPART
+    }
+
+    private final ObjectStorageUtils source;
+    private final ObjectStorageUtils destination;
+    private final CrossRegionCopier copier;
+    private final TransferConfiguration transferConfiguration;
+    private final BulkCopyConfiguration configuration;
+    private final TransferJobRegistry transferJobs;
+    private final TransferScheduler transferScheduler;
+    private final ExecutorService jobExecutorService;
+    // HEADs and CopyObject requests; the copies through the service run on the transfer scheduler
+    private final ExecutorService copyExecutorService;
+    // Retries of object copies the transfer scheduler could not queue
+    private final ScheduledExecutorService retryExecutorService;
+    // Retries not yet run; shutdown() runs them at once so their objects fail instead of waiting forever
+    private final Set<Runnable> pendingRetries = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopped;
+
+    // Running and recently finished bulk copies by id; guarded by this
+    private final Map<String, Job> jobs;
+    private int runningJobs;
+
+    public BulkCopier(ObjectStorageUtils source, ObjectStorageUtils destination, CrossRegionCopier copier, TransferConfiguration transferConfiguration,
+                      TransferJobRegistry transferJobs, TransferScheduler transferScheduler) {
+        this.source = source;
+        this.destination = destination;
+        this.copier = copier;
+        this.transferConfiguration = transferConfiguration;
+        this.configuration = transferConfiguration.getBulkCopy();
+        this.transferJobs = transferJobs;
+        this.transferScheduler = transferScheduler;
+        String name = "bulk-copy-" + source.regionLabel() + "-" + destination.regionLabel();
+        this.jobExecutorService = TransferExecutors.newDaemonExecutor(name + "-job", transferConfiguration);
+        this.copyExecutorService = TransferExecutors.newTransferExecutor(name, configuration.getCopyThreads(), transferConfiguration);
+        this.retryExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.jobs = new LinkedHashMap<String, Job>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+                return size() > configuration.getMaxRetainedJobs() && eldest.getValue().finishedNanos != 0;
+            }
+        };
+    }
+
+    // Starts a bulk copy in the background and returns its first report. With manifestObject set, the object names are
+    // read from that object in the source bucket (one per line) instead of listing prefix. destPrefix replaces prefix
+    // in the destination names. Throws TransferRejectedException (429) when maxRunningJobs copies are already running
+    // or the job registry is full.
+    public BulkCopyResult start(String sourceBucket, String prefix, String manifestObject, String destBucket, String destPrefix, boolean adaptive) {
+        Job job;
+        synchronized (this) {
+            if (runningJobs >= configuration.getMaxRunningJobs()) {
+                throw new TransferRejectedException(429, transferConfiguration.getScheduler().getRetryAfterSeconds(),
+                        "Too many bulk copies running, retry later");
+            }
+            job = new Job(sourceBucket, prefix != null ? prefix : "", manifestObject, destBucket, destPrefix, adaptive);
+            runningJobs++;
+            jobs.put(job.id, job);
+        }
+        try {
+            jobExecutorService.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            job.error = "Bulk copy could not be started: " + e.getMessage();
+            finish(job);
+        }
+        return job.report();
+    }
+
+    // Stops dispatching and queuing copies: retries still waiting fail their objects right away. Called after the job
+    // registry cancelled the running bulk copies; the HEADs and CopyObject requests already started still run
+    public void shutdown() {
+        stopped = true;
+        retryExecutorService.shutdownNow();
+        for (Runnable retry : pendingRetries) {
+            retry.run();
+        }
+        jobExecutorService.shutdown();
+        copyExecutorService.shutdown();
+    }
+
+    // Waits up to timeoutSeconds for the dispatch loops and copy requests left after shutdown(); false if some still run
+    public boolean awaitTermination(long timeoutSeconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        return copyExecutorService.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)
+                && jobExecutorService.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    // Server-side CopyObject is only used when source and destination are the same region client
+    public boolean isSameRegion() {
+        return source == destination;
+    }
+
+    // Current report of a bulk copy, or null if it is unknown or no longer retained
+    public synchronized BulkCopyResult get(String bulkCopyId) {
+        Job job = jobs.get(bulkCopyId);
+        return job != null ? job.report() : null;
+    }
+
+    private void run(Job job) {
+        if (!job.transferJob.start()) {
+            finish(job);
+            return;
+        }
+        Semaphore permits = new Semaphore(configuration.getObjectConcurrency());
+        try {
+            if (job.manifestObject != null) {
+                dispatchManifest(job, permits);
+            } else {
+                dispatchListing(job, permits);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.error = "Bulk copy interrupted";
+        } catch (Exception e) {
+            LOGGER.error("Bulk copy {} stopped dispatching: {}", job.id, e.getMessage(), e);
+            job.error = e.getMessage();
+        }
+        try {
+            // wait for the objects still in flight
+            permits.acquire(configuration.getObjectConcurrency());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finish(job);
+        BulkCopyResult report = job.report();
+        LOGGER.info("Bulk copy {} {} -> {} {}: objects: {}, failed: {}, bytes: {}, timeTaken (milli): {}, throughput (MB/s): {}, objects/s: {}",
+                job.id, report.getSource(), report.getDestination(), report.getState(), report.getObjectsCopied(), report.getObjectsFailed(),
+                report.getBytesCopied(), report.getTimeTakenMillis(), String.format("%.2f", report.getThroughputMegabytesPerSecond()),
+                String.format("%.1f", report.getObjectsPerSecond()));
+    }
+
+    private void finish(Job job) {
+        synchronized (this) {
+            job.finishedNanos = System.nanoTime();
+            runningJobs--;
+        }
+        BulkCopyResult report = job.report();
+        if (job.transferJob.isCancelled()) {
+            job.transferJob.finish(TransferJob.State.CANCELLED, "Cancelled after " + report.getObjectsCopied() + " objects", report);
+        } else if (job.error != null) {
+            job.transferJob.fail(job.error, report);
+        } else {
+            job.transferJob.succeed(report);
+        }
+    }
+
+    private void dispatchListing(Job job, Semaphore permits) throws InterruptedException {
+        CompletableFuture<ListObjects> nextPage = listPage(job, null);
+        while (nextPage != null) {
+            ListObjects page = nextPage.join();
+            if (page == null) {
+                throw new IllegalStateException("Listing " + job.sourceBucket + "/" + job.prefix + " failed after " + job.listed.get() + " objects");
+            }
+            // prefetch the following page while this one is copied
+            nextPage = page.getNextStartWith() != null ? listPage(job, page.getNextStartWith()) : null;
+            if (page.getObjects() == null) {
+                continue;
+            }
+            for (ObjectSummary summary : page.getObjects()) {
+                if (!dispatch(job, permits, summary.getName(), summary.getSize())) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private CompletableFuture<ListObjects> listPage(Job job, String start) {
+        return CompletableFuture.supplyAsync(
+                () -> source.listObjects(job.sourceBucket, job.prefix.isEmpty() ? null : job.prefix, start, configuration.getListPageSize()),
+                jobExecutorService);
+    }
+
+    private void dispatchManifest(Job job, Semaphore permits) throws Exception {
+        GetObjectResponse response = source.getObject(job.sourceBucket, job.manifestObject, null, null);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String objectName = line.trim();
+                if (!objectName.isEmpty() && !dispatch(job, permits, objectName, null)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Returns false once the bulk copy has been cancelled
+    private boolean dispatch(Job job, Semaphore permits, String objectName, Long size) throws InterruptedException {
+        permits.acquire();
+        if (job.transferJob.isCancelled()) {
+            permits.release();
+            return false;
+        }
+        job.listed.incrementAndGet();
+        // the permit is held until the object is copied or has failed, however many threads that takes
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        done.whenComplete((ignored, error) -> permits.release());
+        try {
+            copyExecutorService.execute(() -> copyObject(job, objectName, size, done));
+        } catch (RejectedExecutionException e) {
+            job.failed(objectName, "Copy could not be started: " + e.getMessage());
+            done.complete(null);
+        }
+        return true;
+    }
+
+    private void copyObject(Job job, String objectName, Long knownSize, CompletableFuture<Void> done) {
+        String destObject = job.destinationName(objectName);
+        try {
+            Long size = knownSize;
+            if (isSameRegion()) {
+                if (size == null) {
+                    HeadObjectResponse head = source.headObject(job.sourceBucket, objectName);
+                    size = head != null ? head.getContentLength() : null;
+                }
+                if (size != null && size >= configuration.getServerSideCopyMinBytes() && serverSideCopy(job, objectName, destObject, size, done)) {
+                    return;
+                }
+            }
+            admit(job, objectName, destObject, size, done);
+        } catch (Exception e) {
+            LOGGER.warn("Bulk copy {} failed to copy {}: {}", job.id, objectName, e.getMessage());
+            job.failed(objectName, e.getMessage());
+            done.complete(null);
+        }
+    }
+
+    // Queues the copy through the service with the transfer scheduler: single puts in the small lane, multipart copies
+    // (and objects of unknown size) in the large lane with their part-buffer estimate
+    private void admit(Job job, String objectName, String destObject, Long size, CompletableFuture<Void> done) {
+        if (job.transferJob.isCancelled()) {
+            done.complete(null);
+            return;
+        }
+        if (stopped) {
+            job.failed(objectName, "Copy could not be started: shutting down");
+            done.complete(null);
+            return;
+        }
+        TransferScheduler.Lane lane = copier.isSinglePut(size, job.adaptive) ? TransferScheduler.Lane.SMALL : TransferScheduler.Lane.LARGE;
+        try {
+            transferScheduler.submit(lane, job.flowKey(), copier.estimatedBytes(size, job.adaptive), () -> {
+                try {
+                    copyThroughService(job, objectName, destObject);
+                } finally {
+                    done.complete(null);
+                }
+            });
+        } catch (TransferRejectedException e) {
+            // the scheduler is full: this is background work, so wait instead of failing the object
+            LOGGER.debug("Bulk copy {} waiting {} s to queue {}: {}", job.id, e.getRetryAfterSeconds(), objectName, e.getMessage());
+            Runnable retry = new Runnable() {
+                @Override
+                public void run() {
+                    // runs once, from the retry executor or from shutdown()
+                    if (pendingRetries.remove(this)) {
+                        admit(job, objectName, destObject, size, done);
+                    }
+                }
+            };
+            pendingRetries.add(retry);
+            try {
+                retryExecutorService.schedule(retry, e.getRetryAfterSeconds(), TimeUnit.SECONDS);
+            } catch (RejectedExecutionException shuttingDown) {
+                pendingRetries.remove(retry);
+                job.failed(objectName, "Copy could not be started: " + e.getMessage());
+                done.complete(null);
+            }
+        }
+    }
+
+    private void copyThroughService(Job job, String objectName, String destObject) {
+        try {
+            // the destination bucket's transfer.compression default applies; objects stored compressed are copied as they are
+            CompressionCodec codec = destination.getCompression().codecFor(null, job.destBucket);
+            CrossRegionCopyResult result = copier.copy(job.sourceBucket, objectName, job.destBucket, destObject, false, job.adaptive, codec, job.objectProgress);
+            if (result == null) {
+                job.failed(objectName, "Not found in source bucket");
+            } else if (!result.isSuccess()) {
+                job.failed(objectName, "Copy failed after " + result.getTimeTakenMillis() + " ms");
+            } else {
+                job.copied(result.getBytes(), result.getParts() > 1 ? Strategy.MULTIPART : Strategy.SINGLE_PUT);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Bulk copy {} failed to copy {}: {}", job.id, objectName, e.getMessage());
+            job.failed(objectName, e.getMessage());
+        }
+    }
+
+    // Returns false when the copy should go through the service instead; otherwise done is completed once the work
+    // request has finished (or the wait timed out)
+    private boolean serverSideCopy(Job job, String objectName, String destObject, long size, CompletableFuture<Void> done) {
+        String workRequestId = source.copyObject(job.sourceBucket, objectName, job.destBucket, destObject);
+        if (workRequestId == null) {
+            return false;
+        }
+        source.awaitWorkRequestAsync(workRequestId, transferConfiguration.getCopyWaitTimeoutSeconds() * 1000L).whenComplete((workRequest, error) -> {
+            if (workRequest != null && workRequest.getStatus() == WorkRequest.Status.Completed) {
+                job.copied(size, Strategy.SERVER_SIDE);
+                done.complete(null);
+            } else if (error != null || workRequest == null || !ObjectStorageUtils.isTerminal(workRequest.getStatus())) {
+                // still running (or unknown); copying again through the service could race with it
+                job.failed(objectName, "Server-side copy " + workRequestId + " did not finish in time");
+                done.complete(null);
+            } else {
+                LOGGER.warn("Server-side copy {} of {} ended with status {}, copying through the service", workRequestId, objectName, workRequest.getStatus());
+                admit(job, objectName, destObject, size, done);
+            }
+        });
+        return true;
+    }
+
+    private final class Job {
+        private final TransferJob transferJob;
+        private final String id;
+        private final String sourceBucket;
+        private final String prefix;
+        private final String manifestObject;
+        private final String destBucket;
+        private final String destPrefix;
+        private final boolean adaptive;
+        private final long startedNanos = System.nanoTime();
+        private volatile long finishedNanos;
+        private volatile String error;
+
+        private final AtomicLong listed = new AtomicLong();
+        private final AtomicLong copied = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong[] byStrategy = {new AtomicLong(), new AtomicLong(), new AtomicLong()};
+        // guarded by itself
+        private final ArrayList<BulkCopyResult.Failure> failures = new ArrayList<>();
+
+        // Per-object progress feeds the job's byte count and cancellation; sizes and parts of single objects are not its totals
+        private final TransferProgress objectProgress = new TransferProgress() {
+            @Override
+            public void transferred(long bytes) {
+                transferJob.transferred(bytes);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return transferJob.isCancelled();
+            }
+        };
+
+        private Job(String sourceBucket, String prefix, String manifestObject, String destBucket, String destPrefix, boolean adaptive) {
+            this.sourceBucket = sourceBucket;
+            this.prefix = prefix;
+            this.manifestObject = manifestObject;
+            this.destBucket = destBucket;
+            this.destPrefix = destPrefix;
+            this.adaptive = adaptive;
+            this.transferJob = transferJobs.create("bulkCopy", source.regionLabel() + ":" + sourceBucket + "/" + (manifestObject != null ? "@" + manifestObject : prefix),
+                    destination.regionLabel() + ":" + destBucket + "/" + (destPrefix != null ? destPrefix : prefix));
+            this.id = transferJob.getId();
+        }
+
+        // Fair-queuing flow of this bulk copy's objects in the transfer scheduler
+        private String flowKey() {
+            return "bulkCopy:" + id;
+        }
+
+        private String destinationName(String objectName) {
+            if (destPrefix == null) {
+                return objectName;
+            }
+            return objectName.startsWith(prefix) ? destPrefix + objectName.substring(prefix.length()) : destPrefix + objectName;
+        }
+
+        private void copied(long size, Strategy strategy) {
+            if (strategy == Strategy.SERVER_SIDE) {
+                transferJob.transferred(size);
+            }
+            transferJob.partCompleted();
+            copied.incrementAndGet();
+            bytes.addAndGet(size);
+            byStrategy[strategy.ordinal()].incrementAndGet();
+        }
+
+        private void failed(String objectName, String reason) {
+            failed.incrementAndGet();
+            synchronized (failures) {
+                if (failures.size() < configuration.getMaxReportedFailures()) {
+                    failures.add(new BulkCopyResult.Failure(objectName, reason));
+                }
+            }
+        }
+
+        private BulkCopyResult report() {
+            long finished = finishedNanos;
+            long timeTaken = Math.max(1, ((finished != 0 ? finished : System.nanoTime()) - startedNanos) / 1_000_000);
+            String state = finished == 0 ? "RUNNING" : transferJob.isCancelled() ? "CANCELLED" : error != null ? "FAILED" : failed.get() > 0 ? "COMPLETED_WITH_FAILURES" : "COMPLETED";
+            String sourceName = sourceBucket + "/" + (manifestObject != null ? "@" + manifestObject : prefix);
+            String destinationName = destBucket + "/" + (destPrefix != null ? destPrefix : prefix);
+            ArrayList<BulkCopyResult.Failure> reportedFailures;
+            synchronized (failures) {
+                reportedFailures = new ArrayList<>(failures);
+            }
+            return new BulkCopyResult(id, state, source.regionLabel() + ":" + sourceName, destination.regionLabel() + ":" + destinationName,
+                    listed.get(), copied.get(), failed.get(), bytes.get(),
+                    byStrategy[Strategy.SERVER_SIDE.ordinal()].get(), byStrategy[Strategy.SINGLE_PUT.ordinal()].get(),
+                    byStrategy[Strategy.MULTIPART.ordinal()].get(), timeTaken,
+                    (bytes.get() / (1024.0 * 1024.0)) / (timeTaken / 1000.0), copied.get() / (timeTaken / 1000.0),
+                    reportedFailures, error);
+        }
+    }
+}
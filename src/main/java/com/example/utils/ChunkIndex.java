@@ -0,0 +1,143 @@
+package com.example.utils;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongSupplier;
+
+// Fixed-size, off-heap set of 128-bit chunk fingerprints: a direct buffer of 24-byte slots (fingerprint and the time it
+// was last confirmed) grouped into sets of WAYS, so memory stays at capacity x 24 bytes however many chunks are seen.
+// When a set is full a new fingerprint replaces its oldest entry. An entry older than ttlMillis no longer counts as a
+// hit, so the chunk is confirmed with a HEAD again; a forgotten chunk costs that HEAD, never a wrong answer. An
+// all-zero slot is empty.
+public class ChunkIndex {
+    private static final int SLOT_BYTES = 24;
+    private static final int WAYS = 8;
+
+    private final ByteBuffer table;
+    private final int sets;
+    private final int capacity;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    // guarded by this
+    private int entries;
+
+    private final Meter hits;
+    private final Meter misses;
+    private final Meter expired;
+    private final Meter evictions;
+    private final Meter removals;
+
+    public ChunkIndex(int maxEntries, long ttlMillis, MetricRegistry metricRegistry) {
+        this(maxEntries, ttlMillis, metricRegistry, System::currentTimeMillis);
+    }
+
+    ChunkIndex(int maxEntries, long ttlMillis, MetricRegistry metricRegistry, LongSupplier clock) {
+        this.capacity = Math.max(WAYS, Integer.highestOneBit(maxEntries - 1) << 1);
+        this.sets = capacity / WAYS;
+        this.table = ByteBuffer.allocateDirect(capacity * SLOT_BYTES);
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.hits = metricRegistry.meter(MetricRegistry.name(ChunkIndex.class, "hits"));
+        this.misses = metricRegistry.meter(MetricRegistry.name(ChunkIndex.class, "misses"));
+        this.expired = metricRegistry.meter(MetricRegistry.name(ChunkIndex.class, "expired"));
+        this.evictions = metricRegistry.meter(MetricRegistry.name(ChunkIndex.class, "evictions"));
+        this.removals = metricRegistry.meter(MetricRegistry.name(ChunkIndex.class, "removals"));
+        metricRegistry.register(MetricRegistry.name(ChunkIndex.class, "entries"), (Gauge<Integer>) this::size);
+        metricRegistry.register(MetricRegistry.name(ChunkIndex.class, "capacity"), (Gauge<Integer>) () -> capacity);
+    }
+
+    // True for a fingerprint added or refreshed within the last ttlMillis
+    public synchronized boolean contains(long high, long low) {
+        int offset = find(high, nonZero(low));
+        if (offset < 0) {
+            misses.mark();
+            return false;
+        }
+        if (clock.getAsLong() - table.getLong(offset + 16) > ttlMillis) {
+            expired.mark();
+            return false;
+        }
+        hits.mark();
+        return true;
+    }
+
+    // Adds the fingerprint, or restarts the TTL of one already present
+    public synchronized void add(long high, long low) {
+        low = nonZero(low);
+        long now = clock.getAsLong();
+        int existing = find(high, low);
+        if (existing >= 0) {
+            table.putLong(existing + 16, now);
+            return;
+        }
+        int set = firstSlot(high);
+        int victim = -1;
+        long oldest = Long.MAX_VALUE;
+        for (int way = 0; way < WAYS; way++) {
+            int offset = (set + way) * SLOT_BYTES;
+            if (table.getLong(offset) == 0 && table.getLong(offset + 8) == 0) {
+                victim = offset;
+                oldest = Long.MIN_VALUE;
+                break;
+            }
+            long addedAt = table.getLong(offset + 16);
+            if (addedAt < oldest) {
+                oldest = addedAt;
+                victim = offset;
+            }
+        }
+        if (oldest == Long.MIN_VALUE) {
+            entries++;
+        } else {
+            evictions.mark();
+        }
+        table.putLong(victim, high);
+        table.putLong(victim + 8, low);
+        table.putLong(victim + 16, now);
+    }
+
+    // Forgets a fingerprint, e.g. once its chunk turned out to be gone
+    public synchronized void remove(long high, long low) {
+        int offset = find(high, nonZero(low));
+        if (offset >= 0) {
+            table.putLong(offset, 0);
+            table.putLong(offset + 8, 0);
+            table.putLong(offset + 16, 0);
+            entries--;
+            removals.mark();
+        }
+    }
+
+    public synchronized int size() {
+        return entries;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Byte offset of the fingerprint's slot, -1 if absent; low is already nonZero
+    private int find(long high, long low) {
+        int set = firstSlot(high);
+        for (int way = 0; way < WAYS; way++) {
+            int offset = (set + way) * SLOT_BYTES;
+            if (table.getLong(offset) == high && table.getLong(offset + 8) == low) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private int firstSlot(long high) {
+        return (int) (high & (sets - 1)) * WAYS;
+    }
+
+    // keeps a real fingerprint from looking like an empty slot
+    private static long nonZero(long low) {
+        return low | 1L;
+    }
+}
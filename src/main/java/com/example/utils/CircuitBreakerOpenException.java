@@ -0,0 +1,8 @@
+package com.example.utils;
+
+// Thrown instead of calling Object Storage while the region's circuit breaker is open
+public class CircuitBreakerOpenException extends RuntimeException {
+    public CircuitBreakerOpenException(String region) {
+        super("Circuit breaker for region " + region + " is open, request rejected");
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.utils;
+
+import lombok.Getter;
+
+// Thrown when a multipart upload was committed but the object it produced failed (or could not be put through) the
+// size / multipart MD5 check. There is no upload left to abort or resume; deleted says whether the object was removed
+@Getter
+public class CommittedUploadException extends RuntimeException {
+    private final String objectName;
+    private final boolean deleted;
+
+    public CommittedUploadException(String objectName, boolean deleted, String message) {
+        super(message);
+        this.objectName = objectName;
+        this.deleted = deleted;
+    }
+}
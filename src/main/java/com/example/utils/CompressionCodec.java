@@ -0,0 +1,99 @@
+package com.example.utils;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Codecs of compressed objects. The codec is stored in the object's user metadata (opc-meta-compression), so downloads
+// and copies know how the stored bytes were written; objects without it are stored uncompressed.
+public enum CompressionCodec {
+    NONE("none"),
+    GZIP("gzip"),
+    ZSTD("zstd");
+
+    // opc-meta-* keys written with every compressed object
+    public static final String METADATA_KEY = "compression";
+    public static final String UNCOMPRESSED_SIZE_KEY = "uncompressed-size";
+
+    private final String label;
+
+    CompressionCodec(String label) {
+        this.label = label;
+    }
+
+    // Also the Content-Encoding of the compressed bytes
+    public String getLabel() {
+        return label;
+    }
+
+    // null or empty means NONE; throws IllegalArgumentException for an unknown codec
+    public static CompressionCodec fromLabel(String label) {
+        if (label == null || label.isEmpty()) {
+            return NONE;
+        }
+        for (CompressionCodec codec : values()) {
+            if (codec.label.equalsIgnoreCase(label.trim())) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown compression " + label + ", expected gzip, zstd or none");
+    }
+
+    // Codec an object was stored with, from its opcMeta
+    public static CompressionCodec of(Map<String, String> metadata) {
+        if (metadata == null) {
+            return NONE;
+        }
+        try {
+            return fromLabel(metadata.get(METADATA_KEY));
+        } catch (IllegalArgumentException e) {
+            return NONE;
+        }
+    }
+
+    // Uncompressed size recorded with a compressed object, or -1
+    public static long uncompressedSize(Map<String, String> metadata) {
+        String value = metadata != null ? metadata.get(UNCOMPRESSED_SIZE_KEY) : null;
+        if (value == null) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    OutputStream compressor(OutputStream out, int level) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(out, 64 * 1024) {
+                    {
+                        def.setLevel(Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, level)));
+                    }
+                };
+            case ZSTD:
+                return new ZstdOutputStream(out, level);
+            default:
+                return out;
+        }
+    }
+
+    InputStream decompressor(InputStream in) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(in, 64 * 1024);
+            case ZSTD:
+                return new ZstdInputStream(in);
+            default:
+                return in;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+// Splits a stream into chunks whose boundaries depend on the content (FastCDC: a Gear rolling hash with normalized
+// chunking), so an insertion or deletion only changes the chunks around it and the rest of a near-identical file
+// produces the same chunks again. Chunks are between minBytes and maxBytes long, averageBytes on average.
+public class ContentDefinedChunker {
+    // Fixed seed: boundaries must not change between runs or every chunk stored so far would stop matching
+    private static final long[] GEAR = new SplittableRandom(0x6f63692d64656475L).longs(256).toArray();
+
+    private final InputStream in;
+    private final int minBytes;
+    private final int averageBytes;
+    private final int maxBytes;
+    // more bits must be zero before the average size, fewer after, which narrows the spread of chunk sizes
+    private final long maskSmall;
+    private final long maskLarge;
+    // unconsumed bytes are window[start, end)
+    private final byte[] window;
+    private int start;
+    private int end;
+    private boolean eof;
+
+    public ContentDefinedChunker(InputStream in, int minBytes, int averageBytes, int maxBytes) {
+        this.in = in;
+        this.averageBytes = Integer.highestOneBit(averageBytes);
+        this.minBytes = Math.min(minBytes, this.averageBytes);
+        this.maxBytes = Math.max(maxBytes, this.averageBytes);
+        int bits = Integer.numberOfTrailingZeros(this.averageBytes);
+        // the top bits of a Gear hash depend on the last 64 bytes, its low bits only on the last few
+        this.maskSmall = -1L << (64 - (bits + 1));
+        this.maskLarge = -1L << (64 - (bits - 1));
+        this.window = new byte[2 * this.maxBytes];
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    // Copies the next chunk into target (cleared first, at least maxBytes of capacity) and flips it; returns the chunk
+    // length, 0 at the end of the stream
+    public int next(ByteBuffer target) throws IOException {
+        fill();
+        int available = end - start;
+        if (available == 0) {
+            return 0;
+        }
+        int length = cutPoint(window, start, available);
+        target.clear();
+        target.put(window, start, length);
+        target.flip();
+        start += length;
+        return length;
+    }
+
+    // Reads until maxBytes are buffered or the stream ends, moving the unconsumed bytes to the front when needed
+    private void fill() throws IOException {
+        if (eof || end - start >= maxBytes) {
+            return;
+        }
+        if (window.length - start < maxBytes) {
+            System.arraycopy(window, start, window, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        while (end - start < maxBytes) {
+            int n = in.read(window, end, window.length - end);
+            if (n == -1) {
+                eof = true;
+                return;
+            }
+            end += n;
+        }
+    }
+
+    // Length of the chunk starting at offset; bytes before minBytes are skipped without hashing
+    private int cutPoint(byte[] data, int offset, int length) {
+        if (length <= minBytes) {
+            return length;
+        }
+        int limit = Math.min(length, maxBytes);
+        int normal = Math.min(limit, averageBytes);
+        long hash = 0;
+        int i = minBytes;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[data[offset + i] & 0xff];
+            if ((hash & maskSmall) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < limit; i++) {
+            hash = (hash << 1) + GEAR[data[offset + i] & 0xff];
+            if ((hash & maskLarge) == 0) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,380 @@
+package com.example.utils;
+
+import com.example.config.TransferConfiguration;
+import com.example.resources.CrossRegionCopyResult;
+import com.example.resources.MultipartUploadResult;
+import com.oracle.bmc.model.Range;
+import com.oracle.bmc.objectstorage.model.CommitMultipartUploadPartDetails;
+import com.oracle.bmc.objectstorage.responses.GetObjectResponse;
+import com.oracle.bmc.objectstorage.responses.HeadObjectResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Copies objects between regions inside the process: source byte ranges are fetched in parallel
+// and each range is uploaded as a destination part as soon as it has arrived, so download and upload overlap.
+public class CrossRegionCopier {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CrossRegionCopier.class);
+
+    private final ObjectStorageUtils source;
+    private final ObjectStorageUtils destination;
+    private final TransferConfiguration transferConfiguration;
+    private final PartBufferPool partBufferPool;
+    private final ExecutorService copyExecutorService;
+    private final MultipartJournalStore journalStore;
+
+    public CrossRegionCopier(ObjectStorageUtils source, ObjectStorageUtils destination, TransferConfiguration transferConfiguration,
+                             PartBufferPool partBufferPool, MultipartJournalStore journalStore) {
+        this.source = source;
+        this.destination = destination;
+        this.transferConfiguration = transferConfiguration;
+        this.partBufferPool = partBufferPool;
+        this.journalStore = journalStore;
+        this.copyExecutorService = TransferExecutors.newTransferExecutor("cross-region-copy", transferConfiguration.getCrossRegionCopyThreads(), transferConfiguration);
+    }
+
+    // Stops taking parts; the ones already queued still run
+    public void shutdown() {
+        copyExecutorService.shutdown();
+    }
+
+    // Waits up to timeoutSeconds for the parts left after shutdown(); false if some are still running
+    public boolean awaitTermination(long timeoutSeconds) throws InterruptedException {
+        return copyExecutorService.awaitTermination(timeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    // Part-buffer bytes one copy of an object of this size holds at most (size null: unknown), for transfer scheduler
+    // admission: nothing beyond the stream for a single put, otherwise as many ranges of the part size copy() picks as
+    // can be in flight: crossRegionConcurrency, or in adaptive mode the most the session can grow to
+    public long estimatedBytes(Long size, boolean adaptive) {
+        if (isSinglePut(size, adaptive)) {
+            return Math.max(1L, size);
+        }
+        if (!adaptive) {
+            return (long) transferConfiguration.getCrossRegionConcurrency() * transferConfiguration.getCrossRegionPartSize();
+        }
+        AdaptiveTransferController controller = destination.getAdaptiveTransferController();
+        long partSize = size != null ? partSize(size, true) : Math.max(controller.getMaxPartSize(), transferConfiguration.getCrossRegionPartSize());
+        return controller.maxConcurrency(copyCapacity()) * partSize;
+    }
+
+    // Whether copy() sends an object of this size as one put
+    public boolean isSinglePut(Long size, boolean adaptive) {
+        return size != null && size <= partSize(size, adaptive);
+    }
+
+    private long partSize(long size, boolean adaptive) {
+        return adaptive
+                ? destination.getAdaptiveTransferController().choosePartSize(size, transferConfiguration.getCrossRegionPartSize())
+                : transferConfiguration.getCrossRegionPartSize();
+    }
+
+    // Parts the copy executor runs at once
+    private int copyCapacity() {
+        return TransferExecutors.transferCapacity(transferConfiguration.getCrossRegionCopyThreads(), transferConfiguration);
+    }
+
+    // Returns null when the source object does not exist. A resumable copy keeps a part journal so that a retry
+    // (or a restart of the service) only copies the parts that are missing, as long as the source is unchanged.
+    // In adaptive mode part size follows the object size and part concurrency is tuned for the destination region.
+    public CrossRegionCopyResult copy(String sourceBucket, String sourceObject, String destBucket, String destObject, boolean resumable,
+                                      boolean adaptive) throws Exception {
+        return copy(sourceBucket, sourceObject, destBucket, destObject, resumable, adaptive, TransferProgress.NONE);
+    }
+
+    // Reports copied parts to progress and stops starting new ranges once it is cancelled
+    public CrossRegionCopyResult copy(String sourceBucket, String sourceObject, String destBucket, String destObject, boolean resumable,
+                                      boolean adaptive, TransferProgress progress) throws Exception {
+        return copy(sourceBucket, sourceObject, destBucket, destObject, resumable, adaptive, CompressionCodec.NONE, progress);
+    }
+
+    // The object's user metadata is copied with it, so an object stored compressed crosses over as it is. With a codec an
+    // uncompressed object is compressed on the way (see compressedCopy)
+    public CrossRegionCopyResult copy(String sourceBucket, String sourceObject, String destBucket, String destObject, boolean resumable,
+                                      boolean adaptive, CompressionCodec codec, TransferProgress progress) throws Exception {
+        progress.phase("head_source");
+        HeadObjectResponse head = source.headObject(sourceBucket, sourceObject);
+        if (head == null || head.getContentLength() == null) {
+            return null;
+        }
+        if (source != destination && Deduplication.isManifest(head.getOpcMeta())) {
+            // its chunks stay behind in the source region
+            throw new IllegalStateException(sourceObject + " is a deduplicated manifest and cannot be copied to another region");
+        }
+        long size = head.getContentLength();
+        long partSize = partSize(size, adaptive);
+        long startTime = System.currentTimeMillis();
+        if (codec != CompressionCodec.NONE && CompressionCodec.of(head.getOpcMeta()) == CompressionCodec.NONE) {
+            return compressedCopy(sourceBucket, sourceObject, destBucket, destObject, head, partSize, adaptive, codec, progress, startTime);
+        }
+        progress.started(size, (int) Math.max(1, (size + partSize - 1) / partSize));
+        Map<String, String> metadata = head.getOpcMeta() == null || head.getOpcMeta().isEmpty() ? null : head.getOpcMeta();
+
+        boolean success;
+        int parts;
+        if (size <= partSize) {
+            progress.phase("put_object");
+            GetObjectResponse response = source.getObject(sourceBucket, sourceObject, null, null, head.getETag());
+            // one transfer limit for the copy, charged for the GET and again for the put, as in copyParts
+            BandwidthThrottle.Transfer throttle = source.getBandwidthThrottle().newTransfer();
+            try (InputStream in = new ThrottledInputStream(response.getInputStream(), throttle, source.regionLabel())) {
+                success = destination.uploadToObjectStorage(in, destBucket, destObject, head.getOpcMultipartMd5() == null ? head.getContentMd5() : null,
+                        metadata, throttle);
+            }
+            parts = 1;
+            if (success) {
+                progress.transferred(size);
+                progress.partCompleted();
+            }
+        } else {
+            progress.phase("initiate");
+            MultipartUploadJournal journal = null;
+            String uploadId;
+            if (resumable) {
+                String transferKey = "copy:" + source.getRegionId() + "/" + sourceBucket + "/" + sourceObject + "@" + head.getETag()
+                        + "->" + destination.getRegionId() + "/" + destBucket + "/" + destObject;
+                journal = destination.resumeOrInitiateMultipartUpload(journalStore, transferKey, destBucket, destObject, partSize, size, metadata);
+                uploadId = journal != null ? journal.getUploadId() : null;
+            } else {
+                uploadId = destination.initiateMultipartUpload(destBucket, destObject, metadata);
+            }
+            if (uploadId == null) {
+                throw new IllegalStateException("Failed to initiate multipart upload in destination region");
+            }
+            MultipartUploadResult uploadResult;
+            try {
+                uploadResult = copyParts(sourceBucket, sourceObject, head.getETag(), destBucket, destObject, uploadId, size, partSize, journal, adaptive, progress);
+            } catch (Exception e) {
+                if (journal != null) {
+                    // keep the upload for the next attempt, but let it take the transfer key
+                    journal.close();
+                }
+                throw e;
+            }
+            try {
+                success = uploadResult.isSuccess() && destination.completeMultipartUpload(destBucket, destObject, uploadId, uploadResult.getParts(), size,
+                        uploadResult.getMultipartMd5(), progress);
+            } catch (CommittedUploadException e) {
+                // committed, so there is no upload left to abort or resume
+                if (journal != null) {
+                    journal.delete();
+                }
+                throw e;
+            }
+            if (journal != null && !uploadResult.isSuccess()) {
+                // keep the upload and its journal for the next attempt
+                journal.close();
+            } else {
+                if (journal != null) {
+                    journal.delete();
+                }
+                if (!success) {
+                    progress.phase("abort");
+                    destination.abortMultipartUpload(destBucket, destObject, uploadId);
+                }
+            }
+            parts = uploadResult.getParts().size();
+        }
+
+        return result(sourceBucket, sourceObject, destBucket, destObject, success, size, parts, startTime);
+    }
+
+    // Streams the whole source object through the codec and uploads the compressed stream as parts cut while it is read,
+    // so only compressed bytes cross to the destination region. One sequential GET instead of parallel ranges, and not
+    // resumable; small objects go as a single compressed put. The source's MD5 (single-put objects) is checked against the
+    // uncompressed bytes
+    private CrossRegionCopyResult compressedCopy(String sourceBucket, String sourceObject, String destBucket, String destObject, HeadObjectResponse head,
+                                                 long partSize, boolean adaptive, CompressionCodec codec, TransferProgress progress, long startTime)
+            throws Exception {
+        long size = head.getContentLength();
+        String sourceMd5 = head.getOpcMultipartMd5() == null ? head.getContentMd5() : null;
+        GetObjectResponse response = source.getObject(sourceBucket, sourceObject, null, null, head.getETag());
+        boolean success;
+        int parts;
+        BandwidthThrottle.Transfer throttle = source.getBandwidthThrottle().newTransfer();
+        try (InputStream in = new ThrottledInputStream(response.getInputStream(), throttle, source.regionLabel())) {
+            if (size <= partSize) {
+                progress.phase("put_object");
+                success = destination.uploadToObjectStorage(in, destBucket, destObject, sourceMd5, codec, size, throttle);
+                parts = 1;
+                if (success) {
+                    progress.transferred(size);
+                    progress.partCompleted();
+                }
+            } else {
+                progress.phase("initiate");
+                String uploadId = destination.initiateMultipartUpload(destBucket, destObject, StreamCompression.metadata(head.getOpcMeta(), codec, size));
+                if (uploadId == null) {
+                    throw new IllegalStateException("Failed to initiate multipart upload in destination region");
+                }
+                try (StreamCompression.CompressingInputStream compressed = destination.getCompression().compress(in, codec)) {
+                    MultipartUploadResult uploadResult = destination.uploadParts(compressed, destBucket, destObject, uploadId, -1L, partSize, null, adaptive, progress,
+                            throttle);
+                    String rawMd5 = uploadResult.isSuccess() ? compressed.getRawMd5() : null;
+                    // a CommittedUploadException from the commit leaves nothing to abort, so it is not caught here
+                    success = uploadResult.isSuccess() && compressed.getRawBytes() == size && (sourceMd5 == null || sourceMd5.equals(rawMd5))
+                            && destination.completeMultipartUpload(destBucket, destObject, uploadId, uploadResult.getParts(), compressed.getCompressedBytes(),
+                            uploadResult.getMultipartMd5(), progress);
+                    if (!success) {
+                        progress.phase("abort");
+                        destination.abortMultipartUpload(destBucket, destObject, uploadId);
+                    }
+                    parts = uploadResult.getParts().size();
+                    LOGGER.info("Compressed {}/{} with {}: {} -> {} bytes", sourceBucket, sourceObject, codec.getLabel(), compressed.getRawBytes(),
+                            compressed.getCompressedBytes());
+                }
+            }
+        }
+        return result(sourceBucket, sourceObject, destBucket, destObject, success, size, parts, startTime);
+    }
+
+    private static CrossRegionCopyResult result(String sourceBucket, String sourceObject, String destBucket, String destObject, boolean success,
+                                                long size, int parts, long startTime) {
+        long timeTaken = Math.max(1, System.currentTimeMillis() - startTime);
+        double megabytesPerSecond = (size / (1024.0 * 1024.0)) / (timeTaken / 1000.0);
+        LOGGER.info("Cross-region copy {}/{} -> {}/{} success: {}, bytes: {}, parts: {}, timeTaken (milli): {}, throughput (MB/s): {}",
+                sourceBucket, sourceObject, destBucket, destObject, success, size, parts, timeTaken, String.format("%.2f", megabytesPerSecond));
+        return new CrossRegionCopyResult(success, sourceBucket + "/" + sourceObject, destBucket + "/" + destObject,
+                size, parts, timeTaken, megabytesPerSecond);
+    }
+
+    private MultipartUploadResult copyParts(String sourceBucket, String sourceObject, String sourceETag, String destBucket, String destObject,
+                                            String uploadId, long size, long partSize, MultipartUploadJournal journal, boolean adaptive,
+                                            TransferProgress progress) {
+        InFlightLimiter limiter = new InFlightLimiter(transferConfiguration.getCrossRegionConcurrency(), Long.MAX_VALUE);
+        AdaptiveTransferController.Session adaptiveSession = adaptive
+                ? destination.getAdaptiveTransferController().startSession(destination.regionLabel(), limiter, copyCapacity()) : null;
+        ConcurrentSkipListMap<Integer, CommitMultipartUploadPartDetails> committedParts = new ConcurrentSkipListMap<>();
+        ConcurrentSkipListMap<Integer, String> partMd5s = new ConcurrentSkipListMap<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        // one set of limits for the whole copy, charged for the source GETs and the destination part uploads
+        BandwidthThrottle.Transfer throttle = source.getBandwidthThrottle().newTransfer();
+        if (journal != null) {
+            journal.getCommittedParts().forEach((partNum, etag) -> committedParts.put(partNum, CommitMultipartUploadPartDetails.builder()
+                    .partNum(partNum)
+                    .etag(etag)
+                    .build()));
+            partMd5s.putAll(journal.getPartMd5s());
+        }
+        progress.phase("copy_parts");
+        try {
+            int partNumber = 1;
+            for (long offset = 0; offset < size && failure.get() == null; offset += partSize) {
+                long start = offset;
+                int partLength = (int) Math.min(partSize, size - offset);
+                int localPartNumber = partNumber++;
+                if (committedParts.containsKey(localPartNumber)) {
+                    progress.transferred(partLength);
+                    progress.partCompleted();
+                    continue;
+                }
+                if (progress.isCancelled()) {
+                    failure.compareAndSet(null, new CancellationException("Copy of " + sourceObject + " cancelled"));
+                    break;
+                }
+                limiter.acquire(partLength);
+                try {
+                    copyExecutorService.execute(() -> {
+                        ByteBuffer buffer = null;
+                        // the source range GET is the part's read, the destination part upload its upload
+                        TransferTimeline.Part timing = new TransferTimeline.Part(localPartNumber, partLength);
+                        try {
+                            if (failure.get() != null) {
+                                return;
+                            }
+                            long partStart = System.nanoTime();
+                            timing.readStarted();
+                            // each (hedged) attempt fills its own buffer; the loser's buffer goes straight back to the pool
+                            buffer = source.getResilience().callHedged("getObject range", partLength,
+                                    cancelled -> fetchRange(sourceBucket, sourceObject, sourceETag, start, partLength, (int) partSize, throttle, cancelled),
+                                    partBufferPool::release);
+                            timing.readFinished();
+                            timing.uploadStarted();
+                            String partMd5 = ObjectStorageUtils.md5Of(buffer);
+                            CommitMultipartUploadPartDetails part = destination.uploadPart(destBucket, destObject, uploadId, localPartNumber, buffer, partMd5, throttle, timing);
+                            timing.uploadFinished(true);
+                            progress.partFinished(timing);
+                            if (adaptiveSession != null) {
+                                adaptiveSession.onPartComplete(partLength, System.nanoTime() - partStart, true);
+                            }
+                            if (journal != null) {
+                                journal.recordPart(localPartNumber, part.getEtag(), partMd5);
+                            }
+                            partMd5s.put(localPartNumber, partMd5);
+                            committedParts.put(localPartNumber, part);
+                            progress.transferred(partLength);
+                            progress.partCompleted();
+                        } catch (Exception e) {
+                            LOGGER.error("Error copying part {} of {}/{}: {}", localPartNumber, sourceBucket, sourceObject, e.getMessage(), e);
+                            timing.uploadFinished(false);
+                            progress.partFinished(timing);
+                            if (adaptiveSession != null) {
+                                adaptiveSession.onPartComplete(partLength, 0, false);
+                            }
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            partBufferPool.release(buffer);
+                            limiter.release(partLength);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    limiter.release(partLength);
+                    throw e;
+                }
+            }
+            limiter.awaitIdle();
+        } catch (Exception e) {
+            failure.compareAndSet(null, e);
+            try {
+                limiter.awaitIdle();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return new MultipartUploadResult(failure.get() == null, new ArrayList<>(committedParts.values()),
+                ObjectStorageUtils.multipartMd5(committedParts.keySet(), partMd5s));
+    }
+
+    // Returns a leased buffer holding partLength source bytes starting at offset, flipped for reading
+    // sourceETag is sent as If-Match so every range comes from the version the copy started with
+    private ByteBuffer fetchRange(String bucketName, String objectName, String sourceETag, long offset, int partLength, int partSize,
+                                  BandwidthThrottle.Transfer throttle, AtomicBoolean cancelled) throws IOException {
+        long end = offset + partLength - 1;
+        ByteBuffer buffer = partBufferPool.lease(partSize);
+        buffer.limit(partLength);
+        try {
+            GetObjectResponse response = source.getObjectOnce(bucketName, objectName, new Range(offset, end), sourceETag);
+            try (InputStream in = new ThrottledInputStream(response.getInputStream(), throttle, source.regionLabel());
+                 ReadableByteChannel channel = Channels.newChannel(in)) {
+                int read = 0;
+                while (buffer.hasRemaining() && !cancelled.get()) {
+                    int bytesRead = channel.read(buffer);
+                    if (bytesRead == -1) break;
+                    read += bytesRead;
+                }
+                if (read != partLength && !cancelled.get()) {
+                    throw new IOException("Range " + offset + "-" + end + " returned " + read + " bytes, expected " + partLength);
+                }
+            }
+            buffer.flip();
+            return buffer;
+        } catch (IOException | RuntimeException e) {
+            partBufferPool.release(buffer);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Body of a deduplicated object: which chunk objects, in order, make up its content.
+// Line 1 is the header (version, size, Base64 MD5 of the content, chunk bucket, chunk prefix); every chunk adds a
+// "chunk <sha-256 hex> <length>" line. The chunk bucket is explicit so a copy of the manifest within the region still
+// resolves its chunks.
+public class DedupManifest {
+    private static final String HEADER = "dedup";
+    private static final String CHUNK = "chunk";
+    private static final int VERSION = 1;
+
+    private final long size;
+    private final String md5;
+    private final String chunkBucket;
+    private final String chunkPrefix;
+    private final List<Chunk> chunks;
+
+    public DedupManifest(long size, String md5, String chunkBucket, String chunkPrefix, List<Chunk> chunks) {
+        this.size = size;
+        this.md5 = md5;
+        this.chunkBucket = chunkBucket;
+        this.chunkPrefix = chunkPrefix;
+        this.chunks = Collections.unmodifiableList(new ArrayList<>(chunks));
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getMd5() {
+        return md5;
+    }
+
+    public String getChunkBucket() {
+        return chunkBucket;
+    }
+
+    public List<Chunk> getChunks() {
+        return chunks;
+    }
+
+    public String chunkObjectName(Chunk chunk) {
+        return chunkObjectName(chunkPrefix, chunk.getSha256());
+    }
+
+    static String chunkObjectName(String chunkPrefix, String sha256) {
+        return chunkPrefix + sha256;
+    }
+
+    public byte[] toBytes() {
+        StringBuilder text = new StringBuilder(64 + chunks.size() * 80);
+        text.append(String.join(" ", HEADER, Integer.toString(VERSION), Long.toString(size), encode(md5), encode(chunkBucket), encode(chunkPrefix)))
+                .append('\n');
+        for (Chunk chunk : chunks) {
+            text.append(CHUNK).append(' ').append(chunk.getSha256()).append(' ').append(chunk.getLength()).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Reads (and closes) a manifest body; throws IOException if it is not one or its chunks do not add up to its size
+    public static DedupManifest parse(InputStream body) throws IOException {
+        String content;
+        try (InputStream in = body) {
+            content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] lines = content.split("\n");
+        String[] header = lines[0].split(" ", -1);
+        if (header.length != 6 || !HEADER.equals(header[0]) || !Integer.toString(VERSION).equals(header[1])) {
+            throw new IOException("Not a dedup manifest");
+        }
+        try {
+            List<Chunk> chunks = new ArrayList<>(lines.length - 1);
+            long total = 0;
+            for (int i = 1; i < lines.length; i++) {
+                String[] fields = lines[i].split(" ");
+                if (fields.length != 3 || !CHUNK.equals(fields[0])) {
+                    throw new IOException("Malformed dedup manifest line " + (i + 1));
+                }
+                Chunk chunk = new Chunk(fields[1], Integer.parseInt(fields[2]));
+                chunks.add(chunk);
+                total += chunk.getLength();
+            }
+            long size = Long.parseLong(header[2]);
+            if (total != size) {
+                throw new IOException("Dedup manifest chunks add up to " + total + " bytes, expected " + size);
+            }
+            String md5 = decode(header[3]);
+            return new DedupManifest(size, md5.isEmpty() ? null : md5, decode(header[4]), decode(header[5]), chunks);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed dedup manifest: " + e.getMessage(), e);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value == null ? "" : value, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    public static final class Chunk {
+        private final String sha256;
+        private final int length;
+
+        public Chunk(String sha256, int length) {
+            this.sha256 = sha256;
+            this.length = length;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.example.utils;
+
+import com.example.config.TransferConfiguration;
+import com.example.resources.DedupUploadResult;
+import com.oracle.bmc.model.BmcException;
+import com.oracle.bmc.objectstorage.responses.GetObjectResponse;
+import com.oracle.bmc.objectstorage.responses.HeadObjectResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Deduplicated uploads and downloads of one region. An upload is cut into content-defined chunks; a chunk is sent as
+// its own object only if neither the ChunkIndex nor a HEAD finds it stored already, and the object itself becomes a
+// small DedupManifest. Downloads fetch the manifest's chunks in parallel, verify each against its SHA-256 and write
+// them at their offsets (to a file) or hand them out in order (to a stream).
+public class DedupTransfer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DedupTransfer.class);
+
+    private final ObjectStorageUtils objectStorageUtils;
+    private final TransferConfiguration transferConfiguration;
+    private final PartBufferPool partBufferPool;
+    private final Deduplication deduplication;
+    // chunk uploads share the region's part upload threads
+    private final ExecutorService uploadExecutorService;
+    private final ExecutorService downloadExecutorService;
+
+    public DedupTransfer(ObjectStorageUtils objectStorageUtils, TransferConfiguration transferConfiguration, PartBufferPool partBufferPool,
+                         Deduplication deduplication, ExecutorService uploadExecutorService) {
+        this.objectStorageUtils = objectStorageUtils;
+        this.transferConfiguration = transferConfiguration;
+        this.partBufferPool = partBufferPool;
+        this.deduplication = deduplication;
+        this.uploadExecutorService = uploadExecutorService;
+        this.downloadExecutorService = TransferExecutors.newTransferExecutor("dedup-download-" + objectStorageUtils.regionLabel(),
+                transferConfiguration.getDownloadThreads(), transferConfiguration);
+    }
+
+    public void shutdown() {
+        downloadExecutorService.shutdown();
+    }
+
+    // Uploads the stream as chunks plus a manifest named objectName. expectedSize (if not negative) and srcMd5 (if given)
+    // are checked against what was read before the manifest is written, so a short or corrupt body leaves no object
+    // behind (only chunks, which later uploads can reuse)
+    public DedupUploadResult upload(InputStream in, String bucketName, String objectName, String srcMd5, long expectedSize, TransferProgress progress) {
+        long startTime = System.currentTimeMillis();
+        String scope = scopeOf(bucketName);
+        String chunkPrefix = deduplication.getChunkPrefix();
+        ContentDefinedChunker chunker = deduplication.chunker(in);
+        int chunkCapacity = chunker.getMaxBytes();
+        InFlightLimiter limiter = new InFlightLimiter(transferConfiguration.getMaxInFlightParts(), transferConfiguration.getMaxInFlightBytes());
+        BandwidthThrottle.Transfer throttle = objectStorageUtils.getBandwidthThrottle().newTransfer();
+        ConcurrentSkipListMap<Integer, DedupManifest.Chunk> chunks = new ConcurrentSkipListMap<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        AtomicInteger newChunks = new AtomicInteger();
+        AtomicLong uploadedBytes = new AtomicLong();
+        AtomicLong savedBytes = new AtomicLong();
+        if (expectedSize >= 0) {
+            progress.started(expectedSize, (int) Math.max(1, (expectedSize + transferConfiguration.getDedup().getAverageChunkBytes() - 1)
+                    / transferConfiguration.getDedup().getAverageChunkBytes()));
+        }
+        progress.phase("upload_chunks");
+        try {
+            MessageDigest contentMd5 = MessageDigest.getInstance("MD5");
+            long bytesRead = 0;
+            int chunkNumber = 0;
+            while (failure.get() == null) {
+                if (progress.isCancelled()) {
+                    failure.compareAndSet(null, new CancellationException("Upload of " + objectName + " cancelled"));
+                    break;
+                }
+                // chunk lengths are only known once cut, so every chunk reserves the maximum
+                limiter.acquire(chunkCapacity);
+                ByteBuffer buffer = partBufferPool.lease(chunkCapacity);
+                int length;
+                try {
+                    length = chunker.next(buffer);
+                } catch (IOException e) {
+                    partBufferPool.release(buffer);
+                    limiter.release(chunkCapacity);
+                    throw e;
+                }
+                if (length == 0) {
+                    partBufferPool.release(buffer);
+                    limiter.release(chunkCapacity);
+                    break;
+                }
+                contentMd5.update(buffer.duplicate());
+                bytesRead += length;
+
+                int localChunkNumber = chunkNumber++;
+                try {
+                    uploadExecutorService.execute(() -> {
+                        TransferTimeline.Part timing = new TransferTimeline.Part(localChunkNumber + 1, length);
+                        try {
+                            if (failure.get() != null) {
+                                return;
+                            }
+                            timing.uploadStarted();
+                            String sha256 = Deduplication.sha256Of(buffer);
+                            String chunkObjectName = DedupManifest.chunkObjectName(chunkPrefix, sha256);
+                            boolean duplicate = deduplication.isStored(scope, chunkObjectName) || isStored(bucketName, chunkObjectName, length);
+                            if (!duplicate) {
+                                objectStorageUtils.putObject(bucketName, chunkObjectName, buffer, ObjectStorageUtils.md5Of(buffer), throttle, timing);
+                                newChunks.incrementAndGet();
+                                uploadedBytes.addAndGet(length);
+                            } else {
+                                savedBytes.addAndGet(length);
+                            }
+                            timing.uploadFinished(true);
+                            progress.partFinished(timing);
+                            deduplication.stored(scope, chunkObjectName);
+                            deduplication.chunk(length, duplicate);
+                            chunks.put(localChunkNumber, new DedupManifest.Chunk(sha256, length));
+                            progress.transferred(length);
+                            progress.partCompleted();
+                        } catch (Exception e) {
+                            LOGGER.error("Error uploading chunk {} of object: {}, error: {}", localChunkNumber, objectName, e.getMessage(), e);
+                            timing.uploadFinished(false);
+                            progress.partFinished(timing);
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            partBufferPool.release(buffer);
+                            limiter.release(chunkCapacity);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    partBufferPool.release(buffer);
+                    limiter.release(chunkCapacity);
+                    throw e;
+                }
+            }
+
+            limiter.awaitIdle();
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            if (expectedSize >= 0 && bytesRead != expectedSize) {
+                throw new IOException("Read " + bytesRead + " bytes, expected " + expectedSize);
+            }
+            String md5 = Base64.getEncoder().encodeToString(contentMd5.digest());
+            if (srcMd5 != null && !srcMd5.equals(md5)) {
+                throw new IOException("MD5 mismatch, expected: " + srcMd5 + ", actual: " + md5);
+            }
+
+            progress.phase("manifest");
+            DedupManifest manifest = new DedupManifest(bytesRead, md5, bucketName, chunkPrefix, new ArrayList<>(chunks.values()));
+            byte[] manifestBytes = manifest.toBytes();
+            boolean stored = objectStorageUtils.uploadToObjectStorage(new ByteArrayInputStream(manifestBytes), bucketName, objectName,
+                    ObjectStorageUtils.md5Of(ByteBuffer.wrap(manifestBytes)), Deduplication.metadata(bytesRead));
+
+            long timeTaken = System.currentTimeMillis() - startTime;
+            LOGGER.info("Deduplicated upload of {}: {} bytes in {} chunks, {} new ({} bytes sent, {} bytes saved), timeTaken (milli): {}",
+                    objectName, bytesRead, chunks.size(), newChunks.get(), uploadedBytes.get(), savedBytes.get(), timeTaken);
+            return new DedupUploadResult(stored, objectName, bytesRead, chunks.size(), newChunks.get(), uploadedBytes.get(), savedBytes.get(), timeTaken);
+        } catch (Exception e) {
+            LOGGER.error("Error in deduplicated upload of object: {}, error: {}", objectName, e.getMessage(), e);
+            failure.compareAndSet(null, e);
+            try {
+                limiter.awaitIdle();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            return new DedupUploadResult(false, objectName, 0, chunks.size(), newChunks.get(), uploadedBytes.get(), savedBytes.get(),
+                    System.currentTimeMillis() - startTime);
+        }
+    }
+
+    // Reads the manifest a deduplicated object consists of; eTag, if given, pins the manifest version (If-Match)
+    public DedupManifest manifest(String bucketName, String objectName, String eTag) throws IOException {
+        GetObjectResponse response = objectStorageUtils.getObject(bucketName, objectName, null, null, eTag);
+        return DedupManifest.parse(response.getInputStream());
+    }
+
+    // Reassembles the object into filePath, fetching up to downloadConcurrency chunks at once
+    public boolean download(String bucketName, String objectName, String eTag, String filePath) {
+        long startTime = System.currentTimeMillis();
+        Semaphore permits = new Semaphore(transferConfiguration.getDownloadConcurrency());
+        List<Future<Long>> futures = new ArrayList<>();
+        // the first failed chunk; no further chunks are started once it is set
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        BandwidthThrottle.Transfer throttle = objectStorageUtils.getBandwidthThrottle().newTransfer();
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "rw")) {
+            DedupManifest manifest = manifest(bucketName, objectName, eTag);
+            file.setLength(manifest.getSize());
+            FileChannel fileChannel = file.getChannel();
+            long offset = 0;
+            for (DedupManifest.Chunk chunk : manifest.getChunks()) {
+                long position = offset;
+                offset += chunk.getLength();
+                permits.acquire();
+                if (failure.get() != null) {
+                    permits.release();
+                    break;
+                }
+                try {
+                    futures.add(downloadExecutorService.submit(() -> {
+                        ByteBuffer buffer = null;
+                        try {
+                            buffer = fetchChunk(manifest, chunk, throttle);
+                            long written = 0;
+                            while (buffer.hasRemaining()) {
+                                written += fileChannel.write(buffer, position + written);
+                            }
+                            return written;
+                        } catch (Exception e) {
+                            failure.compareAndSet(null, e);
+                            throw e;
+                        } finally {
+                            partBufferPool.release(buffer);
+                            permits.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+            if (failure.get() != null) {
+                // the chunks still running are cancelled by failed()
+                throw failure.get();
+            }
+            long bytesWritten = 0;
+            for (Future<Long> future : futures) {
+                bytesWritten += future.get();
+            }
+            fileChannel.force(false);
+            if (bytesWritten != manifest.getSize()) {
+                LOGGER.error("Deduplicated download size mismatch for object: {}, expected: {}, written: {}", objectName, manifest.getSize(), bytesWritten);
+                return failed(filePath, futures);
+            }
+            LOGGER.info("Deduplicated download completed for object: {}, chunks: {}, timeTaken (milli): {}", objectName, futures.size(),
+                    System.currentTimeMillis() - startTime);
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("Error in deduplicated download of object: {}, error: {}", objectName, e.getMessage(), e);
+            return failed(filePath, futures);
+        }
+    }
+
+    // The object's content as a stream; chunks are fetched up to downloadConcurrency ahead of the reader
+    public InputStream open(DedupManifest manifest) {
+        return new ChunkStream(manifest, objectStorageUtils.getBandwidthThrottle().newTransfer());
+    }
+
+    // Index scope of the chunks stored in a bucket of this region and namespace
+    private String scopeOf(String bucketName) {
+        return objectStorageUtils.regionLabel() + "/" + objectStorageUtils.getNamespaceName() + "/" + bucketName;
+    }
+
+    // A chunk found by HEAD (e.g. stored before a restart emptied the index) is not uploaded again
+    private boolean isStored(String bucketName, String chunkObjectName, long length) {
+        HeadObjectResponse head = objectStorageUtils.headObject(bucketName, chunkObjectName);
+        return head != null && head.getContentLength() != null && head.getContentLength() == length;
+    }
+
+    // GETs one chunk into a leased buffer (flipped, owned by the caller) and checks it against its SHA-256
+    private ByteBuffer fetchChunk(DedupManifest manifest, DedupManifest.Chunk chunk, BandwidthThrottle.Transfer throttle) throws Exception {
+        String chunkObjectName = manifest.chunkObjectName(chunk);
+        return objectStorageUtils.getResilience().callHedged("getObject chunk", chunk.getLength(), cancelled -> {
+            GetObjectResponse response;
+            try {
+                response = objectStorageUtils.getObjectOnce(manifest.getChunkBucket(), chunkObjectName, null, null);
+            } catch (BmcException e) {
+                if (e.getStatusCode() == 404) {
+                    // deleted behind our back: stop skipping it on upload
+                    LOGGER.error("Chunk {} of a manifest in bucket {} is missing", chunkObjectName, manifest.getChunkBucket());
+                    deduplication.forget(scopeOf(manifest.getChunkBucket()), chunkObjectName);
+                }
+                throw e;
+            }
+            ByteBuffer buffer = partBufferPool.lease(chunk.getLength());
+            try (InputStream in = new ThrottledInputStream(response.getInputStream(), throttle, objectStorageUtils.regionLabel());
+                 ReadableByteChannel channel = Channels.newChannel(in)) {
+                int bytesRead = ObjectStorageUtils.readFully(channel, buffer);
+                if (bytesRead != chunk.getLength() || channel.read(ByteBuffer.allocate(1)) != -1) {
+                    throw new IOException("Chunk " + chunkObjectName + " is not " + chunk.getLength() + " bytes long");
+                }
+                buffer.flip();
+                if (!chunk.getSha256().equals(Deduplication.sha256Of(buffer))) {
+                    throw new IOException("Chunk " + chunkObjectName + " does not match its SHA-256");
+                }
+                return buffer;
+            } catch (Exception e) {
+                partBufferPool.release(buffer);
+                throw e;
+            }
+        }, partBufferPool::release);
+    }
+
+    private boolean failed(String filePath, List<Future<Long>> futures) {
+        futures.forEach(future -> future.cancel(true));
+        if (!new File(filePath).delete()) {
+            LOGGER.warn("Could not delete partial download {}", filePath);
+        }
+        return false;
+    }
+
+    // Reads the chunks in order while the next ones are fetched in the background
+    private final class ChunkStream extends InputStream {
+        private final DedupManifest manifest;
+        private final BandwidthThrottle.Transfer throttle;
+        private final Deque<Prefetch> prefetched = new ArrayDeque<>();
+        private int nextChunk;
+        private ByteBuffer current;
+        private boolean closed;
+
+        ChunkStream(DedupManifest manifest, BandwidthThrottle.Transfer throttle) {
+            this.manifest = manifest;
+            this.throttle = throttle;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (current == null || !current.hasRemaining()) {
+                if (!advance()) {
+                    return -1;
+                }
+            }
+            int n = Math.min(length, current.remaining());
+            current.get(buffer, offset, n);
+            return n;
+        }
+
+        // Moves on to the next chunk; false at the end of the object
+        private boolean advance() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            partBufferPool.release(current);
+            current = null;
+            while (prefetched.size() < transferConfiguration.getDownloadConcurrency() && nextChunk < manifest.getChunks().size()) {
+                prefetched.addLast(new Prefetch(manifest.getChunks().get(nextChunk++)));
+            }
+            Prefetch next = prefetched.pollFirst();
+            if (next == null) {
+                return false;
+            }
+            current = next.take();
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            partBufferPool.release(current);
+            current = null;
+            prefetched.forEach(Prefetch::abandon);
+            prefetched.clear();
+        }
+
+        // One chunk being fetched; its buffer goes back to the pool if the stream is closed before it is read
+        private final class Prefetch {
+            private final Future<?> future;
+            // guarded by this
+            private ByteBuffer buffer;
+            private boolean abandoned;
+
+            Prefetch(DedupManifest.Chunk chunk) {
+                this.future = downloadExecutorService.submit(() -> {
+                    ByteBuffer fetched = fetchChunk(manifest, chunk, throttle);
+                    synchronized (this) {
+                        if (abandoned) {
+                            partBufferPool.release(fetched);
+                        } else {
+                            buffer = fetched;
+                        }
+                    }
+                    return null;
+                });
+            }
+
+            ByteBuffer take() throws IOException {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    abandon();
+                    throw new InterruptedIOException("Interrupted while fetching a chunk");
+                } catch (ExecutionException e) {
+                    throw new IOException("Error fetching chunk: " + e.getCause().getMessage(), e.getCause());
+                }
+                synchronized (this) {
+                    ByteBuffer taken = buffer;
+                    buffer = null;
+                    return taken;
+                }
+            }
+
+            void abandon() {
+                future.cancel(true);
+                synchronized (this) {
+                    abandoned = true;
+                    partBufferPool.release(buffer);
+                    buffer = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.utils;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.example.config.DedupConfiguration;
+import io.prometheus.client.dropwizard.samplebuilder.MapperConfig;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Process-wide state of deduplicated uploads: the chunking parameters, the ChunkIndex of chunks known to be stored, and
+// the bytes.input|uploaded|saved and chunks.new|duplicate meters and ratio gauge under this class. A deduplicated object
+// is a DedupManifest whose user metadata carries METADATA_KEY; its chunks are objects named by their SHA-256.
+public class Deduplication {
+    public static final String METADATA_KEY = "dedup";
+    public static final String MANIFEST = "manifest";
+    // size of the reassembled content, as the manifest object's own size is that of the manifest
+    public static final String SIZE_KEY = "dedup-size";
+
+    private final DedupConfiguration configuration;
+    private final ChunkIndex index;
+    private final Meter inputBytes;
+    private final Meter uploadedBytes;
+    private final Meter savedBytes;
+    private final Meter newChunks;
+    private final Meter duplicateChunks;
+
+    public Deduplication(DedupConfiguration configuration, MetricRegistry metricRegistry) {
+        this.configuration = configuration;
+        this.index = new ChunkIndex(configuration.getIndexMaxEntries(), TimeUnit.MINUTES.toMillis(configuration.getIndexTtlMinutes()), metricRegistry);
+        this.inputBytes = metricRegistry.meter(MetricRegistry.name(Deduplication.class, "bytes", "input"));
+        this.uploadedBytes = metricRegistry.meter(MetricRegistry.name(Deduplication.class, "bytes", "uploaded"));
+        this.savedBytes = metricRegistry.meter(MetricRegistry.name(Deduplication.class, "bytes", "saved"));
+        this.newChunks = metricRegistry.meter(MetricRegistry.name(Deduplication.class, "chunks", "new"));
+        this.duplicateChunks = metricRegistry.meter(MetricRegistry.name(Deduplication.class, "chunks", "duplicate"));
+        metricRegistry.register(MetricRegistry.name(Deduplication.class, "ratio"), (Gauge<Double>) () ->
+                uploadedBytes.getCount() == 0 ? 0.0 : (double) inputBytes.getCount() / uploadedBytes.getCount());
+    }
+
+    // requested (the dedup query parameter) wins; without it the bucket's transfer.dedup.buckets entry decides
+    public boolean enabledFor(Boolean requested, String bucketName) {
+        return requested != null ? requested : bucketName != null && configuration.getBuckets().contains(bucketName);
+    }
+
+    public ContentDefinedChunker chunker(InputStream in) {
+        return new ContentDefinedChunker(in, configuration.getMinChunkBytes(), configuration.getAverageChunkBytes(), configuration.getMaxChunkBytes());
+    }
+
+    public String getChunkPrefix() {
+        return configuration.getChunkPrefix();
+    }
+
+    // Whether the chunk object is known to have been stored within the index TTL; scope is region/namespace/bucket
+    public boolean isStored(String scope, String chunkObjectName) {
+        long[] fingerprint = fingerprint(scope, chunkObjectName);
+        return index.contains(fingerprint[0], fingerprint[1]);
+    }
+
+    public void stored(String scope, String chunkObjectName) {
+        long[] fingerprint = fingerprint(scope, chunkObjectName);
+        index.add(fingerprint[0], fingerprint[1]);
+    }
+
+    // The chunk object was found missing; the next upload of it has to send it again
+    public void forget(String scope, String chunkObjectName) {
+        long[] fingerprint = fingerprint(scope, chunkObjectName);
+        index.remove(fingerprint[0], fingerprint[1]);
+    }
+
+    // Meters one chunk of a deduplicated upload; a duplicate was not sent
+    public void chunk(long bytes, boolean duplicate) {
+        inputBytes.mark(bytes);
+        if (duplicate) {
+            duplicateChunks.mark();
+            savedBytes.mark(bytes);
+        } else {
+            newChunks.mark();
+            uploadedBytes.mark(bytes);
+        }
+    }
+
+    public static boolean isManifest(Map<String, String> metadata) {
+        return metadata != null && MANIFEST.equals(metadata.get(METADATA_KEY));
+    }
+
+    public static Map<String, String> metadata(long size) {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(METADATA_KEY, MANIFEST);
+        metadata.put(SIZE_KEY, Long.toString(size));
+        return metadata;
+    }
+
+    // Lower-case hex SHA-256 of the remaining bytes of the buffer; the buffer's position is left untouched
+    public static String sha256Of(ByteBuffer body) {
+        MessageDigest sha256 = sha256();
+        sha256.update(body.duplicate());
+        byte[] digest = sha256.digest();
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    // DropwizardExports mappings turning the dotted names into dedup_* families
+    public static List<MapperConfig> prometheusMappings() {
+        String prefix = Deduplication.class.getName();
+        return Arrays.asList(
+                new MapperConfig(prefix + ".bytes.*", "dedup_bytes", ObjectStorageMetrics.labels("kind", "${0}")),
+                new MapperConfig(prefix + ".chunks.*", "dedup_chunks", ObjectStorageMetrics.labels("kind", "${0}")),
+                new MapperConfig(prefix + ".ratio", "dedup_ratio", ObjectStorageMetrics.labels()));
+    }
+
+    private static long[] fingerprint(String scope, String chunkObjectName) {
+        byte[] digest = sha256().digest((scope + "\n" + chunkObjectName).getBytes(StandardCharsets.UTF_8));
+        ByteBuffer bytes = ByteBuffer.wrap(digest);
+        return new long[]{bytes.getLong(), bytes.getLong()};
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
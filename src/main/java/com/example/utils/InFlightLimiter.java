@@ -0,0 +1,89 @@
+package com.example.utils;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Caps the number of parts and bytes a single transfer keeps in memory.
+// The reader calls acquire() before buffering a part and blocks while the cap is reached;
+// workers call release() once the part has been uploaded and its buffer can be dropped.
+public class InFlightLimiter {
+    private int maxParts;
+    private final long maxBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    private int inFlightParts;
+    private long inFlightBytes;
+
+    public InFlightLimiter(int maxParts, long maxBytes) {
+        this.maxParts = maxParts;
+        this.maxBytes = maxBytes;
+    }
+
+    public void acquire(long bytes) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            // A single part larger than maxBytes is still admitted once nothing else is in flight
+            while (inFlightParts >= maxParts || (inFlightParts > 0 && inFlightBytes + bytes > maxBytes)) {
+                changed.await();
+            }
+            inFlightParts++;
+            inFlightBytes += bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(long bytes) {
+        lock.lock();
+        try {
+            inFlightParts--;
+            inFlightBytes -= bytes;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Changes the part cap of a running transfer; used by the adaptive concurrency controller
+    public void setMaxParts(int maxParts) {
+        lock.lock();
+        try {
+            this.maxParts = maxParts;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocks until every acquired part has been released
+    public void awaitIdle() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlightParts > 0) {
+                changed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlightParts() {
+        lock.lock();
+        try {
+            return inFlightParts;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getInFlightBytes() {
+        lock.lock();
+        try {
+            return inFlightBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
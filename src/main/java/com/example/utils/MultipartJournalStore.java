@@ -0,0 +1,143 @@
+package com.example.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Directory of MultipartUploadJournal files, one per resumable transfer key
+public class MultipartJournalStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultipartJournalStore.class);
+
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    // transfer keys an attempt in this process is uploading against; two attempts must not share a journal and upload id
+    private final Set<String> lockedTransferKeys = ConcurrentHashMap.newKeySet();
+
+    public MultipartJournalStore(String directory) {
+        this.directory = Paths.get(directory);
+        try {
+            Files.createDirectories(this.directory);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create journal directory " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Claims transferKey for one attempt until unlock, or until the journal handed to holdUntilClosed is closed
+    boolean tryLock(String transferKey) {
+        return lockedTransferKeys.add(transferKey);
+    }
+
+    void unlock(String transferKey) {
+        lockedTransferKeys.remove(transferKey);
+    }
+
+    void holdUntilClosed(MultipartUploadJournal journal) {
+        String transferKey = journal.getTransferKey();
+        journal.onClose(() -> unlock(transferKey));
+    }
+
+    // Returns the journal of an earlier attempt of this transfer, or null if there is none
+    public MultipartUploadJournal find(String transferKey) {
+        Path path = pathFor(transferKey);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            MultipartUploadJournal journal = MultipartUploadJournal.load(path);
+            if (journal == null || !transferKey.equals(journal.getTransferKey())) {
+                LOGGER.warn("Discarding unreadable journal {}", path);
+                Files.deleteIfExists(path);
+                return null;
+            }
+            journal.reopen();
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Error reading journal {}: {}", path, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    public MultipartUploadJournal create(String transferKey, ObjectStorageUtils objectStorageUtils, String bucketName,
+                                         String objectName, String uploadId, long partSize, long totalSize) throws IOException {
+        Path path = pathFor(transferKey);
+        Files.deleteIfExists(path);
+        return MultipartUploadJournal.create(path, transferKey, objectStorageUtils.getRegionId(), objectStorageUtils.getNamespaceName(),
+                bucketName, objectName, uploadId, partSize, totalSize);
+    }
+
+    // Journals not written for longer than maxAgeMillis
+    public List<MultipartUploadJournal> findStale(long maxAgeMillis) {
+        List<MultipartUploadJournal> stale = new ArrayList<>();
+        long cutoff = System.currentTimeMillis() - maxAgeMillis;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path path : files) {
+                try {
+                    if (Files.getLastModifiedTime(path).toMillis() >= cutoff) {
+                        continue;
+                    }
+                    MultipartUploadJournal journal = MultipartUploadJournal.load(path);
+                    if (journal != null) {
+                        stale.add(journal);
+                    } else {
+                        Files.deleteIfExists(path);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Skipping journal {}: {}", path, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error listing journal directory {}: {}", directory, e.getMessage(), e);
+        }
+        return stale;
+    }
+
+    // Aborts the multipart uploads behind stale journals and removes the journals
+    public int cleanupStale(long maxAgeMillis, Map<String, ObjectStorageUtils> utilsByRegion) {
+        int removed = 0;
+        for (MultipartUploadJournal journal : findStale(maxAgeMillis)) {
+            ObjectStorageUtils objectStorageUtils = utilsByRegion.get(journal.getRegionId());
+            if (objectStorageUtils == null) {
+                LOGGER.warn("No client for region {} of stale journal {}, keeping it", journal.getRegionId(), journal.getPath());
+                continue;
+            }
+            if (!tryLock(journal.getTransferKey())) {
+                // a running attempt is still using it
+                continue;
+            }
+            holdUntilClosed(journal);
+            LOGGER.info("Cleaning up stale multipart upload {} of {}/{}", journal.getUploadId(), journal.getBucketName(), journal.getObjectName());
+            // an upload that is already gone fails to abort; the journal is removed either way
+            objectStorageUtils.abortMultipartUpload(journal.getBucketName(), journal.getObjectName(), journal.getUploadId());
+            journal.delete();
+            removed++;
+        }
+        return removed;
+    }
+
+    private Path pathFor(String transferKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(transferKey.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest) {
+                name.append(String.format("%02x", b));
+            }
+            return directory.resolve(name + SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Append-only, crash-safe record of one resumable multipart upload.
+// Line 1 is the header (region, namespace, bucket, object, upload id, part size, total size);
+// every committed part adds a "part <num> <etag> [<md5>]" line that is forced to disk before it counts.
+// A torn last line left by a crash is ignored on load.
+public class MultipartUploadJournal implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultipartUploadJournal.class);
+
+    private static final String HEADER = "upload";
+    private static final String PART = "part";
+
+    private final Path path;
+    private final String transferKey;
+    private final String regionId;
+    private final String namespaceName;
+    private final String bucketName;
+    private final String objectName;
+    private final String uploadId;
+    private final long partSize;
+    private final long totalSize;
+    private final Map<Integer, String> committedParts = new ConcurrentSkipListMap<>();
+    private final Map<Integer, String> partMd5s = new ConcurrentSkipListMap<>();
+    // not synchronized: a virtual thread blocked in channel.force would pin its carrier
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private FileChannel channel;
+    private Runnable onClose;
+
+    private MultipartUploadJournal(Path path, String transferKey, String regionId, String namespaceName, String bucketName,
+                                   String objectName, String uploadId, long partSize, long totalSize) {
+        this.path = path;
+        this.transferKey = transferKey;
+        this.regionId = regionId;
+        this.namespaceName = namespaceName;
+        this.bucketName = bucketName;
+        this.objectName = objectName;
+        this.uploadId = uploadId;
+        this.partSize = partSize;
+        this.totalSize = totalSize;
+    }
+
+    static MultipartUploadJournal create(Path path, String transferKey, String regionId, String namespaceName, String bucketName,
+                                         String objectName, String uploadId, long partSize, long totalSize) throws IOException {
+        MultipartUploadJournal journal = new MultipartUploadJournal(path, transferKey, regionId, namespaceName, bucketName,
+                objectName, uploadId, partSize, totalSize);
+        journal.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journal.append(String.join(" ", HEADER, encode(transferKey), encode(regionId), encode(namespaceName), encode(bucketName),
+                encode(objectName), encode(uploadId), Long.toString(partSize), Long.toString(totalSize)));
+        return journal;
+    }
+
+    // Returns null if the file has no complete header
+    static MultipartUploadJournal load(Path path) throws IOException {
+        String content = Files.readString(path, StandardCharsets.UTF_8);
+        // Every complete record ends with a newline; whatever follows the last one is a torn write from a crash
+        List<String> lines = Arrays.asList(content.split("\n", -1));
+        lines = lines.subList(0, lines.size() - 1);
+        if (lines.isEmpty()) {
+            return null;
+        }
+        String[] header = lines.get(0).split(" ");
+        if (header.length != 9 || !HEADER.equals(header[0])) {
+            return null;
+        }
+        MultipartUploadJournal journal = new MultipartUploadJournal(path, decode(header[1]), decode(header[2]), decode(header[3]),
+                decode(header[4]), decode(header[5]), decode(header[6]), Long.parseLong(header[7]), Long.parseLong(header[8]));
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split(" ");
+            if ((fields.length == 3 || fields.length == 4) && PART.equals(fields[0])) {
+                int partNumber = Integer.parseInt(fields[1]);
+                journal.committedParts.put(partNumber, decode(fields[2]));
+                if (fields.length == 4) {
+                    journal.partMd5s.put(partNumber, decode(fields[3]));
+                } else {
+                    journal.partMd5s.remove(partNumber);
+                }
+            }
+        }
+        return journal;
+    }
+
+    // Opens the journal for appending more parts
+    void reopen() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+    }
+
+    public void recordPart(int partNumber, String etag) throws IOException {
+        recordPart(partNumber, etag, null);
+    }
+
+    // md5 is the Base64 MD5 of the part body, kept so a resumed upload can still compute the multipart MD5
+    public void recordPart(int partNumber, String etag, String md5) throws IOException {
+        writeLock.lock();
+        try {
+            if (md5 == null) {
+                append(String.join(" ", PART, Integer.toString(partNumber), encode(etag)));
+                partMd5s.remove(partNumber);
+            } else {
+                append(String.join(" ", PART, Integer.toString(partNumber), encode(etag), encode(md5)));
+                partMd5s.put(partNumber, md5);
+            }
+            committedParts.put(partNumber, etag);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Runs once when the journal is closed or deleted; the store uses it to release the transfer key
+    void onClose(Runnable onClose) {
+        this.onClose = onClose;
+    }
+
+    private void append(String line) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        channel.force(false);
+    }
+
+    // Removes the journal once the upload was committed or aborted
+    public void delete() {
+        close();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete journal {}: {}", path, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        Runnable release;
+        writeLock.lock();
+        try {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Could not close journal {}: {}", path, e.getMessage());
+                }
+                channel = null;
+            }
+            release = onClose;
+            onClose = null;
+        } finally {
+            writeLock.unlock();
+        }
+        if (release != null) {
+            release.run();
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getTransferKey() {
+        return transferKey;
+    }
+
+    public String getRegionId() {
+        return regionId;
+    }
+
+    public String getNamespaceName() {
+        return namespaceName;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getObjectName() {
+        return objectName;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public long getPartSize() {
+        return partSize;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    // Part number -> ETag of every part recorded so far
+    public Map<Integer, String> getCommittedParts() {
+        return committedParts;
+    }
+
+    // Part number -> Base64 MD5 of the recorded parts whose MD5 is known
+    public Map<Integer, String> getPartMd5s() {
+        return partMd5s;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value == null ? "" : value, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
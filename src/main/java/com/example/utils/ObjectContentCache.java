@@ -0,0 +1,423 @@
+package com.example.utils;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.example.config.ContentCacheConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Read-through cache of object bodies in two tiers: small objects on heap, larger ones as files on local disk.
+// Both tiers are LRU-evicted by total bytes. An entry is only served for the ETag it was filled with, so staleness
+// is bounded by the metadata cache TTL that supplies the current ETag. Disk entries are opened under the index lock
+// and evicted files are unlinked, so readers that already hold a channel finish undisturbed.
+public class ObjectContentCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ObjectContentCache.class);
+
+    private final ContentCacheConfiguration configuration;
+    private final Path directory;
+    private final LinkedHashMap<String, MemoryEntry> memoryEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, DiskEntry> diskEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong fileCounter = new AtomicLong();
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final Meter memoryHits;
+    private final Meter diskHits;
+    private final Meter misses;
+    private final Meter memoryEvictions;
+    private final Meter diskEvictions;
+    private final Meter bytesServed;
+    private final Meter bytesStored;
+
+    public ObjectContentCache(ContentCacheConfiguration configuration, MetricRegistry metricRegistry) {
+        this.configuration = configuration;
+        this.directory = Paths.get(configuration.getDiskDirectory());
+        this.memoryHits = metricRegistry.meter(MetricRegistry.name(ObjectContentCache.class, "memory", "hits"));
+        this.diskHits = metricRegistry.meter(MetricRegistry.name(ObjectContentCache.class, "disk", "hits"));
+        this.misses = metricRegistry.meter(MetricRegistry.name(ObjectContentCache.class, "misses"));
+        this.memoryEvictions = metricRegistry.meter(MetricRegistry.name(ObjectContentCache.class, "memory", "evictions"));
+        this.diskEvictions = metricRegistry.meter(MetricRegistry.name(ObjectContentCache.class, "disk", "evictions"));
+        this.bytesServed = metricRegistry.meter(MetricRegistry.name(ObjectContentCache.class, "bytes_served"));
+        this.bytesStored = metricRegistry.meter(MetricRegistry.name(ObjectContentCache.class, "bytes_stored"));
+        metricRegistry.register(MetricRegistry.name(ObjectContentCache.class, "memory", "bytes"), (Gauge<Long>) this::getMemoryBytes);
+        metricRegistry.register(MetricRegistry.name(ObjectContentCache.class, "disk", "bytes"), (Gauge<Long>) this::getDiskBytes);
+        if (configuration.isEnabled()) {
+            clearDirectory();
+        }
+    }
+
+    public boolean isEnabled() {
+        return configuration.isEnabled();
+    }
+
+    // Whether an object of this size fits in either tier
+    public boolean accepts(long size) {
+        return configuration.isEnabled() && size >= 0
+                && (size <= configuration.getMemoryMaxObjectBytes() || size <= configuration.getDiskMaxObjectBytes());
+    }
+
+    // Cached body for exactly this ETag, or null. The caller must close the returned object.
+    public CachedObject get(String key, String eTag) {
+        if (!configuration.isEnabled() || eTag == null) {
+            return null;
+        }
+        synchronized (this) {
+            MemoryEntry memoryEntry = memoryEntries.get(key);
+            if (memoryEntry != null) {
+                if (memoryEntry.eTag.equals(eTag)) {
+                    memoryHits.mark();
+                    return new CachedObject(eTag, memoryEntry.body.length, memoryEntry.body, null);
+                }
+                removeMemory(key);
+            }
+            DiskEntry diskEntry = diskEntries.get(key);
+            if (diskEntry != null) {
+                if (diskEntry.eTag.equals(eTag)) {
+                    try {
+                        FileChannel channel = FileChannel.open(diskEntry.path, StandardOpenOption.READ);
+                        diskHits.mark();
+                        return new CachedObject(eTag, diskEntry.size, null, channel);
+                    } catch (IOException e) {
+                        LOGGER.warn("Cannot open cached file {}: {}", diskEntry.path, e.getMessage());
+                    }
+                }
+                removeDisk(key);
+            }
+        }
+        misses.mark();
+        return null;
+    }
+
+    // Starts filling an entry from a body of the given size; returns null if the object does not fit
+    public Fill newFill(String key, String eTag, long size) {
+        if (!accepts(size) || eTag == null) {
+            return null;
+        }
+        try {
+            if (size <= configuration.getMemoryMaxObjectBytes()) {
+                return new Fill(key, eTag, size, ByteBuffer.allocate((int) size), null, null);
+            }
+            Path file = directory.resolve(fileName(key));
+            return new Fill(key, eTag, size, null, file, FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+        } catch (IOException e) {
+            LOGGER.warn("Cannot start cache fill for {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    // Adds an already downloaded file by copying it into the cache
+    public void storeFile(String key, String eTag, Path source) {
+        try {
+            long size = Files.size(source);
+            Fill fill = newFill(key, eTag, size);
+            if (fill == null) {
+                return;
+            }
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+                fill.copyFrom(in);
+            } catch (IOException e) {
+                fill.abort();
+                throw e;
+            }
+            fill.commit();
+        } catch (IOException e) {
+            LOGGER.warn("Cannot cache {} from {}: {}", key, source, e.getMessage());
+        }
+    }
+
+    public synchronized void invalidate(String key) {
+        removeMemory(key);
+        removeDisk(key);
+    }
+
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    private synchronized void commitMemory(String key, String eTag, byte[] body) {
+        removeMemory(key);
+        removeDisk(key);
+        memoryEntries.put(key, new MemoryEntry(eTag, body));
+        memoryBytes += body.length;
+        Iterator<Map.Entry<String, MemoryEntry>> eldest = memoryEntries.entrySet().iterator();
+        while (memoryBytes > configuration.getMemoryMaxBytes() && eldest.hasNext()) {
+            memoryBytes -= eldest.next().getValue().body.length;
+            eldest.remove();
+            memoryEvictions.mark();
+        }
+        bytesStored.mark(body.length);
+    }
+
+    private synchronized void commitDisk(String key, String eTag, Path file, long size) {
+        removeMemory(key);
+        removeDisk(key);
+        diskEntries.put(key, new DiskEntry(eTag, file, size));
+        diskBytes += size;
+        Iterator<Map.Entry<String, DiskEntry>> eldest = diskEntries.entrySet().iterator();
+        while (diskBytes > configuration.getDiskMaxBytes() && eldest.hasNext()) {
+            DiskEntry evicted = eldest.next().getValue();
+            eldest.remove();
+            diskBytes -= evicted.size;
+            delete(evicted.path);
+            diskEvictions.mark();
+        }
+        bytesStored.mark(size);
+    }
+
+    private void removeMemory(String key) {
+        MemoryEntry removed = memoryEntries.remove(key);
+        if (removed != null) {
+            memoryBytes -= removed.body.length;
+        }
+    }
+
+    private void removeDisk(String key) {
+        DiskEntry removed = diskEntries.remove(key);
+        if (removed != null) {
+            diskBytes -= removed.size;
+            delete(removed.path);
+        }
+    }
+
+    // Every fill writes its own file, so replacing an entry never touches a file a reader has open
+    private String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                name.append(String.format("%02x", digest[i]));
+            }
+            return name.append('-').append(fileCounter.incrementAndGet()).append(".cache").toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The index lives in memory only, so files left by a previous run are unreachable
+    private void clearDirectory() {
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.cache")) {
+                for (Path file : files) {
+                    delete(file);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Cannot prepare content cache directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("Cannot delete cached file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static final class MemoryEntry {
+        private final String eTag;
+        private final byte[] body;
+
+        private MemoryEntry(String eTag, byte[] body) {
+            this.eTag = eTag;
+            this.body = body;
+        }
+    }
+
+    private static final class DiskEntry {
+        private final String eTag;
+        private final Path path;
+        private final long size;
+
+        private DiskEntry(String eTag, Path path, long size) {
+            this.eTag = eTag;
+            this.path = path;
+            this.size = size;
+        }
+    }
+
+    // A body being written into the cache; it becomes visible only on commit() with exactly size bytes written
+    public final class Fill implements WritableByteChannel {
+        private final String key;
+        private final String eTag;
+        private final long size;
+        private final ByteBuffer memory;
+        private final Path file;
+        private final FileChannel fileChannel;
+        private long written;
+        private boolean open = true;
+
+        private Fill(String key, String eTag, long size, ByteBuffer memory, Path file, FileChannel fileChannel) {
+            this.key = key;
+            this.eTag = eTag;
+            this.size = size;
+            this.memory = memory;
+            this.file = file;
+            this.fileChannel = fileChannel;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            int length = source.remaining();
+            if (written + length > size) {
+                throw new IOException("Cache fill of " + key + " exceeds " + size + " bytes");
+            }
+            if (memory != null) {
+                memory.put(source);
+            } else {
+                while (source.hasRemaining()) {
+                    fileChannel.write(source);
+                }
+            }
+            written += length;
+            return length;
+        }
+
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            write(ByteBuffer.wrap(bytes, offset, length));
+        }
+
+        // Copies a whole file; file to file this is a kernel-side transfer
+        private void copyFrom(FileChannel in) throws IOException {
+            if (memory != null) {
+                int bytesRead;
+                do {
+                    bytesRead = in.read(memory);
+                } while (bytesRead != -1 && memory.hasRemaining());
+                written = memory.position();
+                return;
+            }
+            while (written < size) {
+                long bytes = fileChannel.transferFrom(in, written, size - written);
+                if (bytes <= 0) {
+                    break;
+                }
+                written += bytes;
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        public void commit() {
+            if (!open) {
+                return;
+            }
+            if (written != size) {
+                abort();
+                return;
+            }
+            open = false;
+            if (memory != null) {
+                commitMemory(key, eTag, memory.array());
+                return;
+            }
+            try {
+                fileChannel.close();
+                commitDisk(key, eTag, file, size);
+            } catch (IOException e) {
+                LOGGER.warn("Cannot finish cache file {}: {}", file, e.getMessage());
+                delete(file);
+            }
+        }
+
+        public void abort() {
+            if (!open) {
+                return;
+            }
+            open = false;
+            if (fileChannel != null) {
+                try {
+                    fileChannel.close();
+                } catch (IOException e) {
+                    LOGGER.debug("Error closing cache file {}: {}", file, e.getMessage());
+                }
+                delete(file);
+            }
+        }
+
+        @Override
+        public void close() {
+            abort();
+        }
+    }
+
+    // A cache hit; transferTo() serves any byte range of it
+    public final class CachedObject implements AutoCloseable {
+        private final String eTag;
+        private final long size;
+        private final byte[] memory;
+        private final FileChannel fileChannel;
+
+        private CachedObject(String eTag, long size, byte[] memory, FileChannel fileChannel) {
+            this.eTag = eTag;
+            this.size = size;
+            this.memory = memory;
+            this.fileChannel = fileChannel;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        // Writes count bytes starting at position; disk entries go through FileChannel.transferTo
+        public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            if (memory != null) {
+                ByteBuffer body = ByteBuffer.wrap(memory, (int) position, (int) count);
+                while (body.hasRemaining()) {
+                    target.write(body);
+                }
+            } else {
+                long transferred = 0;
+                while (transferred < count) {
+                    long bytes = fileChannel.transferTo(position + transferred, count - transferred, target);
+                    if (bytes <= 0) {
+                        throw new IOException("Cached file ended after " + transferred + " of " + count + " bytes");
+                    }
+                    transferred += bytes;
+                }
+            }
+            bytesServed.mark(count);
+        }
+
+        @Override
+        public void close() {
+            if (fileChannel != null) {
+                try {
+                    fileChannel.close();
+                } catch (IOException e) {
+                    LOGGER.debug("Error closing cached file: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.utils;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.oracle.bmc.objectstorage.responses.HeadObjectResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Process-wide LRU cache of object metadata (size, ETag, MD5s) keyed by region/namespace/bucket/object.
+// Entries younger than the TTL are served as is; older ones are revalidated with a conditional HEAD (If-None-Match)
+// by ObjectStorageUtils. Our own writes invalidate the entries they touch.
+public class ObjectMetadataCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+
+    private final Meter hits;
+    private final Meter revalidations;
+    private final Meter misses;
+    private final Meter evictions;
+
+    public ObjectMetadataCache(int maxEntries, long ttlSeconds, MetricRegistry metricRegistry) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.hits = metricRegistry.meter(MetricRegistry.name(ObjectMetadataCache.class, "hits"));
+        this.revalidations = metricRegistry.meter(MetricRegistry.name(ObjectMetadataCache.class, "revalidations"));
+        this.misses = metricRegistry.meter(MetricRegistry.name(ObjectMetadataCache.class, "misses"));
+        this.evictions = metricRegistry.meter(MetricRegistry.name(ObjectMetadataCache.class, "evictions"));
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ObjectMetadataCache.this.maxEntries) {
+                    evictions.mark();
+                    return true;
+                }
+                return false;
+            }
+        };
+        metricRegistry.register(MetricRegistry.name(ObjectMetadataCache.class, "size"), (Gauge<Integer>) this::size);
+        // revalidated entries count as hits: they were answered by a 304 without transferring metadata again
+        metricRegistry.register(MetricRegistry.name(ObjectMetadataCache.class, "hit_ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                long served = hits.getCount() + revalidations.getCount();
+                return Ratio.of(served, served + misses.getCount());
+            }
+        });
+    }
+
+    public static String key(String regionId, String namespaceName, String bucketName, String objectName) {
+        return regionId + "/" + namespaceName + "/" + bucketName + "/" + objectName;
+    }
+
+    // Cached entry, fresh or stale, or null
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    public void hit() {
+        hits.mark();
+    }
+
+    // A conditional request confirmed the entry; it is fresh again for another TTL
+    public synchronized void revalidated(String key, Entry entry) {
+        revalidations.mark();
+        if (entries.get(key) == entry) {
+            entries.put(key, new Entry(entry.head, System.nanoTime()));
+        }
+    }
+
+    // Stores metadata fetched from Object Storage after a miss
+    public synchronized void put(String key, HeadObjectResponse head) {
+        misses.mark();
+        if (maxEntries > 0 && head != null && head.getETag() != null) {
+            entries.put(key, new Entry(head, System.nanoTime()));
+        }
+    }
+
+    // Stores metadata seen as a side effect of another request (e.g. a full GetObject); not counted as a miss
+    public synchronized void fill(String key, HeadObjectResponse head) {
+        if (maxEntries > 0 && head != null && head.getETag() != null) {
+            entries.put(key, new Entry(head, System.nanoTime()));
+        }
+    }
+
+    public synchronized void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public final class Entry {
+        private final HeadObjectResponse head;
+        private final long cachedAtNanos;
+
+        private Entry(HeadObjectResponse head, long cachedAtNanos) {
+            this.head = head;
+            this.cachedAtNanos = cachedAtNanos;
+        }
+
+        public HeadObjectResponse getHead() {
+            return head;
+        }
+
+        public boolean isFresh() {
+            return System.nanoTime() - cachedAtNanos < ttlNanos;
+        }
+    }
+}
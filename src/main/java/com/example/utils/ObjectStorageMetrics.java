@@ -0,0 +1,216 @@
+package com.example.utils;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.prometheus.client.dropwizard.samplebuilder.MapperConfig;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// Latency, error and in-flight metrics of one region's Object Storage calls, plus bytes sent and received.
+// Names are <region>.<operation>.<size bucket>.requests|errors, <region>.<operation>.in_flight and
+// <region>.upload|download.bytes under this class; on /prometheus they become labelled families, see prometheusMappings().
+public class ObjectStorageMetrics {
+    private static final long MIB = 1024L * 1024;
+    private static final long[] SIZE_LIMITS = {MIB, 16 * MIB, 128 * MIB, 1024 * MIB};
+    private static final String[] SIZE_BUCKETS = {"lt_1MiB", "1MiB_16MiB", "16MiB_128MiB", "128MiB_1GiB", "ge_1GiB"};
+    // calls without a body (head, create, commit, abort, list) or whose size is unknown
+    public static final String NO_SIZE = "none";
+
+    private final String region;
+    private final MetricRegistry metricRegistry;
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final Meter uploadedBytes;
+    private final Meter downloadedBytes;
+
+    public ObjectStorageMetrics(String region, MetricRegistry metricRegistry) {
+        this.region = region;
+        this.metricRegistry = metricRegistry;
+        this.uploadedBytes = metricRegistry.meter(MetricRegistry.name(ObjectStorageMetrics.class, region, "upload", "bytes"));
+        this.downloadedBytes = metricRegistry.meter(MetricRegistry.name(ObjectStorageMetrics.class, region, "download", "bytes"));
+    }
+
+    // Times one request; size gives the bytes it carried (NO_SIZE bucket if negative). Failures are timed too and
+    // counted as errors of the operation
+    public <T> T time(String operation, long size, Supplier<T> call) {
+        return time(operation, call, response -> size);
+    }
+
+    // As above, with the size taken from the response, e.g. the Content-Length of a GET
+    public <T> T time(String operation, Supplier<T> call, ToLongFunction<T> size) {
+        OperationMetrics metrics = operations.computeIfAbsent(operation, OperationMetrics::new);
+        metrics.inFlight.inc();
+        long start = System.nanoTime();
+        try {
+            T response = call.get();
+            metrics.timer(sizeBucketIndex(size.applyAsLong(response))).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return response;
+        } catch (RuntimeException e) {
+            int bucket = sizeBucketIndex(-1);
+            metrics.timer(bucket).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            metrics.errors(bucket).mark();
+            throw e;
+        } finally {
+            metrics.inFlight.dec();
+        }
+    }
+
+    public void downloaded(long bytes) {
+        if (bytes > 0) {
+            downloadedBytes.mark(bytes);
+        }
+    }
+
+    // Wraps a request body so the bytes the client actually sends are counted as they are read
+    public CountingInputStream countUpload(InputStream body) {
+        return new CountingInputStream(body, uploadedBytes);
+    }
+
+    public static String sizeBucket(long bytes) {
+        int index = sizeBucketIndex(bytes);
+        return index < SIZE_BUCKETS.length ? SIZE_BUCKETS[index] : NO_SIZE;
+    }
+
+    // SIZE_BUCKETS.length stands for NO_SIZE
+    private static int sizeBucketIndex(long bytes) {
+        if (bytes < 0) {
+            return SIZE_BUCKETS.length;
+        }
+        int index = 0;
+        while (index < SIZE_LIMITS.length && bytes >= SIZE_LIMITS[index]) {
+            index++;
+        }
+        return index;
+    }
+
+    // Timer with an HdrHistogramReservoir, so p99 stays accurate at high request rates
+    public static Timer hdrTimer(MetricRegistry metricRegistry, String name) {
+        return metricRegistry.timer(name, () -> new Timer(new HdrHistogramReservoir()));
+    }
+
+    // DropwizardExports mappings turning the dotted names into object_storage_* families labelled by region, operation
+    // and size (Dropwizard names carry no tags)
+    public static List<MapperConfig> prometheusMappings() {
+        String prefix = ObjectStorageMetrics.class.getName();
+        return Arrays.asList(
+                new MapperConfig(prefix + ".*.*.*.requests", "object_storage_requests", labels("region", "${0}", "operation", "${1}", "size", "${2}")),
+                new MapperConfig(prefix + ".*.*.*.errors", "object_storage_errors", labels("region", "${0}", "operation", "${1}", "size", "${2}")),
+                new MapperConfig(prefix + ".*.*.in_flight", "object_storage_in_flight", labels("region", "${0}", "operation", "${1}")),
+                new MapperConfig(prefix + ".*.*.bytes", "object_storage_bytes", labels("region", "${0}", "direction", "${1}")));
+    }
+
+    // MapperConfig labels from name, value pairs
+    public static Map<String, String> labels(String... namesAndValues) {
+        Map<String, String> labels = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            labels.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return labels;
+    }
+
+    private final class OperationMetrics {
+        private final String operation;
+        private final Counter inFlight;
+        // per size bucket, NO_SIZE last; created on first use (a racing thread gets the same instance from the registry)
+        private final Timer[] timers = new Timer[SIZE_BUCKETS.length + 1];
+        private final Meter[] errors = new Meter[SIZE_BUCKETS.length + 1];
+
+        OperationMetrics(String operation) {
+            this.operation = operation;
+            this.inFlight = metricRegistry.counter(MetricRegistry.name(ObjectStorageMetrics.class, region, operation, "in_flight"));
+        }
+
+        Timer timer(int bucket) {
+            Timer timer = timers[bucket];
+            if (timer == null) {
+                timer = hdrTimer(metricRegistry, MetricRegistry.name(ObjectStorageMetrics.class, region, operation, bucketName(bucket), "requests"));
+                timers[bucket] = timer;
+            }
+            return timer;
+        }
+
+        Meter errors(int bucket) {
+            Meter meter = errors[bucket];
+            if (meter == null) {
+                meter = metricRegistry.meter(MetricRegistry.name(ObjectStorageMetrics.class, region, operation, bucketName(bucket), "errors"));
+                errors[bucket] = meter;
+            }
+            return meter;
+        }
+
+        private String bucketName(int bucket) {
+            return bucket < SIZE_BUCKETS.length ? SIZE_BUCKETS[bucket] : NO_SIZE;
+        }
+    }
+
+    // Counts the bytes read through it into a meter. mark/reset pass through so the SDK can replay a retried body: the
+    // meter counts the bytes again (they are sent again) while getCount() stays the position in the body
+    public static final class CountingInputStream extends FilterInputStream {
+        private final Meter meter;
+        private long count;
+        private long markedCount;
+
+        CountingInputStream(InputStream in, Meter meter) {
+            super(in);
+            this.meter = meter;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                counted(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                counted(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            super.mark(readlimit);
+            markedCount = count;
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            super.reset();
+            count = markedCount;
+        }
+
+        private void counted(int n) {
+            count += n;
+            meter.mark(n);
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package com.example.utils;
 
-import com.example.resources.FileOperationResourceOc10;
+import com.example.config.TransferConfiguration;
 import com.example.resources.FileStreamMetadata;
 import com.example.resources.MultipartUploadResult;
-import com.oracle.bmc.objectstorage.ObjectStorageClient;
+import com.oracle.bmc.model.BmcException;
+import com.oracle.bmc.model.Range;
+import com.oracle.bmc.objectstorage.ObjectStorage;
 import com.oracle.bmc.objectstorage.model.CommitMultipartUploadDetails;
 import com.oracle.bmc.objectstorage.model.CommitMultipartUploadPartDetails;
+import com.oracle.bmc.objectstorage.model.CopyObjectDetails;
+import com.oracle.bmc.objectstorage.model.ListObjects;
+import com.oracle.bmc.objectstorage.model.WorkRequest;
+import com.oracle.bmc.objectstorage.requests.CopyObjectRequest;
+import com.oracle.bmc.objectstorage.requests.DeleteObjectRequest;
 import com.oracle.bmc.objectstorage.requests.GetObjectRequest;
+import com.oracle.bmc.objectstorage.requests.GetWorkRequestRequest;
+import com.oracle.bmc.objectstorage.requests.HeadObjectRequest;
+import com.oracle.bmc.objectstorage.requests.ListMultipartUploadPartsRequest;
+import com.oracle.bmc.objectstorage.requests.ListObjectsRequest;
 import com.oracle.bmc.objectstorage.requests.PutObjectRequest;
 import com.oracle.bmc.objectstorage.responses.*;
 import com.oracle.bmc.objectstorage.model.CreateMultipartUploadDetails;
@@ -15,55 +26,164 @@ import com.oracle.bmc.objectstorage.requests.CreateMultipartUploadRequest;
 import com.oracle.bmc.objectstorage.requests.UploadPartRequest;
 import com.oracle.bmc.objectstorage.requests.CommitMultipartUploadRequest;
 import com.oracle.bmc.objectstorage.requests.AbortMultipartUploadRequest;
+import com.oracle.bmc.retrier.RetryConfiguration;
+import com.codahale.metrics.MetricRegistry;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ObjectStorageUtils {
     private static final Logger LOGGER = LoggerFactory.getLogger(ObjectStorageUtils.class);
 
 
+    private @Getter final String regionId;
+
     private @Getter final String namespaceName;
 
-    private @Getter final ObjectStorageClient objectStorageClient;
+    // The ObjectStorage interface rather than the client class, so benchmarks can substitute an in-memory fake
+    private @Getter final ObjectStorage objectStorageClient;
+
+    private final TransferConfiguration transferConfiguration;
+
+    private final PartBufferPool partBufferPool;
+
+    ExecutorService executorService;
+
+    // Shared by every multipart transfer of this client; per-transfer memory is bounded by InFlightLimiter
+    private final ExecutorService partExecutorService;
+
+    private final RangedDownloader rangedDownloader;
+
+    // Retries, hedging and circuit breaker for this region's part and range requests
+    private @Getter final RequestResilience resilience;
+
+    // Process-wide part size / concurrency tuning, shared by all regions
+    private @Getter final AdaptiveTransferController adaptiveTransferController;
+
+    // Process-wide bandwidth limits; this client charges them under regionLabel()
+    private @Getter final BandwidthThrottle bandwidthThrottle;
 
-    ExecutorService executorService = Executors.newFixedThreadPool(10);
+    // Process-wide object metadata cache; headObject answers from it and every write of this client invalidates it
+    private final ObjectMetadataCache metadataCache;
 
-    public ObjectStorageUtils(String namespaceName, ObjectStorageClient objectStorageClient) {
+    // Optional read-through cache of object bodies for downloads, validated against the ETag from headObject
+    private @Getter final ObjectContentCache contentCache;
+
+    // Latency / error / in-flight metrics of every call this client makes, and bytes sent and received
+    private @Getter final ObjectStorageMetrics metrics;
+
+    // Process-wide codecs of compressed uploads; downloads of compressed objects are decompressed through it
+    private @Getter final StreamCompression compression;
+
+    // Process-wide chunk index and metrics of deduplicated uploads
+    private @Getter final Deduplication deduplication;
+
+    // Chunked uploads and parallel reassembly of deduplicated objects in this region
+    private @Getter final DedupTransfer dedupTransfer;
+
+    // Polls server-side copy work requests for awaitWorkRequestAsync; each poll is one short GetWorkRequest
+    private final ScheduledExecutorService workRequestPoller;
+
+    public ObjectStorageUtils(String regionId, String namespaceName, ObjectStorage objectStorageClient, TransferConfiguration transferConfiguration,
+                              PartBufferPool partBufferPool, MetricRegistry metricRegistry, AdaptiveTransferController adaptiveTransferController,
+                              BandwidthThrottle bandwidthThrottle, ObjectMetadataCache metadataCache, ObjectContentCache contentCache,
+                              StreamCompression compression, Deduplication deduplication) {
+        this.regionId = regionId;
+        this.executorService = TransferExecutors.newTransferExecutor("objectstorage-" + regionLabel(), 10, transferConfiguration);
+        this.resilience = new RequestResilience(regionLabel(), transferConfiguration.getResilience(), metricRegistry,
+                TransferExecutors.newDaemonExecutor("hedge-" + regionLabel(), transferConfiguration));
+        this.adaptiveTransferController = adaptiveTransferController;
+        this.bandwidthThrottle = bandwidthThrottle;
+        this.metadataCache = metadataCache;
+        this.contentCache = contentCache;
+        this.compression = compression;
+        this.deduplication = deduplication;
         this.namespaceName = namespaceName;
         this.objectStorageClient = objectStorageClient;
+        this.transferConfiguration = transferConfiguration;
+        this.partBufferPool = partBufferPool;
+        this.partExecutorService = TransferExecutors.newTransferExecutor("part-upload-" + regionLabel(), transferConfiguration.getPartUploadThreads(), transferConfiguration);
+        this.rangedDownloader = new RangedDownloader(this, transferConfiguration, partBufferPool);
+        this.metrics = new ObjectStorageMetrics(regionLabel(), metricRegistry);
+        this.dedupTransfer = new DedupTransfer(this, transferConfiguration, partBufferPool, deduplication, partExecutorService);
+        this.workRequestPoller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "work-request-poll-" + regionLabel());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Stops this client's request, part and range executors once their queued work is done; the client itself is not closed
+    public void shutdown() {
+        executorService.shutdown();
+        partExecutorService.shutdown();
+        rangedDownloader.shutdown();
+        dedupTransfer.shutdown();
+        // polls already scheduled still run; the ones they would schedule next are rejected
+        workRequestPoller.shutdown();
     }
+
+    // Region name used in metric names and adaptive tuning state
+    public String regionLabel() {
+        return regionId != null ? regionId : "default";
+    }
+
     // Helper method to download a file from a specified bucket
     public FileStreamMetadata downloadFromObjectStorage(String bucketName, String fileName) throws ExecutionException, InterruptedException {
+        return downloadFromObjectStorage(bucketName, fileName, null);
+    }
+
+    // With ifMatch set the download fails (returns null) if the object no longer has that ETag
+    public FileStreamMetadata downloadFromObjectStorage(String bucketName, String fileName, String ifMatch) throws ExecutionException, InterruptedException {
         return executorService.submit(() -> {
             try {
                 GetObjectRequest request = GetObjectRequest.builder()
                         .namespaceName(namespaceName)
                         .bucketName(bucketName)
                         .objectName(fileName)
+                        .ifMatch(ifMatch)
+                        .retryConfiguration(RetryConfiguration.NO_RETRY_CONFIGURATION)
                         .build();
                 LOGGER.info("File Download starting...");
                 long starttime = System.currentTimeMillis();
 
-                GetObjectResponse response = objectStorageClient.getObject(request);
+                GetObjectResponse response = resilience.call("getObject", cancelled ->
+                        metrics.time("getObject", () -> objectStorageClient.getObject(request), ObjectStorageUtils::bodyLength));
+                metrics.downloaded(bodyLength(response));
+                cacheMetadata(bucketName, fileName, response);
 
                 long timeTaken = System.currentTimeMillis() - starttime;
                 LOGGER.info("downloadFromObjectStorage: File Download completed. timeTaken (milli):"+timeTaken);
                 LOGGER.info("downloadFromObjectStorage:File md5:"+response.getContentMd5());
 
-                return new FileStreamMetadata(response.getInputStream(),response.getContentMd5(), response.getContentLength());
+                // charged against the bandwidth limits as it is read, like the ranges of a parallel download
+                InputStream body = new ThrottledInputStream(response.getInputStream(), bandwidthThrottle.newTransfer(), regionLabel());
+                return new FileStreamMetadata(body, response.getContentMd5(), response.getContentLength(), response.getOpcMeta());
 
             } catch (Exception e) {
+                if (e instanceof BmcException && (((BmcException) e).getStatusCode() == 404 || ((BmcException) e).getStatusCode() == 412)) {
+                    metadataCache.invalidate(metadataCacheKey(bucketName, fileName));
+                }
                 LOGGER.error("Error downloading from OCI Object Storage: " + e.getMessage());
                 return null;
             }
@@ -71,23 +191,253 @@ public class ObjectStorageUtils {
 
     }
 
+    // Opens the object body for streaming; range and ifNoneMatch are optional. Errors surface as BmcException
+    public GetObjectResponse getObject(String bucketName, String fileName, Range range, String ifNoneMatch) {
+        return getObject(bucketName, fileName, range, ifNoneMatch, null);
+    }
+
+    // With ifMatch set (an ETag from headObject) the GET fails with 412 if the object changed since, and the cached metadata is dropped
+    public GetObjectResponse getObject(String bucketName, String fileName, Range range, String ifNoneMatch, String ifMatch) {
+        return getObject(bucketName, fileName, range, ifNoneMatch, ifMatch, null);
+    }
+
+    // A single GET with the SDK's own retries off, for callers that run it under getResilience(); range and ifMatch are optional
+    public GetObjectResponse getObjectOnce(String bucketName, String fileName, Range range, String ifMatch) {
+        return getObject(bucketName, fileName, range, null, ifMatch, RetryConfiguration.NO_RETRY_CONFIGURATION);
+    }
+
+    // retryConfiguration null keeps the client's default
+    private GetObjectResponse getObject(String bucketName, String fileName, Range range, String ifNoneMatch, String ifMatch,
+                                        RetryConfiguration retryConfiguration) {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .namespaceName(namespaceName)
+                .bucketName(bucketName)
+                .objectName(fileName)
+                .range(range)
+                .ifNoneMatch(ifNoneMatch)
+                .ifMatch(ifMatch)
+                .retryConfiguration(retryConfiguration)
+                .build();
+        try {
+            GetObjectResponse response = metrics.time("getObject", () -> objectStorageClient.getObject(request), ObjectStorageUtils::bodyLength);
+            metrics.downloaded(bodyLength(response));
+            if (range == null) {
+                cacheMetadata(bucketName, fileName, response);
+            }
+            return response;
+        } catch (BmcException e) {
+            if (e.getStatusCode() == 404 || e.getStatusCode() == 412) {
+                metadataCache.invalidate(metadataCacheKey(bucketName, fileName));
+            }
+            throw e;
+        }
+    }
+
+    // Reads size and checksums of an object without downloading it; returns null if it does not exist or cannot be read.
+    // Served from the metadata cache while fresh; a stale entry is revalidated with If-None-Match.
+    public HeadObjectResponse headObject(String bucketName, String fileName) {
+        String key = metadataCacheKey(bucketName, fileName);
+        ObjectMetadataCache.Entry cached = metadataCache.get(key);
+        if (cached != null && cached.isFresh()) {
+            metadataCache.hit();
+            return cached.getHead();
+        }
+        try {
+            HeadObjectRequest request = HeadObjectRequest.builder()
+                    .namespaceName(namespaceName)
+                    .bucketName(bucketName)
+                    .objectName(fileName)
+                    .ifNoneMatch(cached != null ? cached.getHead().getETag() : null)
+                    .build();
+            HeadObjectResponse response = metrics.time("headObject", -1, () -> objectStorageClient.headObject(request));
+            if (cached != null && response.isNotModified()) {
+                metadataCache.revalidated(key, cached);
+                return cached.getHead();
+            }
+            metadataCache.put(key, response);
+            return response;
+        } catch (Exception e) {
+            metadataCache.invalidate(key);
+            if (e instanceof BmcException && ((BmcException) e).getStatusCode() == 404) {
+                // expected, e.g. for every new chunk of a deduplicated upload
+                LOGGER.debug("No object {}/{}", bucketName, fileName);
+            } else {
+                LOGGER.error("Error reading metadata of {}/{}: {}", bucketName, fileName, e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    // Called before each of our own writes to an object
+    private void invalidateCaches(String bucketName, String objectName) {
+        String key = metadataCacheKey(bucketName, objectName);
+        metadataCache.invalidate(key);
+        contentCache.invalidate(key);
+    }
+
+    public String metadataCacheKey(String bucketName, String objectName) {
+        return ObjectMetadataCache.key(regionLabel(), namespaceName, bucketName, objectName);
+    }
+
+    // Bytes in the body of a GET: 0 for a 304, -1 if the length is unknown
+    private static long bodyLength(GetObjectResponse response) {
+        if (response.isNotModified()) {
+            return 0L;
+        }
+        return response.getContentLength() != null ? response.getContentLength() : -1L;
+    }
+
+    // A full (non-range, non-304) GET carries the same metadata as a HEAD
+    private void cacheMetadata(String bucketName, String fileName, GetObjectResponse response) {
+        if (response == null || response.isNotModified()) {
+            return;
+        }
+        metadataCache.fill(metadataCacheKey(bucketName, fileName), HeadObjectResponse.builder()
+                .contentLength(response.getContentLength())
+                .contentMd5(response.getContentMd5())
+                .eTag(response.getETag())
+                .opcMultipartMd5(response.getOpcMultipartMd5())
+                .opcMeta(response.getOpcMeta())
+                .contentType(response.getContentType())
+                .contentEncoding(response.getContentEncoding())
+                .lastModified(response.getLastModified())
+                .build());
+    }
+
+    // Downloads an object to local disk: large objects as parallel ranged GETs, small ones over a single stream
+    // Objects in the content cache are copied out of it; others are fetched pinned to the HEAD's ETag (If-Match) and then cached.
+    // If the object changed since a cached HEAD, the 412 drops the metadata and the download is retried once with a fresh HEAD.
+    public boolean downloadToLocalDisk(String bucketName, String fileName, HeadObjectResponse head, String filePath) throws ExecutionException, InterruptedException {
+        if (downloadToLocalDiskOnce(bucketName, fileName, head, filePath)) {
+            return true;
+        }
+        HeadObjectResponse current = headObject(bucketName, fileName);
+        if (current == null || current.getETag() == null || current.getETag().equals(head.getETag())) {
+            return false;
+        }
+        LOGGER.info("Object {}/{} changed during download, retrying with ETag {}", bucketName, fileName, current.getETag());
+        return downloadToLocalDiskOnce(bucketName, fileName, current, filePath);
+    }
+
+    private boolean downloadToLocalDiskOnce(String bucketName, String fileName, HeadObjectResponse head, String filePath) throws ExecutionException, InterruptedException {
+        if (Deduplication.isManifest(head.getOpcMeta())) {
+            return dedupTransfer.download(bucketName, fileName, head.getETag(), filePath);
+        }
+        CompressionCodec codec = CompressionCodec.of(head.getOpcMeta());
+        if (codec != CompressionCodec.NONE) {
+            return downloadDecompressed(bucketName, fileName, head, codec, filePath);
+        }
+        long size = head.getContentLength() != null ? head.getContentLength() : -1L;
+        String cacheKey = metadataCacheKey(bucketName, fileName);
+        try (ObjectContentCache.CachedObject cached = contentCache.get(cacheKey, head.getETag())) {
+            if (cached != null) {
+                return saveFromCache(cached, filePath);
+            }
+        }
+        boolean saved;
+        if (size >= transferConfiguration.getParallelDownloadThreshold()) {
+            // Content-MD5 covers the whole object only for single-put objects; multipart objects are checked by size
+            String expectedMd5 = head.getOpcMultipartMd5() == null ? head.getContentMd5() : null;
+            saved = rangedDownloader.download(bucketName, fileName, size, expectedMd5, head.getETag(), filePath);
+        } else {
+            FileStreamMetadata metadata = downloadFromObjectStorage(bucketName, fileName, head.getETag());
+            if (metadata == null || metadata.getInputStream() == null) {
+                return false;
+            }
+            saved = saveToLocalDisk(metadata.getInputStream(), filePath);
+        }
+        if (saved && contentCache.accepts(size)) {
+            contentCache.storeFile(cacheKey, head.getETag(), Paths.get(filePath));
+        }
+        return saved;
+    }
+
+    // A compressed object is one stream to decompress, so it is fetched over a single GET and not cached
+    private boolean downloadDecompressed(String bucketName, String fileName, HeadObjectResponse head, CompressionCodec codec, String filePath)
+            throws ExecutionException, InterruptedException {
+        FileStreamMetadata metadata = downloadFromObjectStorage(bucketName, fileName, head.getETag());
+        if (metadata == null || metadata.getInputStream() == null) {
+            return false;
+        }
+        try {
+            return saveToLocalDisk(compression.decompress(metadata.getInputStream(), codec), filePath);
+        } catch (IOException e) {
+            LOGGER.error("Error decompressing {} ({}): {}", fileName, codec.getLabel(), e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean saveFromCache(ObjectContentCache.CachedObject cached, String filePath) {
+        try (FileChannel out = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            cached.transferTo(0, cached.getSize(), out);
+            LOGGER.info("Served {} bytes from the content cache to {}", cached.getSize(), filePath);
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Error copying cached object to {}: {}", filePath, e.getMessage());
+            return false;
+        }
+    }
+
     // Helper method to upload a file to a specified bucket
     public boolean uploadToObjectStorage(InputStream inputStream, String bucketName, String fileName, String srcMd5) throws ExecutionException, InterruptedException {
+        return uploadToObjectStorage(inputStream, bucketName, fileName, srcMd5, (Map<String, String>) null);
+    }
+
+    // Compresses the body with codec on the way (NONE uploads it as is) and records the codec, and size (the uncompressed
+    // size, if not negative), in the object's metadata. srcMd5 is checked against the uncompressed bytes.
+    public boolean uploadToObjectStorage(InputStream inputStream, String bucketName, String fileName, String srcMd5, CompressionCodec codec, long size)
+            throws ExecutionException, InterruptedException {
+        return uploadToObjectStorage(inputStream, bucketName, fileName, srcMd5, codec, size, null);
+    }
+
+    // throttle is charged for the bytes sent, e.g. the transfer a cross-region copy also reads the source with; null gives the
+    // upload a transfer of its own
+    public boolean uploadToObjectStorage(InputStream inputStream, String bucketName, String fileName, String srcMd5, CompressionCodec codec, long size,
+                                         BandwidthThrottle.Transfer throttle) throws ExecutionException, InterruptedException {
+        if (codec == CompressionCodec.NONE) {
+            return uploadToObjectStorage(inputStream, bucketName, fileName, srcMd5, (Map<String, String>) null, throttle);
+        }
+        StreamCompression.CompressingInputStream compressed;
+        try {
+            compressed = compression.compress(inputStream, codec);
+        } catch (IOException e) {
+            LOGGER.error("Error starting {} compression of {}: {}", codec.getLabel(), fileName, e.getMessage());
+            return false;
+        }
+        boolean stored = uploadToObjectStorage(compressed, bucketName, fileName, null, StreamCompression.metadata(null, codec, size), throttle);
+        String rawMd5 = compressed.getRawMd5();
+        LOGGER.info("Uploaded {} compressed with {}: {} -> {} bytes, srcMd5: {}, md5: {}", fileName, codec.getLabel(),
+                compressed.getRawBytes(), compressed.getCompressedBytes(), srcMd5, rawMd5);
+        return stored && (srcMd5 == null || srcMd5.equals(rawMd5));
+    }
+
+    // Stores the body as it is with the given user metadata (opcMeta), e.g. a compressed object copied with its codec
+    public boolean uploadToObjectStorage(InputStream inputStream, String bucketName, String fileName, String srcMd5, Map<String, String> metadata)
+            throws ExecutionException, InterruptedException {
+        return uploadToObjectStorage(inputStream, bucketName, fileName, srcMd5, metadata, null);
+    }
+
+    public boolean uploadToObjectStorage(InputStream inputStream, String bucketName, String fileName, String srcMd5, Map<String, String> metadata,
+                                         BandwidthThrottle.Transfer throttle) throws ExecutionException, InterruptedException {
         return executorService.submit(() -> {
             boolean uploadSuccessful = false;
 //            BufferedInputStream bis = new BufferedInputStream(inputStream);
             try {
+                BandwidthThrottle.Transfer transfer = throttle != null ? throttle : bandwidthThrottle.newTransfer();
+                ObjectStorageMetrics.CountingInputStream body = metrics.countUpload(new ThrottledInputStream(inputStream, transfer, regionLabel()));
                 PutObjectRequest request = PutObjectRequest.builder()
                         .namespaceName(namespaceName)
                         .bucketName(bucketName)
                         .objectName(fileName)
-                        .putObjectBody(inputStream)
+                        .putObjectBody(body)
+                        .opcMeta(metadata)
                         .build();
 
                 LOGGER.info("File upload starting...");
                 long startTime = System.currentTimeMillis();
 
-                PutObjectResponse response = objectStorageClient.putObject(request);
+                invalidateCaches(bucketName, fileName);
+                PutObjectResponse response = metrics.time("putObject", () -> objectStorageClient.putObject(request), r -> body.getCount());
                 LOGGER.info("Filename: {}, srcMd5:{}, destMd5:{}", fileName, srcMd5, response.getOpcContentMd5());
                 uploadSuccessful = srcMd5 != null? response.getOpcContentMd5().equals(srcMd5) : response.getOpcContentMd5() != null;
                 LOGGER.info("uploadToObjectStorage: file md5:{}", response.getOpcContentMd5());
@@ -104,6 +454,113 @@ public class ObjectStorageUtils {
 
     }
 
+    // Starts a server-side copy inside Object Storage; returns the work request id, or null if the copy could not be started
+    public String copyObject(String sourceBucket, String sourceObject, String destBucket, String destObject) {
+        try {
+            CopyObjectDetails details = CopyObjectDetails.builder()
+                    .sourceObjectName(sourceObject)
+                    .destinationRegion(regionId)
+                    .destinationNamespace(namespaceName)
+                    .destinationBucket(destBucket)
+                    .destinationObjectName(destObject)
+                    .build();
+
+            CopyObjectRequest request = CopyObjectRequest.builder()
+                    .namespaceName(namespaceName)
+                    .bucketName(sourceBucket)
+                    .copyObjectDetails(details)
+                    .build();
+
+            LOGGER.info("Starting server-side copy {}/{} -> {}/{}", sourceBucket, sourceObject, destBucket, destObject);
+            invalidateCaches(destBucket, destObject);
+            CopyObjectResponse response = metrics.time("copyObject", -1, () -> objectStorageClient.copyObject(request));
+            LOGGER.info("Server-side copy accepted, workRequestId: {}", response.getOpcWorkRequestId());
+            return response.getOpcWorkRequestId();
+        } catch (Exception e) {
+            LOGGER.error("Error starting server-side copy of {}/{}: {}", sourceBucket, sourceObject, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    // One page of names, sizes and ETags under prefix starting at start (inclusive); null if the listing failed.
+    // Continue with the page's nextStartWith until it is null.
+    public ListObjects listObjects(String bucketName, String prefix, String start, int limit) {
+        try {
+            ListObjectsRequest request = ListObjectsRequest.builder()
+                    .namespaceName(namespaceName)
+                    .bucketName(bucketName)
+                    .prefix(prefix)
+                    .start(start)
+                    .limit(limit)
+                    .fields("name,size,etag")
+                    .retryConfiguration(RetryConfiguration.NO_RETRY_CONFIGURATION)
+                    .build();
+            return resilience.call("listObjects", cancelled -> metrics.time("listObjects", -1, () -> objectStorageClient.listObjects(request)))
+                    .getListObjects();
+        } catch (Exception e) {
+            LOGGER.error("Error listing {}/{} from {}: {}", bucketName, prefix, start, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    // Returns the current state of a copy work request, or null if it cannot be read
+    public WorkRequest getWorkRequest(String workRequestId) {
+        try {
+            GetWorkRequestRequest request = GetWorkRequestRequest.builder()
+                    .workRequestId(workRequestId)
+                    .build();
+            GetWorkRequestResponse response = metrics.time("getWorkRequest", -1, () -> objectStorageClient.getWorkRequest(request));
+            return response.getWorkRequest();
+        } catch (Exception e) {
+            LOGGER.error("Error reading work request {}: {}", workRequestId, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    // Polls a copy work request until it reaches a terminal state or the timeout expires
+    public WorkRequest awaitWorkRequest(String workRequestId, long timeoutMillis) throws InterruptedException {
+        try {
+            return awaitWorkRequestAsync(workRequestId, timeoutMillis).get();
+        } catch (ExecutionException e) {
+            LOGGER.error("Error polling work request {}: {}", workRequestId, e.getMessage());
+            return null;
+        }
+    }
+
+    // As awaitWorkRequest, with the polls scheduled on this client's poller thread instead of blocking the caller.
+    // Completes with the last state read: terminal, still running at the timeout, or null if it could not be read
+    public CompletableFuture<WorkRequest> awaitWorkRequestAsync(String workRequestId, long timeoutMillis) {
+        CompletableFuture<WorkRequest> result = new CompletableFuture<>();
+        pollWorkRequest(workRequestId, System.currentTimeMillis() + timeoutMillis, 0, result);
+        return result;
+    }
+
+    private void pollWorkRequest(String workRequestId, long deadline, long delayMillis, CompletableFuture<WorkRequest> result) {
+        try {
+            workRequestPoller.schedule(() -> {
+                try {
+                    WorkRequest workRequest = getWorkRequest(workRequestId);
+                    if (workRequest == null || isTerminal(workRequest.getStatus()) || System.currentTimeMillis() >= deadline) {
+                        result.complete(workRequest);
+                    } else {
+                        pollWorkRequest(workRequestId, deadline, delayMillis == 0 ? 500 : Math.min(delayMillis * 2, 5000), result);
+                    }
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            result.completeExceptionally(e);
+        }
+    }
+
+    public static boolean isTerminal(WorkRequest.Status status) {
+        return status == WorkRequest.Status.Completed
+                || status == WorkRequest.Status.Failed
+                || status == WorkRequest.Status.Canceled;
+    }
+
     // Helper method to save a file to local disk
     public boolean saveToLocalDisk(InputStream inputStream, String filePath) throws ExecutionException, InterruptedException {
         return executorService.submit(()-> {
@@ -131,9 +588,15 @@ public class ObjectStorageUtils {
     }
 
     public String initiateMultipartUpload(String bucketName, String objectName) {
+        return initiateMultipartUpload(bucketName, objectName, null);
+    }
+
+    // metadata becomes the user metadata (opcMeta) of the committed object
+    public String initiateMultipartUpload(String bucketName, String objectName, Map<String, String> metadata) {
         try {
             CreateMultipartUploadDetails details = CreateMultipartUploadDetails.builder()
                     .object(objectName)
+                    .metadata(metadata)
                     .build();
 
             CreateMultipartUploadRequest request = CreateMultipartUploadRequest.builder()
@@ -143,7 +606,7 @@ public class ObjectStorageUtils {
                     .build();
 
             LOGGER.info("Initiating multipart upload for object: {}", objectName);
-            CreateMultipartUploadResponse response = objectStorageClient.createMultipartUpload(request);
+            CreateMultipartUploadResponse response = metrics.time("createMultipartUpload", -1, () -> objectStorageClient.createMultipartUpload(request));
             return response.getMultipartUpload().getUploadId();
         } catch (Exception e) {
             LOGGER.error("Error initiating multipart upload: {}", e.getMessage(), e);
@@ -151,79 +614,383 @@ public class ObjectStorageUtils {
         }
     }
 
+    // Continues the upload recorded for transferKey if it still exists in Object Storage, otherwise starts a new one.
+    // Returns the journal to upload against (its object name and upload id win over the arguments), or null on error.
+    public MultipartUploadJournal resumeOrInitiateMultipartUpload(MultipartJournalStore journalStore, String transferKey, String bucketName,
+                                                                   String objectName, long partSize, long totalSize) {
+        return resumeOrInitiateMultipartUpload(journalStore, transferKey, bucketName, objectName, partSize, totalSize, null);
+    }
+
+    // A new upload is created with metadata as its user metadata; a resumed one keeps what it was created with.
+    // The returned journal holds transferKey until it is closed or deleted; throws TransferInProgressException
+    // while another attempt holds it.
+    public MultipartUploadJournal resumeOrInitiateMultipartUpload(MultipartJournalStore journalStore, String transferKey, String bucketName,
+                                                                   String objectName, long partSize, long totalSize, Map<String, String> metadata) {
+        if (!journalStore.tryLock(transferKey)) {
+            throw new TransferInProgressException(transferKey);
+        }
+        MultipartUploadJournal journal = null;
+        try {
+            journal = resumeOrInitiateLocked(journalStore, transferKey, bucketName, objectName, partSize, totalSize, metadata);
+            return journal;
+        } finally {
+            if (journal != null) {
+                journalStore.holdUntilClosed(journal);
+            } else {
+                journalStore.unlock(transferKey);
+            }
+        }
+    }
+
+    private MultipartUploadJournal resumeOrInitiateLocked(MultipartJournalStore journalStore, String transferKey, String bucketName,
+                                                          String objectName, long partSize, long totalSize, Map<String, String> metadata) {
+        MultipartUploadJournal journal = journalStore.find(transferKey);
+        if (journal != null) {
+            Map<Integer, MultipartUploadPartSummary> uploadedParts = journal.getPartSize() == partSize && journal.getTotalSize() == totalSize
+                    ? listUploadedParts(journal.getBucketName(), journal.getObjectName(), journal.getUploadId())
+                    : null;
+            if (uploadedParts != null) {
+                try {
+                    // Object Storage is the source of truth: keep journal parts it has, add parts uploaded just before a crash
+                    journal.getCommittedParts().keySet().retainAll(uploadedParts.keySet());
+                    journal.getPartMd5s().keySet().retainAll(uploadedParts.keySet());
+                    for (MultipartUploadPartSummary part : uploadedParts.values()) {
+                        // parts were sent with Content-MD5, so the MD5 Object Storage reports is the one we computed
+                        if (!part.getEtag().equals(journal.getCommittedParts().get(part.getPartNumber()))
+                                || !journal.getPartMd5s().containsKey(part.getPartNumber())) {
+                            journal.recordPart(part.getPartNumber(), part.getEtag(), part.getMd5());
+                        }
+                    }
+                    LOGGER.info("Resuming multipart upload {} of object {} with {} parts", journal.getUploadId(), journal.getObjectName(), uploadedParts.size());
+                    return journal;
+                } catch (IOException e) {
+                    LOGGER.error("Error updating journal {}: {}", journal.getPath(), e.getMessage(), e);
+                    journal.close();
+                    return null;
+                }
+            }
+            LOGGER.info("Journal for {} does not match a live upload, starting over", transferKey);
+            abortMultipartUpload(journal.getBucketName(), journal.getObjectName(), journal.getUploadId());
+            journal.delete();
+        }
+
+        String uploadId = initiateMultipartUpload(bucketName, objectName, metadata);
+        if (uploadId == null) {
+            return null;
+        }
+        try {
+            return journalStore.create(transferKey, this, bucketName, objectName, uploadId, partSize, totalSize);
+        } catch (IOException e) {
+            LOGGER.error("Error creating journal for {}: {}", transferKey, e.getMessage(), e);
+            abortMultipartUpload(bucketName, objectName, uploadId);
+            return null;
+        }
+    }
+
+    // Part number -> summary (ETag, MD5, size) of the parts Object Storage holds for an upload, or null if the upload no longer exists
+    public Map<Integer, MultipartUploadPartSummary> listUploadedParts(String bucketName, String objectName, String uploadId) {
+        try {
+            Map<Integer, MultipartUploadPartSummary> parts = new TreeMap<>();
+            String page = null;
+            do {
+                ListMultipartUploadPartsRequest request = ListMultipartUploadPartsRequest.builder()
+                        .namespaceName(namespaceName)
+                        .bucketName(bucketName)
+                        .objectName(objectName)
+                        .uploadId(uploadId)
+                        .page(page)
+                        .build();
+                ListMultipartUploadPartsResponse response = metrics.time("listMultipartUploadParts", -1,
+                        () -> objectStorageClient.listMultipartUploadParts(request));
+                for (MultipartUploadPartSummary part : response.getItems()) {
+                    parts.put(part.getPartNumber(), part);
+                }
+                page = response.getOpcNextPage();
+            } while (page != null);
+            return parts;
+        } catch (Exception e) {
+            LOGGER.warn("Cannot list parts of upload {} for object {}: {}", uploadId, objectName, e.getMessage());
+            return null;
+        }
+    }
+
     public MultipartUploadResult uploadParts(InputStream inputStream, String bucketName, String objectName, String uploadId, long fileSize, long partSize) {
+        return uploadParts(inputStream, bucketName, objectName, uploadId, fileSize, partSize, null, false);
+    }
+
+    // With a journal, parts it already holds are read past without being uploaded, and every newly uploaded part is recorded.
+    // In adaptive mode the number of parts in flight is tuned by the AdaptiveTransferController instead of maxInFlightParts.
+    public MultipartUploadResult uploadParts(InputStream inputStream, String bucketName, String objectName, String uploadId, long fileSize, long partSize,
+                                             MultipartUploadJournal journal, boolean adaptive) {
+        return uploadParts(inputStream, bucketName, objectName, uploadId, fileSize, partSize, journal, adaptive, TransferProgress.NONE);
+    }
+
+    // Reports committed parts to progress and stops reading once it is cancelled. A negative fileSize means the length is
+    // unknown (e.g. a compressed stream): parts are cut until the stream ends
+    public MultipartUploadResult uploadParts(InputStream inputStream, String bucketName, String objectName, String uploadId, long fileSize, long partSize,
+                                             MultipartUploadJournal journal, boolean adaptive, TransferProgress progress) {
+        return uploadParts(inputStream, bucketName, objectName, uploadId, fileSize, partSize, journal, adaptive, progress, bandwidthThrottle.newTransfer());
+    }
+
+    // Part bodies are charged to throttle, so a copy can share one transfer limit between reading the source and writing here
+    public MultipartUploadResult uploadParts(InputStream inputStream, String bucketName, String objectName, String uploadId, long fileSize, long partSize,
+                                             MultipartUploadJournal journal, boolean adaptive, TransferProgress progress,
+                                             BandwidthThrottle.Transfer throttle) {
+        // Reader -> uploader pipeline: the calling thread reads one part at a time and blocks once the
+        // in-flight cap is reached, so peak memory is bounded by maxInFlightParts x partSize.
+        InFlightLimiter limiter = new InFlightLimiter(transferConfiguration.getMaxInFlightParts(), transferConfiguration.getMaxInFlightBytes());
+        AdaptiveTransferController.Session adaptiveSession = adaptive ? adaptiveTransferController.startSession(regionLabel(), limiter,
+                TransferExecutors.transferCapacity(transferConfiguration.getPartUploadThreads(), transferConfiguration)) : null;
+        ConcurrentSkipListMap<Integer, CommitMultipartUploadPartDetails> committedParts = new ConcurrentSkipListMap<>();
+        ConcurrentSkipListMap<Integer, String> partMd5s = new ConcurrentSkipListMap<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        if (journal != null) {
+            journal.getCommittedParts().forEach((partNum, etag) -> committedParts.put(partNum, CommitMultipartUploadPartDetails.builder()
+                    .partNum(partNum)
+                    .etag(etag)
+                    .build()));
+            partMd5s.putAll(journal.getPartMd5s());
+            LOGGER.info("Resuming multipart upload {} for object: {}, parts already committed: {}", uploadId, objectName, committedParts.size());
+        }
+        if (fileSize >= 0) {
+            progress.started(fileSize, (int) ((fileSize + partSize - 1) / partSize));
+        }
+        progress.phase("upload_parts");
         try {
-            List<CommitMultipartUploadPartDetails> parts = new ArrayList<>();
-
-            AtomicLong bytesReadTotal = new AtomicLong(0);
-            AtomicInteger partNumber = new AtomicInteger(1);
-            ExecutorService executorService = Executors.newFixedThreadPool(10);
-            List<Future<UploadPartResponse>>  futures = new ArrayList<>();
-
-            LOGGER.info("Starting multipart upload for object: {}, partSize: {}", objectName, partSize);
-
-            while (bytesReadTotal.get() < fileSize) {
-                byte[] buffer = new byte[(int) partSize];
-                int totalBytesReadForPart = 0;
-                int localPartNumber = partNumber.getAndIncrement();
-                // Accumulate data up to partSize or until no more data is available
-                while (totalBytesReadForPart < partSize && bytesReadTotal.get() < fileSize) {
-                    int bytesRead = inputStream.read(buffer, totalBytesReadForPart, (int) (partSize - totalBytesReadForPart));
-                    if (bytesRead == -1) break;
-                    totalBytesReadForPart += bytesRead;
-                    bytesReadTotal.addAndGet(bytesRead);
+            long bytesReadTotal = 0;
+            int partNumber = 1;
+            ReadableByteChannel inputChannel = Channels.newChannel(inputStream);
+
+            LOGGER.info("Starting multipart upload for object: {}, partSize: {}, maxInFlightParts: {}, maxInFlightBytes: {}",
+                    objectName, partSize, transferConfiguration.getMaxInFlightParts(), transferConfiguration.getMaxInFlightBytes());
+
+            while ((fileSize < 0 || bytesReadTotal < fileSize) && failure.get() == null) {
+                if (progress.isCancelled()) {
+                    failure.compareAndSet(null, new CancellationException("Upload of " + objectName + " cancelled"));
+                    break;
+                }
+                int partLength = (int) (fileSize < 0 ? partSize : Math.min(partSize, fileSize - bytesReadTotal));
+                if (committedParts.containsKey(partNumber)) {
+                    // already uploaded by an earlier attempt; consume its bytes from the stream only
+                    long skipped = skipFully(inputChannel, partLength, (int) partSize);
+                    bytesReadTotal += skipped;
+                    progress.transferred(skipped);
+                    progress.partCompleted();
+                    partNumber++;
+                    if (skipped < partLength) break;
+                    continue;
                 }
+                limiter.acquire(partLength);
 
-                if (totalBytesReadForPart > 0) {
-                    int localBytesReadForPart = totalBytesReadForPart;
-
-                    Future<UploadPartResponse> uploadPartResponseFuture = executorService.submit(() -> {
-                        ByteArrayInputStream partStream = new ByteArrayInputStream(buffer, 0, localBytesReadForPart);
-                        UploadPartRequest request = UploadPartRequest.builder()
-                                .namespaceName(namespaceName)
-                                .bucketName(bucketName)
-                                .objectName(objectName)
-                                .uploadId(uploadId)
-                                .uploadPartNum(localPartNumber)
-                                .uploadPartBody(partStream)
-                                .contentLength((long) localBytesReadForPart)
-                                .build();
-
-                        LOGGER.info("Uploading part {} for object: {}, size: {}", localPartNumber, objectName, localBytesReadForPart);
-                        return objectStorageClient.uploadPart(request);
+                // Lease at the full part size so the short last part reuses the same size class
+                ByteBuffer buffer = partBufferPool.lease((int) partSize);
+                buffer.limit(partLength);
+                TransferTimeline.Part timing = new TransferTimeline.Part(partNumber, partLength);
+                int totalBytesReadForPart;
+                try {
+                    timing.readStarted();
+                    totalBytesReadForPart = readFully(inputChannel, buffer);
+                    timing.readFinished();
+                } catch (IOException e) {
+                    partBufferPool.release(buffer);
+                    limiter.release(partLength);
+                    throw e;
+                }
+                if (totalBytesReadForPart <= 0) {
+                    partBufferPool.release(buffer);
+                    limiter.release(partLength);
+                    break;
+                }
+                buffer.flip();
+                bytesReadTotal += totalBytesReadForPart;
+
+                int localPartNumber = partNumber++;
+                try {
+                    partExecutorService.execute(() -> {
+                        try {
+                            if (failure.get() != null) {
+                                return;
+                            }
+                            // Store the ETag and part number for commit
+                            long partStart = System.nanoTime();
+                            timing.uploadStarted();
+                            // hashed here on the worker, so checksumming runs in parallel across parts
+                            String partMd5 = md5Of(buffer);
+                            CommitMultipartUploadPartDetails part = uploadPart(bucketName, objectName, uploadId, localPartNumber, buffer, partMd5, throttle, timing);
+                            timing.uploadFinished(true);
+                            progress.partFinished(timing);
+                            if (adaptiveSession != null) {
+                                adaptiveSession.onPartComplete(partLength, System.nanoTime() - partStart, true);
+                            }
+                            if (journal != null) {
+                                journal.recordPart(localPartNumber, part.getEtag(), partMd5);
+                            }
+                            partMd5s.put(localPartNumber, partMd5);
+                            committedParts.put(localPartNumber, part);
+                            progress.transferred(partLength);
+                            progress.partCompleted();
+                        } catch (Exception e) {
+                            LOGGER.error("Error uploading part {} for object: {}, error: {}", localPartNumber, objectName, e.getMessage(), e);
+                            timing.uploadFinished(false);
+                            progress.partFinished(timing);
+                            if (adaptiveSession != null) {
+                                adaptiveSession.onPartComplete(partLength, 0, false);
+                            }
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            partBufferPool.release(buffer);
+                            limiter.release(partLength);
+                        }
                     });
-                    futures.add(uploadPartResponseFuture);
-//                    partNumber++;
-                } else {
+                } catch (RejectedExecutionException e) {
+                    partBufferPool.release(buffer);
+                    limiter.release(partLength);
+                    throw e;
+                }
+                if (totalBytesReadForPart < partLength) {
+                    // stream ended before the announced file size
                     break;
                 }
             }
-            int index =1;
 
-            for (Future<UploadPartResponse> future : futures) {
-
-                UploadPartResponse uploadPartResponse = future.get();
-                LOGGER.info("Uploaded part {} for object {}, ETag: {}", index, objectName, uploadPartResponse.getETag());
-
-                // Store the ETag and part number for commit
-                parts.add(CommitMultipartUploadPartDetails.builder()
-                        .partNum(index)
-                        .etag(uploadPartResponse.getETag())
-                        .build());
-                index++;
+            limiter.awaitIdle();
+            if (failure.get() != null) {
+                throw failure.get();
             }
 
-            LOGGER.info("All parts uploaded for object: {}, total parts: {}", objectName, partNumber.get() - 1);
-            //calculateLocalyMultipartUploadMd5Hash(partMd5Hashes);
+            LOGGER.info("All parts uploaded for object: {}, total parts: {}", objectName, committedParts.size());
 
-            return new MultipartUploadResult(true, parts);
+            return new MultipartUploadResult(true, new ArrayList<>(committedParts.values()), multipartMd5(committedParts.keySet(), partMd5s));
         } catch (Exception e) {
             LOGGER.error("Error uploading parts for object: {}, error: {}", objectName, e.getMessage(), e);
+            failure.compareAndSet(null, e);
+            try {
+                // don't let the caller abort the upload while parts are still in flight
+                limiter.awaitIdle();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
             return new MultipartUploadResult(false, new ArrayList<>());
         }
     }
 
-    private String calculateLocalyMultipartUploadMd5Hash(List<byte[]> partMd5Hashes) {
+    // Uploads the remaining bytes of the buffer as one part and returns the details needed to commit it
+    // Failed attempts are retried with backoff; a duplicate of the same part number is never raced, because
+    // whichever copy lands last would own the ETag and break the commit.
+    public CommitMultipartUploadPartDetails uploadPart(String bucketName, String objectName, String uploadId, int partNumber, ByteBuffer body) throws Exception {
+        return uploadPart(bucketName, objectName, uploadId, partNumber, body, md5Of(body), bandwidthThrottle.newTransfer());
+    }
+
+    // contentMd5 (Base64 MD5 of the body) is sent as Content-MD5, so Object Storage rejects a part corrupted in transit.
+    // The part body is charged against the transfer's bandwidth limits as the client reads it.
+    public CommitMultipartUploadPartDetails uploadPart(String bucketName, String objectName, String uploadId, int partNumber, ByteBuffer body,
+                                                       String contentMd5, BandwidthThrottle.Transfer throttle) throws Exception {
+        return uploadPart(bucketName, objectName, uploadId, partNumber, body, contentMd5, throttle, null);
+    }
+
+    // timing, when given, counts the attempts of the part for its transfer's timeline
+    public CommitMultipartUploadPartDetails uploadPart(String bucketName, String objectName, String uploadId, int partNumber, ByteBuffer body,
+                                                       String contentMd5, BandwidthThrottle.Transfer throttle, TransferTimeline.Part timing) throws Exception {
+        int partLength = body.remaining();
+        LOGGER.info("Uploading part {} for object: {}, size: {}", partNumber, objectName, partLength);
+        UploadPartResponse uploadPartResponse = resilience.call("uploadPart", cancelled -> metrics.time("uploadPart", partLength, () -> {
+            if (timing != null) {
+                timing.attempt();
+            }
+            return objectStorageClient.uploadPart(UploadPartRequest.builder()
+                    .namespaceName(namespaceName)
+                    .bucketName(bucketName)
+                    .objectName(objectName)
+                    .uploadId(uploadId)
+                    .uploadPartNum(partNumber)
+                    .uploadPartBody(metrics.countUpload(new ThrottledInputStream(new ByteBufferInputStream(body), throttle, regionLabel())))
+                    .contentLength((long) partLength)
+                    .contentMD5(contentMd5)
+                    .retryConfiguration(RetryConfiguration.NO_RETRY_CONFIGURATION)
+                    .build());
+        }));
+        LOGGER.info("Uploaded part {} for object {}, ETag: {}", partNumber, objectName, uploadPartResponse.getETag());
+
+        return CommitMultipartUploadPartDetails.builder()
+                .partNum(partNumber)
+                .etag(uploadPartResponse.getETag())
+                .build();
+    }
+
+    // Stores the remaining bytes of the buffer as a whole object with Content-MD5, retried with backoff like a part;
+    // used for the chunks of deduplicated uploads. Returns the object's ETag
+    public String putObject(String bucketName, String objectName, ByteBuffer body, String contentMd5, BandwidthThrottle.Transfer throttle,
+                            TransferTimeline.Part timing) throws Exception {
+        int length = body.remaining();
+        invalidateCaches(bucketName, objectName);
+        PutObjectResponse response = resilience.call("putObject", cancelled -> metrics.time("putObject", length, () -> {
+            if (timing != null) {
+                timing.attempt();
+            }
+            return objectStorageClient.putObject(PutObjectRequest.builder()
+                    .namespaceName(namespaceName)
+                    .bucketName(bucketName)
+                    .objectName(objectName)
+                    .putObjectBody(metrics.countUpload(new ThrottledInputStream(new ByteBufferInputStream(body), throttle, regionLabel())))
+                    .contentLength((long) length)
+                    .contentMD5(contentMd5)
+                    .retryConfiguration(RetryConfiguration.NO_RETRY_CONFIGURATION)
+                    .build());
+        }));
+        return response.getETag();
+    }
+
+    // Discards up to length bytes of the stream through a pooled buffer; returns the number of bytes discarded
+    private long skipFully(ReadableByteChannel channel, long length, int bufferSize) throws IOException {
+        ByteBuffer buffer = partBufferPool.lease(bufferSize);
+        try {
+            long total = 0;
+            while (total < length) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), length - total));
+                int bytesRead = readFully(channel, buffer);
+                if (bytesRead <= 0) break;
+                total += bytesRead;
+            }
+            return total;
+        } finally {
+            partBufferPool.release(buffer);
+        }
+    }
+
+    // Reads until the buffer is full or the stream ends; returns the number of bytes read
+    static int readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int bytesRead = channel.read(buffer);
+            if (bytesRead == -1) break;
+            total += bytesRead;
+        }
+        return total;
+    }
+
+    // Base64 MD5 of the remaining bytes of the buffer; the buffer's position is left untouched
+    public static String md5Of(ByteBuffer body) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        md.update(body.duplicate());
+        return Base64.getEncoder().encodeToString(md.digest());
+    }
+
+    // Expected opc-multipart-md5 for the given parts, or null when the MD5 of any of them is unknown
+    public static String multipartMd5(Collection<Integer> partNumbers, Map<Integer, String> partMd5s) {
+        List<byte[]> partMd5Hashes = new ArrayList<>();
+        for (Integer partNumber : new TreeSet<>(partNumbers)) {
+            String partMd5 = partMd5s.get(partNumber);
+            if (partMd5 == null) {
+                return null;
+            }
+            partMd5Hashes.add(Base64.getDecoder().decode(partMd5));
+        }
+        return partMd5Hashes.isEmpty() ? null : calculateLocalyMultipartUploadMd5Hash(partMd5Hashes);
+    }
+
+    // Object Storage's multipart MD5: Base64 MD5 over the concatenated raw part digests, suffixed with the part count
+    static String calculateLocalyMultipartUploadMd5Hash(List<byte[]> partMd5Hashes) {
         //compute the final multi-part upload md5
         int length = partMd5Hashes.stream().mapToInt((md5Hash) -> md5Hash.length).sum();
         byte[] allMd5Hashes = new byte[length];
@@ -233,24 +1000,41 @@ public class ObjectStorageUtils {
             position += md5Hash.length;
         }
         byte[] digest = calculateMD5(allMd5Hashes, 0, allMd5Hashes.length);
-        String multipartMd5Hash = Base64.getEncoder().encodeToString(digest);
-        LOGGER.info("Calculated multipart md5Hash: {}", multipartMd5Hash);
+        if (digest == null) {
+            return null;
+        }
+        String multipartMd5Hash = Base64.getEncoder().encodeToString(digest) + "-" + partMd5Hashes.size();
+        LOGGER.debug("Calculated multipart md5Hash: {}", multipartMd5Hash);
         return multipartMd5Hash;
     }
 
-    // Method to calculate MD5 hash of a byte array segment
-    private byte[] calculateMD5(byte[] data, int offset, int length) {
+    // Method to calculate the raw MD5 digest of a byte array segment
+    private static byte[] calculateMD5(byte[] data, int offset, int length) {
         try {
             MessageDigest md = MessageDigest.getInstance("MD5");
             md.update(data, offset, length);
-            byte[] digest = md.digest();
-            return Base64.getEncoder().encode(digest);
+            return md.digest();
         } catch (Exception e) {
             LOGGER.error("Error calculating MD5 hash: {}", e.getMessage(), e);
             return null;
         }
     }
     public boolean completeMultipartUpload(String bucketName, String objectName, String uploadId, List<CommitMultipartUploadPartDetails> parts, long fileSize) {
+        return completeMultipartUpload(bucketName, objectName, uploadId, parts, fileSize, null);
+    }
+
+    // Commits the parts and verifies the result without downloading it: the multipart MD5 from the commit (or the HEAD)
+    // must equal expectedMultipartMd5 when one is given, and the HEAD's size must equal fileSize.
+    // Returns false if the commit itself failed (the upload is still there to abort); throws CommittedUploadException if the
+    // committed object does not pass the check (it is deleted) or cannot be looked up to check it.
+    public boolean completeMultipartUpload(String bucketName, String objectName, String uploadId, List<CommitMultipartUploadPartDetails> parts, long fileSize,
+                                           String expectedMultipartMd5) {
+        return completeMultipartUpload(bucketName, objectName, uploadId, parts, fileSize, expectedMultipartMd5, TransferProgress.NONE);
+    }
+
+    // Reports the commit and the verifying HEAD as phases of the transfer
+    public boolean completeMultipartUpload(String bucketName, String objectName, String uploadId, List<CommitMultipartUploadPartDetails> parts, long fileSize,
+                                           String expectedMultipartMd5, TransferProgress progress) {
         try {
             // Build the commit details with the list of parts
             CommitMultipartUploadDetails details = CommitMultipartUploadDetails.builder()
@@ -266,29 +1050,81 @@ public class ObjectStorageUtils {
                     .build();
 
             LOGGER.info("Completing multipart upload for object: {}", objectName);
-            CommitMultipartUploadResponse multipartUploadResponse = objectStorageClient.commitMultipartUpload(request);
-
-            GetObjectResponse getObjectResponse = objectStorageClient.getObject(
-                    GetObjectRequest.builder()
-                            .namespaceName(namespaceName)
-                            .bucketName(bucketName)
-                            .objectName(objectName)
-                            .build());
-            LOGGER.info("Multipart upload completed for object. Get object completed for object: {}, sourceSize: {} and destination size:{}", objectName, fileSize,getObjectResponse.getContentLength());
+            progress.phase("commit");
+            invalidateCaches(bucketName, objectName);
+            // timed under the object's size bucket: commit time grows with the number of parts
+            CommitMultipartUploadResponse multipartUploadResponse = metrics.time("commitMultipartUpload", fileSize > 0 ? fileSize : -1,
+                    () -> objectStorageClient.commitMultipartUpload(request));
 
-
-            if (fileSize > 0) {
-                return fileSize == getObjectResponse.getContentLength();
-            } else {
-                return getObjectResponse.getContentLength() > 0;
+            progress.phase("verify");
+            HeadObjectResponse headObjectResponse;
+            try {
+                // never the cache: a reader may have refilled it with the metadata from before the commit
+                headObjectResponse = headObjectUncached(bucketName, objectName);
+            } catch (Exception e) {
+                LOGGER.error("Multipart upload committed but object {} cannot be looked up: {}", objectName, e.getMessage(), e);
+                throw new CommittedUploadException(objectName, false,
+                        "Object " + objectName + " was committed but could not be verified: " + e.getMessage());
             }
+            String multipartMd5 = multipartUploadResponse.getOpcMultipartMd5() != null
+                    ? multipartUploadResponse.getOpcMultipartMd5() : headObjectResponse.getOpcMultipartMd5();
+            long storedSize = headObjectResponse.getContentLength() != null ? headObjectResponse.getContentLength() : -1L;
+            LOGGER.info("Multipart upload completed for object: {}, sourceSize: {}, destination size: {}, expected md5: {}, multipart md5: {}",
+                    objectName, fileSize, storedSize, expectedMultipartMd5, multipartMd5);
 
+            String mismatch = null;
+            if (expectedMultipartMd5 != null && !expectedMultipartMd5.equals(multipartMd5)) {
+                mismatch = "multipart md5 " + multipartMd5 + ", expected " + expectedMultipartMd5;
+            } else if (fileSize > 0 ? fileSize != storedSize : storedSize <= 0) {
+                mismatch = "size " + storedSize + ", expected " + (fileSize > 0 ? fileSize : "more than 0");
+            }
+            if (mismatch != null) {
+                LOGGER.error("Committed object {} has {}, deleting it", objectName, mismatch);
+                boolean deleted = deleteObject(bucketName, objectName, headObjectResponse.getETag());
+                throw new CommittedUploadException(objectName, deleted, "Object " + objectName + " was committed with " + mismatch
+                        + (deleted ? " and has been deleted" : " and could not be deleted"));
+            }
+            return true;
+        } catch (CommittedUploadException e) {
+            throw e;
         } catch (Exception e) {
             LOGGER.error("Error completing multipart upload for object: {}, error: {}", objectName, e.getMessage(), e);
             return false;
         }
     }
 
+    // HEAD straight from Object Storage, retried like the other calls of this client; the cache is refilled with the result
+    private HeadObjectResponse headObjectUncached(String bucketName, String objectName) throws Exception {
+        HeadObjectRequest request = HeadObjectRequest.builder()
+                .namespaceName(namespaceName)
+                .bucketName(bucketName)
+                .objectName(objectName)
+                .retryConfiguration(RetryConfiguration.NO_RETRY_CONFIGURATION)
+                .build();
+        HeadObjectResponse response = resilience.call("headObject", cancelled -> metrics.time("headObject", -1, () -> objectStorageClient.headObject(request)));
+        metadataCache.put(metadataCacheKey(bucketName, objectName), response);
+        return response;
+    }
+
+    // Deletes the object only while it is still the version with the given ETag, so a newer write by someone else survives
+    public boolean deleteObject(String bucketName, String objectName, String eTag) {
+        try {
+            DeleteObjectRequest request = DeleteObjectRequest.builder()
+                    .namespaceName(namespaceName)
+                    .bucketName(bucketName)
+                    .objectName(objectName)
+                    .ifMatch(eTag)
+                    .retryConfiguration(RetryConfiguration.NO_RETRY_CONFIGURATION)
+                    .build();
+            invalidateCaches(bucketName, objectName);
+            resilience.call("deleteObject", cancelled -> metrics.time("deleteObject", -1, () -> objectStorageClient.deleteObject(request)));
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("Error deleting object {}/{}: {}", bucketName, objectName, e.getMessage(), e);
+            return false;
+        }
+    }
+
     public boolean abortMultipartUpload(String bucketName, String objectName, String uploadId) {
         try {
             AbortMultipartUploadRequest request = AbortMultipartUploadRequest.builder()
@@ -299,7 +1135,7 @@ public class ObjectStorageUtils {
                     .build();
 
             LOGGER.info("Aborting multipart upload for object: {}", objectName);
-            objectStorageClient.abortMultipartUpload(request);
+            metrics.time("abortMultipartUpload", -1, () -> objectStorageClient.abortMultipartUpload(request));
             return true;
         } catch (Exception e) {
             LOGGER.error("Error aborting multipart upload for object: {}, error: {}", objectName, e.getMessage(), e);
@@ -0,0 +1,86 @@
+package com.example.utils;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Process-wide pool of direct ByteBuffers used as multipart part bodies.
+// Buffers are grouped in 1 MiB size classes; a buffer is leased for one part and handed back
+// with release() once uploadPart has completed, so steady-state transfers allocate nothing.
+public class PartBufferPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartBufferPool.class);
+
+    static final int SIZE_CLASS_BYTES = 1024 * 1024;
+
+    private final long maxPooledBytes;
+    private final ConcurrentMap<Integer, Deque<ByteBuffer>> freeBuffers = new ConcurrentHashMap<>();
+
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong outstandingBytes = new AtomicLong();
+
+    private final Meter hits;
+    private final Meter misses;
+
+    public PartBufferPool(long maxPooledBytes, MetricRegistry metricRegistry) {
+        this.maxPooledBytes = maxPooledBytes;
+        this.hits = metricRegistry.meter(MetricRegistry.name(PartBufferPool.class, "hits"));
+        this.misses = metricRegistry.meter(MetricRegistry.name(PartBufferPool.class, "misses"));
+        metricRegistry.register(MetricRegistry.name(PartBufferPool.class, "outstanding"), (Gauge<Integer>) outstanding::get);
+        metricRegistry.register(MetricRegistry.name(PartBufferPool.class, "outstanding_bytes"), (Gauge<Long>) outstandingBytes::get);
+        metricRegistry.register(MetricRegistry.name(PartBufferPool.class, "pooled_bytes"), (Gauge<Long>) pooledBytes::get);
+    }
+
+    // Leases a cleared buffer with at least the requested capacity; the limit is set to capacity
+    public ByteBuffer lease(int capacity) {
+        int sizeClass = sizeClass(capacity);
+        ByteBuffer buffer = freeBuffers.computeIfAbsent(sizeClass, key -> new ConcurrentLinkedDeque<>()).pollFirst();
+        if (buffer != null) {
+            pooledBytes.addAndGet(-buffer.capacity());
+            hits.mark();
+        } else {
+            LOGGER.debug("Allocating direct part buffer of {} bytes", sizeClass);
+            buffer = ByteBuffer.allocateDirect(sizeClass);
+            misses.mark();
+        }
+        outstanding.incrementAndGet();
+        outstandingBytes.addAndGet(buffer.capacity());
+        buffer.clear();
+        buffer.limit(capacity);
+        return buffer;
+    }
+
+    // Returns a leased buffer; it is dropped instead of pooled once the pool holds maxPooledBytes
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        outstanding.decrementAndGet();
+        outstandingBytes.addAndGet(-buffer.capacity());
+        if (pooledBytes.addAndGet(buffer.capacity()) > maxPooledBytes) {
+            pooledBytes.addAndGet(-buffer.capacity());
+            return;
+        }
+        freeBuffers.computeIfAbsent(buffer.capacity(), key -> new ConcurrentLinkedDeque<>()).offerFirst(buffer);
+    }
+
+    // Bytes currently leased out to transfers
+    public long getOutstandingBytes() {
+        return outstandingBytes.get();
+    }
+
+    static int sizeClass(int capacity) {
+        long rounded = ((long) capacity + SIZE_CLASS_BYTES - 1) / SIZE_CLASS_BYTES * SIZE_CLASS_BYTES;
+        return (int) Math.min(rounded, Integer.MAX_VALUE - 8);
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.utils;
+
+import com.example.config.TransferConfiguration;
+import com.oracle.bmc.model.Range;
+import com.oracle.bmc.objectstorage.responses.GetObjectResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Downloads large objects as concurrent ranged GETs, each range written at its own offset
+// of a preallocated file through FileChannel positional writes.
+public class RangedDownloader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RangedDownloader.class);
+
+    private static final int COPY_BUFFER_BYTES = 1024 * 1024;
+
+    private final ObjectStorageUtils objectStorageUtils;
+    private final TransferConfiguration transferConfiguration;
+    private final PartBufferPool partBufferPool;
+    private final ExecutorService rangeExecutorService;
+
+    public RangedDownloader(ObjectStorageUtils objectStorageUtils, TransferConfiguration transferConfiguration, PartBufferPool partBufferPool) {
+        this.objectStorageUtils = objectStorageUtils;
+        this.transferConfiguration = transferConfiguration;
+        this.partBufferPool = partBufferPool;
+        this.rangeExecutorService = TransferExecutors.newTransferExecutor("range-download-" + objectStorageUtils.regionLabel(),
+                transferConfiguration.getDownloadThreads(), transferConfiguration);
+    }
+
+    public void shutdown() {
+        rangeExecutorService.shutdown();
+    }
+
+    // expectedMd5 is the base64 Content-MD5 of a single-put object, or null when only the size can be checked
+    // eTag (from the HEAD that sized the download) is sent as If-Match, so ranges of a replaced object fail instead of mixing versions
+    public boolean download(String bucketName, String objectName, long size, String expectedMd5, String eTag, String filePath) {
+        long startTime = System.currentTimeMillis();
+        long rangeSize = transferConfiguration.getDownloadRangeSize();
+        Semaphore permits = new Semaphore(transferConfiguration.getDownloadConcurrency());
+        List<Future<Long>> futures = new ArrayList<>();
+        // the first failed range; no further ranges are started once it is set
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        BandwidthThrottle.Transfer throttle = objectStorageUtils.getBandwidthThrottle().newTransfer();
+
+        LOGGER.info("Ranged download starting for object: {}, size: {}, rangeSize: {}, concurrency: {}",
+                objectName, size, rangeSize, transferConfiguration.getDownloadConcurrency());
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "rw")) {
+            file.setLength(size);
+            FileChannel fileChannel = file.getChannel();
+
+            for (long offset = 0; offset < size; offset += rangeSize) {
+                long start = offset;
+                long end = Math.min(offset + rangeSize, size) - 1;
+                permits.acquire();
+                if (failure.get() != null) {
+                    permits.release();
+                    break;
+                }
+                try {
+                    futures.add(rangeExecutorService.submit(() -> {
+                        try {
+                            // positional writes of the same bytes are idempotent, so a hedged duplicate can share the file
+                            return objectStorageUtils.getResilience().callHedged("getObject range", end - start + 1,
+                                    cancelled -> downloadRange(bucketName, objectName, start, end, eTag, fileChannel, throttle, cancelled), null);
+                        } catch (Exception e) {
+                            failure.compareAndSet(null, e);
+                            throw e;
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+            if (failure.get() != null) {
+                // e.g. 412 because the object was replaced; the ranges still running are cancelled by failed()
+                throw failure.get();
+            }
+
+            long bytesWritten = 0;
+            for (Future<Long> future : futures) {
+                bytesWritten += future.get();
+            }
+            fileChannel.force(false);
+
+            if (bytesWritten != size || fileChannel.size() != size) {
+                LOGGER.error("Ranged download size mismatch for object: {}, expected: {}, written: {}", objectName, size, bytesWritten);
+                return failed(filePath, futures);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error in ranged download of object: {}, error: {}", objectName, e.getMessage(), e);
+            return failed(filePath, futures);
+        }
+
+        if (expectedMd5 != null) {
+            String actualMd5 = md5Of(filePath);
+            if (!expectedMd5.equals(actualMd5)) {
+                LOGGER.error("Ranged download md5 mismatch for object: {}, expected: {}, actual: {}", objectName, expectedMd5, actualMd5);
+                return failed(filePath, futures);
+            }
+        }
+
+        long timeTaken = System.currentTimeMillis() - startTime;
+        LOGGER.info("Ranged download completed for object: {}, ranges: {}, timeTaken (milli): {}", objectName, futures.size(), timeTaken);
+        return true;
+    }
+
+    // Fetches bytes [start, end] of the object and writes them at the same offset of the file
+    private long downloadRange(String bucketName, String objectName, long start, long end, String eTag, FileChannel fileChannel,
+                               BandwidthThrottle.Transfer throttle, AtomicBoolean cancelled) throws IOException {
+        GetObjectResponse response = objectStorageUtils.getObjectOnce(bucketName, objectName, new Range(start, end), eTag);
+
+        ByteBuffer buffer = partBufferPool.lease(COPY_BUFFER_BYTES);
+        long position = start;
+        try (InputStream in = new ThrottledInputStream(response.getInputStream(), throttle, objectStorageUtils.regionLabel());
+             ReadableByteChannel channel = Channels.newChannel(in)) {
+            while (!cancelled.get()) {
+                buffer.clear();
+                int bytesRead = channel.read(buffer);
+                if (bytesRead == -1) break;
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    position += fileChannel.write(buffer, position);
+                }
+            }
+        } finally {
+            partBufferPool.release(buffer);
+        }
+        long expected = end - start + 1;
+        if (cancelled.get()) {
+            // lost the race against a hedged duplicate; the winner wrote the range
+            return expected;
+        }
+        if (position - start != expected) {
+            throw new IOException("Range " + start + "-" + end + " returned " + (position - start) + " bytes, expected " + expected);
+        }
+        return expected;
+    }
+
+    private boolean failed(String filePath, List<Future<Long>> futures) {
+        futures.forEach(future -> future.cancel(true));
+        if (!new File(filePath).delete()) {
+            LOGGER.warn("Could not delete partial download {}", filePath);
+        }
+        return false;
+    }
+
+    private String md5Of(String filePath) {
+        ByteBuffer buffer = partBufferPool.lease(COPY_BUFFER_BYTES);
+        try (FileChannel channel = FileChannel.open(new File(filePath).toPath(), StandardOpenOption.READ)) {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                md.update(buffer);
+                buffer.clear();
+            }
+            return Base64.getEncoder().encodeToString(md.digest());
+        } catch (Exception e) {
+            LOGGER.error("Error calculating MD5 of {}: {}", filePath, e.getMessage(), e);
+            return null;
+        } finally {
+            partBufferPool.release(buffer);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.utils;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.example.config.ResilienceConfiguration;
+import com.oracle.bmc.model.BmcException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Retry with exponential backoff and jitter, hedged duplicates for slow idempotent reads,
+// and a circuit breaker, all scoped to one region's Object Storage client.
+// Requests run through it disable the SDK's own retries, so every attempt is seen here once.
+public class RequestResilience {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestResilience.class);
+
+    // One attempt of a request. Hedged attempts must stop early once cancelled is set.
+    public interface Attempt<T> {
+        T run(AtomicBoolean cancelled) throws Exception;
+    }
+
+    private static final long MIB = 1024 * 1024;
+
+    private final String region;
+    private final ResilienceConfiguration configuration;
+    private final MetricRegistry metricRegistry;
+    private final CircuitBreaker circuitBreaker;
+    private final ExecutorService hedgeExecutorService;
+
+    private final Counter retries;
+    private final Counter hedges;
+    private final Counter hedgeWins;
+    private final Counter breakerRejections;
+    // hedge latency per operation and size class, so 1 MiB chunks and 64 MiB ranges don't share a p95
+    private final ConcurrentMap<String, HedgeStats> hedgeStats = new ConcurrentHashMap<>();
+
+    public RequestResilience(String region, ResilienceConfiguration configuration, MetricRegistry metricRegistry, ExecutorService hedgeExecutorService) {
+        this.region = region;
+        this.configuration = configuration;
+        this.metricRegistry = metricRegistry;
+        this.circuitBreaker = new CircuitBreaker(region, configuration.getBreakerFailureThreshold(),
+                TimeUnit.SECONDS.toMillis(configuration.getBreakerOpenSeconds()));
+        this.hedgeExecutorService = hedgeExecutorService;
+        this.retries = metricRegistry.counter(MetricRegistry.name(RequestResilience.class, region, "retries"));
+        this.hedges = metricRegistry.counter(MetricRegistry.name(RequestResilience.class, region, "hedges"));
+        this.hedgeWins = metricRegistry.counter(MetricRegistry.name(RequestResilience.class, region, "hedge_wins"));
+        this.breakerRejections = metricRegistry.counter(MetricRegistry.name(RequestResilience.class, region, "breaker_rejections"));
+        metricRegistry.register(MetricRegistry.name(RequestResilience.class, region, "breaker_state"),
+                (Gauge<Integer>) () -> circuitBreaker.getState().ordinal());
+    }
+
+    // Runs the request with retries; used for part uploads and other non-idempotent-in-flight calls
+    public <T> T call(String operation, Attempt<T> attempt) throws Exception {
+        return withRetries(operation, () -> guarded(() -> attempt.run(new AtomicBoolean())));
+    }
+
+    // Runs an idempotent read of about bytes with retries; an attempt slower than the observed p95 of the same
+    // operation and size class gets a duplicate and the first result wins. discard receives the result of the
+    // losing attempt if it still completes.
+    public <T> T callHedged(String operation, long bytes, Attempt<T> attempt, Consumer<T> discard) throws Exception {
+        HedgeStats stats = hedgeStats.computeIfAbsent(operation + "|" + sizeClass(bytes), key -> new HedgeStats(operation, bytes));
+        return withRetries(operation, () -> guarded(() -> hedged(operation, stats, attempt, discard)));
+    }
+
+    public CircuitBreaker.State getBreakerState() {
+        return circuitBreaker.getState();
+    }
+
+    private <T> T withRetries(String operation, Callable<T> call) throws Exception {
+        int attemptNumber = 1;
+        while (true) {
+            try {
+                return call.call();
+            } catch (Exception e) {
+                if (attemptNumber >= configuration.getMaxAttempts() || !isRetryable(e)) {
+                    throw e;
+                }
+                long delay = backoffMillis(attemptNumber);
+                LOGGER.warn("{} failed in region {} (attempt {}/{}), retrying in {} ms: {}",
+                        operation, region, attemptNumber, configuration.getMaxAttempts(), delay, e.getMessage());
+                retries.inc();
+                Thread.sleep(delay);
+                attemptNumber++;
+            }
+        }
+    }
+
+    private <T> T guarded(Callable<T> call) throws Exception {
+        if (!circuitBreaker.allowRequest()) {
+            breakerRejections.inc();
+            throw new CircuitBreakerOpenException(region);
+        }
+        try {
+            T result = call.call();
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (Exception e) {
+            if (isRetryable(e)) {
+                // only server-side and transport failures say something about the region's health
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            throw e;
+        }
+    }
+
+    private <T> T hedged(String operation, HedgeStats stats, Attempt<T> attempt, Consumer<T> discard) throws Exception {
+        long hedgeDelay = stats.delayMillis();
+        // only the primary is timed, so hedging doesn't hide the tail it reacts to
+        Running<T> primary = start(attempt, stats);
+        try {
+            if (hedgeDelay < 0 || primary.finishedWithin(TimeUnit.MILLISECONDS.toNanos(hedgeDelay))) {
+                return unwrap(primary.future);
+            }
+
+            // straggler: race a duplicate against it
+            hedges.inc();
+            LOGGER.info("{} in region {} waited on the service longer than {} ms, launching hedged request", operation, region, hedgeDelay);
+            Running<T> backup = start(attempt, null);
+
+            CompletableFuture<T> winner = new CompletableFuture<>();
+            AtomicInteger failures = new AtomicInteger();
+            primary.future.whenComplete((value, error) -> settle(winner, value, error, failures, discard));
+            backup.future.whenComplete((value, error) -> settle(winner, value, error, failures, discard));
+            try {
+                T result = unwrap(winner);
+                if (backup.future.isDone() && !backup.future.isCompletedExceptionally() && backup.future.getNow(null) == result) {
+                    hedgeWins.inc();
+                    if (!primary.future.isDone()) {
+                        // the primary took at least this long; record it so the p95 keeps seeing the straggler
+                        primary.record();
+                    }
+                }
+                return result;
+            } finally {
+                primary.cancelled.set(true);
+                backup.cancelled.set(true);
+            }
+        } finally {
+            primary.cancelled.set(true);
+        }
+    }
+
+    private <T> Running<T> start(Attempt<T> attempt, HedgeStats stats) {
+        Running<T> running = new Running<>(stats);
+        running.future = CompletableFuture.supplyAsync(() -> {
+            running.startNanos = System.nanoTime();
+            BandwidthThrottle.accountWaits(running.throttleWaits);
+            try {
+                T result = attempt.run(running.cancelled);
+                running.record();
+                return result;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                BandwidthThrottle.accountWaits(null);
+            }
+        }, hedgeExecutorService);
+        return running;
+    }
+
+    private static <T> void settle(CompletableFuture<T> winner, T value, Throwable error, AtomicInteger failures, Consumer<T> discard) {
+        if (error == null) {
+            if (!winner.complete(value) && discard != null) {
+                discard.accept(value);
+            }
+        } else if (failures.incrementAndGet() == 2) {
+            winner.completeExceptionally(error);
+        }
+    }
+
+    private static <T> T unwrap(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw asException(e.getCause());
+        }
+    }
+
+    private static Exception asException(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+    }
+
+    // Power-of-two size class in MiB, e.g. le_32MiB for a 20 MiB range
+    static String sizeClass(long bytes) {
+        if (bytes <= 0) {
+            return ObjectStorageMetrics.NO_SIZE;
+        }
+        long mib = (bytes + MIB - 1) / MIB;
+        return "le_" + (mib <= 1 ? 1 : Long.highestOneBit(mib - 1) << 1) + "MiB";
+    }
+
+    long backoffMillis(int attemptNumber) {
+        long ceiling = Math.min(configuration.getMaxDelayMillis(), configuration.getBaseDelayMillis() << Math.min(attemptNumber - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    static boolean isRetryable(Throwable e) {
+        if (e instanceof CircuitBreakerOpenException) {
+            return false;
+        }
+        if (e instanceof BmcException) {
+            BmcException bmcException = (BmcException) e;
+            int status = bmcException.getStatusCode();
+            return bmcException.isTimeout() || status == 409 || status == 429 || status >= 500 || status <= 0;
+        }
+        return e instanceof IOException || e.getCause() instanceof IOException;
+    }
+
+    private final class HedgeStats {
+        private final Timer latency;
+        private final AtomicLong refreshedAtNanos;
+        private volatile long delayMillis = -1;
+
+        private HedgeStats(String operation, long bytes) {
+            this.latency = metricRegistry.timer(MetricRegistry.name(RequestResilience.class, region, "range_latency",
+                    operation.replace(' ', '_'), sizeClass(bytes)));
+            this.refreshedAtNanos = new AtomicLong(System.nanoTime() - refreshNanos());
+        }
+
+        // Cached p95 (at least the configured floor), recomputed by one caller per refresh interval;
+        // -1 disables hedging until enough latency samples were seen
+        private long delayMillis() {
+            long now = System.nanoTime();
+            long refreshedAt = refreshedAtNanos.get();
+            if (now - refreshedAt >= refreshNanos() && refreshedAtNanos.compareAndSet(refreshedAt, now)) {
+                if (!configuration.isHedgingEnabled() || latency.getCount() < configuration.getHedgeMinSamples()) {
+                    delayMillis = -1;
+                } else {
+                    long p95 = TimeUnit.NANOSECONDS.toMillis((long) latency.getSnapshot().get95thPercentile());
+                    delayMillis = Math.max(p95, configuration.getHedgeMinDelayMillis());
+                }
+            }
+            return delayMillis;
+        }
+
+        private long refreshNanos() {
+            return TimeUnit.MILLISECONDS.toNanos(configuration.getHedgeDelayRefreshMillis());
+        }
+    }
+
+    // One attempt in flight; service time is wall time since it started running minus its throttle waits
+    private static final class Running<T> {
+        private final HedgeStats stats;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final BandwidthThrottle.WaitClock throttleWaits = new BandwidthThrottle.WaitClock();
+        private final AtomicBoolean recorded = new AtomicBoolean();
+        private volatile long startNanos;
+        private CompletableFuture<T> future;
+
+        private Running(HedgeStats stats) {
+            this.stats = stats;
+        }
+
+        private long serviceNanos() {
+            long started = startNanos;
+            return started == 0 ? 0 : Math.max(0, System.nanoTime() - started - throttleWaits.waitedNanos());
+        }
+
+        // Waits until the attempt is done or has spent delayNanos on the service; true if it is done
+        private boolean finishedWithin(long delayNanos) throws InterruptedException {
+            while (true) {
+                long remaining = delayNanos - serviceNanos();
+                if (remaining <= 0) {
+                    return future.isDone();
+                }
+                try {
+                    future.get(remaining, TimeUnit.NANOSECONDS);
+                    return true;
+                } catch (ExecutionException e) {
+                    return true;
+                } catch (TimeoutException e) {
+                    // time went to throttling or queueing; keep waiting for the rest
+                }
+            }
+        }
+
+        private void record() {
+            if (stats != null && recorded.compareAndSet(false, true)) {
+                stats.latency.update(serviceNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
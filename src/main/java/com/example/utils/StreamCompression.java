@@ -0,0 +1,324 @@
+package com.example.utils;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.example.config.CompressionConfiguration;
+import io.prometheus.client.dropwizard.samplebuilder.MapperConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Streaming compression of upload bodies and decompression of downloads, shared by all regions. Compression is pulled
+// by the reader (no extra thread): parts are cut from the compressed stream. Per codec it meters the bytes going in
+// and out and the CPU time spent, as <codec>.compress|decompress.input|output.bytes and <codec>.compress|decompress.cpu
+// under this class, plus the overall <codec>.compress.ratio.
+public class StreamCompression {
+    private static final int CHUNK_BYTES = 64 * 1024;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final CompressionConfiguration configuration;
+    private final Map<CompressionCodec, CodecMetrics> compressMetrics = new EnumMap<>(CompressionCodec.class);
+    private final Map<CompressionCodec, CodecMetrics> decompressMetrics = new EnumMap<>(CompressionCodec.class);
+
+    public StreamCompression(CompressionConfiguration configuration, MetricRegistry metricRegistry) {
+        this.configuration = configuration;
+        // fail at startup on a misspelt bucket default rather than on its first upload
+        configuration.getBuckets().values().forEach(CompressionCodec::fromLabel);
+        for (CompressionCodec codec : CompressionCodec.values()) {
+            if (codec == CompressionCodec.NONE) {
+                continue;
+            }
+            CodecMetrics compress = new CodecMetrics(metricRegistry, codec, "compress");
+            compressMetrics.put(codec, compress);
+            decompressMetrics.put(codec, new CodecMetrics(metricRegistry, codec, "decompress"));
+            metricRegistry.register(MetricRegistry.name(StreamCompression.class, codec.getLabel(), "compress", "ratio"), (Gauge<Double>) () ->
+                    compress.output.getCount() == 0 ? 0.0 : (double) compress.input.getCount() / compress.output.getCount());
+        }
+    }
+
+    // Codec for an upload into bucketName: the requested one (none turns compression off), else the bucket's default.
+    // Throws IllegalArgumentException for an unknown codec
+    public CompressionCodec codecFor(String requested, String bucketName) {
+        if (requested != null && !requested.isEmpty()) {
+            return CompressionCodec.fromLabel(requested);
+        }
+        return CompressionCodec.fromLabel(bucketName != null ? configuration.getBuckets().get(bucketName) : null);
+    }
+
+    public CompressingInputStream compress(InputStream raw, CompressionCodec codec) throws IOException {
+        int level = codec == CompressionCodec.ZSTD ? configuration.getZstdLevel() : configuration.getGzipLevel();
+        return new CompressingInputStream(raw, codec, level, compressMetrics.get(codec));
+    }
+
+    // The uncompressed bytes of a stored body written with codec
+    public InputStream decompress(InputStream stored, CompressionCodec codec) throws IOException {
+        if (codec == CompressionCodec.NONE) {
+            return stored;
+        }
+        return new DecompressingInputStream(stored, codec, decompressMetrics.get(codec));
+    }
+
+    // opcMeta of an object compressed with codec; size is the uncompressed size, or negative if unknown
+    public static Map<String, String> metadata(Map<String, String> metadata, CompressionCodec codec, long size) {
+        Map<String, String> result = metadata != null ? new HashMap<>(metadata) : new HashMap<>();
+        result.put(CompressionCodec.METADATA_KEY, codec.getLabel());
+        if (size >= 0) {
+            result.put(CompressionCodec.UNCOMPRESSED_SIZE_KEY, Long.toString(size));
+        } else {
+            result.remove(CompressionCodec.UNCOMPRESSED_SIZE_KEY);
+        }
+        return result;
+    }
+
+    // DropwizardExports mappings turning the dotted names into compression_* families labelled by codec and operation
+    public static List<MapperConfig> prometheusMappings() {
+        String prefix = StreamCompression.class.getName();
+        return Arrays.asList(
+                new MapperConfig(prefix + ".*.*.*.bytes", "compression_bytes", ObjectStorageMetrics.labels("codec", "${0}", "operation", "${1}", "side", "${2}")),
+                new MapperConfig(prefix + ".*.*.cpu", "compression_cpu", ObjectStorageMetrics.labels("codec", "${0}", "operation", "${1}")),
+                new MapperConfig(prefix + ".*.*.ratio", "compression_ratio", ObjectStorageMetrics.labels("codec", "${0}", "operation", "${1}")));
+    }
+
+    // CPU time of the current thread, so time blocked on the network is not charged to the codec. A virtual thread has
+    // no CPU clock (the JDK reports -1), so there, and where thread CPU time is unsupported, this is wall time
+    private static long cpuNanos() {
+        if (!Thread.currentThread().isVirtual() && THREADS.isCurrentThreadCpuTimeSupported()) {
+            long cpu = THREADS.getCurrentThreadCpuTime();
+            if (cpu >= 0) {
+                return cpu;
+            }
+        }
+        return System.nanoTime();
+    }
+
+    private static final class CodecMetrics {
+        private final Meter input;
+        private final Meter output;
+        // CPU time per stream
+        private final Timer cpu;
+
+        CodecMetrics(MetricRegistry metricRegistry, CompressionCodec codec, String operation) {
+            this.input = metricRegistry.meter(MetricRegistry.name(StreamCompression.class, codec.getLabel(), operation, "input", "bytes"));
+            this.output = metricRegistry.meter(MetricRegistry.name(StreamCompression.class, codec.getLabel(), operation, "output", "bytes"));
+            this.cpu = ObjectStorageMetrics.hdrTimer(metricRegistry, MetricRegistry.name(StreamCompression.class, codec.getLabel(), operation, "cpu"));
+        }
+    }
+
+    // The compressed form of a raw stream, produced chunk by chunk as it is read. Also hashes the raw bytes, so an MD5
+    // the client gave for its (uncompressed) upload can still be checked
+    public static final class CompressingInputStream extends InputStream {
+        private final InputStream raw;
+        private final CodecMetrics metrics;
+        private final ExposedBuffer compressed = new ExposedBuffer();
+        private final OutputStream compressor;
+        private final MessageDigest rawMd5;
+        private final byte[] chunk = new byte[CHUNK_BYTES];
+        private int position;
+        private boolean finished;
+        private long rawBytes;
+        private long compressedBytes;
+        private long cpuNanos;
+
+        CompressingInputStream(InputStream raw, CompressionCodec codec, int level, CodecMetrics metrics) throws IOException {
+            this.raw = raw;
+            this.metrics = metrics;
+            this.compressor = codec.compressor(compressed, level);
+            // gzip writes its header right away
+            this.compressedBytes = compressed.size();
+            try {
+                this.rawMd5 = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public long getRawBytes() {
+            return rawBytes;
+        }
+
+        public long getCompressedBytes() {
+            return compressedBytes;
+        }
+
+        // Base64 MD5 of the raw bytes, once the stream has been read to its end
+        public String getRawMd5() {
+            return finished ? Base64.getEncoder().encodeToString(rawMd5.digest()) : null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (position == compressed.size()) {
+                if (finished) {
+                    return -1;
+                }
+                compressed.reset();
+                position = 0;
+                fill();
+            }
+            int n = Math.min(length, compressed.size() - position);
+            System.arraycopy(compressed.buffer(), position, buffer, offset, n);
+            position += n;
+            return n;
+        }
+
+        // Compresses the next raw chunk (the compressor may hold it back until it has a block's worth)
+        private void fill() throws IOException {
+            int n = raw.read(chunk);
+            long start = cpuNanos();
+            if (n == -1) {
+                compressor.close();
+                finished = true;
+            } else if (n > 0) {
+                rawMd5.update(chunk, 0, n);
+                compressor.write(chunk, 0, n);
+                rawBytes += n;
+            }
+            cpuNanos += cpuNanos() - start;
+            compressedBytes += compressed.size();
+            if (finished) {
+                metrics.input.mark(rawBytes);
+                metrics.output.mark(compressedBytes);
+                metrics.cpu.update(cpuNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                raw.close();
+            } finally {
+                if (!finished) {
+                    // releases the codec's native state (zstd); the partial output is discarded
+                    finished = true;
+                    compressor.close();
+                }
+            }
+        }
+    }
+
+    // Decompresses a stored body, metering the stored bytes read, the bytes produced and the codec's CPU time
+    private static final class DecompressingInputStream extends FilterInputStream {
+        private final CodecMetrics metrics;
+        private final CountingStream stored;
+        private long outputBytes;
+        private long cpuNanos;
+        private boolean recorded;
+
+        DecompressingInputStream(InputStream stored, CompressionCodec codec, CodecMetrics metrics) throws IOException {
+            this(new CountingStream(stored), codec, metrics);
+        }
+
+        private DecompressingInputStream(CountingStream stored, CompressionCodec codec, CodecMetrics metrics) throws IOException {
+            super(codec.decompressor(stored));
+            this.stored = stored;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long start = cpuNanos();
+            int n = super.read(buffer, offset, length);
+            cpuNanos += cpuNanos() - start;
+            if (n > 0) {
+                outputBytes += n;
+            } else if (n == -1) {
+                record();
+            }
+            return n;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                record();
+            }
+        }
+
+        private void record() {
+            if (recorded) {
+                return;
+            }
+            recorded = true;
+            metrics.input.mark(stored.count);
+            metrics.output.mark(outputBytes);
+            metrics.cpu.update(cpuNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static final class CountingStream extends FilterInputStream {
+        private long count;
+
+        CountingStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    // Output buffer whose bytes can be read without copying them out first
+    private static final class ExposedBuffer extends ByteArrayOutputStream {
+        ExposedBuffer() {
+            super(2 * CHUNK_BYTES);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+// Charges every read against a transfer's bandwidth limits; mark/reset pass through so retried bodies are re-sent (and re-charged)
+public class ThrottledInputStream extends FilterInputStream {
+    private final BandwidthThrottle.Transfer transfer;
+    private final String region;
+
+    public ThrottledInputStream(InputStream in, BandwidthThrottle.Transfer transfer, String region) {
+        super(in);
+        this.transfer = transfer;
+        this.region = region;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            charge(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int bytesRead = super.read(b, off, len);
+        if (bytesRead > 0) {
+            charge(bytesRead);
+        }
+        return bytesRead;
+    }
+
+    private void charge(int bytes) throws IOException {
+        try {
+            transfer.acquire(region, bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttled");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Token bucket holding up to one second worth of bytes. The rate is read on every acquire, so a limit changed
+// at runtime applies to transfers already running. A rate <= 0 means unlimited.
+public class TokenBucket {
+    private final LongSupplier bytesPerSecond;
+    private long tokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    public TokenBucket(LongSupplier bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    // Takes bytes out of the bucket and sleeps until the debt is paid off; returns the nanoseconds slept
+    public long acquire(long bytes) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long rate = bytesPerSecond.getAsLong();
+            if (rate <= 0) {
+                tokens = 0;
+                lastRefillNanos = System.nanoTime();
+                return 0;
+            }
+            long now = System.nanoTime();
+            long refill = (long) ((now - lastRefillNanos) / 1e9 * rate);
+            tokens = Math.min(rate, tokens + refill);
+            lastRefillNanos = now;
+            tokens -= bytes;
+            if (tokens >= 0) {
+                return 0;
+            }
+            waitNanos = (long) (-tokens * 1e9 / rate);
+        }
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+        return waitNanos;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.utils;
+
+import com.example.config.ExecutionMode;
+import com.example.config.TransferConfiguration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Builds every executor that runs blocking Object Storage I/O, according to transfer.executionMode
+public final class TransferExecutors {
+
+    private TransferExecutors() {
+    }
+
+    // Executor for whole requests (AsyncResponse work); unbounded cached pool in PLATFORM mode
+    public static ExecutorService newRequestExecutor(String name, TransferConfiguration transferConfiguration) {
+        if (transferConfiguration.getExecutionMode() == ExecutionMode.VIRTUAL) {
+            return new BoundedVirtualThreadExecutor(name, transferConfiguration.getVirtualMaxConcurrentRequests());
+        }
+        return Executors.newCachedThreadPool(namedThreads(name, false));
+    }
+
+    // Executor for part / range transfers; a fixed pool of platformThreads in PLATFORM mode
+    public static ExecutorService newTransferExecutor(String name, int platformThreads, TransferConfiguration transferConfiguration) {
+        if (transferConfiguration.getExecutionMode() == ExecutionMode.VIRTUAL) {
+            return new BoundedVirtualThreadExecutor(name, transferConfiguration.getVirtualMaxConcurrentTransfers());
+        }
+        return Executors.newFixedThreadPool(platformThreads, namedThreads(name, false));
+    }
+
+    // Tasks an executor from newTransferExecutor actually runs at once; more in flight only queue behind them
+    public static int transferCapacity(int platformThreads, TransferConfiguration transferConfiguration) {
+        if (transferConfiguration.getExecutionMode() == ExecutionMode.VIRTUAL) {
+            return transferConfiguration.getVirtualMaxConcurrentTransfers();
+        }
+        return platformThreads;
+    }
+
+    // Executor for short-lived helper attempts such as hedged requests
+    public static ExecutorService newDaemonExecutor(String name, TransferConfiguration transferConfiguration) {
+        if (transferConfiguration.getExecutionMode() == ExecutionMode.VIRTUAL) {
+            return new BoundedVirtualThreadExecutor(name, transferConfiguration.getVirtualMaxConcurrentTransfers());
+        }
+        return Executors.newCachedThreadPool(namedThreads(name, true));
+    }
+
+    private static ThreadFactory namedThreads(String name, boolean daemon) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(daemon);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.utils;
+
+import lombok.Getter;
+
+// Thrown when another attempt of the same resumable transfer still holds its journal; answered with 409
+@Getter
+public class TransferInProgressException extends RuntimeException {
+    private final String transferKey;
+
+    public TransferInProgressException(String transferKey) {
+        super("Another attempt of transfer " + transferKey + " is still running, retry once it has finished");
+        this.transferKey = transferKey;
+    }
+}
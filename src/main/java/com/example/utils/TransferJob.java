@@ -0,0 +1,169 @@
+package com.example.utils;
+
+import com.codahale.metrics.Meter;
+import com.example.resources.TransferJobStatus;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One tracked transfer: state, committed bytes and parts, and throughput. Created by the TransferJobRegistry;
+// the transfer reports into it as its TransferProgress and the endpoint finishes it with the outcome.
+public class TransferJob implements TransferProgress {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED;
+
+        public boolean isTerminal() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String type;
+    private final String source;
+    private final String destination;
+    private final long createdMillis = System.currentTimeMillis();
+    private final long createdNanos = System.nanoTime();
+    private final AtomicLong bytesTransferred = new AtomicLong();
+    private final AtomicInteger partsCompleted = new AtomicInteger();
+    // not registered; its one-minute rate is the job's current throughput
+    private final Meter throughput = new Meter();
+    private final TransferTimelines timelines;
+    private final TransferTimeline timeline;
+
+    private volatile State state = State.QUEUED;
+    private volatile long totalBytes = -1;
+    private volatile int totalParts;
+    private volatile long startedNanos;
+    private volatile long finishedNanos;
+    private volatile String message;
+    private volatile Object result;
+    private volatile boolean cancelRequested;
+
+    TransferJob(String type, String source, String destination, TransferTimelines timelines) {
+        this.type = type;
+        this.source = source;
+        this.destination = destination;
+        this.timelines = timelines;
+        this.timeline = timelines.newTimeline(id, type, source, destination, createdMillis, createdNanos);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    // Moves a queued job to RUNNING; false if it was cancelled while queued and must not run
+    public synchronized boolean start() {
+        if (state != State.QUEUED) {
+            return false;
+        }
+        state = State.RUNNING;
+        startedNanos = System.nanoTime();
+        timeline.running();
+        return true;
+    }
+
+    public void succeed(Object result) {
+        finish(State.SUCCEEDED, null, result);
+    }
+
+    // A failure after cancel() was requested is recorded as CANCELLED
+    public void fail(String message, Object result) {
+        finish(cancelRequested ? State.CANCELLED : State.FAILED, message, result);
+    }
+
+    public synchronized void finish(State finalState, String message, Object result) {
+        if (state.isTerminal()) {
+            return;
+        }
+        this.message = message;
+        this.result = result;
+        this.finishedNanos = System.nanoTime();
+        this.state = finalState;
+        timeline.finish(finalState);
+        timelines.close(timeline);
+    }
+
+    // Queued jobs are cancelled at once; running ones stop at their next part boundary
+    public void cancel() {
+        cancelRequested = true;
+        synchronized (this) {
+            if (state == State.QUEUED) {
+                finish(State.CANCELLED, "Cancelled before it started", null);
+            }
+        }
+    }
+
+    public boolean isFinished() {
+        return state.isTerminal();
+    }
+
+    long getFinishedNanos() {
+        return finishedNanos;
+    }
+
+    TransferTimeline getTimeline() {
+        return timeline;
+    }
+
+    @Override
+    public void started(long totalBytes, int totalParts) {
+        this.totalBytes = totalBytes;
+        this.totalParts = totalParts;
+    }
+
+    @Override
+    public void transferred(long bytes) {
+        bytesTransferred.addAndGet(bytes);
+        throughput.mark(bytes);
+    }
+
+    @Override
+    public void partCompleted() {
+        partsCompleted.incrementAndGet();
+    }
+
+    @Override
+    public void phase(String name) {
+        timeline.phase(name);
+    }
+
+    @Override
+    public void partFinished(TransferTimeline.Part part) {
+        timeline.part(part);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    public TransferJobStatus status() {
+        State current = state;
+        long now = System.nanoTime();
+        long started = startedNanos;
+        long finished = finishedNanos;
+        long elapsedNanos = started == 0 ? 0 : (finished != 0 ? finished : now) - started;
+        long bytes = bytesTransferred.get();
+        long total = totalBytes;
+        Double percentComplete = null;
+        if (total > 0) {
+            percentComplete = Math.min(100.0, bytes * 100.0 / total);
+        } else if (current == State.SUCCEEDED) {
+            percentComplete = 100.0;
+        }
+        double averageBytesPerSecond = elapsedNanos > 0 ? bytes / (elapsedNanos / 1e9) : 0;
+        double currentBytesPerSecond = current == State.RUNNING ? throughput.getOneMinuteRate() : 0;
+        return new TransferJobStatus(id, type, current.name(), source, destination, total, bytes, totalParts, partsCompleted.get(),
+                percentComplete, currentBytesPerSecond, averageBytesPerSecond, createdMillis, ((finished != 0 ? finished : now) - createdNanos) / 1_000_000, message, result);
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.utils;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.example.config.JobsConfiguration;
+import com.example.resources.TransferJobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+// Bounded in-memory registry of transfer jobs. Finished jobs expire after retentionMinutes; when the registry is full
+// the oldest finished job makes room, and if every job is still unfinished new transfers are rejected with 429.
+// FileOperationManager starts it and, on shutdown, lets running jobs drain before cancelling what is left.
+public class TransferJobRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransferJobRegistry.class);
+
+    private final JobsConfiguration configuration;
+    private final TransferTimelines timelines;
+    // insertion order, so the first finished job found is the oldest; guarded by this
+    private final Map<String, TransferJob> jobs = new LinkedHashMap<>();
+    private volatile boolean accepting = true;
+    private ScheduledExecutorService scheduler;
+
+    public TransferJobRegistry(JobsConfiguration configuration, TransferTimelines timelines, MetricRegistry metricRegistry) {
+        this.configuration = configuration;
+        this.timelines = timelines;
+        metricRegistry.register(MetricRegistry.name(TransferJobRegistry.class, "active"), (Gauge<Integer>) this::getActiveCount);
+        metricRegistry.register(MetricRegistry.name(TransferJobRegistry.class, "retained"), (Gauge<Integer>) this::size);
+    }
+
+    public synchronized void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transfer-jobs");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::expireFinished, 1, 1, TimeUnit.MINUTES);
+    }
+
+    // Registers a new QUEUED job; throws TransferRejectedException when shutting down (503) or full (429)
+    public TransferJob create(String type, String source, String destination) {
+        if (!accepting) {
+            throw new TransferRejectedException(503, 30, "Shutting down, not accepting new transfers");
+        }
+        TransferJob job = new TransferJob(type, source, destination, timelines);
+        synchronized (this) {
+            if (jobs.size() >= configuration.getMaxJobs() && !evictOldestFinished()) {
+                throw new TransferRejectedException(429, 30, "Too many unfinished transfer jobs, retry later");
+            }
+            jobs.put(job.getId(), job);
+            // before anyone can look the job up and cancel it
+            timelines.open(job.getTimeline());
+        }
+        return job;
+    }
+
+    public synchronized TransferJob get(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    public synchronized List<TransferJobStatus> list() {
+        List<TransferJobStatus> statuses = new ArrayList<>(jobs.size());
+        for (TransferJob job : jobs.values()) {
+            statuses.add(job.status());
+        }
+        return statuses;
+    }
+
+    // Calls listener with the job's status every progressIntervalMillis until the job has finished (the last call
+    // carries the final status) or the listener returns false, e.g. because its client went away
+    public void watch(TransferJob job, Predicate<TransferJobStatus> listener) {
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+        AtomicBoolean done = new AtomicBoolean();
+        Runnable push = () -> {
+            if (done.get()) {
+                return;
+            }
+            boolean keepGoing;
+            try {
+                TransferJobStatus status = job.status();
+                keepGoing = listener.test(status) && !status.isTerminal();
+            } catch (RuntimeException e) {
+                LOGGER.debug("Progress listener for job {} failed: {}", job.getId(), e.getMessage());
+                keepGoing = false;
+            }
+            if (!keepGoing) {
+                done.set(true);
+                ScheduledFuture<?> future = task.get();
+                if (future != null) {
+                    future.cancel(false);
+                }
+            }
+        };
+        synchronized (this) {
+            task.set(scheduler.scheduleAtFixedRate(push, 0, configuration.getProgressIntervalMillis(), TimeUnit.MILLISECONDS));
+        }
+    }
+
+    public synchronized int getActiveCount() {
+        int active = 0;
+        for (TransferJob job : jobs.values()) {
+            if (!job.isFinished()) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    public synchronized int size() {
+        return jobs.size();
+    }
+
+    // Stops accepting jobs, waits up to shutdownDrainSeconds for running ones, then cancels the rest
+    public void shutdown() throws InterruptedException {
+        accepting = false;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(configuration.getShutdownDrainSeconds());
+        while (getActiveCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(200);
+        }
+        List<TransferJob> unfinished = new ArrayList<>();
+        synchronized (this) {
+            for (TransferJob job : jobs.values()) {
+                if (!job.isFinished()) {
+                    unfinished.add(job);
+                }
+            }
+        }
+        if (!unfinished.isEmpty()) {
+            LOGGER.warn("Cancelling {} transfer jobs still running at shutdown", unfinished.size());
+            unfinished.forEach(TransferJob::cancel);
+            // cancelled transfers stop at their next part boundary and clean up their multipart uploads
+            long cancelDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (getActiveCount() > 0 && System.nanoTime() < cancelDeadline) {
+                Thread.sleep(200);
+            }
+        }
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+    }
+
+    private void expireFinished() {
+        long cutoff = System.nanoTime() - TimeUnit.MINUTES.toNanos(configuration.getRetentionMinutes());
+        int removed = 0;
+        synchronized (this) {
+            Iterator<TransferJob> iterator = jobs.values().iterator();
+            while (iterator.hasNext()) {
+                TransferJob job = iterator.next();
+                if (job.isFinished() && job.getFinishedNanos() - cutoff < 0) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            LOGGER.info("Expired {} finished transfer jobs", removed);
+        }
+    }
+
+    // guarded by this
+    private boolean evictOldestFinished() {
+        Iterator<TransferJob> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+}
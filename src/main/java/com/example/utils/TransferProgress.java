@@ -0,0 +1,32 @@
+package com.example.utils;
+
+// Progress sink of one transfer; uploads and copies report committed bytes and parts to it and stop at the
+// next part boundary once it reports cancellation. They also report their phases and part timings, which TransferJob
+// keeps as the transfer's TransferTimeline. TransferJob is the implementation behind /jobs.
+public interface TransferProgress {
+
+    TransferProgress NONE = new TransferProgress() {
+    };
+
+    // Size of the whole transfer, once known
+    default void started(long totalBytes, int totalParts) {
+    }
+
+    default void transferred(long bytes) {
+    }
+
+    default void partCompleted() {
+    }
+
+    // Starts the named phase (initiate, upload_parts, commit, ...), ending the previous one
+    default void phase(String name) {
+    }
+
+    // Read and upload timings of a part that has been uploaded or has failed
+    default void partFinished(TransferTimeline.Part part) {
+    }
+
+    default boolean isCancelled() {
+        return false;
+    }
+}
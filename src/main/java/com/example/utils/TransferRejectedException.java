@@ -0,0 +1,17 @@
+package com.example.utils;
+
+import lombok.Getter;
+
+// Thrown by the transfer scheduler instead of queueing work it cannot hold; status is 429 or 503
+// (507 when an async upload's body does not fit in the spool budget)
+@Getter
+public class TransferRejectedException extends RuntimeException {
+    private final int status;
+    private final int retryAfterSeconds;
+
+    public TransferRejectedException(int status, int retryAfterSeconds, String message) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.utils;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.example.config.SchedulerConfiguration;
+import com.example.config.TransferConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Central scheduler for transfer work started by the resources.
+// Small and large transfers run in separate lanes with their own concurrency, so bulk copies cannot starve
+// interactive uploads. Within a lane, flows (one per bucket or caller) are served by deficit round-robin
+// weighted by transfer.scheduler.flowWeights. A transfer only starts once its estimated part-buffer bytes fit
+// under maxAdmittedBytes; work that cannot even be queued is rejected with 429 (flow full) or 503 (lane full).
+public class TransferScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransferScheduler.class);
+
+    public enum Lane {
+        SMALL,
+        LARGE
+    }
+
+    private final SchedulerConfiguration configuration;
+    private final PartBufferPool partBufferPool;
+    private final ExecutorService executorService;
+    private final Map<Lane, LaneState> lanes = new HashMap<>();
+
+    // Estimated part-buffer bytes held by running transfers; guarded by this
+    private long admittedBytes;
+
+    public TransferScheduler(TransferConfiguration transferConfiguration, PartBufferPool partBufferPool, MetricRegistry metricRegistry) {
+        this.configuration = transferConfiguration.getScheduler();
+        this.partBufferPool = partBufferPool;
+        this.executorService = TransferExecutors.newRequestExecutor("transfer-scheduler", transferConfiguration);
+        lanes.put(Lane.SMALL, new LaneState(Lane.SMALL, configuration.getSmallLaneConcurrency(), metricRegistry));
+        lanes.put(Lane.LARGE, new LaneState(Lane.LARGE, configuration.getLargeLaneConcurrency(), metricRegistry));
+        metricRegistry.register(MetricRegistry.name(TransferScheduler.class, "admitted_bytes"), (Gauge<Long>) this::getAdmittedBytes);
+    }
+
+    // Lane for a transfer of the given size; unknown sizes (<= 0) count as small
+    public Lane laneFor(long objectSize) {
+        return objectSize >= configuration.getSmallObjectThreshold() ? Lane.LARGE : Lane.SMALL;
+    }
+
+    // Fair-queuing key: the caller id when the client sent one, otherwise the bucket
+    public static String flowKey(String callerId, String bucketName) {
+        if (callerId != null && !callerId.isEmpty()) {
+            return "caller:" + callerId;
+        }
+        return "bucket:" + (bucketName != null ? bucketName : "");
+    }
+
+    // Queues the task and starts it as soon as its lane, its flow's share and the memory budget allow.
+    // estimatedBytes is the part-buffer memory the transfer will hold while running.
+    public void submit(Lane lane, String flowKey, long estimatedBytes, Runnable task) {
+        long cost = Math.max(1L, Math.min(estimatedBytes, configuration.getMaxAdmittedBytes()));
+        synchronized (this) {
+            LaneState laneState = lanes.get(lane);
+            Flow flow = laneState.flows.get(flowKey);
+            checkCapacity(lane, laneState, flow, flowKey);
+            if (flow == null) {
+                flow = new Flow(flowKey, configuration.getFlowWeights().getOrDefault(flowKey.substring(flowKey.indexOf(':') + 1), 1));
+                laneState.flows.put(flowKey, flow);
+                laneState.roundRobin.addLast(flow);
+            }
+            flow.jobs.addLast(new Job(task, cost, System.nanoTime()));
+            laneState.queued++;
+            dispatch();
+        }
+    }
+
+    // Throws the TransferRejectedException submit would throw right now, without queueing anything; lets a caller
+    // refuse work before it spends resources (e.g. spooling a request body) on a transfer that would be rejected
+    public synchronized void checkCapacity(Lane lane, String flowKey) {
+        LaneState laneState = lanes.get(lane);
+        checkCapacity(lane, laneState, laneState.flows.get(flowKey), flowKey);
+    }
+
+    private void checkCapacity(Lane lane, LaneState laneState, Flow flow, String flowKey) {
+        int flowQueued = flow != null ? flow.jobs.size() : 0;
+        if (flowQueued >= configuration.getMaxQueuedPerFlow() && !laneState.canStartImmediately(flow)) {
+            laneState.rejected.mark();
+            throw new TransferRejectedException(429, configuration.getRetryAfterSeconds(),
+                    "Too many queued transfers for " + flowKey + ", retry later");
+        }
+        if (laneState.queued >= configuration.getMaxQueueDepthPerLane() && !laneState.canStartImmediately(flow)) {
+            laneState.rejected.mark();
+            throw new TransferRejectedException(503, configuration.getRetryAfterSeconds(),
+                    "Transfer queue for the " + lane.name().toLowerCase() + " lane is full, retry later");
+        }
+    }
+
+    public synchronized long getAdmittedBytes() {
+        return admittedBytes;
+    }
+
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    // Starts every queued job that fits; small lane first so interactive work gets memory ahead of bulk work
+    private void dispatch() {
+        for (Lane lane : Lane.values()) {
+            LaneState laneState = lanes.get(lane);
+            while (laneState.running < laneState.concurrency) {
+                Job job = pollNext(laneState);
+                if (job == null) {
+                    break;
+                }
+                start(laneState, job);
+            }
+        }
+    }
+
+    // Deficit round-robin: the flow at the head earns quantum x weight per turn and sends jobs while it has credit
+    private Job pollNext(LaneState laneState) {
+        while (!laneState.roundRobin.isEmpty()) {
+            Flow flow = laneState.roundRobin.peekFirst();
+            Job head = flow.jobs.peekFirst();
+            if (head.cost <= flow.deficit) {
+                if (!fitsMemory(head.cost)) {
+                    return null;
+                }
+                flow.jobs.pollFirst();
+                flow.deficit -= head.cost;
+                if (flow.jobs.isEmpty()) {
+                    // an idle flow keeps no credit
+                    laneState.roundRobin.pollFirst();
+                    laneState.flows.remove(flow.key);
+                }
+                laneState.queued--;
+                return head;
+            }
+            flow.deficit += configuration.getQuantumBytes() * flow.weight;
+            laneState.roundRobin.addLast(laneState.roundRobin.pollFirst());
+        }
+        return null;
+    }
+
+    // A job always fits when nothing else is admitted, so a single oversized transfer cannot wedge the queue
+    private boolean fitsMemory(long cost) {
+        long inFlight = Math.max(admittedBytes, partBufferPool.getOutstandingBytes());
+        return admittedBytes == 0 || inFlight + cost <= configuration.getMaxAdmittedBytes();
+    }
+
+    private void start(LaneState laneState, Job job) {
+        laneState.running++;
+        admittedBytes += job.cost;
+        laneState.waitTimer.update(System.nanoTime() - job.enqueuedNanos, TimeUnit.NANOSECONDS);
+        try {
+            executorService.execute(() -> {
+                try {
+                    job.task.run();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Scheduled transfer failed: {}", e.getMessage(), e);
+                } finally {
+                    finish(laneState, job);
+                }
+            });
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to start scheduled transfer: {}", e.getMessage(), e);
+            laneState.running--;
+            admittedBytes -= job.cost;
+        }
+    }
+
+    private synchronized void finish(LaneState laneState, Job job) {
+        laneState.running--;
+        admittedBytes -= job.cost;
+        dispatch();
+    }
+
+    private final class LaneState {
+        private final int concurrency;
+        private final Map<String, Flow> flows = new HashMap<>();
+        private final Deque<Flow> roundRobin = new ArrayDeque<>();
+        private final Timer waitTimer;
+        private final Meter rejected;
+        private int running;
+        private int queued;
+
+        private LaneState(Lane lane, int concurrency, MetricRegistry metricRegistry) {
+            this.concurrency = concurrency;
+            String name = lane.name().toLowerCase();
+            this.waitTimer = metricRegistry.timer(MetricRegistry.name(TransferScheduler.class, name, "wait"));
+            this.rejected = metricRegistry.meter(MetricRegistry.name(TransferScheduler.class, name, "rejected"));
+            metricRegistry.register(MetricRegistry.name(TransferScheduler.class, name, "queue_depth"),
+                    (Gauge<Integer>) () -> { synchronized (TransferScheduler.this) { return queued; } });
+            metricRegistry.register(MetricRegistry.name(TransferScheduler.class, name, "running"),
+                    (Gauge<Integer>) () -> { synchronized (TransferScheduler.this) { return running; } });
+        }
+
+        // True when a new job of this flow would be dispatched right away rather than wait in the queue
+        private boolean canStartImmediately(Flow flow) {
+            return running < concurrency && queued == 0 && (flow == null || flow.jobs.isEmpty());
+        }
+    }
+
+    private static final class Flow {
+        private final String key;
+        private final int weight;
+        private final Deque<Job> jobs = new ArrayDeque<>();
+        private long deficit;
+
+        private Flow(String key, int weight) {
+            this.key = key;
+            this.weight = Math.max(1, weight);
+        }
+    }
+
+    private static final class Job {
+        private final Runnable task;
+        private final long cost;
+        private final long enqueuedNanos;
+
+        private Job(Runnable task, long cost, long enqueuedNanos) {
+            this.task = task;
+            this.cost = cost;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.utils;
+
+import com.example.resources.TransferTimelineSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Phases and per-part read/upload timings of one transfer, kept by its TransferJob. Phases are sequential: starting one
+// ends the previous. At most maxParts parts are timed (the rest only count towards the totals), and once the transfer
+// has finished only its slowest parts are kept, so a retained timeline stays small.
+public class TransferTimeline {
+    private final String jobId;
+    private final String type;
+    private final String source;
+    private final String destination;
+    private final long createdMillis;
+    private final long createdNanos;
+    private final int maxParts;
+    private final int slowestParts;
+
+    // guarded by this
+    private final List<PhaseRecord> phases = new ArrayList<>();
+    private List<Part> parts = new ArrayList<>();
+    private int partsTimed;
+    private int retries;
+    private long readNanos;
+    private long partUploadMaxNanos;
+    private String state = TransferJob.State.QUEUED.name();
+    private long finishedNanos;
+    // medians and straggler time of a finished transfer, computed before its parts are trimmed
+    private long[] finishedPercentiles;
+
+    TransferTimeline(String jobId, String type, String source, String destination, long createdMillis, long createdNanos,
+                     int maxParts, int slowestParts) {
+        this.jobId = jobId;
+        this.type = type;
+        this.source = source;
+        this.destination = destination;
+        this.createdMillis = createdMillis;
+        this.createdNanos = createdNanos;
+        this.maxParts = maxParts;
+        this.slowestParts = slowestParts;
+        phases.add(new PhaseRecord("queued", createdNanos));
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public synchronized void phase(String name) {
+        if (finishedNanos != 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        endCurrentPhase(now);
+        phases.add(new PhaseRecord(name, now));
+    }
+
+    synchronized void running() {
+        state = TransferJob.State.RUNNING.name();
+        phase("running");
+    }
+
+    public synchronized void part(Part part) {
+        partsTimed++;
+        retries += Math.max(0, part.attempts.get() - 1);
+        if (part.readEndNanos != 0) {
+            readNanos += part.readEndNanos - part.readStartNanos;
+        }
+        partUploadMaxNanos = Math.max(partUploadMaxNanos, part.uploadNanos());
+        if (finishedNanos == 0 && parts.size() < maxParts) {
+            parts.add(part);
+        }
+    }
+
+    synchronized void finish(TransferJob.State finalState) {
+        if (finishedNanos != 0) {
+            return;
+        }
+        finishedNanos = System.nanoTime();
+        state = finalState.name();
+        endCurrentPhase(finishedNanos);
+        finishedPercentiles = percentiles(parts);
+        parts = slowest(parts, slowestParts);
+    }
+
+    public synchronized TransferTimelineSnapshot snapshot() {
+        long end = finishedNanos != 0 ? finishedNanos : System.nanoTime();
+        List<TransferTimelineSnapshot.Phase> phaseSnapshots = new ArrayList<>(phases.size());
+        for (PhaseRecord phase : phases) {
+            phaseSnapshots.add(new TransferTimelineSnapshot.Phase(phase.name, millis(phase.startNanos),
+                    phase.endNanos != 0 ? millis(phase.endNanos) : null));
+        }
+        long[] percentiles = finishedPercentiles != null ? finishedPercentiles : percentiles(parts);
+        return new TransferTimelineSnapshot(jobId, type, state, source, destination, createdMillis, millis(end), phaseSnapshots,
+                partsTimed, retries, TimeUnit.NANOSECONDS.toMillis(readNanos), TimeUnit.NANOSECONDS.toMillis(percentiles[0]),
+                TimeUnit.NANOSECONDS.toMillis(partUploadMaxNanos), TimeUnit.NANOSECONDS.toMillis(percentiles[1]), partSnapshots(parts));
+    }
+
+    // The slowest of this transfer's timed parts, slowest first
+    synchronized List<TransferTimelineSnapshot.Part> slowestParts(int limit) {
+        return partSnapshots(slowest(parts, limit));
+    }
+
+    private List<TransferTimelineSnapshot.Part> partSnapshots(List<Part> timedParts) {
+        List<TransferTimelineSnapshot.Part> snapshots = new ArrayList<>(timedParts.size());
+        for (Part part : timedParts) {
+            snapshots.add(new TransferTimelineSnapshot.Part(jobId, part.partNumber, part.bytes, millis(part.readStartNanos), millis(part.readEndNanos),
+                    millis(part.uploadStartNanos), millis(part.uploadEndNanos), TimeUnit.NANOSECONDS.toMillis(part.uploadNanos()),
+                    part.attempts.get(), part.success));
+        }
+        return snapshots;
+    }
+
+    private void endCurrentPhase(long now) {
+        PhaseRecord current = phases.get(phases.size() - 1);
+        if (current.endNanos == 0) {
+            current.endNanos = now;
+        }
+    }
+
+    private long millis(long nanos) {
+        return nanos == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(nanos - createdNanos);
+    }
+
+    // {median part upload time, time from 95% of the parts finished to the last}
+    private static long[] percentiles(List<Part> timedParts) {
+        if (timedParts.isEmpty()) {
+            return new long[]{0, 0};
+        }
+        long[] uploadNanos = new long[timedParts.size()];
+        long[] endNanos = new long[timedParts.size()];
+        for (int i = 0; i < timedParts.size(); i++) {
+            uploadNanos[i] = timedParts.get(i).uploadNanos();
+            endNanos[i] = timedParts.get(i).uploadEndNanos;
+        }
+        Arrays.sort(uploadNanos);
+        Arrays.sort(endNanos);
+        int p95 = (int) Math.ceil(endNanos.length * 0.95) - 1;
+        return new long[]{uploadNanos[(uploadNanos.length - 1) / 2], endNanos[endNanos.length - 1] - endNanos[p95]};
+    }
+
+    private static List<Part> slowest(List<Part> timedParts, int limit) {
+        List<Part> sorted = new ArrayList<>(timedParts);
+        sorted.sort(Comparator.comparingLong(Part::uploadNanos).reversed());
+        return new ArrayList<>(sorted.subList(0, Math.min(limit, sorted.size())));
+    }
+
+    private static final class PhaseRecord {
+        private final String name;
+        private final long startNanos;
+        private long endNanos;
+
+        PhaseRecord(String name, long startNanos) {
+            this.name = name;
+            this.startNanos = startNanos;
+        }
+    }
+
+    // Timings of one part, filled in by the reader and the uploading worker and reported with
+    // TransferProgress.partFinished once the part is done
+    public static final class Part {
+        private final int partNumber;
+        private final long bytes;
+        private final AtomicInteger attempts = new AtomicInteger();
+        private long readStartNanos;
+        private long readEndNanos;
+        private long uploadStartNanos;
+        private long uploadEndNanos;
+        private boolean success;
+
+        public Part(int partNumber, long bytes) {
+            this.partNumber = partNumber;
+            this.bytes = bytes;
+        }
+
+        public void readStarted() {
+            readStartNanos = System.nanoTime();
+        }
+
+        public void readFinished() {
+            readEndNanos = System.nanoTime();
+        }
+
+        public void uploadStarted() {
+            uploadStartNanos = System.nanoTime();
+        }
+
+        // Called by every attempt of the part upload, so retries show as attempts > 1
+        public void attempt() {
+            attempts.incrementAndGet();
+        }
+
+        public void uploadFinished(boolean success) {
+            this.uploadEndNanos = System.nanoTime();
+            this.success = success;
+        }
+
+        long uploadNanos() {
+            return uploadStartNanos == 0 || uploadEndNanos == 0 ? 0 : uploadEndNanos - uploadStartNanos;
+        }
+    }
+}
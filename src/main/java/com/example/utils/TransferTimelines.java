@@ -0,0 +1,69 @@
+package com.example.utils;
+
+import com.example.config.TimelinesConfiguration;
+import com.example.resources.TransferTimelineReport;
+import com.example.resources.TransferTimelineSnapshot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Timelines of the transfers still queued or running plus a ring of the last maxRecent finished ones, for the admin
+// /transfers endpoint. TransferJobRegistry opens a timeline per job and the job closes it when it finishes.
+public class TransferTimelines {
+    private final TimelinesConfiguration configuration;
+    // guarded by this
+    private final Map<String, TransferTimeline> running = new LinkedHashMap<>();
+    private final Deque<TransferTimeline> recent = new ArrayDeque<>();
+
+    public TransferTimelines(TimelinesConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    TransferTimeline newTimeline(String jobId, String type, String source, String destination, long createdMillis, long createdNanos) {
+        return new TransferTimeline(jobId, type, source, destination, createdMillis, createdNanos,
+                configuration.getMaxPartsPerTransfer(), configuration.getSlowestParts());
+    }
+
+    synchronized void open(TransferTimeline timeline) {
+        running.put(timeline.getJobId(), timeline);
+    }
+
+    synchronized void close(TransferTimeline timeline) {
+        if (running.remove(timeline.getJobId()) == null || configuration.getMaxRecent() == 0) {
+            return;
+        }
+        if (recent.size() >= configuration.getMaxRecent()) {
+            recent.removeLast();
+        }
+        recent.addFirst(timeline);
+    }
+
+    public TransferTimelineReport report() {
+        List<TransferTimeline> runningTimelines;
+        List<TransferTimeline> recentTimelines;
+        synchronized (this) {
+            runningTimelines = new ArrayList<>(running.values());
+            recentTimelines = new ArrayList<>(recent);
+        }
+        int limit = configuration.getSlowestParts();
+        List<TransferTimelineSnapshot.Part> slowestParts = new ArrayList<>();
+        List<TransferTimelineSnapshot> runningSnapshots = new ArrayList<>(runningTimelines.size());
+        for (TransferTimeline timeline : runningTimelines) {
+            runningSnapshots.add(timeline.snapshot());
+            slowestParts.addAll(timeline.slowestParts(limit));
+        }
+        List<TransferTimelineSnapshot> recentSnapshots = new ArrayList<>(recentTimelines.size());
+        for (TransferTimeline timeline : recentTimelines) {
+            recentSnapshots.add(timeline.snapshot());
+            slowestParts.addAll(timeline.slowestParts(limit));
+        }
+        slowestParts.sort(Comparator.comparingLong(TransferTimelineSnapshot.Part::getUploadMillis).reversed());
+        return new TransferTimelineReport(runningSnapshots, recentSnapshots,
+                new ArrayList<>(slowestParts.subList(0, Math.min(limit, slowestParts.size()))));
+    }
+}
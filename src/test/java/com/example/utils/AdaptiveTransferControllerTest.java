@@ -0,0 +1,38 @@
+package com.example.utils;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.config.AdaptiveConfiguration;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Session concurrency stays within what the part executor can run
+class AdaptiveTransferControllerTest {
+
+    @Test
+    void sessionDoesNotGrowPastExecutorCapacity() {
+        AdaptiveConfiguration configuration = new AdaptiveConfiguration();
+        configuration.setInitialConcurrency(4);
+        configuration.setMaxConcurrency(32);
+        AdaptiveTransferController controller = new AdaptiveTransferController(configuration, new MetricRegistry());
+
+        AdaptiveTransferController.Session session = controller.startSession("r1", new InFlightLimiter(4, Long.MAX_VALUE), 2);
+        // a first full window always counts as improved throughput
+        session.onPartComplete(1024, 1_000_000, true);
+        session.onPartComplete(1024, 1_000_000, true);
+        assertEquals(2, controller.getLearnedConcurrency("r1"));
+    }
+
+    @Test
+    void sessionGrowsUpToMaxConcurrencyWithRoomInTheExecutor() {
+        AdaptiveConfiguration configuration = new AdaptiveConfiguration();
+        configuration.setInitialConcurrency(4);
+        AdaptiveTransferController controller = new AdaptiveTransferController(configuration, new MetricRegistry());
+
+        AdaptiveTransferController.Session session = controller.startSession("r1", new InFlightLimiter(4, Long.MAX_VALUE), 1024);
+        for (int i = 0; i < 4; i++) {
+            session.onPartComplete(1024, 1_000_000, true);
+        }
+        assertEquals(5, controller.getLearnedConcurrency("r1"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.utils;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Probing, TTL expiry, oldest-first eviction and removal of the off-heap fingerprint set
+class ChunkIndexTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    // 8 entries make a single set, so every fingerprint competes for the same 8 ways
+    private ChunkIndex index(long ttlMillis) {
+        return new ChunkIndex(8, ttlMillis, metrics, now::get);
+    }
+
+    @Test
+    void findsAddedFingerprints() {
+        ChunkIndex index = index(60_000);
+        index.add(1, 2);
+        index.add(1, 4);
+        index.add(-7, 0);
+
+        assertTrue(index.contains(1, 2));
+        assertTrue(index.contains(1, 4));
+        assertTrue(index.contains(-7, 0));
+        assertFalse(index.contains(2, 1));
+        assertEquals(3, index.size());
+
+        index.add(1, 2);
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void hitsExpireAfterTheTtlUntilAddedAgain() {
+        ChunkIndex index = index(60_000);
+        index.add(1, 2);
+
+        now.addAndGet(60_000);
+        assertTrue(index.contains(1, 2));
+        now.addAndGet(1);
+        assertFalse(index.contains(1, 2));
+        assertEquals(1, metrics.meter(MetricRegistry.name(ChunkIndex.class, "expired")).getCount());
+
+        index.add(1, 2);
+        assertTrue(index.contains(1, 2));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void fullSetEvictsItsOldestEntry() {
+        ChunkIndex index = index(Long.MAX_VALUE);
+        assertEquals(8, index.getCapacity());
+        for (long i = 1; i <= 8; i++) {
+            index.add(i, i * 2);
+            now.incrementAndGet();
+        }
+        // refreshing the first entry makes the second one the oldest
+        index.add(1, 2);
+        now.incrementAndGet();
+
+        index.add(9, 18);
+
+        assertTrue(index.contains(1, 2));
+        assertFalse(index.contains(2, 4));
+        for (long i = 3; i <= 9; i++) {
+            assertTrue(index.contains(i, i * 2));
+        }
+        assertEquals(8, index.size());
+        assertEquals(1, metrics.meter(MetricRegistry.name(ChunkIndex.class, "evictions")).getCount());
+    }
+
+    @Test
+    void removedFingerprintsFreeTheirSlot() {
+        ChunkIndex index = index(Long.MAX_VALUE);
+        for (long i = 1; i <= 8; i++) {
+            index.add(i, i * 2);
+        }
+        index.remove(5, 10);
+        index.remove(42, 1);
+
+        assertFalse(index.contains(5, 10));
+        assertEquals(7, index.size());
+
+        index.add(9, 18);
+        assertTrue(index.contains(9, 18));
+        assertEquals(8, index.size());
+        assertEquals(0, metrics.meter(MetricRegistry.name(ChunkIndex.class, "evictions")).getCount());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// CLOSED -> OPEN after consecutive failures, HALF_OPEN after openMillis with a single probe, whose outcome decides
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 3, 30_000, now::get);
+
+    @Test
+    void opensAfterConsecutiveFailuresOnly() {
+        assertFalse(breaker.onFailure());
+        assertFalse(breaker.onFailure());
+        breaker.onSuccess();
+        assertFalse(breaker.onFailure());
+        assertFalse(breaker.onFailure());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        assertTrue(breaker.onFailure());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void halfOpenProbeClosesTheBreaker() {
+        open();
+        now.addAndGet(29_999);
+        assertFalse(breaker.allowRequest());
+        now.addAndGet(1);
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // one probe at a time
+        assertFalse(breaker.allowRequest());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void failedProbeReopensForAnotherPeriod() {
+        open();
+        now.addAndGet(30_000);
+        assertTrue(breaker.allowRequest());
+
+        assertTrue(breaker.onFailure());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        now.addAndGet(29_999);
+        assertFalse(breaker.allowRequest());
+        now.addAndGet(1);
+        assertTrue(breaker.allowRequest());
+    }
+
+    private void open() {
+        breaker.onFailure();
+        breaker.onFailure();
+        assertTrue(breaker.onFailure());
+    }
+}
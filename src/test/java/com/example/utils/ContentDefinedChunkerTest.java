@@ -0,0 +1,79 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Chunk boundaries depend only on the content, so an edit near the start leaves the later chunks unchanged
+class ContentDefinedChunkerTest {
+
+    private static final int MIN = 64 * 1024;
+    private static final int AVERAGE = 256 * 1024;
+    private static final int MAX = 1024 * 1024;
+
+    @Test
+    void sameContentGivesSameChunks() throws IOException {
+        byte[] data = randomBytes(8 * 1024 * 1024, 1);
+        assertEquals(chunks(data), chunks(data));
+    }
+
+    @Test
+    void chunkLengthsStayWithinBounds() throws IOException {
+        byte[] data = randomBytes(8 * 1024 * 1024 + 123, 2);
+        List<ByteBuffer> chunks = chunks(data);
+        int total = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            int length = chunks.get(i).remaining();
+            assertTrue(length <= MAX, "chunk " + i + " is " + length + " bytes");
+            if (i < chunks.size() - 1) {
+                assertTrue(length >= MIN, "chunk " + i + " is " + length + " bytes");
+            }
+            total += length;
+        }
+        assertEquals(data.length, total);
+        assertTrue(chunks.size() > 8, "only " + chunks.size() + " chunks");
+    }
+
+    @Test
+    void insertionOnlyChangesTheChunksAroundIt() throws IOException {
+        byte[] data = randomBytes(8 * 1024 * 1024, 3);
+        byte[] edited = new byte[data.length + 100];
+        System.arraycopy(data, 0, edited, 0, 1000);
+        System.arraycopy(randomBytes(100, 4), 0, edited, 1000, 100);
+        System.arraycopy(data, 1000, edited, 1100, data.length - 1000);
+
+        List<ByteBuffer> original = chunks(data);
+        List<ByteBuffer> shifted = chunks(edited);
+        // everything after the first couple of chunks lines up again
+        int tail = original.size() - 2;
+        assertTrue(tail > 4, "only " + original.size() + " chunks");
+        assertEquals(original.subList(original.size() - tail, original.size()),
+                shifted.subList(shifted.size() - tail, shifted.size()));
+    }
+
+    private static List<ByteBuffer> chunks(byte[] data) throws IOException {
+        ContentDefinedChunker chunker = new ContentDefinedChunker(new ByteArrayInputStream(data), MIN, AVERAGE, MAX);
+        ByteBuffer buffer = ByteBuffer.allocate(chunker.getMaxBytes());
+        List<ByteBuffer> chunks = new ArrayList<>();
+        while (chunker.next(buffer) > 0) {
+            ByteBuffer chunk = ByteBuffer.allocate(buffer.remaining());
+            chunk.put(buffer).flip();
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
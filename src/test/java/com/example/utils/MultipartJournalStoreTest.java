@@ -0,0 +1,42 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// One attempt at a time per transfer key; the key is released with the journal
+class MultipartJournalStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void secondAttemptCannotLockARunningTransfer() {
+        MultipartJournalStore store = new MultipartJournalStore(directory.toString());
+        assertTrue(store.tryLock("upload:a"));
+        assertFalse(store.tryLock("upload:a"));
+        assertTrue(store.tryLock("upload:b"));
+        store.unlock("upload:a");
+        assertTrue(store.tryLock("upload:a"));
+    }
+
+    @Test
+    void closingTheJournalReleasesItsKey() throws Exception {
+        MultipartJournalStore store = new MultipartJournalStore(directory.toString());
+        assertTrue(store.tryLock("upload:a"));
+        MultipartUploadJournal journal = MultipartUploadJournal.create(directory.resolve("a.journal"), "upload:a", "r1", "ns",
+                "bucket", "object", "upload-1", 10, 100);
+        store.holdUntilClosed(journal);
+        journal.recordPart(1, "etag-1", "md5-1");
+        assertFalse(store.tryLock("upload:a"));
+
+        journal.close();
+        assertTrue(store.tryLock("upload:a"));
+        assertEquals("etag-1", MultipartUploadJournal.load(directory.resolve("a.journal")).getCommittedParts().get(1));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// opc-multipart-md5 as Object Storage reports it: Base64 MD5 of the concatenated raw part MD5s, then "-<part count>"
+class MultipartMd5Test {
+
+    @Test
+    void composesPartDigestsInPartNumberOrder() throws Exception {
+        Map<Integer, String> partMd5s = new HashMap<>();
+        partMd5s.put(3, md5("part three"));
+        partMd5s.put(1, md5("part one"));
+        partMd5s.put(2, md5("part two"));
+
+        // computed independently of the code under test
+        assertEquals("nEaypcg21bb/9CnZDK4kzw==-3", ObjectStorageUtils.multipartMd5(Arrays.asList(3, 1, 2), partMd5s));
+    }
+
+    @Test
+    void partDigestsAreBase64Md5OfTheBody() throws Exception {
+        assertEquals("MwPhKvR0yhHYXtKWapMpkg==", md5("part one"));
+    }
+
+    @Test
+    void singlePartIsStillSuffixed() throws Exception {
+        Map<Integer, String> partMd5s = Collections.singletonMap(1, md5("part one"));
+
+        assertEquals("pnWXS4+5v+odUAfOJoloEQ==-1", ObjectStorageUtils.multipartMd5(Collections.singletonList(1), partMd5s));
+    }
+
+    @Test
+    void unknownWhenAnyPartDigestIsMissing() throws Exception {
+        Map<Integer, String> partMd5s = Collections.singletonMap(1, md5("part one"));
+
+        assertNull(ObjectStorageUtils.multipartMd5(Arrays.asList(1, 2), partMd5s));
+    }
+
+    @Test
+    void unknownWithoutParts() {
+        assertNull(ObjectStorageUtils.multipartMd5(Collections.emptyList(), Collections.emptyMap()));
+    }
+
+    private static String md5(String body) throws Exception {
+        return ObjectStorageUtils.md5Of(ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.utils;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.config.ResilienceConfiguration;
+import com.oracle.bmc.model.BmcException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Retry classification and limits, hedging of slow reads and the breaker around attempts; hedge latency is tracked per
+// operation and power-of-two size class
+class RequestResilienceTest {
+    private static final long MIB = 1024 * 1024;
+
+    private final ExecutorService hedgeExecutorService = Executors.newCachedThreadPool();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @AfterEach
+    void shutdown() {
+        hedgeExecutorService.shutdownNow();
+    }
+
+    @Test
+    void sizeClassRoundsUpToPowerOfTwoMiB() {
+        assertEquals("le_1MiB", RequestResilience.sizeClass(1));
+        assertEquals("le_1MiB", RequestResilience.sizeClass(MIB));
+        assertEquals("le_2MiB", RequestResilience.sizeClass(MIB + 1));
+        assertEquals("le_16MiB", RequestResilience.sizeClass(16 * MIB));
+        assertEquals("le_32MiB", RequestResilience.sizeClass(20 * MIB));
+        assertEquals("le_32MiB", RequestResilience.sizeClass(32 * MIB));
+        assertEquals("le_64MiB", RequestResilience.sizeClass(64 * MIB));
+    }
+
+    @Test
+    void sizeClassOfUnknownSize() {
+        assertEquals(ObjectStorageMetrics.NO_SIZE, RequestResilience.sizeClass(0));
+        assertEquals(ObjectStorageMetrics.NO_SIZE, RequestResilience.sizeClass(-1));
+    }
+
+    @Test
+    void retriesServerSideAndTransportFailuresOnly() {
+        assertTrue(RequestResilience.isRetryable(bmc(409)));
+        assertTrue(RequestResilience.isRetryable(bmc(429)));
+        assertTrue(RequestResilience.isRetryable(bmc(500)));
+        assertTrue(RequestResilience.isRetryable(bmc(503)));
+        assertTrue(RequestResilience.isRetryable(bmc(0)));
+        assertTrue(RequestResilience.isRetryable(new IOException("reset")));
+        assertTrue(RequestResilience.isRetryable(new UncheckedIOException(new IOException("reset"))));
+
+        assertFalse(RequestResilience.isRetryable(bmc(400)));
+        assertFalse(RequestResilience.isRetryable(bmc(404)));
+        assertFalse(RequestResilience.isRetryable(bmc(412)));
+        assertFalse(RequestResilience.isRetryable(new CircuitBreakerOpenException("r1")));
+        assertFalse(RequestResilience.isRetryable(new IllegalStateException("bug")));
+    }
+
+    @Test
+    void stopsAfterMaxAttempts() {
+        RequestResilience resilience = resilience(configuration());
+        AtomicInteger attempts = new AtomicInteger();
+
+        IOException failure = assertThrows(IOException.class, () -> resilience.call("uploadPart", cancelled -> {
+            attempts.incrementAndGet();
+            throw new IOException("reset");
+        }));
+        assertEquals("reset", failure.getMessage());
+        assertEquals(3, attempts.get());
+        assertEquals(2, metricRegistry.counter(MetricRegistry.name(RequestResilience.class, "r1", "retries")).getCount());
+    }
+
+    @Test
+    void returnsTheFirstSuccessfulAttempt() throws Exception {
+        RequestResilience resilience = resilience(configuration());
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = resilience.call("uploadPart", cancelled -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw bmc(503);
+            }
+            return "etag";
+        });
+        assertEquals("etag", result);
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        RequestResilience resilience = resilience(configuration());
+        AtomicInteger attempts = new AtomicInteger();
+
+        BmcException failure = assertThrows(BmcException.class, () -> resilience.call("getObject", cancelled -> {
+            attempts.incrementAndGet();
+            throw bmc(412);
+        }));
+        assertEquals(412, failure.getStatusCode());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void backoffIsJitteredUpToTheCappedExponentialDelay() {
+        ResilienceConfiguration configuration = configuration();
+        configuration.setBaseDelayMillis(100);
+        configuration.setMaxDelayMillis(1_000);
+        RequestResilience resilience = resilience(configuration);
+
+        long[] ceilings = {100, 200, 400, 800, 1_000, 1_000};
+        for (int attempt = 1; attempt <= ceilings.length; attempt++) {
+            Set<Long> delays = new HashSet<>();
+            for (int i = 0; i < 200; i++) {
+                long delay = resilience.backoffMillis(attempt);
+                assertTrue(delay >= 0 && delay <= ceilings[attempt - 1], "attempt " + attempt + " slept " + delay + " ms");
+                delays.add(delay);
+            }
+            assertTrue(delays.size() > 10, "attempt " + attempt + " is not jittered: " + delays);
+        }
+    }
+
+    @Test
+    void openBreakerRejectsWithoutCallingTheService() {
+        ResilienceConfiguration configuration = configuration();
+        configuration.setMaxAttempts(1);
+        configuration.setBreakerFailureThreshold(2);
+        RequestResilience resilience = resilience(configuration);
+        AtomicInteger attempts = new AtomicInteger();
+        RequestResilience.Attempt<String> failing = cancelled -> {
+            attempts.incrementAndGet();
+            throw bmc(503);
+        };
+
+        assertThrows(BmcException.class, () -> resilience.call("getObject", failing));
+        // a client error says nothing about the region and resets the count
+        assertThrows(BmcException.class, () -> resilience.call("getObject", cancelled -> {
+            throw bmc(404);
+        }));
+        assertThrows(BmcException.class, () -> resilience.call("getObject", failing));
+        assertEquals(CircuitBreaker.State.CLOSED, resilience.getBreakerState());
+        assertThrows(BmcException.class, () -> resilience.call("getObject", failing));
+        assertEquals(CircuitBreaker.State.OPEN, resilience.getBreakerState());
+
+        assertThrows(CircuitBreakerOpenException.class, () -> resilience.call("getObject", failing));
+        assertEquals(3, attempts.get());
+        assertEquals(1, metricRegistry.counter(MetricRegistry.name(RequestResilience.class, "r1", "breaker_rejections")).getCount());
+    }
+
+    @Test
+    void slowReadIsHedgedAfterTheObservedP95() throws Exception {
+        ResilienceConfiguration configuration = configuration();
+        configuration.setHedgeMinSamples(1);
+        configuration.setHedgeMinDelayMillis(50);
+        configuration.setHedgeDelayRefreshMillis(1);
+        RequestResilience resilience = resilience(configuration);
+
+        // no samples yet: never hedged
+        assertEquals("fast", resilience.callHedged("getObject range", MIB, cancelled -> "fast", null));
+        Thread.sleep(5);
+
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch discarded = new CountDownLatch(1);
+        AtomicReference<String> loser = new AtomicReference<>();
+        long start = System.nanoTime();
+        String result = resilience.callHedged("getObject range", MIB, cancelled -> {
+            if (attempts.incrementAndGet() == 1) {
+                // the straggler runs until the hedge has won
+                while (!cancelled.get()) {
+                    Thread.sleep(1);
+                }
+                return "primary";
+            }
+            return "backup";
+        }, value -> {
+            loser.set(value);
+            discarded.countDown();
+        });
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("backup", result);
+        assertEquals(2, attempts.get());
+        assertTrue(elapsedMillis >= 50, "hedged after " + elapsedMillis + " ms");
+        assertTrue(discarded.await(5, TimeUnit.SECONDS));
+        assertEquals("primary", loser.get());
+        assertEquals(1, metricRegistry.counter(MetricRegistry.name(RequestResilience.class, "r1", "hedges")).getCount());
+        assertEquals(1, metricRegistry.counter(MetricRegistry.name(RequestResilience.class, "r1", "hedge_wins")).getCount());
+    }
+
+    @Test
+    void fastReadIsNotHedged() throws Exception {
+        ResilienceConfiguration configuration = configuration();
+        configuration.setHedgeMinSamples(1);
+        configuration.setHedgeMinDelayMillis(200);
+        configuration.setHedgeDelayRefreshMillis(1);
+        RequestResilience resilience = resilience(configuration);
+        resilience.callHedged("getObject range", MIB, cancelled -> "warm", null);
+        Thread.sleep(5);
+
+        AtomicInteger attempts = new AtomicInteger();
+        assertEquals("only", resilience.callHedged("getObject range", MIB, cancelled -> {
+            attempts.incrementAndGet();
+            return "only";
+        }, value -> {
+            throw new AssertionError("nothing to discard");
+        }));
+        assertEquals(1, attempts.get());
+        assertEquals(0, metricRegistry.counter(MetricRegistry.name(RequestResilience.class, "r1", "hedges")).getCount());
+    }
+
+    private RequestResilience resilience(ResilienceConfiguration configuration) {
+        return new RequestResilience("r1", configuration, metricRegistry, hedgeExecutorService);
+    }
+
+    private static ResilienceConfiguration configuration() {
+        ResilienceConfiguration configuration = new ResilienceConfiguration();
+        configuration.setMaxAttempts(3);
+        configuration.setBaseDelayMillis(1);
+        configuration.setMaxDelayMillis(2);
+        return configuration;
+    }
+
+    private static BmcException bmc(int status) {
+        return new BmcException(status, "Error", "status " + status, "request-id");
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.utils;
+
+import com.codahale.metrics.MetricRegistry;
+import com.example.config.TransferConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// checkCapacity answers what submit would, without queueing
+class TransferSchedulerTest {
+
+    @Test
+    void checkCapacityRejectsAFlowWithAFullQueue() throws Exception {
+        TransferConfiguration configuration = new TransferConfiguration();
+        configuration.getScheduler().setLargeLaneConcurrency(1);
+        configuration.getScheduler().setMaxQueuedPerFlow(1);
+        MetricRegistry metricRegistry = new MetricRegistry();
+        TransferScheduler scheduler = new TransferScheduler(configuration, new PartBufferPool(1024, metricRegistry), metricRegistry);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            scheduler.submit(TransferScheduler.Lane.LARGE, "caller:a", 1, () -> {
+                running.countDown();
+                awaitQuietly(release);
+            });
+            running.await();
+            scheduler.checkCapacity(TransferScheduler.Lane.LARGE, "caller:a");
+            scheduler.submit(TransferScheduler.Lane.LARGE, "caller:a", 1, () -> { });
+
+            TransferRejectedException rejected = assertThrows(TransferRejectedException.class,
+                    () -> scheduler.checkCapacity(TransferScheduler.Lane.LARGE, "caller:a"));
+            assertEquals(429, rejected.getStatus());
+            scheduler.checkCapacity(TransferScheduler.Lane.LARGE, "caller:b");
+            scheduler.checkCapacity(TransferScheduler.Lane.SMALL, "caller:a");
+        } finally {
+            release.countDown();
+            scheduler.shutdown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}